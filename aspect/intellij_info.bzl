@@ -54,3 +54,27 @@ def _aspect_impl(target, ctx):
     return intellij_info_aspect_impl(target, ctx, semantics)
 
 intellij_info_aspect = make_intellij_info_aspect(_aspect_impl, semantics)
+
+def _json_aspect_impl(target, ctx):
+    return intellij_info_aspect_impl(target, ctx, semantics, ide_info_format = "json")
+
+def _bundle_aspect_impl(target, ctx):
+    return intellij_info_aspect_impl(target, ctx, semantics, bundle_ide_info = True)
+
+def _json_bundle_aspect_impl(target, ctx):
+    return intellij_info_aspect_impl(
+        target,
+        ctx,
+        semantics,
+        ide_info_format = "json",
+        bundle_ide_info = True,
+    )
+
+# Identical to intellij_info_aspect, but writes the ide info files in the more compact JSON format.
+intellij_info_json_aspect = make_intellij_info_aspect(_json_aspect_impl, semantics)
+
+# Variants of the above which gather the ide info files into bundles of roughly
+# DEFAULT_MIN_BUNDLE_SIZE files each, rather than returning the individual ide info files.
+intellij_info_bundle_aspect = make_intellij_info_aspect(_bundle_aspect_impl, semantics)
+
+intellij_info_json_bundle_aspect = make_intellij_info_aspect(_json_bundle_aspect_impl, semantics)
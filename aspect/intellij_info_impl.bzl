@@ -208,7 +208,12 @@ def get_aspect_ids(ctx, target):
         aspect_ids = target.aspect_ids
     else:
         return None
-    return [aspect_id for aspect_id in aspect_ids if "intellij_info_aspect" not in aspect_id]
+    return [aspect_id for aspect_id in aspect_ids if not _is_intellij_info_aspect_id(aspect_id)]
+
+def _is_intellij_info_aspect_id(aspect_id):
+    """Returns whether the aspect id refers to one of the intellij_info_*aspect variants."""
+    aspect_name = aspect_id.rpartition("%")[2]
+    return aspect_name.startswith("intellij_info_") and aspect_name.endswith("_aspect")
 
 def _is_language_specific_proto_library(ctx, target):
     """Returns True if the target is a proto library with attached language-specific aspect."""
@@ -614,7 +619,8 @@ def build_java_package_manifest(ctx, target, source_files, suffix):
         join_with = ":",
         map_each = _package_manifest_file_argument,
     )
-    args.use_param_file("@%s")
+    # persistent workers are only used when all arguments are passed via a param file
+    args.use_param_file("@%s", use_always = True)
     args.set_param_file_format("multiline")
 
     ctx.actions.run(
@@ -622,6 +628,7 @@ def build_java_package_manifest(ctx, target, source_files, suffix):
         outputs = [output],
         executable = ctx.executable._package_parser,
         arguments = [args],
+        execution_requirements = {"supports-workers": "1"},
         mnemonic = "JavaPackageManifest",
         progress_message = "Parsing java package strings for " + str(target.label),
     )
@@ -643,24 +650,25 @@ def build_filtered_gen_jar(ctx, target, java, gen_java_sources, srcjars):
 
     filtered_jar = ctx.actions.declare_file(target.label.name + "-filtered-gen.jar")
     filtered_source_jar = ctx.actions.declare_file(target.label.name + "-filtered-gen-src.jar")
-    args = []
-    for jar in jar_artifacts:
-        args += ["--filter_jar", jar.path]
-    for jar in source_jar_artifacts:
-        args += ["--filter_source_jar", jar.path]
-    args += ["--filtered_jar", filtered_jar.path]
-    args += ["--filtered_source_jar", filtered_source_jar.path]
+    args = ctx.actions.args()
+    args.add_all(jar_artifacts, before_each = "--filter_jar")
+    args.add_all(source_jar_artifacts, before_each = "--filter_source_jar")
+    args.add("--filtered_jar")
+    args.add(filtered_jar.path)
+    args.add("--filtered_source_jar")
+    args.add(filtered_source_jar.path)
     if gen_java_sources:
-        for java_file in gen_java_sources:
-            args += ["--keep_java_file", java_file.path]
+        args.add_all(gen_java_sources, before_each = "--keep_java_file")
     if srcjars:
-        for source_jar in srcjars:
-            args += ["--keep_source_jar", source_jar.path]
+        args.add_all(srcjars, before_each = "--keep_source_jar")
+    args.use_param_file("@%s", use_always = True)
+    args.set_param_file_format("multiline")
     ctx.actions.run(
         inputs = jar_artifacts + source_jar_artifacts + gen_java_sources + srcjars,
         outputs = [filtered_jar, filtered_source_jar],
         executable = ctx.executable._jar_filter,
-        arguments = args,
+        arguments = [args],
+        execution_requirements = {"supports-workers": "1"},
         mnemonic = "JarFilter",
         progress_message = "Filtering generated code for " + str(target.label),
     )
@@ -790,8 +798,107 @@ def collect_java_toolchain_info(target, ide_info, ide_info_file, output_groups):
 
 ##### Main aspect function
 
-def intellij_info_aspect_impl(target, ctx, semantics):
-    """Aspect implementation function."""
+# The number of not-yet-bundled ide info files at which a target bundles them, in bundle mode.
+# Ide info files are typically a few KB, so bundles end up a few MB each.
+DEFAULT_MIN_BUNDLE_SIZE = 1000
+
+def _is_ide_info_file(f):
+    return f.basename.endswith(".intellij-info.txt")
+
+def build_ide_info_bundles(target, ctx, output_name, output_groups, prerequisites, min_bundle_size):
+    """Bundles ide info files.
+
+    Each ide info file is passed up the dependency graph unbundled until some target has gathered at
+    least min_bundle_size of them, at which point that target bundles them into a single file. So
+    each file is normally bundled once, rather than once per top-level target depending on it. The
+    returned output_groups contain the bundles and any other (non ide info) files, and
+    unbundled_info_files those ide info files which haven't been bundled yet.
+
+    The unbundled files are counted rather than flattened, so no target walks its transitive ide
+    info files. The counts are summed over deps, so overestimate where deps share files; such
+    targets just bundle a little early.
+
+    Args:
+      target: the target the aspect is applied to.
+      ctx: the aspect context.
+      output_name: the ide info file name for this target, minus extension.
+      output_groups: this target's own output groups.
+      prerequisites: the targets whose outputs are rolled up into this target's.
+      min_bundle_size: the number of unbundled ide info files at which to create a bundle.
+
+    Returns:
+      The (output_groups, unbundled_info_files, unbundled_info_counts) dicts, keyed by group.
+    """
+    bundled_groups = dict()
+    unbundled_groups = dict()
+    unbundled_counts = dict()
+    for dep in prerequisites:
+        for k, v in dep.intellij_info.output_groups.items():
+            update_set_in_dict(bundled_groups, k, v)
+        for k, v in dep.intellij_info.unbundled_info_files.items():
+            update_set_in_dict(unbundled_groups, k, v)
+        for k, v in dep.intellij_info.unbundled_info_counts.items():
+            unbundled_counts[k] = unbundled_counts.get(k, 0) + v
+
+    for group, files in output_groups.items():
+        if not group.startswith("intellij-info-"):
+            update_set_in_dict(bundled_groups, group, files)
+            continue
+
+        # Only this target's own files, so cheap to flatten.
+        own_files = files.to_list()
+        update_set_in_dict(
+            bundled_groups,
+            group,
+            depset([f for f in own_files if not _is_ide_info_file(f)]),
+        )
+        own_info_files = [f for f in own_files if _is_ide_info_file(f)]
+        update_set_in_dict(unbundled_groups, group, depset(own_info_files))
+        unbundled_counts[group] = unbundled_counts.get(group, 0) + len(own_info_files)
+
+    for group in unbundled_groups.keys():
+        if unbundled_counts.get(group, 0) < min_bundle_size:
+            continue
+        info_files = unbundled_groups[group]
+        bundle = ctx.actions.declare_file(output_name + "." + group + ".intellij-info-bundle")
+        args = ctx.actions.args()
+        args.add("--output_bundle")
+        args.add(bundle.path)
+        args.add_all(info_files, before_each = "--info_file")
+        args.use_param_file("@%s")
+        args.set_param_file_format("multiline")
+        ctx.actions.run(
+            inputs = info_files,
+            outputs = [bundle],
+            executable = ctx.executable._info_bundler,
+            arguments = [args],
+            mnemonic = "IntellijInfoBundle",
+            progress_message = "Bundling IDE info for " + str(target.label),
+        )
+        update_set_in_dict(bundled_groups, group, depset([bundle]))
+        unbundled_groups[group] = depset()
+        unbundled_counts[group] = 0
+    return bundled_groups, unbundled_groups, unbundled_counts
+
+def intellij_info_aspect_impl(
+        target,
+        ctx,
+        semantics,
+        ide_info_format = "text",
+        bundle_ide_info = False,
+        min_bundle_size = DEFAULT_MIN_BUNDLE_SIZE):
+    """Aspect implementation function.
+
+    Args:
+      target: the target the aspect is applied to.
+      ctx: the aspect context.
+      semantics: the build system specific semantics.
+      ide_info_format: the encoding of the ide info file; either "text" (text proto), or the more
+        compact "json". The IDE accepts either.
+      bundle_ide_info: if true, the ide info output groups contain bundles of the transitive
+        ide info files, rather than the individual files.
+      min_bundle_size: in bundle mode, the minimum number of ide info files per bundle.
+    """
 
     tags = ctx.rule.attr.tags
     if "no-ide" in tags:
@@ -846,12 +953,14 @@ def intellij_info_aspect_impl(target, ctx, semantics):
         semantics_extra_deps(PREREQUISITE_DEPS, semantics, "extra_prerequisites"),
     )
 
-    # Roll up output files from my prerequisites
+    # Roll up output files from my prerequisites. In bundle mode they're merged after this target's
+    # own ide info files are known.
     prerequisites = direct_dep_targets + runtime_dep_targets + extra_prerequisite_targets
     output_groups = dict()
-    for dep in prerequisites:
-        for k, v in dep.intellij_info.output_groups.items():
-            update_set_in_dict(output_groups, k, v)
+    if not bundle_ide_info:
+        for dep in prerequisites:
+            for k, v in dep.intellij_info.output_groups.items():
+                update_set_in_dict(output_groups, k, v)
 
     # Initialize the ide info dict, and corresponding output file
     # This will be passed to each language-specific handler to fill in as required
@@ -864,8 +973,7 @@ def intellij_info_aspect_impl(target, ctx, semantics):
     if aspect_ids:
         aspect_hash = hash(".".join(aspect_ids))
         file_name = file_name + "-" + str(aspect_hash)
-    file_name = file_name + ".intellij-info.txt"
-    ide_info_file = ctx.actions.declare_file(file_name)
+    ide_info_file = ctx.actions.declare_file(file_name + ".intellij-info.txt")
 
     target_key = make_target_key(target.label, aspect_ids)
     ide_info = dict(
@@ -901,15 +1009,34 @@ def intellij_info_aspect_impl(target, ctx, semantics):
 
     # Output the ide information file.
     info = struct_omit_none(**ide_info)
-    ctx.actions.write(ide_info_file, info.to_proto())
+    ctx.actions.write(ide_info_file, info.to_json() if ide_info_format == "json" else info.to_proto())
+
+    # Bundle the ide info files. Those not bundled yet are still output individually.
+    unbundled_info_files = dict()
+    unbundled_info_counts = dict()
+    returned_output_groups = output_groups
+    if bundle_ide_info:
+        output_groups, unbundled_info_files, unbundled_info_counts = build_ide_info_bundles(
+            target,
+            ctx,
+            file_name,
+            output_groups,
+            prerequisites,
+            min_bundle_size,
+        )
+        returned_output_groups = dict(output_groups)
+        for k, v in unbundled_info_files.items():
+            update_set_in_dict(returned_output_groups, k, v)
 
     # Return providers.
     return struct_omit_none(
-        output_groups = output_groups,
+        output_groups = returned_output_groups,
         intellij_info = struct(
             target_key = target_key,
             kind = ctx.rule.kind,
             output_groups = output_groups,
+            unbundled_info_files = unbundled_info_files,
+            unbundled_info_counts = unbundled_info_counts,
             export_deps = export_deps,
         ),
     )
@@ -943,6 +1070,12 @@ def make_intellij_info_aspect(aspect_impl, semantics):
             executable = True,
             allow_files = True,
         ),
+        "_info_bundler": attr.label(
+            default = tool_label("InfoBundler"),
+            cfg = "host",
+            executable = True,
+            allow_files = True,
+        ),
         "_flag_hack": attr.label(
             default = flag_hack_label,
         ),
@@ -3,12 +3,32 @@
 load(
     "//aspect:intellij_info.bzl",
     "intellij_info_aspect",
+    "intellij_info_json_aspect",
+    "semantics",
 )
 load(
     "//aspect:intellij_info_impl.bzl",
+    "intellij_info_aspect_impl",
+    "make_intellij_info_aspect",
     "update_set_in_dict",
 )
 
+def _test_bundle_aspect_impl(target, ctx):
+    return intellij_info_aspect_impl(
+        target,
+        ctx,
+        semantics,
+        bundle_ide_info = True,
+        min_bundle_size = 3,
+    )
+
+# Bundles every few ide info files, so the bundling is exercised by small test projects.
+intellij_info_test_bundle_aspect = make_intellij_info_aspect(_test_bundle_aspect_impl, semantics)
+
+def _is_fixture_input(f):
+    return (f.short_path.endswith(".intellij-info.txt") or
+            f.short_path.endswith(".intellij-info-bundle"))
+
 def _impl(ctx):
     """Implementation method for _intellij_aspect_test_fixture."""
     output_groups = dict()
@@ -17,10 +37,11 @@ def _impl(ctx):
     for dep in deps:
         for k, v in dep.intellij_info.output_groups.items():
             update_set_in_dict(output_groups, k, v)
-            inputs = depset(
-                [f for f in v.to_list() if f.short_path.endswith(".intellij-info.txt")],
-                transitive = [inputs],
-            )
+        for k, v in dep.intellij_info.unbundled_info_files.items():
+            update_set_in_dict(output_groups, k, v)
+    if ctx.attr._parse_ide_info:
+        for v in output_groups.values():
+            inputs = depset([f for f in v.to_list() if _is_fixture_input(f)], transitive = [inputs])
 
     output_name = ctx.attr.output
     output = ctx.actions.declare_file(output_name)
@@ -50,22 +71,45 @@ def _impl(ctx):
         ),
     )
 
-_intellij_aspect_test_fixture = rule(
-    _impl,
-    attrs = {
-        "deps": attr.label_list(aspects = [intellij_info_aspect]),
-        "output": attr.string(mandatory = True),
-        "_intellij_aspect_test_fixture_builder": attr.label(
-            default = Label("//aspect/testing/rules:IntellijAspectTestFixtureBuilder"),
-            cfg = "host",
-            executable = True,
-            allow_files = True,
-        ),
-    },
+def _make_intellij_aspect_test_fixture(aspect, parse_ide_info):
+    return rule(
+        _impl,
+        attrs = {
+            "deps": attr.label_list(aspects = [aspect]),
+            "output": attr.string(mandatory = True),
+            "_parse_ide_info": attr.bool(default = parse_ide_info),
+            "_intellij_aspect_test_fixture_builder": attr.label(
+                default = Label("//aspect/testing/rules:IntellijAspectTestFixtureBuilder"),
+                cfg = "host",
+                executable = True,
+                allow_files = True,
+            ),
+        },
+    )
+
+_intellij_aspect_test_fixture = _make_intellij_aspect_test_fixture(
+    intellij_info_aspect,
+    parse_ide_info = True,
+)
+
+# The fixture builder only understands text protos, so this variant just records the output groups.
+_intellij_json_aspect_test_fixture = _make_intellij_aspect_test_fixture(
+    intellij_info_json_aspect,
+    parse_ide_info = False,
+)
+
+_intellij_bundle_aspect_test_fixture = _make_intellij_aspect_test_fixture(
+    intellij_info_test_bundle_aspect,
+    parse_ide_info = True,
 )
 
-def intellij_aspect_test_fixture(name, deps):
-    _intellij_aspect_test_fixture(
+def intellij_aspect_test_fixture(name, deps, json_ide_info = False, bundle_ide_info = False):
+    fixture = _intellij_aspect_test_fixture
+    if json_ide_info:
+        fixture = _intellij_json_aspect_test_fixture
+    elif bundle_ide_info:
+        fixture = _intellij_bundle_aspect_test_fixture
+    fixture(
         name = name,
         output = name + ".intellij-aspect-test-fixture",
         deps = deps,
@@ -23,6 +23,8 @@ import com.google.devtools.intellij.IntellijAspectTestFixtureOuterClass.Intellij
 import com.google.devtools.intellij.IntellijAspectTestFixtureOuterClass.OutputGroup;
 import com.google.devtools.intellij.ideinfo.IntellijIdeInfo.TargetIdeInfo;
 import com.google.protobuf.TextFormat;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -36,6 +38,8 @@ import java.util.List;
 
 /** Combines a bunch of ide infos into an test fixture. */
 public class IntellijAspectTestFixtureBuilder {
+  private static final int BUNDLE_MAGIC = 0x494a4201;
+
   public static void main(String[] args) {
     try {
       String paramsFile = args[0].substring(1);
@@ -44,7 +48,7 @@ public class IntellijAspectTestFixtureBuilder {
 
       IntellijAspectTestFixture.Builder builder = IntellijAspectTestFixture.newBuilder();
       String outputFilePath = realArgs.get(0);
-      String[] aspectFiles = realArgs.get(1).split(":");
+      List<String> aspectFiles = Splitter.on(':').omitEmptyStrings().splitToList(realArgs.get(1));
       builder.addAllTargets(parseTargets(aspectFiles));
       for (int i = 2; i < realArgs.size(); i += 2) {
         String name = realArgs.get(i);
@@ -64,14 +68,44 @@ public class IntellijAspectTestFixtureBuilder {
     }
   }
 
-  private static List<TargetIdeInfo> parseTargets(String[] aspectFilePaths) throws IOException {
+  private static List<TargetIdeInfo> parseTargets(List<String> aspectFilePaths)
+      throws IOException {
     ImmutableList.Builder<TargetIdeInfo> targets = ImmutableList.builder();
     for (String path : aspectFilePaths) {
-      targets.add(readAspectFile(new File(path)));
+      if (path.endsWith(".intellij-info-bundle")) {
+        targets.addAll(readAspectBundle(new File(path)));
+      } else {
+        targets.add(readAspectFile(new File(path)));
+      }
     }
     return targets.build();
   }
 
+  /** Reads the ide info files out of a bundle written by the aspect's InfoBundler tool. */
+  private static List<TargetIdeInfo> readAspectBundle(File file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != BUNDLE_MAGIC) {
+        throw new IOException("Not an aspect output bundle: " + file);
+      }
+      int[] lengths = new int[in.readInt()];
+      for (int i = 0; i < lengths.length; i++) {
+        in.readUTF(); // path
+        in.readLong(); // digest
+        lengths[i] = in.readInt();
+      }
+      ImmutableList.Builder<TargetIdeInfo> targets = ImmutableList.builder();
+      for (int length : lengths) {
+        byte[] contents = new byte[length];
+        in.readFully(contents);
+        TargetIdeInfo.Builder builder = TargetIdeInfo.newBuilder();
+        TextFormat.Parser.newBuilder().build().merge(new String(contents, UTF_8), builder);
+        targets.add(builder.build());
+      }
+      return targets.build();
+    }
+  }
+
   private static TargetIdeInfo readAspectFile(File file) throws IOException {
     try (InputStream inputStream = new FileInputStream(file)) {
       TargetIdeInfo.Builder builder = TargetIdeInfo.newBuilder();
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.aspect.general.aspectids;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.devtools.intellij.IntellijAspectTestFixtureOuterClass.IntellijAspectTestFixture;
+import com.google.idea.blaze.BazelIntellijAspectTest;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests that the intellij_info aspect variants don't treat themselves as extra aspects. */
+@RunWith(JUnit4.class)
+public class AspectIdsTest extends BazelIntellijAspectTest {
+  @Test
+  public void testJsonAspectInfoFilesHaveNoAspectHash() throws Exception {
+    IntellijAspectTestFixture testFixture = loadTestFixture(":json_fixture");
+    List<String> infoFiles =
+        getOutputGroupFiles(testFixture, "intellij-info-java").stream()
+            .filter(path -> path.endsWith(".intellij-info.txt"))
+            .map(path -> path.substring(path.lastIndexOf('/') + 1))
+            .collect(Collectors.toList());
+
+    assertThat(infoFiles).hasSize(2);
+    for (String fileName : infoFiles) {
+      assertThat(fileName).matches("(lib|dep)--?\\d+\\.intellij-info\\.txt");
+    }
+  }
+}
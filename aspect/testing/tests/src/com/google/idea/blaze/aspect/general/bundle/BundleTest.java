@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.aspect.general.bundle;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.devtools.intellij.IntellijAspectTestFixtureOuterClass.IntellijAspectTestFixture;
+import com.google.idea.blaze.BazelIntellijAspectTest;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests bundling of the ide info files. The fixture's aspect bundles every 3 files. */
+@RunWith(JUnit4.class)
+public class BundleTest extends BazelIntellijAspectTest {
+  @Test
+  public void testBundledTargetsHaveNoAspectIds() throws Exception {
+    IntellijAspectTestFixture testFixture = loadTestFixture(":bundle_fixture");
+    assertThat(testFixture.getTargetsList()).hasSize(4);
+    assertThat(findTarget(testFixture, ":top")).isNotNull();
+    assertThat(findTarget(testFixture, ":lib")).isNotNull();
+    assertThat(findTarget(testFixture, ":dep1")).isNotNull();
+    assertThat(findTarget(testFixture, ":dep2")).isNotNull();
+  }
+
+  @Test
+  public void testInfoFilesBundledOnceEnoughAreGathered() throws Exception {
+    IntellijAspectTestFixture testFixture = loadTestFixture(":bundle_fixture");
+    List<String> files = getOutputGroupFiles(testFixture, "intellij-info-java");
+
+    assertThat(fileNamesEndingWith(files, ".intellij-info-bundle")).hasSize(1);
+    assertThat(fileNamesEndingWith(files, ".intellij-info-bundle").get(0))
+        .matches("lib--?\\d+\\.intellij-info-java\\.intellij-info-bundle");
+    assertThat(fileNamesEndingWith(files, ".intellij-info.txt")).hasSize(1);
+    assertThat(fileNamesEndingWith(files, ".intellij-info.txt").get(0))
+        .matches("top--?\\d+\\.intellij-info\\.txt");
+  }
+
+  @Test
+  public void testPackageManifestsAreNotBundled() throws Exception {
+    IntellijAspectTestFixture testFixture = loadTestFixture(":bundle_fixture");
+    List<String> files = getOutputGroupFiles(testFixture, "intellij-info-java");
+    assertThat(fileNamesEndingWith(files, ".java-manifest")).hasSize(4);
+  }
+
+  private static List<String> fileNamesEndingWith(List<String> paths, String suffix) {
+    return paths.stream()
+        .filter(path -> path.endsWith(suffix))
+        .map(path -> path.substring(path.lastIndexOf('/') + 1))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.aspect;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bundles many aspect output files into a single indexed file, so the IDE needs to stat, open and
+ * fetch one file rather than one per target.
+ *
+ * <p>The bundle format is:
+ *
+ * <pre>
+ *   int magic
+ *   int entry count
+ *   for each entry: UTF path, long digest, int length
+ *   the entry contents, concatenated in the same order
+ * </pre>
+ *
+ * The index comes first, so readers can skip the contents of entries whose digest hasn't changed.
+ */
+public final class InfoBundler {
+
+  /** Identifies (and versions) the bundle format. */
+  @VisibleForTesting static final int MAGIC = 0x494a4201;
+
+  /** The options for an {@link InfoBundler} action. */
+  @VisibleForTesting
+  static final class InfoBundlerOptions {
+    List<Path> infoFiles;
+    Path outputBundle;
+  }
+
+  @VisibleForTesting
+  static InfoBundlerOptions parseArgs(String[] args) {
+    args = parseParamFileIfUsed(args);
+    InfoBundlerOptions options = new InfoBundlerOptions();
+    options.infoFiles = OptionParser.parseMultiOption(args, "info_file", PATH_PARSER);
+    options.outputBundle = OptionParser.parseSingleOption(args, "output_bundle", PATH_PARSER);
+    return options;
+  }
+
+  private static final Logger logger = Logger.getLogger(InfoBundler.class.getName());
+
+  private static final Function<String, Path> PATH_PARSER =
+      string -> FileSystems.getDefault().getPath(string);
+
+  public static void main(String[] args) throws Exception {
+    InfoBundlerOptions options = parseArgs(args);
+    Preconditions.checkNotNull(options.outputBundle);
+
+    try {
+      writeBundle(options.infoFiles, options.outputBundle);
+    } catch (Throwable e) {
+      logger.log(Level.SEVERE, "Error bundling aspect output files", e);
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  private static String[] parseParamFileIfUsed(String[] args) {
+    if (args.length != 1 || !args[0].startsWith("@")) {
+      return args;
+    }
+    File paramFile = new File(args[0].substring(1));
+    try {
+      return Files.readLines(paramFile, StandardCharsets.UTF_8).toArray(new String[0]);
+    } catch (IOException e) {
+      throw new RuntimeException("Error parsing param file: " + args[0], e);
+    }
+  }
+
+  @VisibleForTesting
+  static void writeBundle(List<Path> infoFiles, Path outputBundle) throws IOException {
+    // The index size is known up front, so the contents are streamed into place after it in a
+    // single pass, and the index (with the digests computed along the way) is written last.
+    List<byte[]> paths = new ArrayList<>(infoFiles.size());
+    long indexSize = 2 * Integer.BYTES;
+    for (Path file : infoFiles) {
+      byte[] path = file.toString().getBytes(StandardCharsets.UTF_8);
+      paths.add(path);
+      indexSize += Short.BYTES + path.length + Long.BYTES + Integer.BYTES;
+    }
+    long[] digests = new long[infoFiles.size()];
+    int[] lengths = new int[infoFiles.size()];
+    try (FileChannel out =
+        FileChannel.open(
+            outputBundle,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      out.position(indexSize);
+      for (int i = 0; i < infoFiles.size(); i++) {
+        byte[] bytes = java.nio.file.Files.readAllBytes(infoFiles.get(i));
+        digests[i] = Hashing.murmur3_128().hashBytes(bytes).asLong();
+        lengths[i] = bytes.length;
+        writeFully(out, ByteBuffer.wrap(bytes));
+      }
+      ByteBuffer index = ByteBuffer.allocate(Math.toIntExact(indexSize));
+      index.putInt(MAGIC).putInt(infoFiles.size());
+      for (int i = 0; i < infoFiles.size(); i++) {
+        // equivalent to DataOutput#writeUTF for the (ascii) paths blaze produces
+        index.putShort((short) paths.get(i).length).put(paths.get(i));
+        index.putLong(digests[i]).putInt(lengths[i]);
+      }
+      index.flip();
+      out.position(0);
+      writeFully(out, index);
+    }
+  }
+
+  private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+  }
+}
@@ -21,20 +21,25 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closer;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
-import java.io.BufferedReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -43,8 +48,6 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -84,10 +87,24 @@ public final class JarFilter {
 
   private static final Logger logger = Logger.getLogger(JarFilter.class.getName());
 
-  private static final Pattern JAVA_PACKAGE_PATTERN =
-      Pattern.compile("^\\s*package\\s+([\\w\\.]+);");
+  /** Package declarations are almost always in this prefix of the file, so it's scanned first. */
+  private static final int PACKAGE_SCAN_PREFIX_SIZE = 16 * 1024;
+
+  /** Shared between requests when running as a persistent worker. */
+  private static final ListeningExecutorService executorService =
+      MoreExecutors.listeningDecorator(
+          Executors.newFixedThreadPool(
+              Runtime.getRuntime().availableProcessors(),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("JarFilter-%d")
+                  .setDaemon(true)
+                  .build()));
 
   public static void main(String[] args) throws Exception {
+    if (PersistentWorker.isPersistentWorker(args)) {
+      PersistentWorker.run(workerArgs -> main(parseArgs(workerArgs)));
+      System.exit(0);
+    }
     JarFilterOptions options = parseArgs(args);
     try {
       main(options);
@@ -109,13 +126,14 @@ public final class JarFilter {
       options.filterSourceJars = ImmutableList.of();
     }
 
-    final List<String> archiveFileNamePrefixes = Lists.newArrayList();
+    List<ListenableFuture<List<String>>> futures = Lists.newArrayList();
     if (options.keepJavaFiles != null) {
-      archiveFileNamePrefixes.addAll(parseJavaFiles(options.keepJavaFiles));
+      futures.addAll(parseJavaFiles(executorService, options.keepJavaFiles));
     }
     if (options.keepSourceJars != null) {
-      archiveFileNamePrefixes.addAll(parseSrcJars(options.keepSourceJars));
+      futures.addAll(parseSrcJars(executorService, options.keepSourceJars));
     }
+    final List<String> archiveFileNamePrefixes = getAll(futures);
 
     filterJars(
         options.filterJars,
@@ -142,29 +160,38 @@ public final class JarFilter {
   }
 
   /** Finds the expected jar archive file name prefixes for the java files. */
-  private static List<String> parseJavaFiles(List<Path> javaFiles) throws IOException {
-    ListeningExecutorService executorService =
-        MoreExecutors.listeningDecorator(
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
-
-    List<ListenableFuture<String>> futures = Lists.newArrayList();
+  private static List<ListenableFuture<List<String>>> parseJavaFiles(
+      ListeningExecutorService executorService, List<Path> javaFiles) {
+    List<ListenableFuture<List<String>>> futures = Lists.newArrayList();
     for (final Path javaFile : javaFiles) {
       futures.add(
           executorService.submit(
               () -> {
                 String packageString = getDeclaredPackageOfJavaFile(javaFile);
                 return packageString != null
-                    ? getArchiveFileNamePrefix(javaFile.toString(), packageString)
-                    : null;
+                    ? ImmutableList.of(getArchiveFileNamePrefix(javaFile.toString(), packageString))
+                    : ImmutableList.of();
               }));
     }
+    return futures;
+  }
+
+  /** Finds the expected jar archive file name prefixes for the java files in each srcjar. */
+  private static List<ListenableFuture<List<String>>> parseSrcJars(
+      ListeningExecutorService executorService, List<Path> srcJars) {
+    List<ListenableFuture<List<String>>> futures = Lists.newArrayList();
+    for (Path srcJar : srcJars) {
+      futures.add(executorService.submit(() -> parseSrcJar(srcJar)));
+    }
+    return futures;
+  }
+
+  private static List<String> getAll(List<ListenableFuture<List<String>>> futures)
+      throws IOException {
     try {
-      List<String> archiveFileNamePrefixes = Futures.allAsList(futures).get();
       List<String> result = Lists.newArrayList();
-      for (String archiveFileNamePrefix : archiveFileNamePrefixes) {
-        if (archiveFileNamePrefix != null) {
-          result.add(archiveFileNamePrefix);
-        }
+      for (List<String> archiveFileNamePrefixes : Futures.allAsList(futures).get()) {
+        result.addAll(archiveFileNamePrefixes);
       }
       return result;
     } catch (InterruptedException e) {
@@ -175,25 +202,19 @@ public final class JarFilter {
     }
   }
 
-  private static List<String> parseSrcJars(List<Path> srcJars) throws IOException {
+  private static List<String> parseSrcJar(Path srcJar) throws IOException {
     List<String> result = Lists.newArrayList();
-    for (Path srcJar : srcJars) {
-      try (ZipFile sourceZipFile = new ZipFile(srcJar.toFile())) {
-        Enumeration<? extends ZipEntry> entries = sourceZipFile.entries();
-        while (entries.hasMoreElements()) {
-          ZipEntry entry = entries.nextElement();
-          if (!entry.getName().endsWith(".java")) {
-            continue;
-          }
-          try (BufferedReader reader =
-              new BufferedReader(
-                  new InputStreamReader(sourceZipFile.getInputStream(entry), UTF_8))) {
-            String packageString = parseDeclaredPackage(reader);
-            if (packageString != null) {
-              String archiveFileNamePrefix =
-                  getArchiveFileNamePrefix(entry.getName(), packageString);
-              result.add(archiveFileNamePrefix);
-            }
+    try (ZipFile sourceZipFile = new ZipFile(srcJar.toFile())) {
+      Enumeration<? extends ZipEntry> entries = sourceZipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!entry.getName().endsWith(".java")) {
+          continue;
+        }
+        try (InputStream inputStream = sourceZipFile.getInputStream(entry)) {
+          String packageString = readDeclaredPackage(inputStream);
+          if (packageString != null) {
+            result.add(getArchiveFileNamePrefix(entry.getName(), packageString));
           }
         }
       }
@@ -203,9 +224,8 @@ public final class JarFilter {
 
   @Nullable
   private static String getDeclaredPackageOfJavaFile(Path javaFile) {
-    try (BufferedReader reader =
-        java.nio.file.Files.newBufferedReader(javaFile, StandardCharsets.UTF_8)) {
-      return parseDeclaredPackage(reader);
+    try (InputStream inputStream = java.nio.file.Files.newInputStream(javaFile)) {
+      return readDeclaredPackage(inputStream);
 
     } catch (IOException e) {
       logger.log(Level.WARNING, "Error parsing package string from java source: " + javaFile, e);
@@ -213,18 +233,97 @@ public final class JarFilter {
     }
   }
 
+  /**
+   * Reads the declared package of a java source file, scanning only a prefix of the file unless
+   * the package declaration isn't found there.
+   */
   @Nullable
-  private static String parseDeclaredPackage(BufferedReader reader) throws IOException {
-    String line;
-    while ((line = reader.readLine()) != null) {
-      Matcher packageMatch = JAVA_PACKAGE_PATTERN.matcher(line);
-      if (packageMatch.find()) {
-        return packageMatch.group(1);
+  private static String readDeclaredPackage(InputStream inputStream) throws IOException {
+    byte[] prefix = new byte[PACKAGE_SCAN_PREFIX_SIZE];
+    int length = ByteStreams.read(inputStream, prefix, 0, prefix.length);
+    // a truncated final line can't produce a false match, as the declaration must end with ';'
+    String packageString = parseDeclaredPackage(prefix, length);
+    if (packageString != null || length < prefix.length) {
+      return packageString;
+    }
+    byte[] rest = ByteStreams.toByteArray(inputStream);
+    byte[] contents = Arrays.copyOf(prefix, length + rest.length);
+    System.arraycopy(rest, 0, contents, length, rest.length);
+    return parseDeclaredPackage(contents, contents.length);
+  }
+
+  /**
+   * Returns the package from the first line of the form {@code <whitespace>package <name>;}, where
+   * the name consists of ascii word characters and dots.
+   */
+  @VisibleForTesting
+  @Nullable
+  static String parseDeclaredPackage(byte[] contents, int length) {
+    int lineStart = 0;
+    while (lineStart < length) {
+      int pos = lineStart;
+      while (pos < length && isWhitespace(contents[pos])) {
+        pos++;
+      }
+      String packageString = matchPackageDeclaration(contents, pos, length);
+      if (packageString != null) {
+        return packageString;
       }
+      while (lineStart < length && !isLineBreak(contents[lineStart])) {
+        lineStart++;
+      }
+      lineStart++;
     }
     return null;
   }
 
+  private static final byte[] PACKAGE_KEYWORD = "package".getBytes(UTF_8);
+
+  @Nullable
+  private static String matchPackageDeclaration(byte[] contents, int pos, int length) {
+    if (length - pos <= PACKAGE_KEYWORD.length) {
+      return null;
+    }
+    for (int i = 0; i < PACKAGE_KEYWORD.length; i++) {
+      if (contents[pos + i] != PACKAGE_KEYWORD[i]) {
+        return null;
+      }
+    }
+    pos += PACKAGE_KEYWORD.length;
+    if (!isWhitespace(contents[pos])) {
+      return null;
+    }
+    while (pos < length && isWhitespace(contents[pos])) {
+      pos++;
+    }
+    int nameStart = pos;
+    while (pos < length && isPackageNameChar(contents[pos])) {
+      pos++;
+    }
+    if (pos == nameStart || pos == length || contents[pos] != ';') {
+      return null;
+    }
+    return new String(contents, nameStart, pos - nameStart, StandardCharsets.US_ASCII);
+  }
+
+  /** Whitespace within a line, matching the regex character class \s. */
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\f' || b == 0x0b;
+  }
+
+  private static boolean isLineBreak(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  /** Matches the regex character class [\w.]. */
+  private static boolean isPackageNameChar(byte b) {
+    return (b >= 'a' && b <= 'z')
+        || (b >= 'A' && b <= 'Z')
+        || (b >= '0' && b <= '9')
+        || b == '_'
+        || b == '.';
+  }
+
   /**
    * Computes the expected archive file name prefix of a java class.
    *
@@ -244,6 +343,61 @@ public final class JarFilter {
   /** Filters a list of jars, keeping anything matching the passed predicate. */
   private static void filterJars(List<Path> jars, Path output, Predicate<String> shouldKeep)
       throws IOException {
+    if (!copyRawEntries(jars, output, shouldKeep)) {
+      filterJarsWithZipStreams(jars, output, shouldKeep);
+    }
+  }
+
+  /**
+   * Copies the matching entries to the output without decompressing them. Returns false (having
+   * written nothing) if any of the jars aren't supported by {@link RawZipCopier}, or the output
+   * would need zip64 extensions.
+   */
+  private static boolean copyRawEntries(
+      List<Path> jars, Path output, Predicate<String> shouldKeep) throws IOException {
+    Closer closer = Closer.create();
+    try {
+      List<FileChannel> channels = new ArrayList<>();
+      List<List<RawZipCopier.Entry>> keptEntries = new ArrayList<>();
+      long keptCount = 0;
+      long keptSize = 0;
+      for (Path jar : jars) {
+        FileChannel channel = closer.register(FileChannel.open(jar, StandardOpenOption.READ));
+        List<RawZipCopier.Entry> entries = RawZipCopier.readEntries(channel);
+        if (entries == null) {
+          return false;
+        }
+        List<RawZipCopier.Entry> kept = new ArrayList<>();
+        for (RawZipCopier.Entry entry : entries) {
+          if (shouldKeep.test(entry.name)) {
+            kept.add(entry);
+            keptSize += entry.getCompressedSize() + 2 * entry.name.length() + 128;
+          }
+        }
+        keptCount += kept.size();
+        channels.add(channel);
+        keptEntries.add(kept);
+      }
+      if (keptCount >= 0xffff || keptSize >= 0xffffffffL) {
+        return false;
+      }
+      try (RawZipCopier copier = new RawZipCopier(output)) {
+        for (int i = 0; i < channels.size(); i++) {
+          for (RawZipCopier.Entry entry : keptEntries.get(i)) {
+            copier.copy(channels.get(i), entry);
+          }
+        }
+      }
+      return true;
+    } catch (Throwable e) {
+      throw closer.rethrow(e, IOException.class);
+    } finally {
+      closer.close();
+    }
+  }
+
+  private static void filterJarsWithZipStreams(
+      List<Path> jars, Path output, Predicate<String> shouldKeep) throws IOException {
     final int bufferSize = 8 * 1024;
     byte[] buffer = new byte[bufferSize];
 
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.aspect;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.repackaged.CodedInputStream;
+import com.google.protobuf.repackaged.CodedOutputStream;
+import com.google.protobuf.repackaged.WireFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implements Bazel's persistent worker protocol, so a single (warm) JVM can serve many actions.
+ *
+ * <p>Bazel starts the tool with a '--persistent_worker' argument, then sends length-delimited
+ * WorkRequest protos on stdin, and expects a length-delimited WorkResponse on stdout for each. The
+ * messages are tiny, so they're encoded here directly rather than depending on Bazel's
+ * worker_protocol.proto.
+ */
+final class PersistentWorker {
+
+  /** A tool which can be run many times within the same JVM. */
+  interface Tool {
+    /**
+     * Runs the tool with the given command-line arguments. Exceptions are reported as a failure of
+     * the current request, without killing the worker.
+     */
+    void run(String[] args) throws Exception;
+  }
+
+  private static final String PERSISTENT_WORKER_FLAG = "--persistent_worker";
+
+  // WorkRequest fields
+  private static final int REQUEST_ARGUMENTS = 1;
+  private static final int REQUEST_ID = 3;
+  // WorkResponse fields
+  private static final int RESPONSE_EXIT_CODE = 1;
+  private static final int RESPONSE_OUTPUT = 2;
+  private static final int RESPONSE_ID = 3;
+
+  private PersistentWorker() {}
+
+  /** Returns true if the tool was started as a persistent worker. */
+  static boolean isPersistentWorker(String[] args) {
+    return Arrays.asList(args).contains(PERSISTENT_WORKER_FLAG);
+  }
+
+  /** Serves work requests from stdin until it's closed. */
+  static void run(Tool tool) throws IOException {
+    // anything else written to stdout would corrupt the protocol
+    PrintStream stdout = System.out;
+    System.setOut(System.err);
+    try {
+      run(tool, System.in, stdout);
+    } finally {
+      System.setOut(stdout);
+    }
+  }
+
+  @VisibleForTesting
+  static void run(Tool tool, InputStream in, OutputStream out) throws IOException {
+    while (true) {
+      int firstByte = in.read();
+      if (firstByte == -1) {
+        return;
+      }
+      int size = CodedInputStream.readRawVarint32(firstByte, in);
+      byte[] request = new byte[size];
+      ByteStreams.readFully(in, request);
+
+      List<String> args = new ArrayList<>();
+      int requestId = 0;
+      CodedInputStream input = CodedInputStream.newInstance(request);
+      for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+        switch (WireFormat.getTagFieldNumber(tag)) {
+          case REQUEST_ARGUMENTS:
+            args.add(input.readString());
+            break;
+          case REQUEST_ID:
+            requestId = input.readInt32();
+            break;
+          default:
+            input.skipField(tag);
+        }
+      }
+
+      int exitCode = 0;
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try {
+        tool.run(args.toArray(new String[0]));
+      } catch (Throwable e) {
+        exitCode = 1;
+        try (PrintStream printStream = new PrintStream(output, true, UTF_8.name())) {
+          e.printStackTrace(printStream);
+        }
+      }
+      writeResponse(out, exitCode, output.toString(UTF_8.name()), requestId);
+    }
+  }
+
+  private static void writeResponse(OutputStream out, int exitCode, String output, int requestId)
+      throws IOException {
+    int size = 0;
+    if (exitCode != 0) {
+      size += CodedOutputStream.computeInt32Size(RESPONSE_EXIT_CODE, exitCode);
+    }
+    if (!output.isEmpty()) {
+      size += CodedOutputStream.computeStringSize(RESPONSE_OUTPUT, output);
+    }
+    if (requestId != 0) {
+      size += CodedOutputStream.computeInt32Size(RESPONSE_ID, requestId);
+    }
+    CodedOutputStream response = CodedOutputStream.newInstance(out);
+    response.writeUInt32NoTag(size);
+    if (exitCode != 0) {
+      response.writeInt32(RESPONSE_EXIT_CODE, exitCode);
+    }
+    if (!output.isEmpty()) {
+      response.writeString(RESPONSE_OUTPUT, output);
+    }
+    if (requestId != 0) {
+      response.writeInt32(RESPONSE_ID, requestId);
+    }
+    response.flush();
+    out.flush();
+  }
+}
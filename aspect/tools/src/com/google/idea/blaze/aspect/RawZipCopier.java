@@ -0,0 +1,294 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.aspect;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipException;
+import javax.annotation.Nullable;
+
+/**
+ * Copies entries between zip archives as-is, without inflating and re-deflating their contents.
+ *
+ * <p>Only handles plain (non-zip64, unencrypted) archives; {@link #readEntries} returns null for
+ * anything else, and callers should fall back to {@link java.util.zip}.
+ */
+final class RawZipCopier implements Closeable {
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int END_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xffff;
+  private static final int FLAG_ENCRYPTED = 1;
+  private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+  private static final int VERSION = 20;
+
+  /** An entry in an archive, as described by its central directory. */
+  static final class Entry {
+    final String name;
+    private final byte[] nameBytes;
+    private final int flags;
+    private final int method;
+    private final int time;
+    private final int date;
+    private final int crc;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+
+    private Entry(
+        byte[] nameBytes,
+        int flags,
+        int method,
+        int time,
+        int date,
+        int crc,
+        long compressedSize,
+        long size,
+        long localHeaderOffset) {
+      this.name = new String(nameBytes, UTF_8);
+      this.nameBytes = nameBytes;
+      this.flags = flags;
+      this.method = method;
+      this.time = time;
+      this.date = date;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+
+    long getCompressedSize() {
+      return compressedSize;
+    }
+  }
+
+  /**
+   * Reads the entries of the given archive from its central directory, or returns null if the
+   * archive uses features this class doesn't support.
+   */
+  @Nullable
+  static List<Entry> readEntries(FileChannel archive) throws IOException {
+    long fileSize = archive.size();
+    int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+    ByteBuffer tail = read(archive, fileSize - tailSize, tailSize);
+    int end = -1;
+    for (int i = tailSize - END_SIZE; i >= 0; i--) {
+      if (tail.getInt(i) == END_SIGNATURE) {
+        end = i;
+        break;
+      }
+    }
+    if (end == -1) {
+      throw new ZipException("Missing end of central directory record");
+    }
+    int count = Short.toUnsignedInt(tail.getShort(end + 10));
+    long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+    long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+    if (count == 0xffff || directorySize == 0xffffffffL || directoryOffset == 0xffffffffL) {
+      return null; // zip64
+    }
+    ByteBuffer directory = read(archive, directoryOffset, Math.toIntExact(directorySize));
+    List<Entry> entries = new ArrayList<>(count);
+    int pos = 0;
+    for (int i = 0; i < count; i++) {
+      if (directory.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid central directory header");
+      }
+      int flags = Short.toUnsignedInt(directory.getShort(pos + 8));
+      long compressedSize = Integer.toUnsignedLong(directory.getInt(pos + 20));
+      long size = Integer.toUnsignedLong(directory.getInt(pos + 24));
+      long offset = Integer.toUnsignedLong(directory.getInt(pos + 42));
+      if ((flags & FLAG_ENCRYPTED) != 0
+          || compressedSize == 0xffffffffL
+          || size == 0xffffffffL
+          || offset == 0xffffffffL) {
+        return null;
+      }
+      int nameLength = Short.toUnsignedInt(directory.getShort(pos + 28));
+      int extraLength = Short.toUnsignedInt(directory.getShort(pos + 30));
+      int commentLength = Short.toUnsignedInt(directory.getShort(pos + 32));
+      byte[] name = new byte[nameLength];
+      directory.position(pos + CENTRAL_HEADER_SIZE);
+      directory.get(name);
+      entries.add(
+          new Entry(
+              name,
+              flags,
+              Short.toUnsignedInt(directory.getShort(pos + 10)),
+              Short.toUnsignedInt(directory.getShort(pos + 12)),
+              Short.toUnsignedInt(directory.getShort(pos + 14)),
+              directory.getInt(pos + 16),
+              compressedSize,
+              size,
+              offset));
+      pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return entries;
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) == -1) {
+        throw new ZipException("Unexpected end of archive");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private final FileChannel output;
+  private final List<Entry> written = new ArrayList<>();
+  private final List<Long> writtenOffsets = new ArrayList<>();
+  private final Set<String> names = new HashSet<>();
+
+  RawZipCopier(Path output) throws IOException {
+    this.output =
+        FileChannel.open(
+            output,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /** Copies the given entry (as read by {@link #readEntries}) from the source archive. */
+  void copy(FileChannel source, Entry entry) throws IOException {
+    if (!names.add(entry.name)) {
+      throw new ZipException("duplicate entry: " + entry.name);
+    }
+    ByteBuffer sourceHeader = read(source, entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+    if (sourceHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+      throw new ZipException("Invalid local header for " + entry.name);
+    }
+    long dataOffset =
+        entry.localHeaderOffset
+            + LOCAL_HEADER_SIZE
+            + Short.toUnsignedInt(sourceHeader.getShort(26))
+            + Short.toUnsignedInt(sourceHeader.getShort(28));
+
+    long offset = output.position();
+    if (offset > 0xffffffffL) {
+      throw new ZipException("Output archive too large");
+    }
+    // the sizes and crc are known up front, so no data descriptor is needed
+    ByteBuffer header =
+        ByteBuffer.allocate(LOCAL_HEADER_SIZE + entry.nameBytes.length)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(LOCAL_HEADER_SIGNATURE)
+            .putShort((short) VERSION)
+            .putShort((short) (entry.flags & ~FLAG_DATA_DESCRIPTOR))
+            .putShort((short) entry.method)
+            .putShort((short) entry.time)
+            .putShort((short) entry.date)
+            .putInt(entry.crc)
+            .putInt((int) entry.compressedSize)
+            .putInt((int) entry.size)
+            .putShort((short) entry.nameBytes.length)
+            .putShort((short) 0)
+            .put(entry.nameBytes);
+    header.flip();
+    writeFully(header);
+    long copied = 0;
+    while (copied < entry.compressedSize) {
+      long count =
+          source.transferTo(dataOffset + copied, entry.compressedSize - copied, output);
+      if (count <= 0) {
+        throw new ZipException("Unexpected end of archive reading " + entry.name);
+      }
+      copied += count;
+    }
+    written.add(entry);
+    writtenOffsets.add(offset);
+  }
+
+  /** Writes the central directory, and closes the output. */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (written.size() >= 0xffff) {
+        throw new ZipException("Too many entries for a non-zip64 archive");
+      }
+      long directoryOffset = output.position();
+      for (int i = 0; i < written.size(); i++) {
+        Entry entry = written.get(i);
+        ByteBuffer header =
+            ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.nameBytes.length)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(CENTRAL_HEADER_SIGNATURE)
+                .putShort((short) VERSION)
+                .putShort((short) VERSION)
+                .putShort((short) (entry.flags & ~FLAG_DATA_DESCRIPTOR))
+                .putShort((short) entry.method)
+                .putShort((short) entry.time)
+                .putShort((short) entry.date)
+                .putInt(entry.crc)
+                .putInt((int) entry.compressedSize)
+                .putInt((int) entry.size)
+                .putShort((short) entry.nameBytes.length)
+                .putShort((short) 0) // extra field length
+                .putShort((short) 0) // comment length
+                .putShort((short) 0) // disk number
+                .putShort((short) 0) // internal attributes
+                .putInt(0) // external attributes
+                .putInt((int) (long) writtenOffsets.get(i))
+                .put(entry.nameBytes);
+        header.flip();
+        writeFully(header);
+      }
+      long directorySize = output.position() - directoryOffset;
+      if (output.position() > 0xffffffffL) {
+        throw new ZipException("Output archive too large");
+      }
+      ByteBuffer end =
+          ByteBuffer.allocate(END_SIZE)
+              .order(ByteOrder.LITTLE_ENDIAN)
+              .putInt(END_SIGNATURE)
+              .putShort((short) 0)
+              .putShort((short) 0)
+              .putShort((short) written.size())
+              .putShort((short) written.size())
+              .putInt((int) directorySize)
+              .putInt((int) directoryOffset)
+              .putShort((short) 0);
+      end.flip();
+      writeFully(end);
+    } finally {
+      output.close();
+    }
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+  }
+}
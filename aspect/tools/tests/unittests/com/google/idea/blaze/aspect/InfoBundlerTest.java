@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.aspect;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.google.idea.blaze.aspect.InfoBundler.InfoBundlerOptions;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link InfoBundler} */
+@RunWith(JUnit4.class)
+public class InfoBundlerTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testParseArgs() {
+    InfoBundlerOptions options =
+        InfoBundler.parseArgs(
+            new String[] {
+              "--output_bundle", "out/foo.intellij-info-bundle",
+              "--info_file", "out/foo.intellij-info.txt",
+              "--info_file", "out/bar.intellij-info.txt",
+            });
+    assertThat(options.outputBundle.toString()).isEqualTo("out/foo.intellij-info-bundle");
+    assertThat(options.infoFiles.stream().map(Path::toString))
+        .containsExactly("out/foo.intellij-info.txt", "out/bar.intellij-info.txt")
+        .inOrder();
+  }
+
+  @Test
+  public void testBundleContainsIndexAndContents() throws Exception {
+    File foo = folder.newFile("foo.intellij-info.txt");
+    Files.write("kind_string: \"java_library\"".getBytes(UTF_8), foo);
+    File bar = folder.newFile("bar.intellij-info.txt");
+    Files.write("kind_string: \"java_test\"".getBytes(UTF_8), bar);
+    File bundle = new File(folder.getRoot(), "foo.intellij-info-bundle");
+
+    InfoBundler.writeBundle(ImmutableList.of(foo.toPath(), bar.toPath()), bundle.toPath());
+
+    try (DataInputStream in = new DataInputStream(new FileInputStream(bundle))) {
+      assertThat(in.readInt()).isEqualTo(InfoBundler.MAGIC);
+      assertThat(in.readInt()).isEqualTo(2);
+
+      assertThat(in.readUTF()).isEqualTo(foo.getPath());
+      long fooDigest = in.readLong();
+      int fooLength = in.readInt();
+      assertThat(in.readUTF()).isEqualTo(bar.getPath());
+      long barDigest = in.readLong();
+      int barLength = in.readInt();
+      assertThat(fooDigest).isNotEqualTo(barDigest);
+
+      byte[] fooContents = new byte[fooLength];
+      in.readFully(fooContents);
+      assertThat(new String(fooContents, UTF_8)).isEqualTo("kind_string: \"java_library\"");
+      byte[] barContents = new byte[barLength];
+      in.readFully(barContents);
+      assertThat(new String(barContents, UTF_8)).isEqualTo("kind_string: \"java_test\"");
+      assertThat(in.read()).isEqualTo(-1);
+    }
+  }
+}
@@ -20,12 +20,15 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.idea.blaze.aspect.JarFilter.JarFilterOptions;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -52,6 +55,71 @@ public class JarFilterTest {
     assertThat(JarFilter.shouldKeepClass(prefixes, "wrong/com/google/foo/Foo.class")).isFalse();
   }
 
+  @Test
+  public void testParseDeclaredPackage() {
+    assertThat(parsePackage("package com.google.foo;")).isEqualTo("com.google.foo");
+    assertThat(parsePackage("// comment\r\n\t package  foo_bar.baz1; class Foo {}"))
+        .isEqualTo("foo_bar.baz1");
+    assertThat(parsePackage("/* comment */ package com.google.foo;")).isNull();
+    assertThat(parsePackage("package com.google.foo ;")).isNull();
+    assertThat(parsePackage("packagecom.google.foo;")).isNull();
+    assertThat(parsePackage("package com.google.foo")).isNull();
+  }
+
+  private static String parsePackage(String contents) {
+    byte[] bytes = contents.getBytes(UTF_8);
+    return JarFilter.parseDeclaredPackage(bytes, bytes.length);
+  }
+
+  @Test
+  public void testEntriesAreCopiedWithoutRecompression() throws Exception {
+    File fooJava = folder.newFile("Foo.java");
+    Files.write("package com.google.foo; class Foo {}".getBytes(UTF_8), fooJava);
+
+    byte[] deflatedContents = new byte[10000];
+    new Random(0).nextBytes(deflatedContents);
+    byte[] storedContents = "stored".getBytes(UTF_8);
+    CRC32 crc = new CRC32();
+    crc.update(storedContents);
+
+    File filterJar = folder.newFile("foo.jar");
+    try (ZipOutputStream zo = new ZipOutputStream(new FileOutputStream(filterJar))) {
+      zo.putNextEntry(new ZipEntry("com/google/foo/Foo.class"));
+      zo.write(deflatedContents);
+      zo.closeEntry();
+      ZipEntry stored = new ZipEntry("com/google/foo/Foo$1.class");
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(storedContents.length);
+      stored.setCrc(crc.getValue());
+      zo.putNextEntry(stored);
+      zo.write(storedContents);
+      zo.closeEntry();
+      zo.putNextEntry(new ZipEntry("com/google/bar/Bar.class"));
+      zo.closeEntry();
+    }
+    File filteredJar = folder.newFile("foo-filtered-gen.jar");
+
+    JarFilter.main(
+        JarFilter.parseArgs(
+            new String[] {
+              "--keep_java_file", fooJava.getPath(),
+              "--filter_jar", filterJar.getPath(),
+              "--filtered_jar", filteredJar.getPath()
+            }));
+
+    try (ZipFile zipFile = new ZipFile(filteredJar)) {
+      assertThat(zipFile.size()).isEqualTo(2);
+      ZipEntry deflated = zipFile.getEntry("com/google/foo/Foo.class");
+      assertThat(deflated.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+      assertThat(ByteStreams.toByteArray(zipFile.getInputStream(deflated)))
+          .isEqualTo(deflatedContents);
+      ZipEntry stored = zipFile.getEntry("com/google/foo/Foo$1.class");
+      assertThat(stored.getMethod()).isEqualTo(ZipEntry.STORED);
+      assertThat(ByteStreams.toByteArray(zipFile.getInputStream(stored)))
+          .isEqualTo(storedContents);
+    }
+  }
+
   @Test
   public void fullIntegrationTest() throws Exception {
     File fooJava = folder.newFile("Foo.java");
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.aspect;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.repackaged.CodedInputStream;
+import com.google.protobuf.repackaged.CodedOutputStream;
+import com.google.protobuf.repackaged.WireFormat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PersistentWorker} */
+@RunWith(JUnit4.class)
+public class PersistentWorkerTest {
+
+  @Test
+  public void testIsPersistentWorker() {
+    assertThat(PersistentWorker.isPersistentWorker(new String[] {"--persistent_worker"})).isTrue();
+    assertThat(PersistentWorker.isPersistentWorker(new String[] {"@params"})).isFalse();
+  }
+
+  @Test
+  public void testRequestsAreServedInOrder() throws Exception {
+    ByteArrayOutputStream requests = new ByteArrayOutputStream();
+    writeRequest(requests, ImmutableList.of("--flag", "value"), 0);
+    writeRequest(requests, ImmutableList.of("@params"), 7);
+
+    List<List<String>> received = new ArrayList<>();
+    ByteArrayOutputStream responses = new ByteArrayOutputStream();
+    PersistentWorker.run(
+        args -> received.add(ImmutableList.copyOf(args)),
+        new ByteArrayInputStream(requests.toByteArray()),
+        responses);
+
+    assertThat(received)
+        .containsExactly(ImmutableList.of("--flag", "value"), ImmutableList.of("@params"))
+        .inOrder();
+    CodedInputStream input = CodedInputStream.newInstance(responses.toByteArray());
+    assertThat(readResponse(input)).isEqualTo(new Response(0, "", 0));
+    assertThat(readResponse(input)).isEqualTo(new Response(0, "", 7));
+    assertThat(input.isAtEnd()).isTrue();
+  }
+
+  @Test
+  public void testFailedRequestDoesNotStopWorker() throws Exception {
+    ByteArrayOutputStream requests = new ByteArrayOutputStream();
+    writeRequest(requests, ImmutableList.of("fail"), 1);
+    writeRequest(requests, ImmutableList.of("succeed"), 2);
+
+    ByteArrayOutputStream responses = new ByteArrayOutputStream();
+    PersistentWorker.run(
+        args -> {
+          if (args[0].equals("fail")) {
+            throw new IllegalStateException("expected failure");
+          }
+        },
+        new ByteArrayInputStream(requests.toByteArray()),
+        responses);
+
+    CodedInputStream input = CodedInputStream.newInstance(responses.toByteArray());
+    Response failure = readResponse(input);
+    assertThat(failure.exitCode).isEqualTo(1);
+    assertThat(failure.output).contains("expected failure");
+    assertThat(failure.requestId).isEqualTo(1);
+    assertThat(readResponse(input)).isEqualTo(new Response(0, "", 2));
+  }
+
+  private static void writeRequest(ByteArrayOutputStream out, List<String> args, int requestId)
+      throws IOException {
+    ByteArrayOutputStream request = new ByteArrayOutputStream();
+    CodedOutputStream output = CodedOutputStream.newInstance(request);
+    for (String arg : args) {
+      output.writeString(1, arg);
+    }
+    if (requestId != 0) {
+      output.writeInt32(3, requestId);
+    }
+    output.flush();
+
+    CodedOutputStream delimited = CodedOutputStream.newInstance(out);
+    delimited.writeUInt32NoTag(request.size());
+    delimited.flush();
+    request.writeTo(out);
+  }
+
+  private static Response readResponse(CodedInputStream input) throws IOException {
+    int oldLimit = input.pushLimit(input.readRawVarint32());
+    int exitCode = 0;
+    String output = "";
+    int requestId = 0;
+    for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case 1:
+          exitCode = input.readInt32();
+          break;
+        case 2:
+          output = input.readString();
+          break;
+        case 3:
+          requestId = input.readInt32();
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    input.popLimit(oldLimit);
+    return new Response(exitCode, output, requestId);
+  }
+
+  private static class Response {
+    final int exitCode;
+    final String output;
+    final int requestId;
+
+    Response(int exitCode, String output, int requestId) {
+      this.exitCode = exitCode;
+      this.output = output;
+      this.requestId = requestId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Response)) {
+        return false;
+      }
+      Response other = (Response) o;
+      return exitCode == other.exitCode
+          && output.equals(other.output)
+          && requestId == other.requestId;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * exitCode + output.hashCode()) + requestId;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Response(%d, %s, %d)", exitCode, output, requestId);
+    }
+  }
+}
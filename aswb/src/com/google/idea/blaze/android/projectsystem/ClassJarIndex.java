@@ -0,0 +1,318 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.android.projectsystem;
+
+import com.android.SdkConstants;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.idea.blaze.base.command.buildresult.OutputArtifactResolver;
+import com.google.idea.blaze.base.filecache.FileCache;
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
+import com.google.idea.blaze.base.ideinfo.LibraryArtifact;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.io.FileOperationProvider;
+import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.model.primitives.LanguageClass;
+import com.google.idea.blaze.base.prefetch.FetchExecutor;
+import com.google.idea.blaze.base.projectview.ProjectViewSet;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.scope.output.PrintOutput;
+import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
+import com.google.idea.blaze.base.sync.SyncMode;
+import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
+import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
+import com.google.idea.blaze.base.sync.workspace.ArtifactLocationDecoder;
+import com.google.idea.blaze.base.util.SerializationUtil;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+
+/**
+ * An index from fully qualified class name to the class jars containing it, covering the class jars
+ * of all java targets in the project.
+ *
+ * <p>Built during sync by reading each jar's central directory (in parallel), and refreshed after
+ * builds for any jars which have changed. The per-jar class lists are persisted between sessions,
+ * so only changed jars need to be re-read.
+ *
+ * <p>Each jar's state is only checked when the index is updated, so lookups never touch the file
+ * system. Jars which didn't exist (or couldn't be read) at that point aren't indexed, and callers
+ * should fall back to searching any jar which isn't {@link #isIndexed indexed} directly.
+ */
+public class ClassJarIndex {
+  private static final Logger logger = Logger.getInstance(ClassJarIndex.class);
+  private static final String CACHE_FILE_NAME = "class_jar_index.dat";
+
+  /** The classes in a single jar, along with the file state they were read from. */
+  private static class JarClasses implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final long modifiedTime;
+    final long size;
+    final String[] classNames;
+
+    JarClasses(long modifiedTime, long size, String[] classNames) {
+      this.modifiedTime = modifiedTime;
+      this.size = size;
+      this.classNames = classNames;
+    }
+  }
+
+  private final Project project;
+
+  /** jar path -> classes */
+  private volatile ImmutableMap<String, JarClasses> jars = ImmutableMap.of();
+  /** class name -> jar paths, derived from 'jars' */
+  private volatile ImmutableListMultimap<String, String> classToJars = ImmutableListMultimap.of();
+
+  public static ClassJarIndex getInstance(Project project) {
+    return ServiceManager.getService(project, ClassJarIndex.class);
+  }
+
+  public ClassJarIndex(Project project) {
+    this.project = project;
+  }
+
+  /** Returns the paths of all indexed jars containing the given class. */
+  public ImmutableList<String> getJarsContaining(String className) {
+    return classToJars.get(className);
+  }
+
+  /**
+   * Returns true if the given jar was indexed as of the last update. Jars are re-checked on sync
+   * and after each build, so a jar changed in between is still reported as indexed until then.
+   */
+  public boolean isIndexed(File jar) {
+    return jars.containsKey(jar.getPath());
+  }
+
+  private void refresh(BlazeContext context, BlazeProjectData projectData) {
+    if (!projectData.getWorkspaceLanguageSettings().isLanguageActive(LanguageClass.ANDROID)) {
+      return;
+    }
+    update(context, getClassJars(projectData));
+  }
+
+  /** Re-indexes any of the given jars which have changed, and drops all other jars. */
+  @VisibleForTesting
+  void update(BlazeContext context, Collection<File> classJars) {
+    FileOperationProvider fOps = FileOperationProvider.getInstance();
+    ImmutableMap<String, JarClasses> previous = jars;
+
+    Map<String, JarClasses> updated = new HashMap<>();
+    List<ListenableFuture<Void>> futures = new ArrayList<>();
+    for (File jar : classJars) {
+      futures.add(
+          FetchExecutor.EXECUTOR.submit(
+              () -> {
+                JarClasses classes = readJar(fOps, jar, previous.get(jar.getPath()));
+                if (classes != null) {
+                  synchronized (updated) {
+                    updated.put(jar.getPath(), classes);
+                  }
+                }
+                return null;
+              }));
+    }
+    try {
+      Futures.allAsList(futures).get();
+    } catch (InterruptedException e) {
+      context.setCancelled();
+      Thread.currentThread().interrupt();
+      return;
+    } catch (ExecutionException e) {
+      logger.warn("Class jar indexing didn't complete", e);
+      return;
+    }
+    long reindexed =
+        updated.entrySet().stream().filter(e -> previous.get(e.getKey()) != e.getValue()).count();
+    if (reindexed == 0 && updated.size() == previous.size()) {
+      return;
+    }
+    setJars(ImmutableMap.copyOf(updated));
+    context.output(PrintOutput.log(String.format("Indexed classes in %d jars", reindexed)));
+    saveToDisk();
+  }
+
+  /** Returns the local class jars of all java targets in the project. */
+  private Set<File> getClassJars(BlazeProjectData projectData) {
+    ArtifactLocationDecoder decoder = projectData.getArtifactLocationDecoder();
+    Set<File> classJars = new LinkedHashSet<>();
+    for (TargetIdeInfo target : projectData.getTargetMap().targets()) {
+      if (target.getJavaIdeInfo() == null) {
+        continue;
+      }
+      for (LibraryArtifact jar : target.getJavaIdeInfo().getJars()) {
+        ArtifactLocation classJar = jar.getClassJar();
+        if (classJar == null || classJar.isSource()) {
+          continue;
+        }
+        File file = OutputArtifactResolver.resolve(project, decoder, classJar);
+        if (file != null) {
+          classJars.add(file);
+        }
+      }
+    }
+    return classJars;
+  }
+
+  /**
+   * Returns the classes in the given jar, reusing the previous entry if the jar hasn't changed, or
+   * null if the jar doesn't exist or can't be read.
+   */
+  @Nullable
+  private static JarClasses readJar(
+      FileOperationProvider fOps, File jar, @Nullable JarClasses previous) {
+    if (!fOps.isFile(jar)) {
+      return null;
+    }
+    long modifiedTime = fOps.getFileModifiedTime(jar);
+    long size = fOps.getFileSize(jar);
+    if (previous != null && previous.modifiedTime == modifiedTime && previous.size == size) {
+      return previous;
+    }
+    List<String> classNames = new ArrayList<>();
+    // only reads the zip central directory, not the entries themselves
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.endsWith(SdkConstants.DOT_CLASS)) {
+          classNames.add(
+              name.substring(0, name.length() - SdkConstants.DOT_CLASS.length())
+                  .replace('/', '.'));
+        }
+      }
+    } catch (IOException e) {
+      logger.info("Couldn't read class jar " + jar, e);
+      return null;
+    }
+    return new JarClasses(modifiedTime, size, classNames.toArray(new String[0]));
+  }
+
+  private synchronized void setJars(ImmutableMap<String, JarClasses> jars) {
+    ImmutableListMultimap.Builder<String, String> classToJars = ImmutableListMultimap.builder();
+    jars.forEach(
+        (path, classes) -> {
+          for (String className : classes.classNames) {
+            classToJars.put(className, path);
+          }
+        });
+    this.classToJars = classToJars.build();
+    this.jars = jars;
+  }
+
+  @VisibleForTesting
+  void clear() {
+    setJars(ImmutableMap.of());
+  }
+
+  @Nullable
+  private File getCacheFile() {
+    BlazeImportSettings importSettings =
+        BlazeImportSettingsManager.getInstance(project).getImportSettings();
+    return importSettings != null
+        ? new File(BlazeDataStorage.getProjectDataDir(importSettings), CACHE_FILE_NAME)
+        : null;
+  }
+
+  private void saveToDisk() {
+    File cacheFile = getCacheFile();
+    if (cacheFile == null) {
+      return;
+    }
+    try {
+      SerializationUtil.saveToDisk(cacheFile, new HashMap<>(jars));
+    } catch (IOException e) {
+      logger.warn("Failed to save class jar index", e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void loadFromDisk() {
+    File cacheFile = getCacheFile();
+    if (cacheFile == null || !FileOperationProvider.getInstance().exists(cacheFile)) {
+      return;
+    }
+    try {
+      Object loaded =
+          SerializationUtil.loadFromDisk(
+              cacheFile, ImmutableList.of(ClassJarIndex.class.getClassLoader()));
+      if (loaded instanceof Map) {
+        setJars(ImmutableMap.copyOf((Map<String, JarClasses>) loaded));
+      }
+    } catch (IOException e) {
+      // stale or corrupt index, it'll be rebuilt during the next sync
+      logger.info(e);
+    }
+  }
+
+  static class FileCacheAdapter implements FileCache {
+    @Override
+    public String getName() {
+      return "Class jar index";
+    }
+
+    @Override
+    public void onSync(
+        Project project,
+        BlazeContext context,
+        ProjectViewSet projectViewSet,
+        BlazeProjectData projectData,
+        @Nullable BlazeProjectData oldProjectData,
+        SyncMode syncMode) {
+      ClassJarIndex index = getInstance(project);
+      if (syncMode == SyncMode.FULL) {
+        index.clear();
+      }
+      index.refresh(context, projectData);
+    }
+
+    @Override
+    public void refreshFiles(Project project, BlazeContext context) {
+      BlazeProjectData projectData =
+          BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
+      if (projectData != null) {
+        getInstance(project).refresh(context, projectData);
+      }
+    }
+
+    @Override
+    public void initialize(Project project) {
+      getInstance(project).loadFromDisk();
+    }
+  }
+}
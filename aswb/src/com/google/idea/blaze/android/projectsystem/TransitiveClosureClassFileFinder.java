@@ -17,31 +17,39 @@ package com.google.idea.blaze.android.projectsystem;
 
 import com.android.SdkConstants;
 import com.android.tools.idea.project.ModuleBasedClassFileFinder;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.idea.blaze.android.sync.model.AndroidResourceModuleRegistry;
 import com.google.idea.blaze.base.command.buildresult.OutputArtifactResolver;
 import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
 import com.google.idea.blaze.base.ideinfo.LibraryArtifact;
 import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
 import com.google.idea.blaze.base.ideinfo.TargetMap;
 import com.google.idea.blaze.base.io.VirtualFileSystemProvider;
 import com.google.idea.blaze.base.model.BlazeProjectData;
-import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
+import com.google.idea.blaze.base.sync.SyncCache;
 import com.google.idea.blaze.base.sync.workspace.ArtifactLocationDecoder;
 import com.google.idea.blaze.base.targetmaps.TransitiveDependencyMap;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.JarFileSystem;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.ex.temp.TempFileSystem;
 import java.io.File;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -52,6 +60,9 @@ import javax.annotation.Nullable;
  * jars belonging to each Blaze target in the transitive closure of the target corresponding to each
  * resource module.
  *
+ * <p>Jars are looked up in the {@link ClassJarIndex}, falling back to searching any jars which
+ * haven't been indexed yet.
+ *
  * <p>TODO: Prevent duplicate checking of Blaze targets. The findClassFileInModule method gets
  * called for every module in the project since they all transitively depend on each other, and the
  * corresponding Blaze targets have many overlapping transitive dependencies.
@@ -78,19 +89,18 @@ public class TransitiveClosureClassFileFinder extends ModuleBasedClassFileFinder
       return classFile;
     }
 
-    BlazeProjectData blazeProjectData =
-        BlazeProjectDataManager.getInstance(module.getProject()).getBlazeProjectData();
-    if (blazeProjectData == null) {
-      return null;
-    }
-
-    TargetMap targetMap = blazeProjectData.getTargetMap();
-    ArtifactLocationDecoder decoder = blazeProjectData.getArtifactLocationDecoder();
     AndroidResourceModuleRegistry registry =
         AndroidResourceModuleRegistry.getInstance(module.getProject());
-    TargetIdeInfo target = blazeProjectData.getTargetMap().get(registry.getTargetKey(module));
-
-    if (target == null || target.getJavaIdeInfo() == null) {
+    TargetKey targetKey = registry.getTargetKey(module);
+    if (targetKey == null) {
+      return null;
+    }
+    ModuleClassJars moduleJars =
+        SyncCache.getInstance(module.getProject())
+            .get(
+                new ModuleClassJarsKey(targetKey),
+                (project, projectData) -> ModuleClassJars.create(project, projectData, targetKey));
+    if (moduleJars == null) {
       return null;
     }
 
@@ -99,48 +109,138 @@ public class TransitiveClosureClassFileFinder extends ModuleBasedClassFileFinder
     // instead of having to rely on dynamic class generation.
     // TODO: benchmark to see if optimization is worthwhile.
 
-    String classNamePath = className.replace('.', File.separatorChar) + SdkConstants.DOT_CLASS;
-
-    List<LibraryArtifact> jarsToSearch = Lists.newArrayList(target.getJavaIdeInfo().getJars());
-    jarsToSearch.addAll(
-        TransitiveDependencyMap.getInstance(module.getProject())
-            .getTransitiveDependencies(target.getKey())
-            .stream()
-            .map(targetMap::get)
-            .filter(Objects::nonNull)
-            .flatMap(TransitiveClosureClassFileFinder::getNonResourceJars)
-            .collect(Collectors.toList()));
-
     List<File> missingClassJars = Lists.newArrayList();
-    for (LibraryArtifact jar : jarsToSearch) {
-      if (jar.getClassJar() == null || jar.getClassJar().isSource()) {
-        continue;
+    classFile =
+        findClassFile(
+            ClassJarIndex.getInstance(module.getProject()),
+            moduleJars,
+            className,
+            (jar, classNamePath) -> findClassInJar(jar, classNamePath, missingClassJars));
+    if (classFile != null) {
+      return classFile;
+    }
+    maybeRefreshJars(missingClassJars, pendingJarsRefresh);
+    return null;
+  }
+
+  /**
+   * Searches the module's jars for the given class, first looking up the jars known to contain it
+   * in the {@link ClassJarIndex}, then searching any jars which weren't indexed.
+   *
+   * @param findClassInJar finds the class file (given as a relative path) in the given jar
+   */
+  @VisibleForTesting
+  @Nullable
+  static VirtualFile findClassFile(
+      ClassJarIndex index,
+      ModuleClassJars moduleJars,
+      String className,
+      BiFunction<File, String, VirtualFile> findClassInJar) {
+    // first look up the jars known to contain the class, picking the first in search order
+    File indexedJar = null;
+    int indexedJarPosition = Integer.MAX_VALUE;
+    for (String jarPath : index.getJarsContaining(className)) {
+      Integer position = moduleJars.positions.get(jarPath);
+      if (position != null && position < indexedJarPosition) {
+        indexedJar = moduleJars.jars.get(position);
+        indexedJarPosition = position;
       }
+    }
+    String classNamePath = className.replace('.', File.separatorChar) + SdkConstants.DOT_CLASS;
+    if (indexedJar != null) {
+      VirtualFile classFile = findClassInJar.apply(indexedJar, classNamePath);
+      if (classFile != null) {
+        return classFile;
+      }
+    }
 
-      ArtifactLocation classJar = jar.getClassJar();
-      File classJarFile =
-          Preconditions.checkNotNull(
-              OutputArtifactResolver.resolve(module.getProject(), decoder, classJar),
-              "Fail to find file %s",
-              classJar.getRelativePath());
-      VirtualFile classJarVF =
-          VirtualFileSystemProvider.getInstance().getSystem().findFileByIoFile(classJarFile);
-      if (classJarVF == null) {
-        if (classJarFile.exists()) {
-          missingClassJars.add(classJarFile);
-        }
+    // then fall back to searching any jars which weren't indexed. The index is refreshed after
+    // each build, so indexed jars aren't checked for changes here.
+    for (File classJarFile : moduleJars.jars) {
+      if (classJarFile.equals(indexedJar) || index.isIndexed(classJarFile)) {
         continue;
       }
-      classFile = findClassInJar(classJarVF, classNamePath);
+      VirtualFile classFile = findClassInJar.apply(classJarFile, classNamePath);
       if (classFile != null) {
         return classFile;
       }
     }
-
-    maybeRefreshJars(missingClassJars, pendingJarsRefresh);
     return null;
   }
 
+  /** The key for a module's {@link ModuleClassJars} in the {@link SyncCache}. */
+  private static class ModuleClassJarsKey {
+    private final TargetKey targetKey;
+
+    ModuleClassJarsKey(TargetKey targetKey) {
+      this.targetKey = targetKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ModuleClassJarsKey
+          && targetKey.equals(((ModuleClassJarsKey) o).targetKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return targetKey.hashCode();
+    }
+  }
+
+  /**
+   * The class jars to search for a resource module, in search order: the target's own jars, then
+   * the non-resource jars of its transitive dependencies. Computed once per sync.
+   */
+  @VisibleForTesting
+  static class ModuleClassJars {
+    private final ImmutableList<File> jars;
+    /** jar path -> position in 'jars' */
+    private final ImmutableMap<String, Integer> positions;
+
+    @VisibleForTesting
+    ModuleClassJars(ImmutableList<File> jars) {
+      this.jars = jars;
+      Map<String, Integer> positions = new HashMap<>();
+      for (int i = 0; i < jars.size(); i++) {
+        positions.putIfAbsent(jars.get(i).getPath(), i);
+      }
+      this.positions = ImmutableMap.copyOf(positions);
+    }
+
+    @Nullable
+    static ModuleClassJars create(
+        Project project, BlazeProjectData projectData, TargetKey targetKey) {
+      TargetMap targetMap = projectData.getTargetMap();
+      TargetIdeInfo target = targetMap.get(targetKey);
+      if (target == null || target.getJavaIdeInfo() == null) {
+        return null;
+      }
+      List<LibraryArtifact> jarsToSearch = Lists.newArrayList(target.getJavaIdeInfo().getJars());
+      jarsToSearch.addAll(
+          TransitiveDependencyMap.getTransitiveDependencies(targetKey, targetMap).stream()
+              .map(targetMap::get)
+              .filter(Objects::nonNull)
+              .flatMap(TransitiveClosureClassFileFinder::getNonResourceJars)
+              .collect(Collectors.toList()));
+
+      ArtifactLocationDecoder decoder = projectData.getArtifactLocationDecoder();
+      ImmutableList.Builder<File> jars = ImmutableList.builder();
+      for (LibraryArtifact jar : jarsToSearch) {
+        if (jar.getClassJar() == null || jar.getClassJar().isSource()) {
+          continue;
+        }
+        ArtifactLocation classJar = jar.getClassJar();
+        jars.add(
+            Preconditions.checkNotNull(
+                OutputArtifactResolver.resolve(project, decoder, classJar),
+                "Fail to find file %s",
+                classJar.getRelativePath()));
+      }
+      return new ModuleClassJars(jars.build());
+    }
+  }
+
   public static Stream<LibraryArtifact> getNonResourceJars(TargetIdeInfo target) {
     if (target.getJavaIdeInfo() == null) {
       return null;
@@ -153,7 +253,16 @@ public class TransitiveClosureClassFileFinder extends ModuleBasedClassFileFinder
   }
 
   @Nullable
-  private static VirtualFile findClassInJar(final VirtualFile classJar, String classNamePath) {
+  private static VirtualFile findClassInJar(
+      File classJarFile, String classNamePath, List<File> missingClassJars) {
+    VirtualFile classJar =
+        VirtualFileSystemProvider.getInstance().getSystem().findFileByIoFile(classJarFile);
+    if (classJar == null) {
+      if (classJarFile.exists()) {
+        missingClassJars.add(classJarFile);
+      }
+      return null;
+    }
     VirtualFile jarRoot = getJarRootForLocalFile(classJar);
     if (jarRoot == null) {
       return null;
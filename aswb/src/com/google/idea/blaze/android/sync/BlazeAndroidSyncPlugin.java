@@ -205,7 +205,8 @@ public class BlazeAndroidSyncPlugin implements BlazeSyncPlugin {
         moduleEditor,
         workspaceModule,
         workspaceModifiableModel,
-        isAndroidWorkspace(blazeProjectData.getWorkspaceLanguageSettings()));
+        isAndroidWorkspace(blazeProjectData.getWorkspaceLanguageSettings()),
+        /* reuseUnchangedModules= */ oldBlazeProjectData != null);
   }
 
   @Override
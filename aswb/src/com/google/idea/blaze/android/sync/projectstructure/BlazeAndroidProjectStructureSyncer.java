@@ -26,7 +26,6 @@ import com.android.projectmodel.SourceSet;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.idea.blaze.android.projectview.GeneratedAndroidResourcesSection;
 import com.google.idea.blaze.android.resources.BlazeLightResourceClassService;
@@ -69,12 +68,13 @@ import com.intellij.openapi.roots.ModifiableRootModel;
 import com.intellij.openapi.roots.ModuleOrderEntry;
 import com.intellij.openapi.roots.impl.libraries.ProjectLibraryTable;
 import com.intellij.openapi.roots.libraries.LibraryTable;
+import com.intellij.openapi.util.Key;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.jetbrains.android.facet.AndroidFacet;
@@ -91,7 +91,8 @@ public class BlazeAndroidProjectStructureSyncer {
       BlazeSyncPlugin.ModuleEditor moduleEditor,
       Module workspaceModule,
       ModifiableRootModel workspaceModifiableModel,
-      boolean isAndroidWorkspace) {
+      boolean isAndroidWorkspace,
+      boolean reuseUnchangedModules) {
     if (!isAndroidWorkspace) {
       AndroidFacetModuleCustomizer.removeAndroidFacet(workspaceModule);
       return;
@@ -109,74 +110,58 @@ public class BlazeAndroidProjectStructureSyncer {
     // Configure workspace module as an android module
     AndroidFacetModuleCustomizer.createAndroidFacet(workspaceModule, false);
 
-    // Create android resource modules
-    // Because we're setting up dependencies, the modules have to exist before we configure them
-    Map<TargetKey, AndroidResourceModule> targetToAndroidResourceModule = Maps.newHashMap();
-    for (AndroidResourceModule androidResourceModule :
-        syncData.importResult.androidResourceModules) {
-      targetToAndroidResourceModule.put(androidResourceModule.targetKey, androidResourceModule);
-      String moduleName = moduleNameForAndroidModule(androidResourceModule.targetKey);
-      Module module = moduleEditor.createModule(moduleName, StdModuleTypes.JAVA);
-      TargetIdeInfo target = blazeProjectData.getTargetMap().get(androidResourceModule.targetKey);
-      AndroidFacetModuleCustomizer.createAndroidFacet(
-          module,
-          target != null
-              && target.kindIsOneOf(
-                  AndroidBlazeRules.RuleTypes.ANDROID_BINARY.getKind(),
-                  AndroidBlazeRules.RuleTypes.ANDROID_TEST.getKind()));
-    }
+    // Compute the structure of each android resource module up front, so we know which modules
+    // have changed since the last sync before touching the project model
+    ImmutableList<ResourceModuleSpec> specs =
+        computeResourceModuleSpecs(
+            project, blazeProjectData, syncData.importResult.androidResourceModules);
+    ImmutableMap<String, ResourceModuleSpec> previousSpecs =
+        reuseUnchangedModules ? project.getUserData(RESOURCE_MODULE_SPECS) : null;
+    project.putUserData(RESOURCE_MODULE_SPECS, null);
 
-    // Configure android resource modules
+    LibraryTable libraryTable = ProjectLibraryTable.getInstance(project);
     int totalOrderEntries = 0;
-    Set<File> existingRoots = Sets.newHashSet();
-    for (AndroidResourceModule androidResourceModule : targetToAndroidResourceModule.values()) {
-      TargetIdeInfo target = blazeProjectData.getTargetMap().get(androidResourceModule.targetKey);
-      AndroidIdeInfo androidIdeInfo = target.getAndroidIdeInfo();
-      assert androidIdeInfo != null;
-
-      String moduleName = moduleNameForAndroidModule(target.getKey());
-      Module module = moduleEditor.findModule(moduleName);
-      assert module != null;
-      ModifiableRootModel modifiableRootModel = moduleEditor.editModule(module);
-      LibraryTable libraryTable = ProjectLibraryTable.getInstance(project);
-      ArtifactLocationDecoder artifactLocationDecoder =
-          blazeProjectData.getArtifactLocationDecoder();
-      File moduleDirectory =
-          moduleDirectoryForAndroidTarget(WorkspaceRoot.fromProject(project), target);
-
-      ArrayList<File> newRoots =
-          new ArrayList<>(
-              OutputArtifactResolver.resolveAll(
-                  project, artifactLocationDecoder, androidResourceModule.resources));
-      File manifest =
-          manifestFileForAndroidTarget(
-              project, artifactLocationDecoder, androidIdeInfo, moduleDirectory);
-      if (manifest != null) {
-        newRoots.add(manifest);
+    int unchangedModules = 0;
+    for (ResourceModuleSpec spec : specs) {
+      Module module = moduleEditor.findModule(spec.moduleName);
+      if (module != null
+          && previousSpecs != null
+          && spec.equals(previousSpecs.get(spec.moduleName))) {
+        // nothing has changed, leave the module as it is
+        moduleEditor.retainModule(module);
+        unchangedModules++;
+      } else {
+        module = moduleEditor.createModule(spec.moduleName, StdModuleTypes.JAVA);
+        AndroidFacetModuleCustomizer.createAndroidFacet(module, spec.isApp);
+
+        ModifiableRootModel modifiableRootModel = moduleEditor.editModule(module);
+        ResourceModuleContentRootCustomizer.setupContentRoots(
+            modifiableRootModel, spec.contentRoots);
+        modifiableRootModel.addModuleOrderEntry(workspaceModule);
+        for (String libraryName : spec.resourceLibraryKeys) {
+          modifiableRootModel.addLibraryEntry(libraryTable.getLibraryByName(libraryName));
+        }
       }
-
-      // Remove existing resource roots to silence the duplicate content root error.
-      // We can only do this if we have cyclic resource dependencies, since otherwise we risk
-      // breaking dependencies within this resource module.
-      newRoots.removeAll(existingRoots);
-      existingRoots.addAll(newRoots);
-      ResourceModuleContentRootCustomizer.setupContentRoots(modifiableRootModel, newRoots);
-
-      modifiableRootModel.addModuleOrderEntry(workspaceModule);
       ++totalOrderEntries;
 
-      for (String libraryName : androidResourceModule.resourceLibraryKeys) {
-        modifiableRootModel.addLibraryEntry(libraryTable.getLibraryByName(libraryName));
-      }
       // Add a dependency from the workspace to the resource module
       ModuleOrderEntry orderEntry = workspaceModifiableModel.addModuleOrderEntry(module);
       ++totalOrderEntries;
       orderEntry.setExported(true);
     }
+    // only remember the new structure once it's actually been committed; if the commit fails, the
+    // next sync rebuilds every module
+    ImmutableMap<String, ResourceModuleSpec> newSpecs =
+        specs.stream().collect(ImmutableMap.toImmutableMap(spec -> spec.moduleName, spec -> spec));
+    moduleEditor.runAfterCommit(() -> project.putUserData(RESOURCE_MODULE_SPECS, newSpecs));
 
+    Set<TargetKey> targetToAndroidResourceModule =
+        syncData.importResult.androidResourceModules.stream()
+            .map(androidResourceModule -> androidResourceModule.targetKey)
+            .collect(toSet());
     List<TargetIdeInfo> runConfigurationTargets =
         getRunConfigurationTargets(
-            project, projectViewSet, blazeProjectData, targetToAndroidResourceModule.keySet());
+            project, projectViewSet, blazeProjectData, targetToAndroidResourceModule);
     for (TargetIdeInfo target : runConfigurationTargets) {
       TargetKey targetKey = target.getKey();
       String moduleName = moduleNameForAndroidModule(targetKey);
@@ -189,14 +174,106 @@ public class BlazeAndroidProjectStructureSyncer {
     context.output(
         PrintOutput.log(
             String.format(
-                "Android resource module count: %d, run config modules: %d, order entries: %d, "
-                    + "generated resources: %d",
+                "Android resource module count: %d (%d unchanged), run config modules: %d, "
+                    + "order entries: %d, generated resources: %d",
                 syncData.importResult.androidResourceModules.size(),
+                unchangedModules,
                 runConfigurationTargets.size(),
                 totalOrderEntries,
                 whitelistedGenResources)));
   }
 
+  /**
+   * The project structure of a single android resource module. Modules whose structure hasn't
+   * changed since the last sync are left untouched.
+   */
+  private static final class ResourceModuleSpec {
+    final String moduleName;
+    final boolean isApp;
+    final ImmutableList<File> contentRoots;
+    final ImmutableList<String> resourceLibraryKeys;
+
+    ResourceModuleSpec(
+        String moduleName,
+        boolean isApp,
+        ImmutableList<File> contentRoots,
+        ImmutableList<String> resourceLibraryKeys) {
+      this.moduleName = moduleName;
+      this.isApp = isApp;
+      this.contentRoots = contentRoots;
+      this.resourceLibraryKeys = resourceLibraryKeys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ResourceModuleSpec)) {
+        return false;
+      }
+      ResourceModuleSpec other = (ResourceModuleSpec) o;
+      return moduleName.equals(other.moduleName)
+          && isApp == other.isApp
+          && contentRoots.equals(other.contentRoots)
+          && resourceLibraryKeys.equals(other.resourceLibraryKeys);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(moduleName, isApp, contentRoots, resourceLibraryKeys);
+    }
+  }
+
+  /** The resource module structure committed during the last sync, keyed by module name. */
+  private static final Key<ImmutableMap<String, ResourceModuleSpec>> RESOURCE_MODULE_SPECS =
+      Key.create("blaze.android.resource.module.specs");
+
+  private static ImmutableList<ResourceModuleSpec> computeResourceModuleSpecs(
+      Project project,
+      BlazeProjectData blazeProjectData,
+      Collection<AndroidResourceModule> androidResourceModules) {
+    ArtifactLocationDecoder artifactLocationDecoder = blazeProjectData.getArtifactLocationDecoder();
+    WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProject(project);
+    ImmutableList.Builder<ResourceModuleSpec> specs = ImmutableList.builder();
+    Set<File> existingRoots = Sets.newHashSet();
+    for (AndroidResourceModule androidResourceModule : androidResourceModules) {
+      TargetIdeInfo target = blazeProjectData.getTargetMap().get(androidResourceModule.targetKey);
+      AndroidIdeInfo androidIdeInfo = target.getAndroidIdeInfo();
+      assert androidIdeInfo != null;
+
+      File moduleDirectory = moduleDirectoryForAndroidTarget(workspaceRoot, target);
+      ArrayList<File> newRoots =
+          new ArrayList<>(
+              OutputArtifactResolver.resolveAll(
+                  project, artifactLocationDecoder, androidResourceModule.resources));
+      File manifest =
+          manifestFileForAndroidTarget(
+              project, artifactLocationDecoder, androidIdeInfo, moduleDirectory);
+      if (manifest != null) {
+        newRoots.add(manifest);
+      }
+
+      // Remove existing resource roots to silence the duplicate content root error.
+      // We can only do this if we have cyclic resource dependencies, since otherwise we risk
+      // breaking dependencies within this resource module.
+      newRoots.removeAll(existingRoots);
+      existingRoots.addAll(newRoots);
+
+      boolean isApp =
+          target.kindIsOneOf(
+              AndroidBlazeRules.RuleTypes.ANDROID_BINARY.getKind(),
+              AndroidBlazeRules.RuleTypes.ANDROID_TEST.getKind());
+      specs.add(
+          new ResourceModuleSpec(
+              moduleNameForAndroidModule(target.getKey()),
+              isApp,
+              ImmutableList.copyOf(newRoots),
+              androidResourceModule.resourceLibraryKeys));
+    }
+    return specs.build();
+  }
+
   // Collect potential android run configuration targets
   private static List<TargetIdeInfo> getRunConfigurationTargets(
       Project project,
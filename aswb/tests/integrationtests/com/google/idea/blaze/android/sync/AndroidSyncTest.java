@@ -147,4 +147,76 @@ public class AndroidSyncTest extends BlazeSyncIntegrationTestCase {
     assertThat(LanguageLevelProjectExtension.getInstance(getProject()).getLanguageLevel())
         .isEqualTo(LanguageLevel.JDK_1_8);
   }
+
+  @Test
+  public void testUnchangedResourceModuleIsNotRebuilt() {
+    setUpResourceModuleProject();
+    TargetMap targetMap =
+        targetMap(
+            android_library("//java/com/google:lib")
+                .res("res/values/strings.xml")
+                .src("Source.java"));
+
+    setTargetMap(targetMap);
+    runIncrementalSync();
+    assertThat(getRetainedModuleNames()).isEmpty();
+    Module resourceModule =
+        ModuleFinder.getInstance(getProject()).findModuleByName("java.com.google.lib");
+    assertThat(resourceModule).isNotNull();
+
+    runIncrementalSync();
+
+    errorCollector.assertNoIssues();
+    assertThat(getRetainedModuleNames()).containsExactly("java.com.google.lib");
+    assertThat(ModuleFinder.getInstance(getProject()).findModuleByName("java.com.google.lib"))
+        .isSameAs(resourceModule);
+  }
+
+  @Test
+  public void testChangedResourceModuleIsRebuilt() {
+    setUpResourceModuleProject();
+    setTargetMap(
+        targetMap(
+            android_library("//java/com/google:lib")
+                .res("res/values/strings.xml")
+                .src("Source.java")));
+    runIncrementalSync();
+    Module resourceModule =
+        ModuleFinder.getInstance(getProject()).findModuleByName("java.com.google.lib");
+    assertThat(resourceModule).isNotNull();
+
+    setTargetMap(
+        targetMap(
+            android_library("//java/com/google:lib")
+                .res("other_res/values/strings.xml")
+                .src("Source.java")));
+    runIncrementalSync();
+
+    errorCollector.assertNoIssues();
+    assertThat(getRetainedModuleNames()).doesNotContain("java.com.google.lib");
+    Module rebuiltModule =
+        ModuleFinder.getInstance(getProject()).findModuleByName("java.com.google.lib");
+    assertThat(rebuiltModule).isNotNull();
+    assertThat(AndroidFacet.getInstance(rebuiltModule)).isNotNull();
+  }
+
+  private void setUpResourceModuleProject() {
+    setProjectView(
+        "directories:",
+        "  java/com/google",
+        "targets:",
+        "  //java/com/google:lib",
+        "android_sdk_platform: android-25");
+    workspace.createFile(
+        new WorkspacePath("java/com/google/Source.java"),
+        "package com.google;",
+        "public class Source {}");
+  }
+
+  private void runIncrementalSync() {
+    runBlazeSync(
+        new BlazeSyncParams.Builder("Sync", SyncMode.INCREMENTAL)
+            .addProjectViewTargets(true)
+            .build());
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.android.projectsystem;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.io.FileOperationProvider;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ClassJarIndex}. */
+@RunWith(JUnit4.class)
+public class ClassJarIndexTest extends BlazeTestCase {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private ClassJarIndex index;
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    applicationServices.register(FileOperationProvider.class, new FileOperationProvider());
+    // no import settings, so the index isn't persisted
+    projectServices.register(
+        BlazeImportSettingsManager.class, new BlazeImportSettingsManager(project));
+    index = new ClassJarIndex(project);
+  }
+
+  @Test
+  public void testLookupReturnsJarsContainingClass() throws IOException {
+    File foo = writeJar("foo.jar", "com/foo/Foo.class", "com/foo/Shared.class");
+    File bar = writeJar("bar.jar", "com/bar/Bar.class", "com/foo/Shared.class", "res/x.xml");
+
+    index.update(new BlazeContext(), ImmutableList.of(foo, bar));
+
+    assertThat(index.getJarsContaining("com.foo.Foo")).containsExactly(foo.getPath());
+    assertThat(index.getJarsContaining("com.bar.Bar")).containsExactly(bar.getPath());
+    assertThat(index.getJarsContaining("com.foo.Shared"))
+        .containsExactly(foo.getPath(), bar.getPath());
+    assertThat(index.getJarsContaining("res.x")).isEmpty();
+    assertThat(index.isIndexed(foo)).isTrue();
+    assertThat(index.isIndexed(bar)).isTrue();
+  }
+
+  @Test
+  public void testMissingJarIsNotIndexed() throws IOException {
+    File foo = writeJar("foo.jar", "com/foo/Foo.class");
+    File missing = new File(folder.getRoot(), "missing.jar");
+
+    index.update(new BlazeContext(), ImmutableList.of(foo, missing));
+
+    assertThat(index.isIndexed(foo)).isTrue();
+    assertThat(index.isIndexed(missing)).isFalse();
+  }
+
+  @Test
+  public void testChangedJarIsReindexedOnUpdate() throws IOException {
+    File foo = writeJar("foo.jar", "com/foo/Foo.class");
+    index.update(new BlazeContext(), ImmutableList.of(foo));
+
+    writeJar("foo.jar", "com/foo/Moved.class", "com/foo/Other.class");
+    assertThat(foo.setLastModified(foo.lastModified() + 10000)).isTrue();
+
+    // jars are only checked for changes on update
+    assertThat(index.isIndexed(foo)).isTrue();
+    assertThat(index.getJarsContaining("com.foo.Foo")).containsExactly(foo.getPath());
+
+    index.update(new BlazeContext(), ImmutableList.of(foo));
+
+    assertThat(index.isIndexed(foo)).isTrue();
+    assertThat(index.getJarsContaining("com.foo.Foo")).isEmpty();
+    assertThat(index.getJarsContaining("com.foo.Moved")).containsExactly(foo.getPath());
+  }
+
+  @Test
+  public void testJarsNoLongerInProjectAreDropped() throws IOException {
+    File foo = writeJar("foo.jar", "com/foo/Foo.class");
+    File bar = writeJar("bar.jar", "com/bar/Bar.class");
+    index.update(new BlazeContext(), ImmutableList.of(foo, bar));
+
+    index.update(new BlazeContext(), ImmutableList.of(foo));
+
+    assertThat(index.isIndexed(bar)).isFalse();
+    assertThat(index.getJarsContaining("com.bar.Bar")).isEmpty();
+    assertThat(index.getJarsContaining("com.foo.Foo")).containsExactly(foo.getPath());
+  }
+
+  @Test
+  public void testClearDropsAllJars() throws IOException {
+    File foo = writeJar("foo.jar", "com/foo/Foo.class");
+    index.update(new BlazeContext(), ImmutableList.of(foo));
+
+    index.clear();
+
+    assertThat(index.isIndexed(foo)).isFalse();
+    assertThat(index.getJarsContaining("com.foo.Foo")).isEmpty();
+  }
+
+  private File writeJar(String name, String... entries) throws IOException {
+    File jar = new File(folder.getRoot(), name);
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String entry : entries) {
+        out.putNextEntry(new ZipEntry(entry));
+        out.write(new byte[] {0});
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+}
@@ -15,25 +15,46 @@
  */
 package com.google.idea.blaze.android.projectsystem;
 
-import com.google.common.truth.Truth;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.android.projectsystem.TransitiveClosureClassFileFinder.ModuleClassJars;
 import com.google.idea.blaze.base.BlazeTestCase;
 import com.google.idea.blaze.base.ideinfo.AndroidIdeInfo;
 import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
 import com.google.idea.blaze.base.ideinfo.JavaIdeInfo;
 import com.google.idea.blaze.base.ideinfo.LibraryArtifact;
 import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.io.FileOperationProvider;
 import com.google.idea.blaze.base.model.primitives.Kind;
 import com.google.idea.blaze.base.model.primitives.Kind.Provider;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
 import com.google.idea.blaze.java.AndroidBlazeRules;
+import com.intellij.mock.MockVirtualFile;
 import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 /** Tests for {@link TransitiveClosureClassFileFinder}. */
 @RunWith(JUnit4.class)
 public class TransitiveClosureClassFileFinderTest extends BlazeTestCase {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private CountingFileOperationProvider fileOperationProvider;
 
   @Override
   protected void initTest(Container applicationServices, Container projectServices) {
@@ -41,6 +62,11 @@ public class TransitiveClosureClassFileFinderTest extends BlazeTestCase {
         registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class);
     ep.registerExtension(new AndroidBlazeRules());
     applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+    fileOperationProvider = new CountingFileOperationProvider();
+    applicationServices.register(FileOperationProvider.class, fileOperationProvider);
+    // no import settings, so the class jar index isn't persisted
+    projectServices.register(
+        BlazeImportSettingsManager.class, new BlazeImportSettingsManager(project));
   }
 
   @Test
@@ -60,8 +86,102 @@ public class TransitiveClosureClassFileFinderTest extends BlazeTestCase {
             .setAndroidInfo(AndroidIdeInfo.builder().setResourceJar(resourceJar))
             .build();
 
-    Truth.assertThat(
+    assertThat(
             TransitiveClosureClassFileFinder.getNonResourceJars(info).collect(Collectors.toList()))
         .containsExactly(normalJar.build());
   }
+
+  @Test
+  public void testIndexHitOnlySearchesIndexedJar() throws IOException {
+    File foo = writeJar("foo.jar", "com/foo/Foo.class");
+    File bar = writeJar("bar.jar", "com/bar/Bar.class");
+    File unindexed = new File(folder.getRoot(), "unindexed.jar");
+    ClassJarIndex index = new ClassJarIndex(project);
+    index.update(new BlazeContext(), ImmutableList.of(foo, bar));
+    writeJar("unindexed.jar", "com/bar/Bar.class");
+    fileOperationProvider.calls = 0;
+
+    List<File> searched = new ArrayList<>();
+    VirtualFile classFile =
+        TransitiveClosureClassFileFinder.findClassFile(
+            index,
+            new ModuleClassJars(ImmutableList.of(foo, bar, unindexed)),
+            "com.bar.Bar",
+            searchJars(searched, bar));
+
+    assertThat(classFile).isNotNull();
+    assertThat(searched).containsExactly(bar);
+    assertThat(fileOperationProvider.calls).isEqualTo(0);
+  }
+
+  @Test
+  public void testIndexMissOnlySearchesUnindexedJars() throws IOException {
+    File foo = writeJar("foo.jar", "com/foo/Foo.class");
+    File bar = writeJar("bar.jar", "com/bar/Bar.class");
+    File unindexed = new File(folder.getRoot(), "unindexed.jar");
+    ClassJarIndex index = new ClassJarIndex(project);
+    index.update(new BlazeContext(), ImmutableList.of(foo, bar));
+    fileOperationProvider.calls = 0;
+
+    List<File> searched = new ArrayList<>();
+    VirtualFile classFile =
+        TransitiveClosureClassFileFinder.findClassFile(
+            index,
+            new ModuleClassJars(ImmutableList.of(foo, unindexed, bar)),
+            "com.missing.Missing",
+            searchJars(searched, bar));
+
+    assertThat(classFile).isNull();
+    assertThat(searched).containsExactly(unindexed);
+    assertThat(fileOperationProvider.calls).isEqualTo(0);
+  }
+
+  /** Records the searched jars, finding a class file only in the given jar. */
+  private static BiFunction<File, String, VirtualFile> searchJars(
+      List<File> searched, File jarWithClass) {
+    return (jar, classNamePath) -> {
+      searched.add(jar);
+      return jar.equals(jarWithClass) ? new MockVirtualFile(classNamePath) : null;
+    };
+  }
+
+  private File writeJar(String name, String... entries) throws IOException {
+    File jar = new File(folder.getRoot(), name);
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String entry : entries) {
+        out.putNextEntry(new ZipEntry(entry));
+        out.write(new byte[] {0});
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static class CountingFileOperationProvider extends FileOperationProvider {
+    int calls = 0;
+
+    @Override
+    public boolean exists(File file) {
+      calls++;
+      return super.exists(file);
+    }
+
+    @Override
+    public boolean isFile(File file) {
+      calls++;
+      return super.isFile(file);
+    }
+
+    @Override
+    public long getFileModifiedTime(File file) {
+      calls++;
+      return super.getFileModifiedTime(file);
+    }
+
+    @Override
+    public long getFileSize(File file) {
+      calls++;
+      return super.getFileSize(file);
+    }
+  }
 }
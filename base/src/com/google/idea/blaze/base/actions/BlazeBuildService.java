@@ -23,6 +23,7 @@ import com.google.idea.blaze.base.command.BlazeInvocationContext;
 import com.google.idea.blaze.base.experiments.ExperimentScope;
 import com.google.idea.blaze.base.filecache.FileCaches;
 import com.google.idea.blaze.base.issueparser.IssueOutputFilter;
+import com.google.idea.blaze.base.logging.trace.TraceExporter;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.google.idea.blaze.base.model.primitives.TargetExpression;
@@ -142,7 +143,9 @@ public class BlazeBuildService {
                                 .build())
                         .push(new ProblemsViewScope(project, problemsViewFocus))
                         .push(new IdeaLogScope())
-                        .push(new TimingScope("Make", EventType.BlazeInvocation))
+                        .push(
+                            new TimingScope("Make", EventType.BlazeInvocation)
+                                .addScopeListener(TraceExporter.listener("build")))
                         .push(notificationScope);
 
                     WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProject(project);
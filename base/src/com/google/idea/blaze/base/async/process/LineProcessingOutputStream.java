@@ -34,7 +34,19 @@ public final class LineProcessingOutputStream extends OutputStream {
     boolean processLine(String line);
   }
 
-  private final StringBuffer stringBuffer = new StringBuffer();
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  /**
+   * Bytes of the current incomplete line, in [bufferStart, bufferEnd). Never contains a line break,
+   * so it doesn't need to be rescanned when more output arrives.
+   */
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+  private int bufferStart;
+  private int bufferEnd;
+  /** Whether the last byte seen was a '\r', so an immediately following '\n' should be skipped. */
+  private boolean skipLineFeed;
+
   private volatile boolean closed;
   private final ImmutableList<LineProcessor> lineProcessors;
 
@@ -50,46 +62,90 @@ public final class LineProcessingOutputStream extends OutputStream {
     return new LineProcessingOutputStream(lineProcessors);
   }
 
+  /**
+   * Splits output into lines at the byte level. '\r' and '\n' never occur within a multi-byte UTF-8
+   * sequence, so only complete lines are decoded, and characters split across writes aren't
+   * corrupted.
+   */
   @Override
   public synchronized void write(byte[] b, int off, int len) {
-    if (!closed) {
-      String text = new String(b, off, len, UTF_8);
-      stringBuffer.append(text);
-
-      while (true) {
-        int lineBreakIndex = -1;
-        int lineBreakLength = 0;
-        for (int i = 0; i < stringBuffer.length(); ++i) {
-          char c = stringBuffer.charAt(i);
-          if (c == '\r' || c == '\n') {
-            lineBreakIndex = i;
-            lineBreakLength = 1;
-            if (c == '\r'
-                && (i + 1) < stringBuffer.length()
-                && stringBuffer.charAt(i + 1) == '\n') {
-              ++lineBreakLength;
-            }
-            break;
-          }
-        }
+    if (closed || len <= 0) {
+      return;
+    }
+    if (skipLineFeed) {
+      skipLineFeed = false;
+      if (b[off] == '\n') {
+        off++;
+        len--;
+      }
+    }
+    int end = off + len;
+    if (bufferStart == bufferEnd) {
+      // nothing buffered: split lines directly from the caller's array, keeping only the remainder
+      int remainder = processLines(b, off, off, end);
+      append(b, remainder, end - remainder);
+      return;
+    }
+    int scanFrom = bufferEnd;
+    append(b, off, len);
+    bufferStart = processLines(buffer, bufferStart, scanFrom, bufferEnd);
+    if (bufferStart == bufferEnd) {
+      bufferStart = 0;
+      bufferEnd = 0;
+    }
+  }
 
-        if (lineBreakIndex == -1) {
-          return;
+  /**
+   * Processes each complete line in bytes[lineStart, end), scanning for line breaks from
+   * 'scanFrom'. Returns the start of the trailing incomplete line.
+   */
+  private int processLines(byte[] bytes, int lineStart, int scanFrom, int end) {
+    for (int i = scanFrom; i < end; i++) {
+      byte c = bytes[i];
+      if (c != '\n' && c != '\r') {
+        continue;
+      }
+      processLine(new String(bytes, lineStart, i - lineStart, UTF_8));
+      if (c == '\r') {
+        if (i + 1 == end) {
+          skipLineFeed = true;
+        } else if (bytes[i + 1] == '\n') {
+          i++;
         }
+      }
+      lineStart = i + 1;
+    }
+    return lineStart;
+  }
 
-        String line = stringBuffer.substring(0, lineBreakIndex);
-
-        stringBuffer.delete(0, lineBreakIndex + lineBreakLength);
-
-        for (LineProcessor lineProcessor : lineProcessors) {
-          if (!lineProcessor.processLine(line)) {
-            break;
-          }
-        }
+  private void processLine(String line) {
+    for (LineProcessor lineProcessor : lineProcessors) {
+      if (!lineProcessor.processLine(line)) {
+        break;
       }
     }
   }
 
+  private void append(byte[] b, int off, int len) {
+    if (len == 0) {
+      return;
+    }
+    int buffered = bufferEnd - bufferStart;
+    if (bufferEnd + len > buffer.length) {
+      // compact the buffer, only growing it if the incomplete line doesn't fit
+      byte[] target =
+          buffered + len > buffer.length
+              ? new byte[Math.max(buffered + len, buffer.length * 2)]
+              : buffer;
+      System.arraycopy(buffer, bufferStart, target, 0, buffered);
+      buffer = target;
+      bufferStart = 0;
+      bufferEnd = buffered;
+    }
+    System.arraycopy(b, off, buffer, bufferEnd, len);
+    bufferEnd += len;
+  }
+
   @Override
   public void write(int b) throws IOException {
     write(new byte[] {(byte) b}, 0, 1);
@@ -15,6 +15,8 @@
  */
 package com.google.idea.blaze.base.console;
 
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.io.VfsUtils;
 import com.google.idea.blaze.base.run.filter.BlazeTargetFilter;
 import com.intellij.codeEditor.printing.PrintAction;
 import com.intellij.execution.filters.ConsoleDependentFilterProvider;
@@ -32,6 +34,7 @@ import com.intellij.ide.CommonActionsManager;
 import com.intellij.ide.IdeBundle; // common_typos_disable
 import com.intellij.ide.OccurenceNavigator;
 import com.intellij.ide.actions.NextOccurenceToolbarAction;
+import com.intellij.ide.actions.OpenFileAction;
 import com.intellij.ide.actions.PreviousOccurenceToolbarAction;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.AnAction;
@@ -44,10 +47,13 @@ import com.intellij.openapi.editor.markup.RangeHighlighter;
 import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -69,6 +75,8 @@ public class BlazeConsoleView implements Disposable {
   private final Project project;
   private final ConsoleViewImpl consoleView;
   private final CompositeFilter customFilters = new CompositeFilter();
+  private final PrecomputedFilter precomputedFilters = new PrecomputedFilter(customFilters);
+  private final ConsoleOutputBatcher outputBatcher;
 
   private volatile Runnable stopHandler;
 
@@ -81,10 +89,14 @@ public class BlazeConsoleView implements Disposable {
             /* viewer= */ false,
             /* usePredefinedFilters= */ false);
 
-    consoleView.addMessageFilter(customFilters);
+    // the custom (issue parsing) filters are run off the EDT as output is batched
+    consoleView.addMessageFilter(precomputedFilters);
     addWrappedPredefinedFilters();
     // add target filter last, so it doesn't override other links containing a target string
     consoleView.addMessageFilter(new BlazeTargetFilter(false));
+    // the console's cycle buffer setting limits how much output it keeps, the rest is in the full
+    // log
+    outputBatcher = new ConsoleOutputBatcher(consoleView, precomputedFilters);
     Disposer.register(this, consoleView);
   }
 
@@ -94,6 +106,7 @@ public class BlazeConsoleView implements Disposable {
 
   public void setCustomFilters(List<Filter> filters) {
     customFilters.setCustomFilters(filters);
+    precomputedFilters.clear();
   }
 
   public void setStopHandler(@Nullable Runnable stopHandler) {
@@ -179,6 +192,7 @@ public class BlazeConsoleView implements Disposable {
       }
     }
     group.add(new StopAction());
+    group.add(new OpenFullLogAction());
 
     JComponent layoutComponent = layoutUi.getComponent();
 
@@ -190,19 +204,21 @@ public class BlazeConsoleView implements Disposable {
   }
 
   public void clear() {
-    consoleView.clear();
+    outputBatcher.clear();
   }
 
   public void print(String text, ConsoleViewContentType contentType) {
-    consoleView.print(text, contentType);
+    outputBatcher.print(text, contentType);
   }
 
   public void printHyperlink(String text, HyperlinkInfo hyperlinkInfo) {
-    consoleView.printHyperlink(text, hyperlinkInfo);
+    outputBatcher.printHyperlink(text, hyperlinkInfo);
   }
 
   @Override
-  public void dispose() {}
+  public void dispose() {
+    outputBatcher.dispose();
+  }
 
   private class StopAction extends DumbAwareAction {
     public StopAction() {
@@ -228,13 +244,40 @@ public class BlazeConsoleView implements Disposable {
     }
   }
 
+  private class OpenFullLogAction extends DumbAwareAction {
+    OpenFullLogAction() {
+      super(
+          "Open Full Log",
+          "Open all output since the console was last cleared in an editor",
+          AllIcons.FileTypes.Text);
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+      File file = outputBatcher.getFullLog();
+      VirtualFile vf = file != null ? VfsUtils.resolveVirtualFile(file) : null;
+      if (vf == null) {
+        return;
+      }
+      // the log is written to continuously, so make sure the editor shows the latest version
+      VfsUtil.markDirtyAndRefresh(
+          /* async= */ false, /* recursive= */ false, /* reloadChildren= */ false, vf);
+      OpenFileAction.openFile(vf, project);
+    }
+
+    @Override
+    public void update(AnActionEvent event) {
+      event.getPresentation().setEnabled(outputBatcher.hasFullLog());
+    }
+  }
+
   /** A composite filter composed of a modifiable list of custom filters. */
   private static class CompositeFilter implements Filter {
-    private final List<Filter> customFilters = new ArrayList<>();
+    // replaced rather than modified, as filters are applied off the EDT
+    private volatile ImmutableList<Filter> customFilters = ImmutableList.of();
 
     void setCustomFilters(List<Filter> filters) {
-      customFilters.clear();
-      customFilters.addAll(filters);
+      customFilters = ImmutableList.copyOf(filters);
     }
 
     @Nullable
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.console;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import javax.annotation.Nullable;
+
+/**
+ * The complete console output since it was last cleared, spooled to a temporary file. The console
+ * itself only keeps a bounded tail of the output.
+ */
+final class ConsoleLogFile {
+  private static final Logger logger = Logger.getInstance(ConsoleLogFile.class);
+
+  @Nullable private volatile File file;
+  @Nullable private Writer writer;
+  /** Set after a write fails, so we don't keep retrying (and logging) for every line. */
+  private boolean failed;
+  /** Set once the console is disposed, after which no more output is written. */
+  private boolean disposed;
+
+  synchronized void append(String text) {
+    if (failed || disposed) {
+      return;
+    }
+    try {
+      if (writer == null) {
+        file = FileUtil.createTempFile("blaze-console", ".log", /* deleteOnExit= */ true);
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+      }
+      writer.write(text);
+    } catch (IOException e) {
+      logger.warn("Failed to write the full console log", e);
+      failed = true;
+      close();
+    }
+  }
+
+  boolean exists() {
+    return file != null;
+  }
+
+  /** Returns the log file, with all output so far written to it, or null if there isn't one. */
+  @Nullable
+  synchronized File getFile() {
+    if (writer == null) {
+      return null;
+    }
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      logger.warn("Failed to write the full console log", e);
+    }
+    return file;
+  }
+
+  /** Discards the existing log. */
+  synchronized void reset() {
+    close();
+    if (file != null) {
+      FileUtil.delete(file);
+      file = null;
+    }
+    failed = false;
+  }
+
+  /** Closes and deletes the log, and ignores any further output. */
+  synchronized void dispose() {
+    reset();
+    disposed = true;
+  }
+
+  private void close() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      // ignored, we're done with the file
+    }
+    writer = null;
+  }
+}
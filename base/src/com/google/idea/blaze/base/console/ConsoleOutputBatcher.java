@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.console;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.intellij.execution.filters.HyperlinkInfo;
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Buffers output for a console, handing it over in batches rather than piece by piece.
+ *
+ * <p>The size of each batch is limited: if output arrives faster than that, only the tail of the
+ * batch is printed. All output is still written to a {@link ConsoleLogFile}, and run through the
+ * console's custom filters (off the EDT), so no issues are missed.
+ */
+final class ConsoleOutputBatcher {
+  private static final long FLUSH_INTERVAL_MILLIS = 50;
+  @VisibleForTesting static final int MAX_BATCH_CHARS = 64 * 1024;
+
+  @VisibleForTesting
+  static final String OMITTED_LINES_MESSAGE =
+      "[%,d lines not shown. Use 'Open Full Log' to see all output.]\n";
+
+  /** A run of output with the same content type, or a hyperlink. */
+  private static class Chunk {
+    final StringBuilder text;
+    final ConsoleViewContentType contentType;
+    @Nullable final HyperlinkInfo hyperlink;
+
+    Chunk(String text, ConsoleViewContentType contentType, @Nullable HyperlinkInfo hyperlink) {
+      this.text = new StringBuilder(text);
+      this.contentType = contentType;
+      this.hyperlink = hyperlink;
+    }
+  }
+
+  private final ConsoleView consoleView;
+  private final PrecomputedFilter filter;
+  private final ScheduledExecutorService scheduler;
+  private final ConsoleLogFile logFile = new ConsoleLogFile();
+
+  private final Object lock = new Object();
+  private List<Chunk> pending = new ArrayList<>();
+  private int pendingChars;
+  @Nullable private ScheduledFuture<?> scheduledFlush;
+  private boolean disposed;
+
+  /** Held while flushing, so batches are printed in order. */
+  private final Object flushLock = new Object();
+  /** The last, incomplete line of output, not yet filtered. Guarded by flushLock. */
+  private final StringBuilder partialLine = new StringBuilder();
+
+  ConsoleOutputBatcher(ConsoleView consoleView, PrecomputedFilter filter) {
+    this(consoleView, filter, AppExecutorUtil.getAppScheduledExecutorService());
+  }
+
+  @VisibleForTesting
+  ConsoleOutputBatcher(
+      ConsoleView consoleView, PrecomputedFilter filter, ScheduledExecutorService scheduler) {
+    this.consoleView = consoleView;
+    this.filter = filter;
+    this.scheduler = scheduler;
+  }
+
+  void print(String text, ConsoleViewContentType contentType) {
+    append(text, contentType, null);
+  }
+
+  void printHyperlink(String text, @Nullable HyperlinkInfo hyperlinkInfo) {
+    append(text, ConsoleViewContentType.NORMAL_OUTPUT, hyperlinkInfo);
+  }
+
+  private void append(
+      String text, ConsoleViewContentType contentType, @Nullable HyperlinkInfo hyperlinkInfo) {
+    if (text.isEmpty()) {
+      return;
+    }
+    synchronized (lock) {
+      if (disposed) {
+        return;
+      }
+      logFile.append(text);
+      Chunk last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+      if (hyperlinkInfo == null
+          && last != null
+          && last.hyperlink == null
+          && last.contentType == contentType) {
+        last.text.append(text);
+      } else {
+        pending.add(new Chunk(text, contentType, hyperlinkInfo));
+      }
+      pendingChars += text.length();
+      if (scheduledFlush == null) {
+        scheduledFlush =
+            scheduler.schedule(this::flush, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /** Discards all output, including any not yet printed, and clears the console. */
+  void clear() {
+    synchronized (flushLock) {
+      synchronized (lock) {
+        pending = new ArrayList<>();
+        pendingChars = 0;
+        logFile.reset();
+      }
+      partialLine.setLength(0);
+      filter.clear();
+      consoleView.clear();
+    }
+  }
+
+  /** Discards any output not yet printed, and closes and deletes the full log. */
+  void dispose() {
+    synchronized (lock) {
+      disposed = true;
+      pending = new ArrayList<>();
+      pendingChars = 0;
+      if (scheduledFlush != null) {
+        scheduledFlush.cancel(false);
+        scheduledFlush = null;
+      }
+    }
+    logFile.dispose();
+  }
+
+  boolean hasFullLog() {
+    return logFile.exists();
+  }
+
+  /** Returns a file containing all output since the console was last cleared, if there is any. */
+  @Nullable
+  File getFullLog() {
+    return logFile.getFile();
+  }
+
+  @VisibleForTesting
+  void flush() {
+    synchronized (flushLock) {
+      List<Chunk> chunks;
+      int chars;
+      synchronized (lock) {
+        chunks = pending;
+        chars = pendingChars;
+        pending = new ArrayList<>();
+        pendingChars = 0;
+        scheduledFlush = null;
+      }
+      if (chunks.isEmpty()) {
+        return;
+      }
+      int printFrom = chars > MAX_BATCH_CHARS ? startOfTail(chunks, chars - MAX_BATCH_CHARS) : 0;
+      int omittedLines = filterLines(chunks, printFrom);
+      if (printFrom > 0) {
+        consoleView.print(
+            String.format(OMITTED_LINES_MESSAGE, omittedLines),
+            ConsoleViewContentType.SYSTEM_OUTPUT);
+      }
+      printChunks(chunks, printFrom);
+    }
+  }
+
+  /** Returns the start of the first line beginning at or after the given offset. */
+  private static int startOfTail(List<Chunk> chunks, int minOffset) {
+    int position = 0;
+    for (Chunk chunk : chunks) {
+      int start = Math.max(0, minOffset - position);
+      int lineBreak = chunk.text.indexOf("\n", start);
+      if (lineBreak != -1) {
+        return position + lineBreak + 1;
+      }
+      position += chunk.text.length();
+    }
+    // one very long line: just cut it
+    return minOffset;
+  }
+
+  /**
+   * Runs each complete line through the filter, and returns the number of lines which won't be
+   * printed.
+   */
+  private int filterLines(List<Chunk> chunks, int printFrom) {
+    int omittedLines = 0;
+    int position = 0;
+    for (Chunk chunk : chunks) {
+      StringBuilder text = chunk.text;
+      int lineStart = 0;
+      for (int i = 0; i < text.length(); i++) {
+        if (text.charAt(i) != '\n') {
+          continue;
+        }
+        partialLine.append(text, lineStart, i + 1);
+        boolean printed = position + i + 1 > printFrom;
+        filter.precompute(partialLine.toString(), printed);
+        partialLine.setLength(0);
+        lineStart = i + 1;
+        if (!printed) {
+          omittedLines++;
+        }
+      }
+      partialLine.append(text, lineStart, text.length());
+      position += text.length();
+    }
+    return omittedLines;
+  }
+
+  private void printChunks(List<Chunk> chunks, int printFrom) {
+    int position = 0;
+    for (Chunk chunk : chunks) {
+      int start = Math.max(0, printFrom - position);
+      position += chunk.text.length();
+      if (start >= chunk.text.length()) {
+        continue;
+      }
+      String text = chunk.text.substring(start);
+      if (chunk.hyperlink != null) {
+        consoleView.printHyperlink(text, chunk.hyperlink);
+      } else {
+        consoleView.print(text, chunk.contentType);
+      }
+    }
+  }
+}
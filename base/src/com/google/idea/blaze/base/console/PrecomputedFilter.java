@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.console;
+
+import com.intellij.execution.filters.Filter;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Runs an (expensive) filter over output lines off the EDT, before they're printed, then hands the
+ * precomputed results to the console when it asks for them.
+ *
+ * <p>The console filters lines in the order they're printed, so results are queued in that order
+ * and matched by line text. Results the console skips over, or which don't fit in the queue, are
+ * set aside in case it asks for them later, so however far behind the console falls, lines keep
+ * their hyperlinks. Only the number of results kept is bounded: any line without one is filtered
+ * on demand, as before.
+ */
+final class PrecomputedFilter implements Filter {
+  private static final int MAX_QUEUED_LINES = 20_000;
+  /** How far ahead of the oldest queued line to look for the requested line. */
+  private static final int MAX_LOOKAHEAD = 100;
+
+  private static class Entry {
+    final String line;
+    @Nullable final Result result;
+
+    Entry(String line, @Nullable Result result) {
+      this.line = line;
+      this.result = result;
+    }
+  }
+
+  private final Filter delegate;
+  private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+
+  /**
+   * Entries dropped from the queue before the console asked for them, oldest first. Guarded by
+   * queue.
+   */
+  private final ArrayDeque<Entry> droppedEntries = new ArrayDeque<>();
+  /**
+   * The entries in droppedEntries, by line text without the line break, oldest first. Guarded by
+   * queue.
+   */
+  private final Map<String, ArrayDeque<Entry>> droppedEntriesByLine = new HashMap<>();
+
+  PrecomputedFilter(Filter delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Runs the filter over a complete line of output (including the line break). If it's going to be
+   * printed, the result is queued for when the console filters that line.
+   */
+  void precompute(String line, boolean printed) {
+    // filters can be stateful (e.g. multi-line issue parsers), so they're never run concurrently
+    Result result;
+    synchronized (delegate) {
+      result = delegate.applyFilter(line, line.length());
+    }
+    if (!printed) {
+      return;
+    }
+    synchronized (queue) {
+      if (queue.size() >= MAX_QUEUED_LINES) {
+        drop(queue.removeFirst());
+      }
+      queue.addLast(new Entry(line, result));
+    }
+  }
+
+  void clear() {
+    synchronized (queue) {
+      queue.clear();
+      droppedEntries.clear();
+      droppedEntriesByLine.clear();
+    }
+  }
+
+  @Nullable
+  @Override
+  public Result applyFilter(String line, int entireLength) {
+    Entry entry = takeEntry(line);
+    if (entry == null) {
+      entry = takeDroppedEntry(line);
+    }
+    if (entry != null) {
+      return entry.result != null ? shift(entry.result, entireLength - line.length()) : null;
+    }
+    synchronized (delegate) {
+      return delegate.applyFilter(line, entireLength);
+    }
+  }
+
+  /**
+   * Returns the queued entry for the given line, if any, discarding any older entries the console
+   * skipped.
+   */
+  @Nullable
+  private Entry takeEntry(String line) {
+    synchronized (queue) {
+      int index = 0;
+      for (Iterator<Entry> iterator = queue.iterator();
+          iterator.hasNext() && index < MAX_LOOKAHEAD;
+          index++) {
+        Entry entry = iterator.next();
+        if (sameLine(entry.line, line)) {
+          for (int i = 0; i < index; i++) {
+            drop(queue.removeFirst());
+          }
+          return queue.removeFirst();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Sets aside an entry the console hasn't asked for yet, forgetting the oldest if there are too
+   * many. Must hold the queue lock.
+   */
+  private void drop(Entry entry) {
+    if (droppedEntries.size() >= MAX_QUEUED_LINES) {
+      removeDroppedEntry(droppedEntries.removeFirst());
+    }
+    droppedEntries.addLast(entry);
+    droppedEntriesByLine
+        .computeIfAbsent(withoutLineBreak(entry.line), key -> new ArrayDeque<>())
+        .addLast(entry);
+  }
+
+  /** Returns the oldest dropped entry for the given line, if any. */
+  @Nullable
+  private Entry takeDroppedEntry(String line) {
+    synchronized (queue) {
+      ArrayDeque<Entry> entries = droppedEntriesByLine.get(withoutLineBreak(line));
+      if (entries == null) {
+        return null;
+      }
+      Entry entry = entries.peekFirst();
+      removeDroppedEntry(entry);
+      droppedEntries.removeFirstOccurrence(entry);
+      return entry;
+    }
+  }
+
+  /**
+   * Removes the given entry from droppedEntriesByLine. It must be the oldest dropped entry for its
+   * line.
+   */
+  private void removeDroppedEntry(Entry entry) {
+    String key = withoutLineBreak(entry.line);
+    ArrayDeque<Entry> entries = droppedEntriesByLine.get(key);
+    entries.removeFirst();
+    if (entries.isEmpty()) {
+      droppedEntriesByLine.remove(key);
+    }
+  }
+
+  /** Whether the two lines are equal, ignoring any trailing line break. */
+  private static boolean sameLine(String first, String second) {
+    int length = lengthWithoutLineBreak(first);
+    return length == lengthWithoutLineBreak(second) && first.regionMatches(0, second, 0, length);
+  }
+
+  private static int lengthWithoutLineBreak(String line) {
+    return line.endsWith("\n") ? line.length() - 1 : line.length();
+  }
+
+  private static String withoutLineBreak(String line) {
+    return line.substring(0, lengthWithoutLineBreak(line));
+  }
+
+  /** Moves all result items by the given offset. */
+  private static Result shift(Result result, int offset) {
+    if (offset == 0) {
+      return result;
+    }
+    List<ResultItem> items =
+        result
+            .getResultItems()
+            .stream()
+            .map(
+                item ->
+                    new ResultItem(
+                        item.getHighlightStartOffset() + offset,
+                        item.getHighlightEndOffset() + offset,
+                        item.getHyperlinkInfo(),
+                        item.getHighlightAttributes(),
+                        item.getFollowedHyperlinkAttributes()))
+            .collect(Collectors.toList());
+    return new Result(items);
+  }
+}
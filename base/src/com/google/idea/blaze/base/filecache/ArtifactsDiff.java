@@ -74,9 +74,10 @@ public abstract class ArtifactsDiff {
             .map(e -> newArtifacts.get(e.getKey()))
             .collect(toImmutableList());
 
-    // Find removed
+    // Find removed. An artifact whose state changed type (e.g. moving between local and remote
+    // outputs) is updated, not removed.
     Set<ArtifactState> removed = new HashSet<>(previous.values());
-    newState.forEach((k, v) -> removed.remove(v));
+    newState.keySet().forEach(k -> removed.remove(previous.get(k)));
 
     return new AutoValue_ArtifactsDiff(newState, updated, ImmutableSet.copyOf(removed));
   }
@@ -29,6 +29,9 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.idea.blaze.base.command.buildresult.RemoteOutputArtifact;
 import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
 import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Counter;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Histogram;
 import com.google.idea.blaze.base.model.RemoteOutputArtifacts;
 import com.google.idea.blaze.base.prefetch.FetchExecutor;
 import com.google.idea.blaze.base.scope.BlazeContext;
@@ -42,6 +45,7 @@ import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.util.PathUtil;
 import java.io.File;
@@ -58,6 +62,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import javax.annotation.Nullable;
@@ -91,11 +96,35 @@ public final class RemoteOutputsCache {
 
   private static final Logger logger = Logger.getInstance(RemoteOutputsCache.class);
 
+  private static final Counter lookupHits =
+      MetricsRegistry.counter("RemoteOutputsCache.lookup_hits");
+  private static final Counter lookupMisses =
+      MetricsRegistry.counter("RemoteOutputsCache.lookup_misses");
+  private static final Counter copiedFiles =
+      MetricsRegistry.counter("RemoteOutputsCache.copied_files");
+  private static final Counter copiedBytes =
+      MetricsRegistry.counter("RemoteOutputsCache.copied_bytes");
+  private static final Histogram copyTimeMillis =
+      MetricsRegistry.histogram("RemoteOutputsCache.copy_time_ms");
+  private static final Counter removedFiles =
+      MetricsRegistry.counter("RemoteOutputsCache.removed_files");
+
+  /** The caches of all open projects. The size gauge sums across them. */
+  private static final Set<RemoteOutputsCache> openCaches = ConcurrentHashMap.newKeySet();
+
+  static {
+    MetricsRegistry.registerGauge(
+        "RemoteOutputsCache.cached_files",
+        () -> openCaches.stream().mapToLong(cache -> cache.cachedFiles.size()).sum());
+  }
+
   private final File cacheDir;
   private volatile Map<String, File> cachedFiles = ImmutableMap.of();
 
   private RemoteOutputsCache(Project project) {
     this.cacheDir = getCacheDir(project);
+    openCaches.add(this);
+    Disposer.register(project, () -> openCaches.remove(this));
   }
 
   /**
@@ -110,7 +139,13 @@ public final class RemoteOutputsCache {
   @Nullable
   public File resolveOutput(RemoteOutputArtifact output) {
     Map<String, File> cachedFiles = this.cachedFiles;
-    return cachedFiles != null ? cachedFiles.get(getCacheKey(output)) : null;
+    File file = cachedFiles != null ? cachedFiles.get(getCacheKey(output)) : null;
+    if (file != null) {
+      lookupHits.increment();
+    } else {
+      lookupMisses.increment();
+    }
+    return file;
   }
 
   public void updateCache(
@@ -173,6 +208,7 @@ public final class RemoteOutputsCache {
       this.cachedFiles =
           newState.keySet().stream()
               .collect(toImmutableMap(Functions.identity(), k -> new File(cacheDir, k)));
+      removedFiles.add(removed.size());
 
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
@@ -226,8 +262,12 @@ public final class RemoteOutputsCache {
                 FetchExecutor.EXECUTOR.submit(
                     () -> {
                       Path destination = Paths.get(new File(cacheDir, key).getPath());
+                      long startTime = System.currentTimeMillis();
                       try (InputStream stream = artifact.getInputStream()) {
-                        Files.copy(stream, destination, StandardCopyOption.REPLACE_EXISTING);
+                        copiedBytes.add(
+                            Files.copy(stream, destination, StandardCopyOption.REPLACE_EXISTING));
+                        copiedFiles.increment();
+                        copyTimeMillis.record(System.currentTimeMillis() - startTime);
                       } catch (IOException e) {
                         logger.warn(e);
                       }
@@ -19,7 +19,6 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Ascii;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
 import com.google.idea.blaze.base.command.BlazeInvocationContext;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.google.idea.blaze.base.model.primitives.TargetExpression;
@@ -104,14 +103,38 @@ public class BlazeIssueParser {
   /** Used by BlazeIssueParser. Generally implemented by subclassing SingleLineParser */
   public interface Parser {
     ParseResult parse(String currentLine, List<String> previousLines);
+
+    /**
+     * A cheap check run before {@link #parse} on lines which don't continue a multi-line match.
+     * Must return true for any line the parser could match; other lines skip the parser entirely.
+     */
+    default boolean mightMatch(String line) {
+      return true;
+    }
   }
 
   /** Base for a Parser that consumes a single contextless line at a time, matched via regex */
   public abstract static class SingleLineParser implements Parser {
     final Pattern pattern;
+    private final Predicate<String> prefilter;
 
+    /** Lines are prefiltered using the regex's leading literal text, if it has any. */
     public SingleLineParser(String regex) {
-      pattern = Pattern.compile(regex);
+      this(regex, RegexPrefilter.forRegex(regex));
+    }
+
+    /**
+     * @param prefilter a cheap check which must accept every line matching the regex. See {@link
+     *     Parser#mightMatch}.
+     */
+    public SingleLineParser(String regex, Predicate<String> prefilter) {
+      this.pattern = Pattern.compile(regex);
+      this.prefilter = prefilter;
+    }
+
+    @Override
+    public boolean mightMatch(String line) {
+      return prefilter.test(line);
     }
 
     @Override
@@ -188,7 +211,8 @@ public class BlazeIssueParser {
               + "(?::| -)? " // colon or hyphen separator
               + "(?i:(fatal error|error|warning|note))" // message type (case insensitive)
               + "(?:[^:-]+)?[:-] " // optional error code with colon or hyphen separator
-              + "(.*)$"); // message
+              + "(.*)$", // message
+          CompileParser::mightMatchCompileMessage);
       this.project = project;
     }
 
@@ -205,6 +229,12 @@ public class BlazeIssueParser {
           .build();
     }
 
+    /** Whether the first colon is followed by a digit, which the pattern requires. */
+    private static boolean mightMatchCompileMessage(String line) {
+      int colon = line.indexOf(':');
+      return colon != -1 && colon + 1 < line.length() && Ascii.isDigit(line.charAt(colon + 1));
+    }
+
     private static IssueOutput.Category messageCategory(String messageType) {
       switch (Ascii.toLowerCase(messageType)) {
         case "warning":
@@ -225,6 +255,11 @@ public class BlazeIssueParser {
         Pattern.compile(
             "(ERROR): (.*?):([0-9]+):([0-9]+): (Traceback \\(most recent call last\\):)");
 
+    @Override
+    public boolean mightMatch(String line) {
+      return line.contains("Traceback (most recent call last):");
+    }
+
     @Override
     public ParseResult parse(String currentLine, List<String> previousLines) {
       if (previousLines.isEmpty()) {
@@ -258,7 +293,9 @@ public class BlazeIssueParser {
 
   static class BuildParser extends SingleLineParser {
     BuildParser() {
-      super("^ERROR: (/.*?BUILD):([0-9]+):([0-9]+): (.*)$");
+      super(
+          "^ERROR: (/.*?BUILD):([0-9]+):([0-9]+): (.*)$",
+          line -> line.startsWith("ERROR: /") && line.contains("BUILD:"));
     }
 
     @Override
@@ -276,7 +313,9 @@ public class BlazeIssueParser {
 
   static class SkylarkErrorParser extends SingleLineParser {
     SkylarkErrorParser() {
-      super("^ERROR: (/.*?\\.bzl):([0-9]+):([0-9]+): (.*)$");
+      super(
+          "^ERROR: (/.*?\\.bzl):([0-9]+):([0-9]+): (.*)$",
+          line -> line.startsWith("ERROR: /") && line.contains(".bzl:"));
     }
 
     @Override
@@ -294,7 +333,9 @@ public class BlazeIssueParser {
 
   static class LinelessBuildParser extends SingleLineParser {
     LinelessBuildParser() {
-      super("^ERROR: (.*?):char offsets [0-9]+--[0-9]+: (.*)$");
+      super(
+          "^ERROR: (.*?):char offsets [0-9]+--[0-9]+: (.*)$",
+          line -> line.startsWith("ERROR: ") && line.contains(":char offsets "));
     }
 
     @Override
@@ -310,7 +351,9 @@ public class BlazeIssueParser {
     private final WorkspaceRoot workspaceRoot;
 
     FileNotFoundBuildParser(WorkspaceRoot workspaceRoot) {
-      super("^ERROR: .*? Unable to load file '(.*?)': (.*)$");
+      super(
+          "^ERROR: .*? Unable to load file '(.*?)': (.*)$",
+          line -> line.startsWith("ERROR: ") && line.contains(" Unable to load file '"));
       this.workspaceRoot = workspaceRoot;
     }
 
@@ -447,31 +490,37 @@ public class BlazeIssueParser {
 
   @Nullable
   public IssueOutput parseIssue(String line) {
-
-    List<Parser> parsers = this.parsers;
     if (multilineMatchingParser != null) {
-      parsers = Lists.newArrayList(multilineMatchingParser);
+      return parseIssue(multilineMatchingParser, line);
     }
-
     for (Parser parser : parsers) {
-      ParseResult issue = parser.parse(line, multilineMatchResult);
-      if (issue.needsMoreInput) {
-        multilineMatchingParser = parser;
-        multilineMatchResult.add(line);
-        return null;
-      } else {
-        multilineMatchingParser = null;
-        multilineMatchResult = new ArrayList<>();
+      // the prefilters rule out most parsers (usually all of them) without running any regex
+      if (!parser.mightMatch(line)) {
+        continue;
       }
-
-      if (issue.output != null) {
-        return issue.output;
+      IssueOutput issue = parseIssue(parser, line);
+      if (issue != null || multilineMatchingParser != null) {
+        return issue;
       }
     }
-
     return null;
   }
 
+  @Nullable
+  private IssueOutput parseIssue(Parser parser, String line) {
+    ParseResult result = parser.parse(line, multilineMatchResult);
+    if (result.needsMoreInput) {
+      multilineMatchingParser = parser;
+      multilineMatchResult.add(line);
+      return null;
+    }
+    if (multilineMatchingParser != null) {
+      multilineMatchingParser = null;
+      multilineMatchResult = new ArrayList<>();
+    }
+    return result.output;
+  }
+
   /**
    * The union of the two ranges. If one of the ranges is null, returns the other. If both are null,
    * returns null.
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.issueparser;
+
+import java.util.function.Predicate;
+
+/**
+ * Derives a cheap literal check from a regex, used to skip lines which can't possibly match before
+ * running the regex itself.
+ *
+ * <p>Only the regex's leading literal text is used: an anchored regex requires lines to start with
+ * it, otherwise they must contain it. Anything non-trivial (top-level alternation, quoting, no
+ * leading literal) results in a prefilter accepting every line.
+ */
+final class RegexPrefilter {
+
+  private static final String METACHARACTERS = "\\.[]{}()*+?^$|";
+  /** Quantifiers which make the preceding character optional. */
+  private static final String OPTIONAL_QUANTIFIERS = "?*{";
+
+  static final Predicate<String> ACCEPT_ALL = line -> true;
+
+  private RegexPrefilter() {}
+
+  /** Returns a predicate accepting every line which could contain a match for the given regex. */
+  static Predicate<String> forRegex(String regex) {
+    if (regex.contains("\\Q") || hasTopLevelAlternation(regex)) {
+      return ACCEPT_ALL;
+    }
+    boolean anchored = regex.startsWith("^");
+    int end = anchored ? 1 : 0;
+    while (end < regex.length() && METACHARACTERS.indexOf(regex.charAt(end)) < 0) {
+      end++;
+    }
+    String literal = regex.substring(anchored ? 1 : 0, end);
+    if (end < regex.length()
+        && OPTIONAL_QUANTIFIERS.indexOf(regex.charAt(end)) >= 0
+        && !literal.isEmpty()) {
+      literal = literal.substring(0, literal.length() - 1);
+    }
+    if (literal.isEmpty()) {
+      return ACCEPT_ALL;
+    }
+    String requiredLiteral = literal;
+    if (anchored) {
+      return line -> line.startsWith(requiredLiteral);
+    }
+    return line -> line.contains(requiredLiteral);
+  }
+
+  /** Whether the regex contains a '|' outside of any group or character class. */
+  private static boolean hasTopLevelAlternation(String regex) {
+    int groupDepth = 0;
+    int classDepth = 0;
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '[') {
+        classDepth++;
+      } else if (c == ']' && classDepth > 0) {
+        classDepth--;
+      } else if (classDepth > 0) {
+        continue;
+      } else if (c == '(') {
+        groupDepth++;
+      } else if (c == ')') {
+        groupDepth--;
+      } else if (c == '|' && groupDepth == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.globbing;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.bazel.BuildSystemProvider;
+import com.google.idea.blaze.base.lang.buildfile.globbing.GlobMatcher.Segment;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.settings.Blaze;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Evaluates globs against the VFS, caching the results per blaze package.
+ *
+ * <p>Cached results are dropped when a file is created, deleted, moved or renamed anywhere in the
+ * package (i.e. under the package directory, but not in a subpackage). Creating or deleting a BUILD
+ * file also drops the enclosing package, whose boundaries have changed. Content changes don't
+ * affect glob results, so are ignored.
+ *
+ * <p>Only packages in the workspace are cached, so VFS events outside the workspace can be ignored
+ * without walking their parents.
+ */
+public class GlobCache {
+
+  public static GlobCache getInstance(Project project) {
+    return ServiceManager.getService(project, GlobCache.class);
+  }
+
+  private static final int MAX_CACHED_PACKAGES = 1000;
+
+  private final Project project;
+
+  /** package directory path -> glob -> matching files */
+  private final Map<String, Map<GlobKey, ImmutableList<VirtualFile>>> cache =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_PACKAGES)
+          .<String, Map<GlobKey, ImmutableList<VirtualFile>>>build()
+          .asMap();
+
+  public GlobCache(Project project) {
+    this.project = project;
+    project
+        .getMessageBus()
+        .connect(project)
+        .subscribe(VirtualFileManager.VFS_CHANGES, new Listener());
+  }
+
+  /**
+   * Returns the files and directories under {@code packageDirectory} matched by any of the include
+   * patterns and none of the exclude patterns, sorted by path. Subdirectories which are themselves
+   * blaze packages aren't traversed.
+   *
+   * @throws IllegalArgumentException if any pattern is invalid
+   */
+  public ImmutableList<VirtualFile> glob(
+      VirtualFile packageDirectory,
+      List<String> includes,
+      List<String> excludes,
+      boolean excludeDirectories) {
+    WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProjectSafe(project);
+    if (workspaceRoot == null || !workspaceRoot.isInWorkspace(packageDirectory)) {
+      return new Evaluator(packageDirectory, excludeDirectories).evaluate(includes, excludes);
+    }
+    GlobKey key = new GlobKey(includes, excludes, excludeDirectories);
+    Map<GlobKey, ImmutableList<VirtualFile>> packageGlobs =
+        cache.computeIfAbsent(packageDirectory.getPath(), path -> new ConcurrentHashMap<>());
+    ImmutableList<VirtualFile> result = packageGlobs.get(key);
+    if (result == null) {
+      result = new Evaluator(packageDirectory, excludeDirectories).evaluate(includes, excludes);
+      packageGlobs.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Drops cached globs for the package containing the given child of {@code parent}, and if it's a
+   * directory, any packages beneath it.
+   */
+  private void invalidate(
+      WorkspaceRoot workspaceRoot,
+      @Nullable VirtualFile parent,
+      String name,
+      boolean isDirectory) {
+    if (parent == null) {
+      return;
+    }
+    if (!workspaceRoot.isInWorkspace(parent)) {
+      // only relevant if the workspace itself has been moved or deleted
+      if (isDirectory
+          && FileUtil.isAncestor(
+              childPath(parent, name), workspaceRoot.directory().getPath(), false)) {
+        cache.clear();
+      }
+      return;
+    }
+    BuildSystemProvider buildSystemProvider = Blaze.getBuildSystemProvider(project);
+    VirtualFile directory = parent;
+    if (!isDirectory && buildSystemProvider.isBuildFile(name)) {
+      // the parent directory has become (or stopped being) a package, changing the boundaries of
+      // the enclosing package too
+      cache.remove(directory.getPath());
+      directory = directory.getParent();
+    }
+    // walk up to the nearest enclosing package; files in subpackages don't affect its globs
+    while (directory != null && workspaceRoot.isInWorkspace(directory)) {
+      cache.remove(directory.getPath());
+      if (buildSystemProvider.findBuildFileInDirectory(directory) != null) {
+        break;
+      }
+      directory = directory.getParent();
+    }
+    if (isDirectory) {
+      String prefix = childPath(parent, name) + "/";
+      cache.keySet().removeIf(packagePath -> packagePath.startsWith(prefix));
+    }
+  }
+
+  private class Listener implements BulkFileListener {
+    @Override
+    public void before(List<? extends VFileEvent> events) {}
+
+    @Override
+    public void after(List<? extends VFileEvent> events) {
+      if (cache.isEmpty()) {
+        return;
+      }
+      WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProjectSafe(project);
+      if (workspaceRoot == null) {
+        return;
+      }
+      for (VFileEvent event : events) {
+        if (event instanceof VFileCreateEvent) {
+          VFileCreateEvent create = (VFileCreateEvent) event;
+          invalidate(
+              workspaceRoot, create.getParent(), create.getChildName(), create.isDirectory());
+        } else if (event instanceof VFileDeleteEvent) {
+          VirtualFile file = ((VFileDeleteEvent) event).getFile();
+          invalidate(workspaceRoot, file.getParent(), file.getName(), file.isDirectory());
+        } else if (event instanceof VFileCopyEvent) {
+          VFileCopyEvent copy = (VFileCopyEvent) event;
+          invalidate(
+              workspaceRoot,
+              copy.getNewParent(),
+              copy.getNewChildName(),
+              copy.getFile().isDirectory());
+        } else if (event instanceof VFileMoveEvent) {
+          VFileMoveEvent move = (VFileMoveEvent) event;
+          VirtualFile file = move.getFile();
+          invalidate(workspaceRoot, move.getOldParent(), file.getName(), file.isDirectory());
+          invalidate(workspaceRoot, move.getNewParent(), file.getName(), file.isDirectory());
+        } else if (event instanceof VFilePropertyChangeEvent) {
+          VFilePropertyChangeEvent change = (VFilePropertyChangeEvent) event;
+          if (!VirtualFile.PROP_NAME.equals(change.getPropertyName())) {
+            continue;
+          }
+          VirtualFile parent = change.getFile().getParent();
+          boolean isDirectory = change.getFile().isDirectory();
+          invalidate(workspaceRoot, parent, (String) change.getOldValue(), isDirectory);
+          invalidate(workspaceRoot, parent, (String) change.getNewValue(), isDirectory);
+        }
+      }
+    }
+  }
+
+  private static String childPath(VirtualFile parent, String name) {
+    return parent.getPath() + "/" + name;
+  }
+
+  /** Walks the VFS for a single glob evaluation. */
+  private class Evaluator {
+    private final VirtualFile packageDirectory;
+    private final boolean excludeDirectories;
+    private final BuildSystemProvider buildSystemProvider = Blaze.getBuildSystemProvider(project);
+    /** Whether each visited directory is a blaze package, shared between patterns. */
+    private final Map<VirtualFile, Boolean> isPackage = new HashMap<>();
+
+    Evaluator(VirtualFile packageDirectory, boolean excludeDirectories) {
+      this.packageDirectory = packageDirectory;
+      this.excludeDirectories = excludeDirectories;
+    }
+
+    ImmutableList<VirtualFile> evaluate(List<String> includes, List<String> excludes) {
+      Set<VirtualFile> included = glob(includes);
+      if (!included.isEmpty() && !excludes.isEmpty()) {
+        included.removeAll(glob(excludes));
+      }
+      return included.stream()
+          .sorted(Comparator.comparing(VirtualFile::getPath))
+          .collect(ImmutableList.toImmutableList());
+    }
+
+    private Set<VirtualFile> glob(List<String> patterns) {
+      Set<VirtualFile> results = new LinkedHashSet<>();
+      if (!packageDirectory.isValid() || !packageDirectory.isDirectory()) {
+        return results;
+      }
+      for (Segment[] patternParts : GlobMatcher.compileSegments(patterns)) {
+        visit(packageDirectory, patternParts, 0, results);
+      }
+      return results;
+    }
+
+    /** Mirrors {@link UnixGlob}'s traversal, over VirtualFiles rather than java.io.Files. */
+    private void visit(
+        VirtualFile base, Segment[] patternParts, int idx, Set<VirtualFile> results) {
+      ProgressManager.checkCanceled();
+      boolean baseIsDirectory = base.isDirectory();
+      if (baseIsDirectory && isSubpackage(base)) {
+        return;
+      }
+      if (idx == patternParts.length) {
+        if (!(excludeDirectories && baseIsDirectory)) {
+          results.add(base);
+        }
+        return;
+      }
+      if (!baseIsDirectory) {
+        return;
+      }
+      Segment pattern = patternParts[idx];
+
+      // ** can match nothing at all
+      if (pattern.recursive) {
+        visit(base, patternParts, idx + 1, results);
+      }
+      if (pattern.isLiteral()) {
+        VirtualFile child = base.findChild(pattern.pattern);
+        if (child != null) {
+          visit(child, patternParts, idx + 1, results);
+        }
+        return;
+      }
+      for (VirtualFile child : base.getChildren()) {
+        boolean childIsDirectory = child.isDirectory();
+        if (childIsDirectory && pattern.recursive) {
+          visit(child, patternParts, idx, results);
+        }
+        if (!pattern.matches(child.getName())) {
+          continue;
+        }
+        if (childIsDirectory) {
+          visit(child, patternParts, idx + 1, results);
+        } else if (idx + 1 == patternParts.length) {
+          results.add(child);
+        }
+      }
+    }
+
+    private boolean isSubpackage(VirtualFile directory) {
+      if (directory.equals(packageDirectory)) {
+        return false;
+      }
+      return isPackage.computeIfAbsent(
+          directory, dir -> buildSystemProvider.findBuildFileInDirectory(dir) != null);
+    }
+  }
+
+  private static final class GlobKey {
+    private final ImmutableList<String> includes;
+    private final ImmutableList<String> excludes;
+    private final boolean excludeDirectories;
+
+    GlobKey(List<String> includes, List<String> excludes, boolean excludeDirectories) {
+      this.includes = ImmutableList.copyOf(includes);
+      this.excludes = ImmutableList.copyOf(excludes);
+      this.excludeDirectories = excludeDirectories;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof GlobKey)) {
+        return false;
+      }
+      GlobKey other = (GlobKey) obj;
+      return excludeDirectories == other.excludeDirectories
+          && includes.equals(other.includes)
+          && excludes.equals(other.excludes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(includes, excludes, excludeDirectories);
+    }
+  }
+}
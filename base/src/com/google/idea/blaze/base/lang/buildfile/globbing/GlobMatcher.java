@@ -0,0 +1,326 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.globbing;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.idea.blaze.base.lang.buildfile.validation.GlobPatternValidator;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Matches package-relative paths against a set of include and exclude glob patterns, with the same
+ * semantics as {@link UnixGlob}.
+ *
+ * <p>All patterns are compiled up front into a single segment-wise automaton: each path segment is
+ * consumed once, advancing every pattern in parallel, so a path is matched without regular
+ * expressions or backtracking. Patterns without wildcards are matched with a single set lookup.
+ */
+public final class GlobMatcher {
+
+  private static final Splitter PATH_SPLITTER = Splitter.on('/');
+
+  private final ImmutableSet<String> literalIncludes;
+  private final ImmutableSet<String> literalExcludes;
+  private final Automaton includes;
+  private final Automaton excludes;
+
+  private GlobMatcher(Collection<String> includes, Collection<String> excludes) {
+    this.literalIncludes = literals(includes);
+    this.literalExcludes = literals(excludes);
+    this.includes = new Automaton(wildcards(includes));
+    this.excludes = new Automaton(wildcards(excludes));
+  }
+
+  /**
+   * Compiles the given include and exclude patterns.
+   *
+   * @throws IllegalArgumentException if any pattern is invalid
+   */
+  public static GlobMatcher compile(Collection<String> includes, Collection<String> excludes) {
+    return new GlobMatcher(includes, excludes);
+  }
+
+  /** Returns true if the path matches any include pattern, and no exclude pattern. */
+  public boolean matches(String relativePath) {
+    return matchesInclude(relativePath) && !isExcluded(relativePath);
+  }
+
+  /**
+   * Returns true if the path matches an include pattern without wildcards, and no exclude pattern.
+   */
+  public boolean matchesDirectly(String relativePath) {
+    return literalIncludes.contains(relativePath) && !isExcluded(relativePath);
+  }
+
+  private boolean matchesInclude(String relativePath) {
+    return literalIncludes.contains(relativePath) || includes.matches(relativePath);
+  }
+
+  private boolean isExcluded(String relativePath) {
+    return literalExcludes.contains(relativePath) || excludes.matches(relativePath);
+  }
+
+  /**
+   * Validates each pattern and compiles it into an array of segments.
+   *
+   * @throws IllegalArgumentException if any pattern is invalid
+   */
+  static List<Segment[]> compileSegments(Collection<String> patterns) {
+    ImmutableList.Builder<Segment[]> list = ImmutableList.builder();
+    for (String pattern : patterns) {
+      list.add(compileSegments(pattern));
+    }
+    return list.build();
+  }
+
+  /**
+   * Checks that a single pattern is valid, using the same parsing as compilation. Used by {@link
+   * GlobPatternValidator}.
+   *
+   * @throws IllegalArgumentException if the pattern is invalid, with a user-readable message
+   */
+  public static void validate(String pattern) {
+    compileSegments(pattern);
+  }
+
+  private static Segment[] compileSegments(String pattern) {
+    if (pattern.isEmpty()) {
+      throw invalidPattern("pattern cannot be empty");
+    }
+    if (pattern.charAt(0) == '/') {
+      throw invalidPattern("pattern cannot be absolute");
+    }
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      switch (c) {
+        case '(':
+        case ')':
+        case '{':
+        case '}':
+        case '[':
+        case ']':
+          throw invalidPattern("illegal character '" + c + "'");
+        default: // fall out
+      }
+    }
+    List<String> names = PATH_SPLITTER.splitToList(pattern);
+    Segment[] segments = new Segment[names.size()];
+    for (int i = 0; i < segments.length; i++) {
+      String name = names.get(i);
+      if (name.isEmpty()) {
+        throw invalidPattern("empty segment not permitted");
+      }
+      if (name.equals(".") || name.equals("..")) {
+        throw invalidPattern("segment '" + name + "' not permitted");
+      }
+      if (name.contains("**") && !name.equals("**")) {
+        throw invalidPattern("recursive wildcard must be its own segment");
+      }
+      segments[i] = new Segment(name);
+    }
+    return segments;
+  }
+
+  private static IllegalArgumentException invalidPattern(String error) {
+    return new IllegalArgumentException("Invalid glob pattern: " + error);
+  }
+
+  private static boolean hasWildcard(String pattern) {
+    return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+  }
+
+  private static ImmutableSet<String> literals(Collection<String> patterns) {
+    ImmutableSet.Builder<String> literals = ImmutableSet.builder();
+    for (String pattern : patterns) {
+      if (!hasWildcard(pattern)) {
+        // still validated, for consistency with wildcard patterns
+        validate(pattern);
+        literals.add(pattern);
+      }
+    }
+    return literals.build();
+  }
+
+  private static List<Segment[]> wildcards(Collection<String> patterns) {
+    ImmutableList<String> wildcards =
+        patterns.stream().filter(GlobMatcher::hasWildcard).collect(ImmutableList.toImmutableList());
+    return compileSegments(wildcards);
+  }
+
+  /**
+   * A nondeterministic automaton over path segments. Each state is a position within one of the
+   * patterns; a pattern matches if its final position is reached once all segments are consumed.
+   */
+  private static final class Automaton {
+    /** The segment at each state, or null for the accepting state at the end of each pattern. */
+    private final Segment[] states;
+
+    private final BitSet initial = new BitSet();
+
+    Automaton(List<Segment[]> patterns) {
+      int size = 0;
+      for (Segment[] pattern : patterns) {
+        size += pattern.length + 1;
+      }
+      states = new Segment[size];
+      int state = 0;
+      for (Segment[] pattern : patterns) {
+        initial.set(state);
+        System.arraycopy(pattern, 0, states, state, pattern.length);
+        state += pattern.length + 1;
+      }
+      closeOverRecursiveSegments(initial);
+    }
+
+    boolean matches(String path) {
+      if (states.length == 0 || path.isEmpty()) {
+        return false;
+      }
+      BitSet current = (BitSet) initial.clone();
+      BitSet next = new BitSet(states.length);
+      int start = 0;
+      while (true) {
+        int end = path.indexOf('/', start);
+        String name = end < 0 ? path.substring(start) : path.substring(start, end);
+        next.clear();
+        for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+          Segment segment = states[s];
+          if (segment == null) {
+            continue;
+          }
+          if (segment.recursive) {
+            // '**' consumes this segment, and may consume more
+            next.set(s);
+          } else if (segment.matches(name)) {
+            next.set(s + 1);
+          }
+        }
+        if (next.isEmpty()) {
+          return false;
+        }
+        closeOverRecursiveSegments(next);
+        BitSet swap = current;
+        current = next;
+        next = swap;
+        if (end < 0) {
+          break;
+        }
+        start = end + 1;
+      }
+      for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+        if (states[s] == null) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** '**' can also match no segments at all, so the following state is also reachable. */
+    private void closeOverRecursiveSegments(BitSet set) {
+      for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+        if (states[s] != null && states[s].recursive) {
+          set.set(s + 1);
+        }
+      }
+    }
+  }
+
+  /** A single compiled path segment of a glob pattern, matching a single file name. */
+  static final class Segment {
+    final String pattern;
+    /** True for '**', which matches any number of path segments (including none). */
+    final boolean recursive;
+
+    private final boolean literal;
+    /** For patterns with a single trailing '*' */
+    private final boolean prefixOnly;
+    /** For patterns with a single leading '*' */
+    private final boolean suffixOnly;
+
+    Segment(String pattern) {
+      this.pattern = pattern;
+      this.recursive = pattern.equals("**");
+      this.literal = !hasWildcard(pattern);
+      int firstStar = pattern.indexOf('*');
+      boolean singleStar = firstStar >= 0 && firstStar == pattern.lastIndexOf('*');
+      boolean noQuestionMark = pattern.indexOf('?') < 0;
+      this.prefixOnly =
+          singleStar && noQuestionMark && firstStar == pattern.length() - 1 && firstStar > 0;
+      this.suffixOnly = singleStar && noQuestionMark && firstStar == 0 && pattern.length() > 1;
+    }
+
+    /** True if this segment contains no wildcards. */
+    boolean isLiteral() {
+      return literal;
+    }
+
+    boolean matches(String name) {
+      if (name.isEmpty()) {
+        return false;
+      }
+      if (literal) {
+        return pattern.equals(name);
+      }
+      if (recursive || pattern.equals("*")) {
+        return true;
+      }
+      // If a filename starts with '.', this char must be matched explicitly.
+      if (name.charAt(0) == '.' && pattern.charAt(0) != '.') {
+        return false;
+      }
+      if (suffixOnly) {
+        return name.endsWith(pattern.substring(1));
+      }
+      if (prefixOnly) {
+        return name.startsWith(pattern.substring(0, pattern.length() - 1));
+      }
+      return wildcardMatch(pattern, name);
+    }
+
+    /**
+     * Matches '*' and '?' wildcards in a single pass, only ever revisiting the most recent '*', so
+     * the worst case is O(pattern length * name length).
+     */
+    private static boolean wildcardMatch(String pattern, String name) {
+      int p = 0;
+      int n = 0;
+      int lastStar = -1;
+      int lastStarMatch = 0;
+      while (n < name.length()) {
+        if (p < pattern.length()
+            && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+          p++;
+          n++;
+        } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+          lastStar = p++;
+          lastStarMatch = n;
+        } else if (lastStar >= 0) {
+          p = lastStar + 1;
+          n = ++lastStarMatch;
+        } else {
+          return false;
+        }
+      }
+      while (p < pattern.length() && pattern.charAt(p) == '*') {
+        p++;
+      }
+      return p == pattern.length();
+    }
+  }
+}
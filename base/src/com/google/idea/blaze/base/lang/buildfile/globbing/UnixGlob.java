@@ -15,13 +15,7 @@
  */
 package com.google.idea.blaze.base.lang.buildfile.globbing;
 
-import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ForwardingListenableFuture;
@@ -29,7 +23,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.idea.blaze.base.io.FileOperationProvider;
-import com.google.idea.blaze.base.lang.buildfile.validation.GlobPatternValidator;
+import com.google.idea.blaze.base.lang.buildfile.globbing.GlobMatcher.Segment;
 import com.intellij.openapi.progress.ProgressManager;
 import java.io.File;
 import java.io.IOException;
@@ -44,8 +38,6 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 import javax.annotation.Nullable;
 
 /**
@@ -72,138 +64,6 @@ public final class UnixGlob {
     return visitor.glob(base, patterns, excludeDirectories, dirPred);
   }
 
-  /**
-   * Checks that each pattern is valid, splits it into segments and checks that each segment
-   * contains only valid wildcards.
-   *
-   * @return list of segment arrays
-   */
-  private static List<String[]> checkAndSplitPatterns(Collection<String> patterns) {
-    List<String[]> list = Lists.newArrayListWithCapacity(patterns.size());
-    for (String pattern : patterns) {
-      String error = GlobPatternValidator.validate(pattern);
-      if (error != null) {
-        throw new IllegalArgumentException(error);
-      }
-      Iterable<String> segments = Splitter.on('/').split(pattern);
-      list.add(Iterables.toArray(segments, String.class));
-    }
-    return list;
-  }
-
-  /** Calls {@link #matches(String, String, Cache) matches(pattern, str, null)} */
-  public static boolean matches(String pattern, String str) {
-    try {
-      return matches(pattern, str, null);
-    } catch (PatternSyntaxException e) {
-      return false;
-    }
-  }
-
-  /**
-   * Returns whether {@code str} matches the glob pattern {@code pattern}. This method may use the
-   * {@code patternCache} to speed up the matching process.
-   *
-   * @param pattern a glob pattern
-   * @param str the string to match
-   * @param patternCache a cache from patterns to compiled Pattern objects, or {@code null} to skip
-   *     caching
-   */
-  private static boolean matches(String pattern, String str, Cache<String, Pattern> patternCache) {
-    if (pattern.length() == 0 || str.length() == 0) {
-      return false;
-    }
-
-    // Common case: **
-    if (pattern.equals("**")) {
-      return true;
-    }
-
-    // Common case: *
-    if (pattern.equals("*")) {
-      return true;
-    }
-
-    // If a filename starts with '.', this char must be matched explicitly.
-    if (str.charAt(0) == '.' && pattern.charAt(0) != '.') {
-      return false;
-    }
-
-    // Common case: *.xyz
-    if (pattern.charAt(0) == '*' && pattern.lastIndexOf('*') == 0) {
-      return str.endsWith(pattern.substring(1));
-    }
-    // Common case: xyz*
-    int lastIndex = pattern.length() - 1;
-    // The first clause of this if statement is unnecessary, but is an
-    // optimization--charAt runs faster than indexOf.
-    if (pattern.charAt(lastIndex) == '*' && pattern.indexOf('*') == lastIndex) {
-      return str.startsWith(pattern.substring(0, lastIndex));
-    }
-
-    Pattern regex = patternCache == null ? null : patternCache.getIfPresent(pattern);
-    if (regex == null) {
-      regex = makePatternFromWildcard(pattern);
-      if (patternCache != null) {
-        patternCache.put(pattern, regex);
-      }
-    }
-    return regex.matcher(str).matches();
-  }
-
-  /**
-   * Returns a regular expression implementing a matcher for "pattern", in which "*" and "?" are
-   * wildcards.
-   *
-   * <p>e.g. "foo*bar?.java" -> "foo.*bar.\\.java"
-   */
-  private static Pattern makePatternFromWildcard(String pattern) {
-    StringBuilder regexp = new StringBuilder();
-    for (int i = 0, len = pattern.length(); i < len; i++) {
-      char c = pattern.charAt(i);
-      switch (c) {
-        case '*':
-          int toIncrement = 0;
-          if (len > i + 1 && pattern.charAt(i + 1) == '*') {
-            // The pattern '**' is interpreted to match 0 or more directory separators, not 1 or
-            // more. We skip the next * and then find a trailing/leading '/' and get rid of it.
-            toIncrement = 1;
-            if (len > i + 2 && pattern.charAt(i + 2) == '/') {
-              // We have '**/' -- skip the '/'.
-              toIncrement = 2;
-            } else if (len == i + 2 && i > 0 && pattern.charAt(i - 1) == '/') {
-              // We have '/**' -- remove the '/'.
-              regexp.delete(regexp.length() - 1, regexp.length());
-            }
-          }
-          regexp.append(".*");
-          i += toIncrement;
-          break;
-        case '?':
-          regexp.append('.');
-          break;
-          // escape the regexp special characters that are allowed in wildcards
-        case '^':
-        case '$':
-        case '|':
-        case '+':
-        case '{':
-        case '}':
-        case '[':
-        case ']':
-        case '\\':
-        case '.':
-          regexp.append('\\');
-          regexp.append(c);
-          break;
-        default:
-          regexp.append(c);
-          break;
-      }
-    }
-    return Pattern.compile(regexp.toString());
-  }
-
   public static Builder forPath(File path) {
     return new Builder(path);
   }
@@ -358,16 +218,6 @@ public final class UnixGlob {
   private static final class GlobVisitor {
     // These collections are used across workers and must therefore be thread-safe.
     private final Set<File> results = Sets.newConcurrentHashSet();
-    private final Cache<String, Pattern> cache =
-        CacheBuilder.newBuilder()
-            .build(
-                new CacheLoader<String, Pattern>() {
-                  @Override
-                  public Pattern load(String wildcard) {
-                    return makePatternFromWildcard(wildcard);
-                  }
-                });
-
     private final GlobFuture result;
     private final ThreadPoolExecutor executor;
     private final AtomicLong pendingOps = new AtomicLong(0);
@@ -425,9 +275,8 @@ public final class UnixGlob {
       // (for example consider the glob [*/*.java, sub/*.java, */*.txt]).
       pendingOps.incrementAndGet();
       try {
-        for (String[] splitPattern : checkAndSplitPatterns(patterns)) {
-          queueGlob(
-              base, baseIsDirectory, splitPattern, 0, excludeDirectories, results, cache, dirPred);
+        for (Segment[] splitPattern : GlobMatcher.compileSegments(patterns)) {
+          queueGlob(base, baseIsDirectory, splitPattern, 0, excludeDirectories, results, dirPred);
         }
       } finally {
         decrementAndCheckDone();
@@ -439,25 +288,17 @@ public final class UnixGlob {
     private void queueGlob(
         File base,
         boolean baseIsDirectory,
-        String[] patternParts,
+        Segment[] patternParts,
         int idx,
         boolean excludeDirectories,
         Collection<File> results,
-        Cache<String, Pattern> cache,
         Predicate<File> dirPred)
         throws IOException {
       enqueue(
           () -> {
             try {
               reallyGlob(
-                  base,
-                  baseIsDirectory,
-                  patternParts,
-                  idx,
-                  excludeDirectories,
-                  results,
-                  cache,
-                  dirPred);
+                  base, baseIsDirectory, patternParts, idx, excludeDirectories, results, dirPred);
             } catch (IOException e) {
               failure.set(e);
             }
@@ -515,11 +356,10 @@ public final class UnixGlob {
     private void reallyGlob(
         File base,
         boolean baseIsDirectory,
-        String[] patternParts,
+        Segment[] patternParts,
         int idx,
         boolean excludeDirectories,
         Collection<File> results,
-        Cache<String, Pattern> cache,
         Predicate<File> dirPred)
         throws IOException {
       ProgressManager.checkCanceled();
@@ -539,33 +379,25 @@ public final class UnixGlob {
         return;
       }
 
-      final String pattern = patternParts[idx];
+      final Segment pattern = patternParts[idx];
 
       // ** is special: it can match nothing at all.
       // For example, x/** matches x, **/y matches y, and x/**/y matches x/y.
-      if ("**".equals(pattern)) {
+      if (pattern.recursive) {
         queueGlob(
-            base,
-            baseIsDirectory,
-            patternParts,
-            idx + 1,
-            excludeDirectories,
-            results,
-            cache,
-            dirPred);
+            base, baseIsDirectory, patternParts, idx + 1, excludeDirectories, results, dirPred);
       }
 
-      if (!pattern.contains("*") && !pattern.contains("?")) {
+      if (pattern.isLiteral()) {
         // We do not need to do a readdir in this case, just a stat.
-        File child = new File(base, pattern);
+        File child = new File(base, pattern.pattern);
         boolean childIsDir = fileOperationProvider.isDirectory(child);
         if (!childIsDir && !fileOperationProvider.isFile(child)) {
           // The file is a dangling symlink, fifo, does not exist, etc.
           return;
         }
 
-        queueGlob(
-            child, childIsDir, patternParts, idx + 1, excludeDirectories, results, cache, dirPred);
+        queueGlob(child, childIsDir, patternParts, idx + 1, excludeDirectories, results, dirPred);
         return;
       }
 
@@ -576,25 +408,17 @@ public final class UnixGlob {
       for (File child : children) {
         boolean childIsDir = fileOperationProvider.isDirectory(child);
 
-        if ("**".equals(pattern)) {
+        if (pattern.recursive) {
           // Recurse without shifting the pattern.
           if (childIsDir) {
-            queueGlob(
-                child, childIsDir, patternParts, idx, excludeDirectories, results, cache, dirPred);
+            queueGlob(child, childIsDir, patternParts, idx, excludeDirectories, results, dirPred);
           }
         }
-        if (matches(pattern, child.getName(), cache)) {
+        if (pattern.matches(child.getName())) {
           // Recurse and consume one segment of the pattern.
           if (childIsDir) {
             queueGlob(
-                child,
-                childIsDir,
-                patternParts,
-                idx + 1,
-                excludeDirectories,
-                results,
-                cache,
-                dirPred);
+                child, childIsDir, patternParts, idx + 1, excludeDirectories, results, dirPred);
           } else {
             // Instead of using an async call, just repeat the base case above.
             if (idx + 1 == patternParts.length) {
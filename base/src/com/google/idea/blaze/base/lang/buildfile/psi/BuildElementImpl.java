@@ -21,14 +21,11 @@ import com.intellij.lang.ASTNode;
 import com.intellij.navigation.ItemPresentation;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiReference;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.tree.TokenSet;
 import java.lang.reflect.Array;
 import java.util.Arrays;
 import javax.annotation.Nullable;
-import javax.swing.Icon;
 
 /** Base PSI class for the BUILD language */
 public abstract class BuildElementImpl extends ASTWrapperPsiElement implements BuildElement {
@@ -38,8 +35,7 @@ public abstract class BuildElementImpl extends ASTWrapperPsiElement implements B
   }
 
   public <P extends PsiElement> P getPsiChild(IElementType type, Class<P> psiClass) {
-    ASTNode childNode = getNode().findChildByType(type);
-    return childNode != null ? (P) childNode.getPsi() : null;
+    return BuildElementImplUtils.getPsiChild(getNode(), type);
   }
 
   @Override
@@ -98,8 +94,7 @@ public abstract class BuildElementImpl extends ASTWrapperPsiElement implements B
   }
 
   public String nonNullName() {
-    String name = getName();
-    return name != null ? name : "<unnamed>";
+    return BuildElementImplUtils.nonNullName(getName());
   }
 
   @Override
@@ -126,42 +121,18 @@ public abstract class BuildElementImpl extends ASTWrapperPsiElement implements B
   @Nullable
   @Override
   public PsiElement getReferencedElement() {
-    PsiReference[] refs = getReferences();
-    for (PsiReference ref : refs) {
-      PsiElement element = ref.resolve();
-      if (element != null) {
-        return element;
-      }
-    }
-    return null;
+    return BuildElementImplUtils.getReferencedElement(this);
   }
 
   @Override
   public ItemPresentation getPresentation() {
-    final BuildElement element = this;
-    return new ItemPresentation() {
-      @Override
-      public String getPresentableText() {
-        return element.getPresentableText();
-      }
-
-      @Override
-      public String getLocationString() {
-        return element.getLocationString();
-      }
-
-      @Override
-      public Icon getIcon(boolean unused) {
-        return element.getIcon(0);
-      }
-    };
+    return BuildElementImplUtils.getPresentation(this);
   }
 
   @Nullable
   @Override
   public BlazePackage getBlazePackage() {
-    PsiFile file = getContainingFile();
-    return file != null ? BlazePackage.getContainingPackage(file) : null;
+    return BuildElementImplUtils.getBlazePackage(getContainingFile());
   }
 
   @Nullable
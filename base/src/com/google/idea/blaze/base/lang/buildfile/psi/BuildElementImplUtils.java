@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.psi;
+
+import com.google.idea.blaze.base.lang.buildfile.search.BlazePackage;
+import com.intellij.lang.ASTNode;
+import com.intellij.navigation.ItemPresentation;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.tree.IElementType;
+import javax.annotation.Nullable;
+import javax.swing.Icon;
+
+/** Logic shared by {@link BuildElementImpl} and {@link StubBasedBuildElementImpl}. */
+final class BuildElementImplUtils {
+
+  private BuildElementImplUtils() {}
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  static <P extends PsiElement> P getPsiChild(ASTNode node, IElementType type) {
+    ASTNode childNode = node.findChildByType(type);
+    return childNode != null ? (P) childNode.getPsi() : null;
+  }
+
+  static String nonNullName(@Nullable String name) {
+    return name != null ? name : "<unnamed>";
+  }
+
+  /** Returns the first element resolved by any of the element's references. */
+  @Nullable
+  static PsiElement getReferencedElement(PsiElement element) {
+    for (PsiReference ref : element.getReferences()) {
+      PsiElement resolved = ref.resolve();
+      if (resolved != null) {
+        return resolved;
+      }
+    }
+    return null;
+  }
+
+  static ItemPresentation getPresentation(BuildElement element) {
+    return new ItemPresentation() {
+      @Override
+      public String getPresentableText() {
+        return element.getPresentableText();
+      }
+
+      @Override
+      public String getLocationString() {
+        return element.getLocationString();
+      }
+
+      @Override
+      public Icon getIcon(boolean unused) {
+        return element.getIcon(0);
+      }
+    };
+  }
+
+  @Nullable
+  static BlazePackage getBlazePackage(@Nullable PsiFile file) {
+    return file != null ? BlazePackage.getContainingPackage(file) : null;
+  }
+}
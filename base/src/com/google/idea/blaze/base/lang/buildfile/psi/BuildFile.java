@@ -27,6 +27,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.psi.FileViewProvider;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.PathUtil;
 import com.intellij.util.Processor;
 import icons.BlazeIcons;
@@ -128,10 +129,21 @@ public class BuildFile extends PsiFileBase implements BuildElement, DocStringOwn
         : null;
   }
 
+  /**
+   * All top-level function calls (almost always BUILD rules). Read from the stub tree if the AST
+   * isn't loaded.
+   */
+  public FuncallExpression[] getTopLevelFuncalls() {
+    StubElement<?> stub = getStub();
+    return stub != null
+        ? stub.getChildrenByType(BuildElementTypes.FUNCALL_EXPRESSION, FuncallExpression[]::new)
+        : findChildrenByClass(FuncallExpression.class);
+  }
+
   /** Finds a top-level rule with a "name" keyword argument with the given value. */
   @Nullable
   public FuncallExpression findRule(String name) {
-    for (FuncallExpression expr : findChildrenByClass(FuncallExpression.class)) {
+    for (FuncallExpression expr : getTopLevelFuncalls()) {
       String ruleName = expr.getNameArgumentValue();
       if (name.equals(ruleName)) {
         return expr;
@@ -152,7 +164,7 @@ public class BuildFile extends PsiFileBase implements BuildElement, DocStringOwn
 
   @Nullable
   public FunctionStatement findLoadedFunction(String name) {
-    for (LoadStatement loadStatement : findChildrenByClass(LoadStatement.class)) {
+    for (LoadStatement loadStatement : getLoadStatements()) {
       for (LoadedSymbol loadedSymbol : loadStatement.getImportedSymbolElements()) {
         if (name.equals(loadedSymbol.getSymbolString())) {
           PsiElement element = loadedSymbol.getLoadedElement();
@@ -229,8 +241,20 @@ public class BuildFile extends PsiFileBase implements BuildElement, DocStringOwn
     return findLoadedFunction(name);
   }
 
+  /** Read from the stub tree if the AST isn't loaded. */
   public FunctionStatement[] getFunctionDeclarations() {
-    return findChildrenByClass(FunctionStatement.class);
+    StubElement<?> stub = getStub();
+    return stub != null
+        ? stub.getChildrenByType(BuildElementTypes.FUNCTION_STATEMENT, FunctionStatement[]::new)
+        : findChildrenByClass(FunctionStatement.class);
+  }
+
+  /** Top-level load statements. Read from the stub tree if the AST isn't loaded. */
+  public LoadStatement[] getLoadStatements() {
+    StubElement<?> stub = getStub();
+    return stub != null
+        ? stub.getChildrenByType(BuildElementTypes.LOAD_STATEMENT, LoadStatement[]::new)
+        : findChildrenByClass(LoadStatement.class);
   }
 
   @Override
@@ -16,6 +16,7 @@
 package com.google.idea.blaze.base.lang.buildfile.psi;
 
 import com.google.idea.blaze.base.lang.buildfile.references.LabelUtils;
+import com.google.idea.blaze.base.lang.buildfile.stubs.LoadStatementStub;
 import com.intellij.lang.ASTNode;
 import com.intellij.util.PlatformIcons;
 import java.util.Arrays;
@@ -23,12 +24,17 @@ import javax.annotation.Nullable;
 import javax.swing.Icon;
 
 /** PSI element for a load statement. */
-public class LoadStatement extends BuildElementImpl implements Statement {
+public class LoadStatement extends StubBasedBuildElementImpl<LoadStatementStub>
+    implements Statement {
 
   public LoadStatement(ASTNode astNode) {
     super(astNode);
   }
 
+  public LoadStatement(LoadStatementStub stub) {
+    super(stub, BuildElementTypes.LOAD_STATEMENT);
+  }
+
   @Override
   protected void acceptVisitor(BuildElementVisitor visitor) {
     visitor.visitLoadStatement(this);
@@ -46,6 +52,10 @@ public class LoadStatement extends BuildElementImpl implements Statement {
 
   @Nullable
   public String getImportedPath() {
+    LoadStatementStub stub = getGreenStub();
+    if (stub != null) {
+      return stub.getImportedPath();
+    }
     ASTNode firstString = getImportNode();
     return firstString != null ? StringLiteral.stripQuotes(firstString.getText()) : null;
   }
@@ -66,10 +76,7 @@ public class LoadStatement extends BuildElementImpl implements Statement {
   }
 
   public LoadedSymbol[] getImportedSymbolElements() {
-    return Arrays.stream(getNode().getChildren(null))
-        .map(ASTNode::getPsi)
-        .filter(psiElement -> psiElement instanceof LoadedSymbol)
-        .toArray(LoadedSymbol[]::new);
+    return getStubOrPsiChildren(BuildElementTypes.LOADED_SYMBOL, LoadedSymbol.EMPTY_ARRAY);
   }
 
   /** Aliased symbol name, if alias is present. */
@@ -17,28 +17,30 @@ package com.google.idea.blaze.base.lang.buildfile.references;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.idea.blaze.base.bazel.BuildSystemProvider;
-import com.google.idea.blaze.base.lang.buildfile.globbing.UnixGlob;
-import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
+import com.google.idea.blaze.base.lang.buildfile.globbing.GlobCache;
+import com.google.idea.blaze.base.lang.buildfile.globbing.GlobMatcher;
 import com.google.idea.blaze.base.lang.buildfile.psi.Expression;
 import com.google.idea.blaze.base.lang.buildfile.psi.GlobExpression;
 import com.google.idea.blaze.base.lang.buildfile.psi.ListLiteral;
 import com.google.idea.blaze.base.lang.buildfile.psi.StringLiteral;
 import com.google.idea.blaze.base.lang.buildfile.psi.util.PsiUtils;
-import com.google.idea.blaze.base.settings.Blaze;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementResolveResult;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileSystemItem;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.ResolveResult;
 import com.intellij.psi.impl.source.resolve.reference.impl.PsiPolyVariantCachingReference;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.IncorrectOperationException;
-import java.io.File;
 import java.util.List;
-import java.util.function.Predicate;
+import javax.annotation.Nullable;
 
 /** References from a glob to a list of files contained in the same blaze package. */
 public class GlobReference extends PsiPolyVariantCachingReference {
@@ -61,17 +63,8 @@ public class GlobReference extends PsiPolyVariantCachingReference {
     if (isDirectory && element.areDirectoriesExcluded()) {
       return false;
     }
-    for (String exclude : resolveListContents(element.getExcludes())) {
-      if (UnixGlob.matches(exclude, packageRelativePath)) {
-        return false;
-      }
-    }
-    for (String include : resolveListContents(element.getIncludes())) {
-      if (UnixGlob.matches(include, packageRelativePath)) {
-        return true;
-      }
-    }
-    return false;
+    GlobMatcher matcher = getMatcher();
+    return matcher != null && matcher.matches(packageRelativePath);
   }
 
   /**
@@ -82,26 +75,37 @@ public class GlobReference extends PsiPolyVariantCachingReference {
     if (isDirectory && element.areDirectoriesExcluded()) {
       return false;
     }
-    for (String exclude : resolveListContents(element.getExcludes())) {
-      if (UnixGlob.matches(exclude, packageRelativePath)) {
-        return false;
-      }
-    }
-    for (String include : resolveListContents(element.getIncludes())) {
-      if (!hasWildcard(include) && UnixGlob.matches(include, packageRelativePath)) {
-        return true;
-      }
-    }
-    return false;
+    GlobMatcher matcher = getMatcher();
+    return matcher != null && matcher.matchesDirectly(packageRelativePath);
+  }
+
+  /**
+   * Returns the compiled include and exclude patterns, or null if any are invalid. Cached until the
+   * next PSI change, as the pattern lists can be defined elsewhere in the file.
+   */
+  @Nullable
+  private GlobMatcher getMatcher() {
+    return CachedValuesManager.getCachedValue(
+        element,
+        () ->
+            CachedValueProvider.Result.create(
+                compileMatcher(), PsiModificationTracker.MODIFICATION_COUNT));
   }
 
-  private static boolean hasWildcard(String pattern) {
-    return pattern.contains("*");
+  @Nullable
+  private GlobMatcher compileMatcher() {
+    try {
+      return GlobMatcher.compile(
+          resolveListContents(element.getIncludes()), resolveListContents(element.getExcludes()));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
   }
 
   @Override
   protected ResolveResult[] resolveInner(boolean incompleteCode, PsiFile containingFile) {
-    File containingDirectory = ((BuildFile) containingFile).getFile().getParentFile();
+    VirtualFile buildFile = containingFile.getOriginalFile().getViewProvider().getVirtualFile();
+    VirtualFile containingDirectory = buildFile.getParent();
     if (containingDirectory == null) {
       return ResolveResult.EMPTY_ARRAY;
     }
@@ -113,17 +117,18 @@ public class GlobReference extends PsiPolyVariantCachingReference {
     }
     Project project = element.getProject();
     try {
-      List<File> files =
-          UnixGlob.forPath(containingDirectory)
-              .addPatterns(includes)
-              .addExcludes(excludes)
-              .setExcludeDirectories(directoriesExcluded)
-              .setDirectoryFilter(directoryFilter(project, containingDirectory.getPath()))
-              .glob();
+      List<VirtualFile> files =
+          GlobCache.getInstance(project)
+              .glob(containingDirectory, includes, excludes, directoriesExcluded);
 
+      PsiManager manager = PsiManager.getInstance(project);
       List<ResolveResult> results = Lists.newArrayListWithCapacity(files.size());
-      for (File file : files) {
-        PsiFileSystemItem psiFile = BuildReferenceManager.getInstance(project).resolveFile(file);
+      for (VirtualFile file : files) {
+        if (!file.isValid()) {
+          continue;
+        }
+        PsiFileSystemItem psiFile =
+            file.isDirectory() ? manager.findDirectory(file) : manager.findFile(file);
         if (psiFile != null) {
           results.add(new PsiElementResolveResult(psiFile));
         }
@@ -135,17 +140,6 @@ public class GlobReference extends PsiPolyVariantCachingReference {
     }
   }
 
-  /** Don't traverse sub-directories which are themselves blaze packages */
-  private static Predicate<File> directoryFilter(Project project, String base) {
-    BuildSystemProvider provider = Blaze.getBuildSystemProvider(project);
-    return file -> {
-      if (base.equals(file.getPath())) {
-        return true;
-      }
-      return provider.findBuildFileInDirectory(file) == null;
-    };
-  }
-
   private static List<String> resolveListContents(Expression expr) {
     if (expr == null) {
       return ImmutableList.of();
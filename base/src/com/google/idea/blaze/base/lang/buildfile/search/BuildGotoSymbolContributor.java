@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.search;
+
+import com.google.idea.blaze.base.lang.buildfile.stubs.BuildFunctionNameIndex;
+import com.google.idea.blaze.base.lang.buildfile.stubs.BuildRuleNameIndex;
+import com.intellij.navigation.ChooseByNameContributor;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Provides BUILD rules and Skylark functions to 'Go to symbol', from the BUILD stub indices. */
+public class BuildGotoSymbolContributor implements ChooseByNameContributor {
+
+  @Override
+  public String[] getNames(Project project, boolean includeNonProjectItems) {
+    Set<String> names = new LinkedHashSet<>();
+    StubIndex index = StubIndex.getInstance();
+    names.addAll(index.getAllKeys(BuildRuleNameIndex.KEY, project));
+    names.addAll(index.getAllKeys(BuildFunctionNameIndex.KEY, project));
+    return names.toArray(new String[0]);
+  }
+
+  @Override
+  public NavigationItem[] getItemsByName(
+      String name, String pattern, Project project, boolean includeNonProjectItems) {
+    GlobalSearchScope scope =
+        includeNonProjectItems
+            ? GlobalSearchScope.allScope(project)
+            : GlobalSearchScope.projectScope(project);
+    List<NavigationItem> items = new ArrayList<>();
+    items.addAll(BuildRuleNameIndex.find(project, name, scope));
+    items.addAll(BuildFunctionNameIndex.find(project, name, scope));
+    return items.toArray(new NavigationItem[0]);
+  }
+}
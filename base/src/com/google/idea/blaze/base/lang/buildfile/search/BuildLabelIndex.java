@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.search;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.lang.buildfile.language.BuildFileType;
+import com.google.idea.blaze.base.lang.buildfile.lexer.BuildLexerBase;
+import com.google.idea.blaze.base.lang.buildfile.lexer.BuildLexerBase.LexerMode;
+import com.google.idea.blaze.base.lang.buildfile.lexer.Token;
+import com.google.idea.blaze.base.lang.buildfile.lexer.TokenKind;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Indexes the string literals in BUILD and Skylark files which might be labels, mapping each
+ * normalized label string (see {@link #normalize}) to the offsets of the strings mentioning it.
+ *
+ * <p>Indexing only requires lexing the file, and looking up a label doesn't require parsing any
+ * files which don't mention it.
+ */
+public class BuildLabelIndex extends FileBasedIndexExtension<String, List<Integer>> {
+
+  public static final ID<String, List<Integer>> NAME = ID.create("BuildLabelIndex");
+
+  private static final int VERSION = 1;
+
+  /**
+   * Normalizes a label string, as written in a BUILD or Skylark file, such that all spellings of
+   * the same label within a package share the same key.
+   *
+   * <p>Absolute labels get an explicit target name (e.g. '//foo/bar' becomes '//foo/bar:bar').
+   * Package-relative labels are prefixed with ':' (e.g. 'bar' becomes ':bar'), and should only be
+   * looked up within their package. Returns null for strings which can't be labels.
+   */
+  @Nullable
+  public static String normalize(String string) {
+    if (string.isEmpty() || string.indexOf('\n') != -1) {
+      return null;
+    }
+    if (string.startsWith("@//")) {
+      string = string.substring(1);
+    }
+    if (!string.startsWith("//") && !string.startsWith("@")) {
+      return string.startsWith(":") ? string : ":" + string;
+    }
+    if (string.indexOf(':') != -1) {
+      return string;
+    }
+    int packageStart = string.indexOf("//");
+    if (packageStart == -1) {
+      // '@repo' is shorthand for '@repo//:repo'
+      return string + "//:" + string.substring(1);
+    }
+    String packagePath = string.substring(packageStart + 2);
+    if (packagePath.isEmpty()) {
+      return null;
+    }
+    return string + ":" + packagePath.substring(packagePath.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * Passes each file in the given scope mentioning the given label string, along with the offset
+   * of the string literal, to the consumer.
+   */
+  public static void processOccurrences(
+      Project project,
+      String labelString,
+      GlobalSearchScope scope,
+      ObjIntConsumer<VirtualFile> consumer) {
+    String key = normalize(labelString);
+    if (key == null) {
+      return;
+    }
+    FileBasedIndex.getInstance()
+        .processValues(
+            NAME,
+            key,
+            null,
+            (file, offsets) -> {
+              offsets.forEach(offset -> consumer.accept(file, offset));
+              return true;
+            },
+            GlobalSearchScope.getScopeRestrictedByFileTypes(scope, BuildFileType.INSTANCE));
+  }
+
+  @Override
+  public ID<String, List<Integer>> getName() {
+    return NAME;
+  }
+
+  @Override
+  public DataIndexer<String, List<Integer>, FileContent> getIndexer() {
+    return BuildLabelIndex::indexFile;
+  }
+
+  private static Map<String, List<Integer>> indexFile(FileContent content) {
+    List<Token> tokens =
+        new BuildLexerBase(content.getContentAsText(), 0, LexerMode.Parsing).getTokens();
+    Map<String, List<Integer>> offsets = new HashMap<>();
+    for (Token token : tokens) {
+      if (token.kind != TokenKind.STRING || !(token.value instanceof String)) {
+        continue;
+      }
+      String key = normalize((String) token.value);
+      if (key != null) {
+        offsets.computeIfAbsent(key, k -> new ArrayList<>()).add(token.left);
+      }
+    }
+    return offsets;
+  }
+
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @Override
+  public DataExternalizer<List<Integer>> getValueExternalizer() {
+    return new OffsetsExternalizer();
+  }
+
+  @Override
+  public int getVersion() {
+    return VERSION;
+  }
+
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(BuildFileType.INSTANCE);
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  /** Offsets are stored in ascending order, as deltas from the previous offset. */
+  private static class OffsetsExternalizer implements DataExternalizer<List<Integer>> {
+    @Override
+    public void save(DataOutput out, List<Integer> offsets) throws IOException {
+      DataInputOutputUtil.writeINT(out, offsets.size());
+      int previous = 0;
+      for (int offset : offsets) {
+        DataInputOutputUtil.writeINT(out, offset - previous);
+        previous = offset;
+      }
+    }
+
+    @Override
+    public List<Integer> read(DataInput in) throws IOException {
+      int size = DataInputOutputUtil.readINT(in);
+      ImmutableList.Builder<Integer> offsets = ImmutableList.builder();
+      int offset = 0;
+      for (int i = 0; i < size; i++) {
+        offset += DataInputOutputUtil.readINT(in);
+        offsets.add(offset);
+      }
+      return offsets.build();
+    }
+  }
+}
@@ -15,30 +15,44 @@
  */
 package com.google.idea.blaze.base.lang.buildfile.search;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 import com.google.idea.blaze.base.lang.buildfile.language.BuildFileType;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile.BlazeFileType;
 import com.google.idea.blaze.base.lang.buildfile.psi.FuncallExpression;
+import com.google.idea.blaze.base.lang.buildfile.psi.FunctionStatement;
+import com.google.idea.blaze.base.lang.buildfile.psi.LoadedSymbol;
 import com.google.idea.blaze.base.lang.buildfile.psi.NamedBuildElement;
+import com.google.idea.blaze.base.lang.buildfile.psi.StringLiteral;
 import com.google.idea.blaze.base.lang.buildfile.psi.util.PsiUtils;
 import com.google.idea.blaze.base.lang.buildfile.references.LabelUtils;
+import com.google.idea.blaze.base.lang.buildfile.stubs.BuildLoadedSymbolIndex;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.intellij.openapi.application.QueryExecutorBase;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.LocalSearchScope;
 import com.intellij.psi.search.SearchScope;
 import com.intellij.psi.search.UsageSearchContext;
 import com.intellij.psi.search.searches.ReferencesSearch.SearchParameters;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.Processor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 
-/** String search for references in BUILD files */
+/** Searches for references in BUILD files, via the label index where possible. */
 public class BuildReferenceSearcher extends QueryExecutorBase<PsiReference, SearchParameters> {
 
   public BuildReferenceSearcher() {
@@ -48,6 +62,10 @@ public class BuildReferenceSearcher extends QueryExecutorBase<PsiReference, Sear
   @Override
   public void processQuery(SearchParameters params, Processor<? super PsiReference> consumer) {
     PsiElement element = params.getElementToSearch();
+    if (element instanceof FunctionStatement) {
+      searchForFunction(params, (FunctionStatement) element);
+      return;
+    }
     if (element instanceof NamedBuildElement) {
       String fnName = ((NamedBuildElement) element).getName();
       if (fnName != null) {
@@ -58,7 +76,7 @@ public class BuildReferenceSearcher extends QueryExecutorBase<PsiReference, Sear
 
     PsiFile file = ResolveUtil.asFileSearch(element);
     if (file != null) {
-      processFileReferences(params, file);
+      processFileReferences(params, file, consumer);
       return;
     }
     if (!(element instanceof FuncallExpression)) {
@@ -74,25 +92,66 @@ public class BuildReferenceSearcher extends QueryExecutorBase<PsiReference, Sear
       searchForExternalWorkspace(params, localFile, funcall);
       return;
     }
-    List<String> stringsToSearch = LabelUtils.getAllValidLabelStrings(label, true);
-    for (String string : stringsToSearch) {
+    List<String> absoluteStrings = new ArrayList<>();
+    List<String> localStrings = new ArrayList<>();
+    for (String string : LabelUtils.getAllValidLabelStrings(label, true)) {
       if (LabelUtils.isAbsolute(string)) {
-        searchForString(params, element, string);
+        absoluteStrings.add(string);
       } else {
-        // only a valid reference from local package -- restrict the search scope accordingly
-        SearchScope scope = limitScopeToFile(params.getScopeDeterminedByUser(), localFile);
-        if (scope != null) {
-          searchForString(params, scope, element, string);
-        }
+        localStrings.add(string);
+      }
+    }
+    if (!searchForLabelStrings(
+        params, params.getScopeDeterminedByUser(), element, absoluteStrings, consumer)) {
+      return;
+    }
+    // only a valid reference from local package -- restrict the search scope accordingly
+    SearchScope scope = limitScopeToFile(params.getScopeDeterminedByUser(), localFile);
+    if (scope != null) {
+      searchForLabelStrings(params, scope, element, localStrings, consumer);
+    }
+  }
+
+  /**
+   * Find string references to a function (i.e. the symbols of load statements). Rather than
+   * searching all BUILD files, we only search those loading a symbol with the function's name.
+   */
+  private static void searchForFunction(SearchParameters params, FunctionStatement function) {
+    String name = function.getName();
+    PsiFile localFile = function.getContainingFile();
+    if (name == null || localFile == null) {
+      return;
+    }
+    SearchScope userScope = params.getScopeDeterminedByUser();
+    if (!(userScope instanceof GlobalSearchScope)) {
+      searchForString(params, function, name);
+      return;
+    }
+    Set<VirtualFile> files = new HashSet<>();
+    if (localFile.getVirtualFile() != null) {
+      files.add(localFile.getVirtualFile());
+    }
+    for (LoadedSymbol symbol :
+        BuildLoadedSymbolIndex.find(
+            function.getProject(), name, (GlobalSearchScope) userScope)) {
+      PsiFile file = symbol.getContainingFile();
+      if (file != null && file.getVirtualFile() != null) {
+        files.add(file.getVirtualFile());
       }
     }
+    SearchScope scope =
+        userScope.intersectWith(GlobalSearchScope.filesScope(function.getProject(), files));
+    searchForString(params, scope, function, name);
   }
 
   /** Find all references to the given file within BUILD files. */
-  private void processFileReferences(SearchParameters params, PsiFile file) {
+  private void processFileReferences(
+      SearchParameters params, PsiFile file, Processor<? super PsiReference> consumer) {
     if (file instanceof BuildFile) {
       BuildFile buildFile = (BuildFile) file;
-      processBuildFileReferences(params, buildFile);
+      if (!processBuildFileReferences(params, buildFile, consumer)) {
+        return;
+      }
       if (buildFile.getBlazeFileType() == BlazeFileType.BuildPackage) {
         return;
       }
@@ -110,37 +169,46 @@ public class BuildReferenceSearcher extends QueryExecutorBase<PsiReference, Sear
     if (!(file instanceof BuildFile)) {
       // search globally, for an absolute label reference
       String absoluteLabel = String.format("//%s:%s", label.blazePackage(), label.targetName());
-      searchForString(params, file, absoluteLabel);
+      if (!searchForLabelStrings(
+          params,
+          params.getScopeDeterminedByUser(),
+          file,
+          ImmutableList.of(absoluteLabel),
+          consumer)) {
+        return;
+      }
     }
 
     // search for local references in the containing blaze package
     List<String> stringsToSearch = LabelUtils.getAllValidLabelStrings(label, true);
     SearchScope scope =
         params.getScopeDeterminedByUser().intersectWith(blazePackage.getSearchScope(true));
-
-    for (String string : stringsToSearch) {
-      searchForString(params, scope, file, string);
-    }
+    searchForLabelStrings(params, scope, file, stringsToSearch, consumer);
   }
 
-  /** Find references to both the file itself, and build targets defined in the file. */
-  private void processBuildFileReferences(SearchParameters params, BuildFile file) {
+  /**
+   * Find references to both the file itself, and build targets defined in the file.
+   *
+   * @return false if the consumer stopped the search.
+   */
+  private boolean processBuildFileReferences(
+      SearchParameters params, BuildFile file, Processor<? super PsiReference> consumer) {
     Label label = file.getBuildLabel();
     if (label == null) {
-      return;
+      return true;
     }
     String labelString = label.toString();
-    List<String> stringsToSearch = Lists.newArrayList();
     if (file.getBlazeFileType() == BlazeFileType.BuildPackage) {
-      // remove ':__pkg__' component of label
-      stringsToSearch.add(labelString.split(":", 2)[0]);
-    } else {
-      stringsToSearch.add(labelString);
-      stringsToSearch.add(labelString.replace(':', '/')); // deprecated load/subinclude format
-    }
-    for (String string : stringsToSearch) {
-      searchForString(params, file, string);
+      // remove ':__pkg__' component of label. The package is referenced by any label within it, so
+      // this is a prefix search, which the label index can't answer.
+      searchForString(params, file, labelString.split(":", 2)[0]);
+      return true;
     }
+    List<String> stringsToSearch =
+        ImmutableList.of(
+            labelString, labelString.replace(':', '/')); // deprecated load/subinclude format
+    return searchForLabelStrings(
+        params, params.getScopeDeterminedByUser(), file, stringsToSearch, consumer);
   }
 
   /**
@@ -157,6 +225,64 @@ public class BuildReferenceSearcher extends QueryExecutorBase<PsiReference, Sear
     return scope.intersectWith(new LocalSearchScope(file));
   }
 
+  /**
+   * Find references to the given label strings. For global scopes, candidate string literals are
+   * found via {@link BuildLabelIndex}, then confirmed by resolving their references, rather than
+   * text-searching every BUILD file.
+   *
+   * @return false if the consumer stopped the search.
+   */
+  private static boolean searchForLabelStrings(
+      SearchParameters params,
+      SearchScope scope,
+      PsiElement element,
+      Collection<String> labelStrings,
+      Processor<? super PsiReference> consumer) {
+    if (!(scope instanceof GlobalSearchScope)) {
+      // local scopes are cheap to text-search
+      for (String string : labelStrings) {
+        searchForString(params, scope, element, string);
+      }
+      return true;
+    }
+    Project project = element.getProject();
+    Set<String> keys = new LinkedHashSet<>();
+    for (String string : labelStrings) {
+      String key = BuildLabelIndex.normalize(string);
+      if (key != null) {
+        keys.add(key);
+      }
+    }
+    // collect all occurrences before touching PSI, so we don't access PSI while reading the index
+    List<Pair<VirtualFile, Integer>> occurrences = new ArrayList<>();
+    for (String key : keys) {
+      BuildLabelIndex.processOccurrences(
+          project,
+          key,
+          (GlobalSearchScope) scope,
+          (file, offset) -> occurrences.add(Pair.create(file, offset)));
+    }
+    PsiManager psiManager = PsiManager.getInstance(project);
+    for (Pair<VirtualFile, Integer> occurrence : occurrences) {
+      PsiFile file = psiManager.findFile(occurrence.first);
+      if (!(file instanceof BuildFile)) {
+        continue;
+      }
+      StringLiteral literal =
+          PsiTreeUtil.getParentOfType(
+              file.findElementAt(occurrence.second), StringLiteral.class, false);
+      if (literal == null) {
+        continue;
+      }
+      for (PsiReference ref : literal.getReferences()) {
+        if (ref.isReferenceTo(element) && !consumer.process(ref)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   private static void searchForString(SearchParameters params, PsiElement element, String string) {
     searchForString(params, params.getScopeDeterminedByUser(), element, string);
   }
@@ -15,29 +15,22 @@
  */
 package com.google.idea.blaze.base.lang.buildfile.stubs;
 
-import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.stubs.BinaryFileStubBuilder;
-import com.intellij.psi.stubs.Stub;
-import com.intellij.util.indexing.FileContent;
-import javax.annotation.Nullable;
+import com.google.idea.blaze.base.lang.buildfile.psi.BuildElementTypes;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.stubs.DefaultStubBuilder;
+import com.intellij.psi.tree.IElementType;
 
-/** Empty stub builder to suppress errors when IntelliJ is looking for stubs. */
-public class BuildFileStubBuilder implements BinaryFileStubBuilder {
-  private static final int STUB_VERSION = 0;
-
-  @Override
-  public boolean acceptsFile(VirtualFile file) {
-    return false;
-  }
-
-  @Nullable
-  @Override
-  public Stub buildStubTree(FileContent fileContent) {
-    return null;
-  }
+/**
+ * Builds the stub tree for a BUILD or Skylark file.
+ *
+ * <p>Only top-level rules, function declarations and load statements have stubs, so we don't
+ * descend any further into the AST than necessary.
+ */
+public class BuildFileStubBuilder extends DefaultStubBuilder {
 
   @Override
-  public int getStubVersion() {
-    return STUB_VERSION;
+  protected boolean skipChildProcessingWhenBuilding(ASTNode parent, ASTNode node) {
+    IElementType type = parent.getElementType();
+    return type != BuildElementTypes.BUILD_FILE && type != BuildElementTypes.LOAD_STATEMENT;
   }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.stubs;
+
+import com.google.idea.blaze.base.lang.buildfile.psi.FunctionStatement;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import java.util.Collection;
+
+/** Indexes top-level Skylark function declarations by name. */
+public class BuildFunctionNameIndex extends StringStubIndexExtension<FunctionStatement> {
+
+  public static final StubIndexKey<String, FunctionStatement> KEY =
+      StubIndexKey.createIndexKey("BuildFile.functionName");
+
+  /** Returns all top-level function declarations with the given name. */
+  public static Collection<FunctionStatement> find(
+      Project project, String name, GlobalSearchScope scope) {
+    return StubIndex.getElements(KEY, name, project, scope, FunctionStatement.class);
+  }
+
+  @Override
+  public StubIndexKey<String, FunctionStatement> getKey() {
+    return KEY;
+  }
+}
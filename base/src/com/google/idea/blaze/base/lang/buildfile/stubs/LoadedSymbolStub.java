@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.stubs;
+
+import com.google.idea.blaze.base.lang.buildfile.psi.BuildElementTypes;
+import com.google.idea.blaze.base.lang.buildfile.psi.LoadedSymbol;
+import com.intellij.psi.stubs.StubBase;
+import com.intellij.psi.stubs.StubElement;
+import javax.annotation.Nullable;
+
+/** Stub for a symbol loaded by a top-level load statement. */
+public class LoadedSymbolStub extends StubBase<LoadedSymbol> {
+
+  @Nullable private final String symbolString;
+  @Nullable private final String importedSymbol;
+
+  LoadedSymbolStub(
+      StubElement parent, @Nullable String symbolString, @Nullable String importedSymbol) {
+    super(parent, BuildElementTypes.LOADED_SYMBOL);
+    this.symbolString = symbolString;
+    this.importedSymbol = importedSymbol;
+  }
+
+  /** The symbol name visible in this file (i.e. the alias, if present). */
+  @Nullable
+  public String getSymbolString() {
+    return symbolString;
+  }
+
+  /** The symbol name as it appears in the loaded extension (i.e. ignoring aliases). */
+  @Nullable
+  public String getImportedSymbol() {
+    return importedSymbol;
+  }
+}
@@ -15,7 +15,7 @@
  */
 package com.google.idea.blaze.base.lang.buildfile.validation;
 
-import com.google.common.base.Splitter;
+import com.google.idea.blaze.base.lang.buildfile.globbing.GlobMatcher;
 import javax.annotation.Nullable;
 
 /**
@@ -29,46 +29,11 @@ public class GlobPatternValidator {
    */
   @Nullable
   public static String validate(String pattern) {
-    String error = checkPatternForError(pattern);
-    if (error != null) {
-      return "Invalid glob pattern: " + error;
+    try {
+      GlobMatcher.validate(pattern);
+      return null;
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
     }
-    return null;
-  }
-
-  @Nullable
-  private static String checkPatternForError(String pattern) {
-    if (pattern.isEmpty()) {
-      return "pattern cannot be empty";
-    }
-    if (pattern.charAt(0) == '/') {
-      return "pattern cannot be absolute";
-    }
-    for (int i = 0; i < pattern.length(); i++) {
-      char c = pattern.charAt(i);
-      switch (c) {
-        case '(':
-        case ')':
-        case '{':
-        case '}':
-        case '[':
-        case ']':
-          return "illegal character '" + c + "'";
-        default: // fall out
-      }
-    }
-    Iterable<String> segments = Splitter.on('/').split(pattern);
-    for (String segment : segments) {
-      if (segment.isEmpty()) {
-        return "empty segment not permitted";
-      }
-      if (segment.equals(".") || segment.equals("..")) {
-        return "segment '" + segment + "' not permitted";
-      }
-      if (segment.contains("**") && !segment.equals("**")) {
-        return "recursive wildcard must be its own segment";
-      }
-    }
-    return null;
   }
 }
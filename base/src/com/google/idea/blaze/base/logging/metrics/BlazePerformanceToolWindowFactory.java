@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.metrics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.MetricValue;
+import com.google.idea.blaze.base.settings.Blaze;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.table.JBTable;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import org.jetbrains.annotations.NotNull;
+
+/** A tool window showing the live values of all {@link MetricsRegistry} metrics. */
+public class BlazePerformanceToolWindowFactory implements DumbAware, ToolWindowFactory {
+
+  private static final int REFRESH_INTERVAL_MILLIS = 1000;
+
+  @Override
+  public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+    String title = Blaze.buildSystemName(project) + " Performance";
+    toolWindow.setTitle(title);
+    toolWindow.setStripeTitle(title);
+
+    MetricsTableModel model = new MetricsTableModel();
+    JBTable table = new JBTable(model);
+    table.getEmptyText().setText("No metrics recorded yet");
+    JComponent component = ScrollPaneFactory.createScrollPane(table);
+    Content content = ContentFactory.SERVICE.getInstance().createContent(component, "", false);
+    content.setCloseable(false);
+    toolWindow.getContentManager().addContent(content);
+
+    // only refresh while the tool window is visible
+    Timer timer =
+        new Timer(
+            REFRESH_INTERVAL_MILLIS,
+            e -> {
+              if (component.isShowing()) {
+                model.refresh();
+              }
+            });
+    timer.start();
+    Disposer.register(content, timer::stop);
+  }
+
+  private static class MetricsTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Metric", "Type", "Value"};
+
+    private ImmutableList<MetricValue> metrics = MetricsRegistry.snapshot();
+
+    void refresh() {
+      ImmutableList<MetricValue> previous = metrics;
+      metrics = MetricsRegistry.snapshot();
+      if (!metrics.isEmpty() && metrics.size() == previous.size()) {
+        // keep the selection if no metrics were added
+        fireTableRowsUpdated(0, metrics.size() - 1);
+      } else {
+        fireTableDataChanged();
+      }
+    }
+
+    @Override
+    public int getRowCount() {
+      return metrics.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+      MetricValue metric = metrics.get(row);
+      switch (column) {
+        case 0:
+          return metric.name;
+        case 1:
+          return metric.type;
+        default:
+          return metric.value;
+      }
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.metrics;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A lightweight, application-wide registry of performance metrics (executor utilization, cache hit
+ * rates, fetch throughput, etc.).
+ *
+ * <p>Metrics are identified by name, and are created on first use; all callers using the same name
+ * share the same metric. Updating a metric is cheap enough for hot paths.
+ */
+public final class MetricsRegistry {
+
+  /** The value of a single metric at a point in time. */
+  public static final class MetricValue {
+    public final String name;
+    public final String type;
+    public final String value;
+
+    MetricValue(String name, String type, String value) {
+      this.name = name;
+      this.type = type;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s (%s): %s", name, type, value);
+    }
+  }
+
+  private interface Metric {
+    String getType();
+
+    String formatValue();
+  }
+
+  /** A monotonically increasing count. */
+  public static final class Counter implements Metric {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+      count.increment();
+    }
+
+    public void add(long value) {
+      count.add(value);
+    }
+
+    public long get() {
+      return count.sum();
+    }
+
+    @Override
+    public String getType() {
+      return "counter";
+    }
+
+    @Override
+    public String formatValue() {
+      return formatCount(get());
+    }
+  }
+
+  /** A value which can go up or down, e.g. the number of queued tasks. */
+  public static final class Gauge implements Metric {
+    private final AtomicLong value = new AtomicLong();
+
+    public void increment() {
+      value.incrementAndGet();
+    }
+
+    public void decrement() {
+      value.decrementAndGet();
+    }
+
+    public void set(long value) {
+      this.value.set(value);
+    }
+
+    public long get() {
+      return value.get();
+    }
+
+    @Override
+    public String getType() {
+      return "gauge";
+    }
+
+    @Override
+    public String formatValue() {
+      return formatCount(get());
+    }
+  }
+
+  /** A gauge whose value is computed when read. */
+  private static final class ComputedGauge implements Metric {
+    private final LongSupplier supplier;
+
+    ComputedGauge(LongSupplier supplier) {
+      this.supplier = supplier;
+    }
+
+    @Override
+    public String getType() {
+      return "gauge";
+    }
+
+    @Override
+    public String formatValue() {
+      return formatCount(supplier.getAsLong());
+    }
+  }
+
+  /**
+   * A distribution of non-negative values, e.g. task durations. Values are recorded in power-of-two
+   * buckets, so percentiles are approximate (within a factor of two).
+   */
+  public static final class Histogram implements Metric {
+    private static final int BUCKETS = 64;
+
+    // bucket i holds values in [2^(i-1), 2^i), bucket 0 holds zero
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+      value = Math.max(0, value);
+      buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value)));
+      count.increment();
+      sum.add(value);
+      max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getMax() {
+      return max.get();
+    }
+
+    public double getMean() {
+      long count = getCount();
+      return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns an upper bound on the given percentile (between 0 and 100) of the recorded values.
+     */
+    public long getPercentile(double percentile) {
+      long count = getCount();
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += buckets.get(i);
+        if (seen >= rank) {
+          long upperBound = i == 0 ? 0 : (1L << i) - 1;
+          return Math.min(upperBound, getMax());
+        }
+      }
+      return getMax();
+    }
+
+    @Override
+    public String getType() {
+      return "histogram";
+    }
+
+    @Override
+    public String formatValue() {
+      return String.format(
+          Locale.ROOT,
+          "count=%,d mean=%.1f p50=%,d p90=%,d p99=%,d max=%,d",
+          getCount(),
+          getMean(),
+          getPercentile(50),
+          getPercentile(90),
+          getPercentile(99),
+          getMax());
+    }
+  }
+
+  private static final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+  private MetricsRegistry() {}
+
+  public static Counter counter(String name) {
+    return getOrCreate(name, Counter.class, n -> new Counter());
+  }
+
+  public static Gauge gauge(String name) {
+    return getOrCreate(name, Gauge.class, n -> new Gauge());
+  }
+
+  public static Histogram histogram(String name) {
+    return getOrCreate(name, Histogram.class, n -> new Histogram());
+  }
+
+  /**
+   * Registers a gauge whose value is computed each time a snapshot is taken. Replaces any existing
+   * computed gauge with the same name.
+   */
+  public static void registerGauge(String name, LongSupplier supplier) {
+    metrics.put(name, new ComputedGauge(supplier));
+  }
+
+  /** Returns the current values of all metrics, sorted by name. */
+  public static ImmutableList<MetricValue> snapshot() {
+    return metrics.entrySet().stream()
+        .map(
+            e ->
+                new MetricValue(e.getKey(), e.getValue().getType(), e.getValue().formatValue()))
+        .collect(toImmutableList());
+  }
+
+  /** Returns the current values of all metrics, one per line. */
+  public static String formatSnapshot() {
+    StringBuilder output = new StringBuilder();
+    for (MetricValue value : snapshot()) {
+      output.append(value).append('\n');
+    }
+    return output.toString();
+  }
+
+  private static String formatCount(long value) {
+    return String.format(Locale.ROOT, "%,d", value);
+  }
+
+  @VisibleForTesting
+  static void clear() {
+    metrics.clear();
+  }
+
+  private static <T extends Metric> T getOrCreate(
+      String name, Class<T> type, Function<String, T> factory) {
+    Metric metric = metrics.computeIfAbsent(name, factory);
+    if (!type.isInstance(metric)) {
+      throw new IllegalArgumentException(
+          String.format("Metric '%s' is already registered as a %s", name, metric.getType()));
+    }
+    return type.cast(metric);
+  }
+}
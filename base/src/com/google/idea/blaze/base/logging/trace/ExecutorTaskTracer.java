@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.trace;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Gauge;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Histogram;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * Instruments the shared blaze executors, keeping queue depth and task timing metrics in the {@link
+ * MetricsRegistry}, and recording the tasks they run so they can be included in exported traces.
+ *
+ * <p>Task recording is off until enabled via {@link TraceExporter#startRecording}. Only the most
+ * recent {@link #MAX_SPANS} tasks are kept; traces pick out the tasks which ran during their time
+ * window.
+ */
+public final class ExecutorTaskTracer {
+
+  private static final int MAX_SPANS = 100_000;
+
+  /** A single task run on a traced executor. */
+  static final class TaskSpan {
+    final String executorName;
+    final Instant queuedTime;
+    final Instant startTime;
+    final Duration duration;
+    final long threadId;
+    final String threadName;
+
+    TaskSpan(
+        String executorName,
+        Instant queuedTime,
+        Instant startTime,
+        Duration duration,
+        long threadId,
+        String threadName) {
+      this.executorName = executorName;
+      this.queuedTime = queuedTime;
+      this.startTime = startTime;
+      this.duration = duration;
+      this.threadId = threadId;
+      this.threadName = threadName;
+    }
+
+    Instant endTime() {
+      return startTime.plus(duration);
+    }
+  }
+
+  private static volatile boolean enabled = false;
+
+  private static final ArrayDeque<TaskSpan> spans = new ArrayDeque<>();
+
+  private ExecutorTaskTracer() {}
+
+  /**
+   * Wraps an executor service, updating its metrics and recording the tasks it runs while tracing
+   * is enabled. Executors sharing a name share metrics.
+   *
+   * <p>Only {@link ExecutorService#execute} is traced, so this is intended to be wrapped in turn by
+   * {@link com.google.common.util.concurrent.MoreExecutors#listeningDecorator}, which routes all
+   * submitted tasks through it.
+   */
+  public static ExecutorService wrap(String executorName, ExecutorService delegate) {
+    return new TracingExecutorService(executorName, delegate);
+  }
+
+  static void setEnabled(boolean enabled) {
+    if (ExecutorTaskTracer.enabled == enabled) {
+      return;
+    }
+    ExecutorTaskTracer.enabled = enabled;
+    if (!enabled) {
+      synchronized (spans) {
+        spans.clear();
+      }
+    }
+  }
+
+  /** Returns the recorded tasks which overlap the given time window, in the order they ended. */
+  static ImmutableList<TaskSpan> getSpans(Instant from, Instant to) {
+    ImmutableList.Builder<TaskSpan> output = ImmutableList.builder();
+    synchronized (spans) {
+      for (TaskSpan span : spans) {
+        if (span.startTime.isBefore(to) && !span.endTime().isBefore(from)) {
+          output.add(span);
+        }
+      }
+    }
+    return output.build();
+  }
+
+  @VisibleForTesting
+  static void record(TaskSpan span) {
+    synchronized (spans) {
+      if (spans.size() >= MAX_SPANS) {
+        spans.removeFirst();
+      }
+      spans.addLast(span);
+    }
+  }
+
+  private static class TracingExecutorService extends AbstractExecutorService {
+    private final String executorName;
+    private final ExecutorService delegate;
+    private final Gauge queuedTasks;
+    private final Gauge activeTasks;
+    private final Histogram queueTimeMillis;
+    private final Histogram runTimeMillis;
+
+    TracingExecutorService(String executorName, ExecutorService delegate) {
+      this.executorName = executorName;
+      this.delegate = delegate;
+      this.queuedTasks = MetricsRegistry.gauge(executorName + ".queued_tasks");
+      this.activeTasks = MetricsRegistry.gauge(executorName + ".active_tasks");
+      this.queueTimeMillis = MetricsRegistry.histogram(executorName + ".queue_time_ms");
+      this.runTimeMillis = MetricsRegistry.histogram(executorName + ".run_time_ms");
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      long queuedNanos = System.nanoTime();
+      Instant queuedTime = enabled ? Instant.now() : null;
+      queuedTasks.increment();
+      try {
+        delegate.execute(new TracedTask(command, queuedNanos, queuedTime));
+      } catch (RejectedExecutionException e) {
+        queuedTasks.decrement();
+        throw e;
+      }
+    }
+
+    /** A queued task, updating metrics and recording a span if tracing was enabled when queued. */
+    private class TracedTask implements Runnable {
+      private final Runnable task;
+      private final long queuedNanos;
+      @Nullable private final Instant queuedTime;
+      private final AtomicBoolean dequeued = new AtomicBoolean();
+
+      TracedTask(Runnable task, long queuedNanos, @Nullable Instant queuedTime) {
+        this.task = task;
+        this.queuedNanos = queuedNanos;
+        this.queuedTime = queuedTime;
+      }
+
+      /** Removes this task from the queued task count, if it hasn't been already. */
+      void dequeue() {
+        if (dequeued.compareAndSet(false, true)) {
+          queuedTasks.decrement();
+        }
+      }
+
+      @Override
+      public void run() {
+        long startNanos = System.nanoTime();
+        Instant startTime = queuedTime != null ? Instant.now() : null;
+        dequeue();
+        activeTasks.increment();
+        queueTimeMillis.record(TimeUnit.NANOSECONDS.toMillis(startNanos - queuedNanos));
+        try {
+          task.run();
+        } finally {
+          activeTasks.decrement();
+          long durationNanos = System.nanoTime() - startNanos;
+          runTimeMillis.record(TimeUnit.NANOSECONDS.toMillis(durationNanos));
+          if (startTime != null) {
+            Thread thread = Thread.currentThread();
+            record(
+                new TaskSpan(
+                    executorName,
+                    queuedTime,
+                    startTime,
+                    Duration.ofNanos(durationNanos),
+                    thread.getId(),
+                    thread.getName()));
+          }
+        }
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      List<Runnable> discarded = delegate.shutdownNow();
+      // these tasks will never run, so won't otherwise leave the queue
+      for (Runnable task : discarded) {
+        if (task instanceof TracedTask) {
+          ((TracedTask) task).dequeue();
+        }
+      }
+      return discarded;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.trace;
+
+import com.google.gson.stream.JsonWriter;
+import com.google.idea.blaze.base.logging.trace.ExecutorTaskTracer.TaskSpan;
+import com.google.idea.blaze.base.scope.scopes.TimingScopeListener.TimedEvent;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Writes timing scopes and executor tasks in the Chrome trace event format, viewable in Perfetto or
+ * chrome://tracing.
+ *
+ * <p>Each scope and task is written as a 'complete' event on the thread it ran on. Nested scopes
+ * are inferred by the viewer from their start times and durations.
+ */
+final class TraceEventWriter {
+
+  private static final int PID = 1;
+
+  /** A single complete event. */
+  private static class Event {
+    final String name;
+    final String category;
+    final long startMicros;
+    final long durationMicros;
+    final long threadId;
+    final Map<String, Long> args = new LinkedHashMap<>();
+
+    Event(String name, String category, long startMicros, long durationMicros, long threadId) {
+      this.name = name;
+      this.category = category;
+      this.startMicros = startMicros;
+      this.durationMicros = durationMicros;
+      this.threadId = threadId;
+    }
+  }
+
+  private final Instant origin;
+  private final List<Event> events = new ArrayList<>();
+  private final Map<Long, String> threadNames = new LinkedHashMap<>();
+
+  /** @param origin the time corresponding to timestamp zero in the trace */
+  TraceEventWriter(Instant origin) {
+    this.origin = origin;
+  }
+
+  TraceEventWriter addTimedEvents(List<TimedEvent> timedEvents) {
+    for (TimedEvent event : timedEvents) {
+      threadNames.putIfAbsent(event.threadId, event.threadName);
+      events.add(
+          new Event(
+              event.name,
+              event.type.name(),
+              micros(Duration.between(origin, event.startTime)),
+              micros(event.duration),
+              event.threadId));
+    }
+    return this;
+  }
+
+  TraceEventWriter addTaskSpans(List<TaskSpan> spans) {
+    for (TaskSpan span : spans) {
+      threadNames.putIfAbsent(span.threadId, span.threadName);
+      Event event =
+          new Event(
+              span.executorName,
+              "Executor",
+              micros(Duration.between(origin, span.startTime)),
+              micros(span.duration),
+              span.threadId);
+      event.args.put("queued_us", micros(Duration.between(span.queuedTime, span.startTime)));
+      events.add(event);
+    }
+    return this;
+  }
+
+  void write(String processName, Writer writer) throws IOException {
+    // parents must precede their children for viewers to nest them correctly
+    events.sort(
+        Comparator.<Event>comparingLong(e -> e.startMicros)
+            .thenComparing(Comparator.<Event>comparingLong(e -> e.durationMicros).reversed()));
+
+    JsonWriter json = new JsonWriter(writer);
+    json.beginObject();
+    json.name("displayTimeUnit").value("ms");
+    json.name("traceEvents").beginArray();
+    writeMetadata(json, "process_name", null, processName);
+    for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+      writeMetadata(json, "thread_name", thread.getKey(), thread.getValue());
+    }
+    for (Event event : events) {
+      json.beginObject();
+      json.name("name").value(event.name);
+      json.name("cat").value(event.category);
+      json.name("ph").value("X");
+      json.name("ts").value(event.startMicros);
+      json.name("dur").value(event.durationMicros);
+      json.name("pid").value(PID);
+      json.name("tid").value(event.threadId);
+      if (!event.args.isEmpty()) {
+        json.name("args").beginObject();
+        for (Map.Entry<String, Long> arg : event.args.entrySet()) {
+          json.name(arg.getKey()).value(arg.getValue());
+        }
+        json.endObject();
+      }
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  private static void writeMetadata(
+      JsonWriter json, String name, @Nullable Long threadId, String value) throws IOException {
+    json.beginObject();
+    json.name("name").value(name);
+    json.name("ph").value("M");
+    json.name("pid").value(PID);
+    if (threadId != null) {
+      json.name("tid").value(threadId);
+    }
+    json.name("args").beginObject().name("name").value(value).endObject();
+    json.endObject();
+  }
+
+  private static long micros(Duration duration) {
+    return duration.getSeconds() * 1_000_000 + duration.getNano() / 1000;
+  }
+}
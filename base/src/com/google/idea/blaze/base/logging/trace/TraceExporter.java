@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.trace;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.idea.blaze.base.scope.scopes.TimingScopeListener;
+import com.google.idea.blaze.base.scope.scopes.TimingScopeListener.TimedEvent;
+import com.google.idea.common.experiments.BoolExperiment;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Exports the timing scopes of a sync or blaze invocation, along with any executor tasks which ran
+ * at the same time, as a trace event file in the IDE log directory.
+ */
+public final class TraceExporter {
+
+  private static final Logger logger = Logger.getInstance(TraceExporter.class);
+
+  private static final BoolExperiment enabled = new BoolExperiment("blaze.trace.export", false);
+
+  private static final String TRACE_DIRECTORY = "blaze-traces";
+  private static final int MAX_TRACE_FILES = 20;
+  private static final DateTimeFormatter TIMESTAMP_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+  private TraceExporter() {}
+
+  public static boolean isEnabled() {
+    return enabled.getValue();
+  }
+
+  /**
+   * Called at the start of a traced operation. Returns true if traces should be exported, in which
+   * case executor tasks are recorded from now on.
+   */
+  public static boolean startRecording() {
+    boolean isEnabled = isEnabled();
+    ExecutorTaskTracer.setEnabled(isEnabled);
+    return isEnabled;
+  }
+
+  /**
+   * Returns a listener which exports a trace once the root {@link
+   * com.google.idea.blaze.base.scope.scopes.TimingScope} ends, if tracing is enabled.
+   */
+  public static TimingScopeListener listener(String traceName) {
+    if (!startRecording()) {
+      return (events, totalTime) -> {};
+    }
+    return (events, totalTime) -> {
+      if (events.isEmpty()) {
+        return;
+      }
+      Instant startTime = events.get(0).startTime;
+      File file = exportTrace(traceName, events, startTime, startTime.plus(totalTime));
+      if (file != null) {
+        logger.info(String.format("%s trace written to %s", traceName, file.getPath()));
+      }
+    };
+  }
+
+  /**
+   * Writes a trace containing the given timing scopes, and any executor tasks which ran between the
+   * given start and end times.
+   *
+   * @return the trace file, or null if it couldn't be written
+   */
+  @Nullable
+  public static File exportTrace(
+      String traceName, List<TimedEvent> timedEvents, Instant startTime, Instant endTime) {
+    File directory = new File(PathManager.getLogPath(), TRACE_DIRECTORY);
+    File file =
+        new File(
+            directory,
+            String.format(
+                "%s-%s.json",
+                FileUtil.sanitizeFileName(traceName),
+                TIMESTAMP_FORMAT.format(LocalDateTime.now())));
+    try {
+      FileUtil.createDirectory(directory);
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8)) {
+        new TraceEventWriter(startTime)
+            .addTimedEvents(timedEvents)
+            .addTaskSpans(ExecutorTaskTracer.getSpans(startTime, endTime))
+            .write(traceName, writer);
+      }
+    } catch (IOException e) {
+      logger.warn("Failed to write trace file", e);
+      return null;
+    }
+    deleteOldTraces(directory);
+    return file;
+  }
+
+  private static void deleteOldTraces(File directory) {
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+    if (files == null || files.length <= MAX_TRACE_FILES) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+    for (int i = MAX_TRACE_FILES; i < files.length; i++) {
+      FileUtil.delete(files[i]);
+    }
+  }
+}
@@ -21,6 +21,8 @@ import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.idea.blaze.base.io.FileOperationProvider;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Counter;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.WorkspacePath;
 import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
@@ -51,9 +53,15 @@ public class PrefetchServiceImpl implements PrefetchService {
   private static final long REFETCH_PERIOD_MILLIS = TimeUnit.HOURS.toMillis(6);
   private final Map<Integer, Long> fileToLastFetchTimeMillis = Maps.newConcurrentMap();
 
+  private static final Counter filesPrefetched = MetricsRegistry.counter("Prefetch.files");
+  private static final Counter recentlyFetchedFilesSkipped =
+      MetricsRegistry.counter("Prefetch.recently_fetched_files_skipped");
+
   private PrefetchServiceImpl() {
     LowMemoryWatcher.register(
         fileToLastFetchTimeMillis::clear, ApplicationManager.getApplication());
+    MetricsRegistry.registerGauge(
+        "Prefetch.recently_fetched_files", fileToLastFetchTimeMillis::size);
   }
 
   @Override
@@ -77,13 +85,16 @@ public class PrefetchServiceImpl implements PrefetchService {
     }
     if (!refetchCachedFiles) {
       long startTime = System.currentTimeMillis();
+      int requested = files.size();
       // ignore recently fetched files
       files =
           files
               .stream()
               .filter(file -> shouldPrefetch(file, startTime))
               .collect(Collectors.toList());
+      recentlyFetchedFilesSkipped.add(requested - files.size());
     }
+    filesPrefetched.add(files.size());
     FileOperationProvider provider = FileOperationProvider.getInstance();
     List<ListenableFuture<File>> canonicalFiles =
         files
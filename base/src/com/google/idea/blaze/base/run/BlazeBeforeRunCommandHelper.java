@@ -26,6 +26,7 @@ import com.google.idea.blaze.base.command.BlazeInvocationContext;
 import com.google.idea.blaze.base.command.buildresult.BuildResultHelper;
 import com.google.idea.blaze.base.console.BlazeConsoleLineProcessorProvider;
 import com.google.idea.blaze.base.issueparser.IssueOutputFilter;
+import com.google.idea.blaze.base.logging.trace.TraceExporter;
 import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
 import com.google.idea.blaze.base.projectview.ProjectViewManager;
 import com.google.idea.blaze.base.projectview.ProjectViewSet;
@@ -35,6 +36,8 @@ import com.google.idea.blaze.base.scope.ScopedTask;
 import com.google.idea.blaze.base.scope.output.StatusOutput;
 import com.google.idea.blaze.base.scope.scopes.BlazeConsoleScope;
 import com.google.idea.blaze.base.scope.scopes.ProblemsViewScope;
+import com.google.idea.blaze.base.scope.scopes.TimingScope;
+import com.google.idea.blaze.base.scope.scopes.TimingScope.EventType;
 import com.google.idea.blaze.base.settings.Blaze;
 import com.google.idea.blaze.base.settings.BlazeUserSettings;
 import com.google.idea.blaze.base.sync.aspects.BuildResult;
@@ -92,6 +95,11 @@ public final class BlazeBeforeRunCommandHelper {
                                 new IssueOutputFilter(
                                     project, workspaceRoot, invocationContext.type(), true))
                             .build());
+                if (TraceExporter.isEnabled()) {
+                  context.push(
+                      new TimingScope("BeforeRunBuild", EventType.BlazeInvocation)
+                          .addScopeListener(TraceExporter.listener("before_run_build")));
+                }
 
                 context.output(new StatusOutput(progressMessage));
 
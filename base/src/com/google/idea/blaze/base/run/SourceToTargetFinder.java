@@ -53,6 +53,16 @@ public interface SourceToTargetFinder {
   Future<Collection<TargetInfo>> targetsForSourceFiles(
       Project project, Set<File> sourceFiles, Optional<RuleType> ruleType);
 
+  /**
+   * Finds test rules 'reachable' from the given source files, for callers which only need a few
+   * candidates. Implementations may stop searching after {@code limit} results, returning the
+   * closest first.
+   */
+  default Future<Collection<TargetInfo>> testTargetsForSourceFiles(
+      Project project, Set<File> sourceFiles, int limit) {
+    return targetsForSourceFiles(project, sourceFiles, Optional.of(RuleType.TEST));
+  }
+
   /**
    * Iterates through the all {@link SourceToTargetFinder}'s, returning a {@link Future}
    * representing the first non-empty result, prioritizing any which are immediately available.
@@ -79,6 +89,22 @@ public interface SourceToTargetFinder {
     return FuturesUtil.getFirstFutureSatisfyingPredicate(futures, t -> t != null && !t.isEmpty());
   }
 
+  /**
+   * Iterates through the all {@link SourceToTargetFinder}'s, returning a {@link Future}
+   * representing the first non-empty set of candidate test rules, prioritizing any which are
+   * immediately available. See {@link #testTargetsForSourceFiles}.
+   *
+   * <p>Future returns null if there was no non-empty result found.
+   */
+  static ListenableFuture<Collection<TargetInfo>> findTestTargetInfoFuture(
+      Project project, File sourceFile, int limit) {
+    Iterable<Future<Collection<TargetInfo>>> futures =
+        Iterables.transform(
+            Arrays.asList(EP_NAME.getExtensions()),
+            f -> f.testTargetsForSourceFiles(project, ImmutableSet.of(sourceFile), limit));
+    return FuturesUtil.getFirstFutureSatisfyingPredicate(futures, t -> t != null && !t.isEmpty());
+  }
+
   /**
    * Iterates through all {@link SourceToTargetFinder}s, returning the first immediately available,
    * non-empty result.
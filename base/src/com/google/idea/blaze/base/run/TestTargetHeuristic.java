@@ -15,12 +15,12 @@
  */
 package com.google.idea.blaze.base.run;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.idea.blaze.base.dependencies.TargetInfo;
 import com.google.idea.blaze.base.dependencies.TestSize;
-import com.google.idea.blaze.base.model.primitives.RuleType;
 import com.google.idea.blaze.base.run.targetfinder.FuturesUtil;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.extensions.ExtensionPointName;
@@ -32,7 +32,6 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -44,6 +43,12 @@ public interface TestTargetHeuristic {
   ExtensionPointName<TestTargetHeuristic> EP_NAME =
       ExtensionPointName.create("com.google.idea.blaze.TestTargetHeuristic");
 
+  /**
+   * The maximum number of test rules considered for a source file. The heuristics only need a
+   * handful of candidates, and the closest tests are found first.
+   */
+  int MAX_CANDIDATE_TARGETS = 50;
+
   /**
    * Synchronously finds a test rule associated with a given {@link PsiElement}. This can involve
    * expensive PSI operations, so shouldn't be called on the EDT. Must be called from within a read
@@ -69,12 +74,12 @@ public interface TestTargetHeuristic {
       return null;
     }
     Project project = element.getProject();
+    ListenableFuture<Collection<TargetInfo>> future =
+        SourceToTargetFinder.findTestTargetInfoFuture(project, file, MAX_CANDIDATE_TARGETS);
     Collection<TargetInfo> targets =
-        SourceToTargetFinder.findTargetsForSourceFile(project, file, Optional.of(RuleType.TEST));
-    return targets == null
-        ? null
-        : TestTargetHeuristic.chooseTestTargetForSourceFile(
-            project, psiFile, file, targets, testSize);
+        future.isDone() ? FuturesUtil.getIgnoringErrors(future) : null;
+    return TestTargetHeuristic.chooseTestTargetForSourceFile(
+        project, psiFile, file, targets != null ? targets : ImmutableList.of(), testSize);
   }
 
   /**
@@ -98,7 +103,7 @@ public interface TestTargetHeuristic {
     }
     Project project = element.getProject();
     ListenableFuture<Collection<TargetInfo>> targets =
-        SourceToTargetFinder.findTargetInfoFuture(project, file, Optional.of(RuleType.TEST));
+        SourceToTargetFinder.findTestTargetInfoFuture(project, file, MAX_CANDIDATE_TARGETS);
     if (targets.isDone() && FuturesUtil.getIgnoringErrors(targets) == null) {
       return null;
     }
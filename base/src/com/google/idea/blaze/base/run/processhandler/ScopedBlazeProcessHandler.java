@@ -18,8 +18,11 @@ package com.google.idea.blaze.base.run.processhandler;
 import com.google.common.collect.ImmutableList;
 import com.google.idea.blaze.base.command.BlazeCommand;
 import com.google.idea.blaze.base.filecache.FileCaches;
+import com.google.idea.blaze.base.logging.trace.TraceExporter;
 import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
 import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.scope.scopes.TimingScope;
+import com.google.idea.blaze.base.scope.scopes.TimingScope.EventType;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.KillableColoredProcessHandler;
@@ -109,6 +112,11 @@ public final class ScopedBlazeProcessHandler extends KillableColoredProcessHandl
 
     @Override
     public void startNotified(ProcessEvent event) {
+      if (TraceExporter.isEnabled()) {
+        context.push(
+            new TimingScope("BlazeProcess", EventType.BlazeInvocation)
+                .addScopeListener(TraceExporter.listener("blaze_process")));
+      }
       scopedProcessHandlerDelegate.onBlazeContextStart(context);
     }
 
@@ -20,7 +20,10 @@ import static java.util.stream.Collectors.joining;
 import com.google.common.collect.Lists;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.annotation.Nullable;
 import javax.xml.bind.JAXBContext;
@@ -102,20 +105,35 @@ public class BlazeXmlSchema {
     @XmlElement(name = "testcase")
     public List<TestCase> testCases = Lists.newArrayList();
 
-    /** Used to merge test suites from a single target, split across multiple shards */
-    private void addSuite(TestSuite suite) {
-      for (TestSuite existing : testSuites) {
-        if (Objects.equals(existing.name, suite.name)) {
-          existing.mergeWithSuite(suite);
-          return;
-        }
+    /**
+     * Used to merge test suites from a single target, split across multiple shards.
+     *
+     * @param childrenByName an index of each merged suite's children, by name
+     */
+    private void addSuite(TestSuite suite, Map<TestSuite, Map<String, TestSuite>> childrenByName) {
+      Map<String, TestSuite> children =
+          childrenByName.computeIfAbsent(this, TestSuite::indexChildren);
+      TestSuite existing = children.get(suite.name);
+      if (existing != null) {
+        existing.mergeWithSuite(suite, childrenByName);
+        return;
       }
       testSuites.add(suite);
+      children.put(suite.name, suite);
     }
 
-    private void mergeWithSuite(TestSuite suite) {
+    private Map<String, TestSuite> indexChildren() {
+      Map<String, TestSuite> children = new HashMap<>();
+      for (TestSuite child : testSuites) {
+        children.putIfAbsent(child.name, child);
+      }
+      return children;
+    }
+
+    private void mergeWithSuite(
+        TestSuite suite, Map<TestSuite, Map<String, TestSuite>> childrenByName) {
       for (TestSuite child : suite.testSuites) {
-        addSuite(child);
+        addSuite(child, childrenByName);
       }
       testDecorators.addAll(suite.testDecorators);
       testCases.addAll(suite.testCases);
@@ -131,8 +149,9 @@ public class BlazeXmlSchema {
   /** Used to merge test suites from a single target, split across multiple shards */
   static TestSuite mergeSuites(List<TestSuite> suites) {
     TestSuite outer = new TestSuite();
+    Map<TestSuite, Map<String, TestSuite>> childrenByName = new IdentityHashMap<>();
     for (TestSuite suite : suites) {
-      outer.addSuite(suite);
+      outer.addSuite(suite, childrenByName);
     }
     return outer;
   }
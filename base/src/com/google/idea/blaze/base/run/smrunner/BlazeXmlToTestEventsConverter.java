@@ -15,16 +15,21 @@
  */
 package com.google.idea.blaze.base.run.smrunner;
 
+import static java.util.stream.Collectors.toList;
+
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.idea.blaze.base.command.buildresult.OutputArtifact;
+import com.google.idea.blaze.base.logging.trace.ExecutorTaskTracer;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.Kind;
 import com.google.idea.blaze.base.model.primitives.Label;
-import com.google.idea.blaze.base.prefetch.FetchExecutor;
 import com.google.idea.blaze.base.run.smrunner.BlazeXmlSchema.ErrorOrFailureOrSkipped;
 import com.google.idea.blaze.base.run.smrunner.BlazeXmlSchema.TestCase;
 import com.google.idea.blaze.base.run.smrunner.BlazeXmlSchema.TestSuite;
@@ -51,12 +56,17 @@ import com.intellij.execution.testframework.sm.runner.events.TestSuiteFinishedEv
 import com.intellij.execution.testframework.sm.runner.events.TestSuiteStartedEvent;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import jetbrains.buildServer.messages.serviceMessages.TestSuiteStarted;
 
@@ -66,6 +76,19 @@ public class BlazeXmlToTestEventsConverter extends OutputToGeneralTestEventsConv
   private static final BoolExperiment removeZeroRunTimeCheck =
       new BoolExperiment("remove.zero.run.time.check", true);
 
+  /** The maximum number of targets to parse ahead of those already reported. */
+  private static final int MAX_PENDING_TARGETS = 16;
+
+  /**
+   * Parses output XML files, at most a few at a time, so a target with many shards doesn't flood
+   * the shared application pool.
+   */
+  private static final ListeningExecutorService PARSE_EXECUTOR =
+      MoreExecutors.listeningDecorator(
+          ExecutorTaskTracer.wrap(
+              "BlazeTestXmlParser",
+              AppExecutorUtil.createBoundedApplicationPoolExecutor("BlazeTestXmlParser", 8)));
+
   {
     NO_ERROR.message = "No message"; // cannot be null
   }
@@ -101,19 +124,37 @@ public class BlazeXmlToTestEventsConverter extends OutputToGeneralTestEventsConv
   private void processAllTestResults(BlazeTestResults testResults) {
     onStartTesting();
     getProcessor().onTestsReporterAttached();
+    AtomicBoolean cancelled = new AtomicBoolean(false);
+    List<ListenableFuture<ParsedTargetResults>> futures = new ArrayList<>();
     try {
-      List<ListenableFuture<ParsedTargetResults>> futures = new ArrayList<>();
-      for (Label label : testResults.perTargetResults.keySet()) {
-        futures.add(
-            FetchExecutor.EXECUTOR.submit(
-                () -> parseTestXml(label, testResults.perTargetResults.get(label))));
-      }
-      List<ParsedTargetResults> parsedResults =
-          FuturesUtil.getIgnoringErrors(Futures.allAsList(futures));
-      if (parsedResults != null) {
-        parsedResults.forEach(this::processParsedTestResults);
+      // targets are reported as soon as they're parsed, rather than once everything is parsed
+      List<Label> labels = ImmutableList.copyOf(testResults.perTargetResults.keySet());
+      BlockingQueue<ListenableFuture<ParsedTargetResults>> parsed = new LinkedBlockingQueue<>();
+      int submitted = 0;
+      for (int processed = 0; processed < labels.size(); processed++) {
+        // bound the number of parsed targets held in memory at once
+        while (submitted < labels.size() && submitted - processed < MAX_PENDING_TARGETS) {
+          Label label = labels.get(submitted++);
+          ListenableFuture<ParsedTargetResults> future =
+              parseTestXml(label, testResults.perTargetResults.get(label), cancelled);
+          futures.add(future);
+          future.addListener(() -> parsed.add(future), MoreExecutors.directExecutor());
+        }
+        ParsedTargetResults results = FuturesUtil.getIgnoringErrors(parsed.take());
+        if (results != null) {
+          processParsedTestResults(results);
+        }
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     } finally {
+      // skip any files not yet parsed, and wait for those being read before deleting them
+      cancelled.set(true);
+      try {
+        Uninterruptibles.getUninterruptibly(Futures.successfulAsList(futures));
+      } catch (ExecutionException e) {
+        // successfulAsList never fails
+      }
       testResultFinderStrategy.deleteTemporaryOutputXmlFiles();
     }
   }
@@ -137,21 +178,38 @@ public class BlazeXmlToTestEventsConverter extends OutputToGeneralTestEventsConv
     }
   }
 
-  /** Parse all test XML files from a single test target. */
-  private static ParsedTargetResults parseTestXml(
-      Label label, Collection<BlazeTestResult> results) {
+  /**
+   * Parse all test XML files from a single test target. Each file (generally one per shard) is
+   * parsed in parallel. Files not yet parsed once {@code cancelled} is set are skipped.
+   */
+  private static ListenableFuture<ParsedTargetResults> parseTestXml(
+      Label label, Collection<BlazeTestResult> results, AtomicBoolean cancelled) {
     List<OutputArtifact> outputFiles = new ArrayList<>();
     results.forEach(result -> outputFiles.addAll(result.getOutputXmlFiles()));
-    List<TestSuite> targetSuites = new ArrayList<>();
+    List<ListenableFuture<TestSuite>> suites = new ArrayList<>();
     for (OutputArtifact file : outputFiles) {
-      try (InputStream input = file.getInputStream()) {
-        targetSuites.add(BlazeXmlSchema.parse(input));
-      } catch (Exception e) {
-        // ignore parsing errors -- most common cause is user cancellation, which we can't easily
-        // recognize.
-      }
+      suites.add(PARSE_EXECUTOR.submit(() -> cancelled.get() ? null : parseTestXml(file)));
+    }
+    return Futures.transform(
+        Futures.allAsList(suites),
+        targetSuites ->
+            new ParsedTargetResults(
+                label,
+                results,
+                outputFiles,
+                targetSuites.stream().filter(Objects::nonNull).collect(toList())),
+        MoreExecutors.directExecutor());
+  }
+
+  @Nullable
+  private static TestSuite parseTestXml(OutputArtifact file) {
+    try (InputStream input = file.getInputStream()) {
+      return BlazeXmlSchema.parse(input);
+    } catch (Exception e) {
+      // ignore parsing errors -- most common cause is user cancellation, which we can't easily
+      // recognize.
+      return null;
     }
-    return new ParsedTargetResults(label, results, outputFiles, targetSuites);
   }
 
   /** Process all parsed test XML files from a single test target. */
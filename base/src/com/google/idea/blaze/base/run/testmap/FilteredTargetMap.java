@@ -15,10 +15,12 @@
  */
 package com.google.idea.blaze.base.run.testmap;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
@@ -61,38 +63,74 @@ public class FilteredTargetMap {
   }
 
   public ImmutableSet<TargetIdeInfo> targetsForSourceFiles(Collection<File> sourceFiles) {
+    return ImmutableSet.copyOf(reachableTargets(sourceFiles));
+  }
+
+  /**
+   * Returns at most {@code limit} targets reachable from the given source files which also satisfy
+   * {@code resultFilter}, closest first.
+   *
+   * <p>The reverse dependency graph is only traversed until enough targets are found, so this is
+   * much cheaper than {@link #targetsForSourceFiles(Collection)} for widely-used sources when only
+   * a few results are needed.
+   */
+  public ImmutableList<TargetIdeInfo> targetsForSourceFiles(
+      Collection<File> sourceFiles, Predicate<TargetIdeInfo> resultFilter, int limit) {
+    Iterable<TargetIdeInfo> matches =
+        Iterables.filter(reachableTargets(sourceFiles), resultFilter::test);
+    return ImmutableList.copyOf(Iterables.limit(matches, limit));
+  }
+
+  /** Lazily iterates over the reachable targets passing the filter, in breadth-first order. */
+  private Iterable<TargetIdeInfo> reachableTargets(Collection<File> sourceFiles) {
     BlazeProjectData blazeProjectData =
         BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
-    if (blazeProjectData != null) {
-      return targetsForSourceFilesImpl(ReverseDependencyMap.get(project), sourceFiles);
+    if (blazeProjectData == null) {
+      return ImmutableList.of();
     }
-    return ImmutableSet.of();
-  }
-
-  private ImmutableSet<TargetIdeInfo> targetsForSourceFilesImpl(
-      ImmutableMultimap<TargetKey, TargetKey> rdepsMap, Collection<File> sourceFiles) {
-    ImmutableSet.Builder<TargetIdeInfo> result = ImmutableSet.builder();
-    Set<TargetKey> roots =
+    ImmutableMultimap<TargetKey, TargetKey> rdepsMap = ReverseDependencyMap.get(project);
+    ImmutableSet<TargetKey> roots =
         sourceFiles.stream()
             .flatMap(f -> rootsMap.get(f).stream())
             .collect(ImmutableSet.toImmutableSet());
+    return () -> new ReverseDependencyIterator(rdepsMap, roots);
+  }
+
+  /**
+   * Walks the reverse dependency graph breadth-first, one target at a time, so callers can stop
+   * as soon as they have enough results.
+   */
+  private class ReverseDependencyIterator extends AbstractIterator<TargetIdeInfo> {
+    private final ImmutableMultimap<TargetKey, TargetKey> rdepsMap;
+    private final Queue<TargetKey> todo = Queues.newArrayDeque();
+    private final Set<TargetKey> seen = Sets.newHashSet();
 
-    Queue<TargetKey> todo = Queues.newArrayDeque();
-    todo.addAll(roots);
-    Set<TargetKey> seen = Sets.newHashSet();
-    while (!todo.isEmpty()) {
-      TargetKey targetKey = todo.remove();
-      if (!seen.add(targetKey)) {
-        continue;
+    ReverseDependencyIterator(
+        ImmutableMultimap<TargetKey, TargetKey> rdepsMap, Collection<TargetKey> roots) {
+      this.rdepsMap = rdepsMap;
+      enqueue(roots);
+    }
+
+    private void enqueue(Collection<TargetKey> keys) {
+      for (TargetKey key : keys) {
+        if (seen.add(key)) {
+          todo.add(key);
+        }
       }
+    }
 
-      TargetIdeInfo target = targetMap.get(targetKey);
-      if (filter.test(target)) {
-        result.add(target);
+    @Override
+    protected TargetIdeInfo computeNext() {
+      while (!todo.isEmpty()) {
+        TargetKey targetKey = todo.remove();
+        enqueue(rdepsMap.get(targetKey));
+        TargetIdeInfo target = targetMap.get(targetKey);
+        if (filter.test(target)) {
+          return target;
+        }
       }
-      todo.addAll(rdepsMap.get(targetKey));
+      return endOfData();
     }
-    return result.build();
   }
 
   private static Multimap<File, TargetKey> createRootsMap(
@@ -15,8 +15,10 @@
  */
 package com.google.idea.blaze.base.run.testmap;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
@@ -31,9 +33,13 @@ import com.google.idea.blaze.base.sync.workspace.ArtifactLocationDecoder;
 import com.intellij.openapi.project.Project;
 import java.io.File;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * Used to locate tests from source files for things like right-clicks.
@@ -42,23 +48,100 @@ import java.util.concurrent.Future;
  */
 public class ProjectSourceToTargetFinder implements SourceToTargetFinder {
 
+  /** The {@link CacheKey} limit for unbounded queries. */
+  private static final int NO_LIMIT = -1;
+
   @Override
   public Future<Collection<TargetInfo>> targetsForSourceFiles(
       Project project, Set<File> sourceFiles, Optional<RuleType> ruleType) {
+    return findTargets(
+        project,
+        new CacheKey(sourceFiles, ruleType, NO_LIMIT),
+        targetMap ->
+            targetMap.targetsForSourceFiles(sourceFiles).stream()
+                .map(TargetIdeInfo::toTargetInfo)
+                .filter(
+                    target -> !ruleType.isPresent() || target.getRuleType().equals(ruleType.get()))
+                .collect(toImmutableSet()));
+  }
+
+  /**
+   * Only traverses the reverse dependency graph until {@code limit} test targets are found, so this
+   * is much cheaper than an unbounded query for widely-used sources.
+   */
+  @Override
+  public Future<Collection<TargetInfo>> testTargetsForSourceFiles(
+      Project project, Set<File> sourceFiles, int limit) {
+    return findTargets(
+        project,
+        new CacheKey(sourceFiles, Optional.of(RuleType.TEST), limit),
+        targetMap ->
+            targetMap
+                .targetsForSourceFiles(
+                    sourceFiles,
+                    target -> target.toTargetInfo().getRuleType() == RuleType.TEST,
+                    limit)
+                .stream()
+                .map(TargetIdeInfo::toTargetInfo)
+                .collect(toImmutableList()));
+  }
+
+  private static Future<Collection<TargetInfo>> findTargets(
+      Project project,
+      CacheKey key,
+      Function<FilteredTargetMap, ImmutableCollection<TargetInfo>> query) {
     FilteredTargetMap targetMap =
         SyncCache.getInstance(project)
             .get(ProjectSourceToTargetFinder.class, ProjectSourceToTargetFinder::computeTargetMap);
-    if (targetMap == null) {
+    ResultCache resultCache =
+        SyncCache.getInstance(project).get(ResultCache.class, (p, data) -> new ResultCache());
+    if (targetMap == null || resultCache == null) {
       return Futures.immediateFuture(ImmutableList.of());
     }
-    ImmutableSet<TargetInfo> targets =
-        targetMap.targetsForSourceFiles(sourceFiles).stream()
-            .map(TargetIdeInfo::toTargetInfo)
-            .filter(target -> !ruleType.isPresent() || target.getRuleType().equals(ruleType.get()))
-            .collect(toImmutableSet());
+    ImmutableCollection<TargetInfo> targets = resultCache.results.get(key);
+    if (targets == null) {
+      targets = query.apply(targetMap);
+      resultCache.results.put(key, targets);
+    }
     return Futures.immediateFuture(targets);
   }
 
+  /** Results for previously-queried sources, cleared on each sync along with the target map. */
+  private static class ResultCache {
+    final Map<CacheKey, ImmutableCollection<TargetInfo>> results = new ConcurrentHashMap<>();
+  }
+
+  private static final class CacheKey {
+    final ImmutableSet<File> sourceFiles;
+    final Optional<RuleType> ruleType;
+    final int limit;
+
+    CacheKey(Set<File> sourceFiles, Optional<RuleType> ruleType, int limit) {
+      this.sourceFiles = ImmutableSet.copyOf(sourceFiles);
+      this.ruleType = ruleType;
+      this.limit = limit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey) o;
+      return sourceFiles.equals(other.sourceFiles)
+          && ruleType.equals(other.ruleType)
+          && limit == other.limit;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sourceFiles, ruleType, limit);
+    }
+  }
+
   private static FilteredTargetMap computeTargetMap(Project project, BlazeProjectData projectData) {
     return computeTargetMap(
         project, projectData.getArtifactLocationDecoder(), projectData.getTargetMap());
@@ -18,6 +18,7 @@ package com.google.idea.blaze.base.scope.scopes;
 import com.google.common.collect.ImmutableList;
 import com.google.idea.blaze.base.scope.scopes.TimingScope.EventType;
 import java.time.Duration;
+import java.time.Instant;
 
 /** Called once the scope ends, with the timing information of the scope and all its children. */
 public interface TimingScopeListener {
@@ -26,14 +27,28 @@ public interface TimingScopeListener {
   class TimedEvent {
     public final String name;
     public final EventType type;
+    public final Instant startTime;
     public final Duration duration;
     public final boolean isLeafEvent;
+    // the thread on which the scope began
+    public final long threadId;
+    public final String threadName;
 
-    public TimedEvent(String name, EventType type, Duration duration, boolean isLeafEvent) {
+    public TimedEvent(
+        String name,
+        EventType type,
+        Instant startTime,
+        Duration duration,
+        boolean isLeafEvent,
+        long threadId,
+        String threadName) {
       this.name = name;
       this.type = type;
+      this.startTime = startTime;
       this.duration = duration;
       this.isLeafEvent = isLeafEvent;
+      this.threadId = threadId;
+      this.threadName = threadName;
     }
   }
 
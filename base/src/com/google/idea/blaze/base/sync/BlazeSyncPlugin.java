@@ -65,6 +65,18 @@ public interface BlazeSyncPlugin {
      */
     ModifiableRootModel editModule(Module module);
 
+    /**
+     * Registers an existing module without editing it, so its current state is kept as-is and it
+     * isn't garbage collected on commit.
+     */
+    void retainModule(Module module);
+
+    /**
+     * Registers a callback to run once all module changes have been successfully committed at the
+     * end of sync. It won't run if the commit fails.
+     */
+    void runAfterCommit(Runnable callback);
+
     /** Finds a module by name. This doesn't register the module. */
     @Nullable
     Module findModule(String moduleName);
@@ -17,6 +17,8 @@ package com.google.idea.blaze.base.sync;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Counter;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.projectview.ProjectViewSet;
 import com.google.idea.blaze.base.scope.BlazeContext;
@@ -35,6 +37,9 @@ public class SyncCache {
     T compute(Project project, BlazeProjectData projectData);
   }
 
+  private static final Counter hits = MetricsRegistry.counter("SyncCache.hits");
+  private static final Counter misses = MetricsRegistry.counter("SyncCache.misses");
+
   private final Project project;
   private final Map<Object, Object> cache = Maps.newHashMap();
 
@@ -51,8 +56,10 @@ public class SyncCache {
   @SuppressWarnings("unchecked")
   public synchronized <T> T get(Object key, SyncCacheComputable<T> computable) {
     if (cache.containsKey(key)) {
+      hits.increment();
       return (T) cache.get(key);
     }
+    misses.increment();
     BlazeProjectData blazeProjectData =
         BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
     if (blazeProjectData == null) {
@@ -27,6 +27,9 @@ import com.google.idea.blaze.base.command.BlazeInvocationContext.ContextType;
 import com.google.idea.blaze.base.experiments.ExperimentScope;
 import com.google.idea.blaze.base.issueparser.IssueOutputFilter;
 import com.google.idea.blaze.base.logging.EventLoggingService;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry;
+import com.google.idea.blaze.base.logging.trace.ExecutorTaskTracer;
+import com.google.idea.blaze.base.logging.trace.TraceExporter;
 import com.google.idea.blaze.base.logging.utils.SyncStats;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
@@ -67,6 +70,7 @@ import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.util.concurrency.AppExecutorUtil;
+import java.io.File;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -142,7 +146,10 @@ final class SyncPhaseCoordinator {
   // an application-wide executor to run concurrent blaze builds remotely
   private static final ListeningExecutorService remoteBuildExecutor =
       MoreExecutors.listeningDecorator(
-          AppExecutorUtil.createBoundedApplicationPoolExecutor("FetchExecutor", MAX_BUILD_TASKS));
+          ExecutorTaskTracer.wrap(
+              "RemoteBuildExecutor",
+              AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                  "FetchExecutor", MAX_BUILD_TASKS)));
 
   // a per-project executor to run single-threaded sync phases
   private final ListeningExecutorService singleThreadedExecutor;
@@ -156,8 +163,10 @@ final class SyncPhaseCoordinator {
     this.project = project;
     singleThreadedExecutor =
         MoreExecutors.listeningDecorator(
-            Executors.newSingleThreadExecutor(
-                ConcurrencyUtil.namedDaemonThreadPoolFactory(BlazeSyncManager.class)));
+            ExecutorTaskTracer.wrap(
+                "SyncPhaseExecutor",
+                Executors.newSingleThreadExecutor(
+                    ConcurrencyUtil.namedDaemonThreadPoolFactory(BlazeSyncManager.class))));
   }
 
   private boolean useRemoteExecutor(BlazeSyncParams syncParams) {
@@ -226,6 +235,7 @@ final class SyncPhaseCoordinator {
   @VisibleForTesting
   void runSync(BlazeSyncParams params, boolean singleThreaded, BlazeContext context) {
     Instant startTime = Instant.now();
+    TraceExporter.startRecording();
     try {
       SaveUtil.saveAllFiles();
       onSyncStart(project, context, params.syncMode);
@@ -376,6 +386,10 @@ final class SyncPhaseCoordinator {
       EventLoggingService.getInstance().log(stats.build());
       context.output(new StatusOutput("Sync finished"));
       outputTimingSummary(context, stats.getCurrentTimedEvents());
+      if (TraceExporter.isEnabled()) {
+        exportTrace(context, stats.getCurrentTimedEvents(), startTime);
+      }
+      logger.info("Metrics after sync:\n" + MetricsRegistry.formatSnapshot());
 
     } catch (Throwable e) {
       logSyncError(context, e);
@@ -546,6 +560,14 @@ final class SyncPhaseCoordinator {
     context.output(PrintOutput.log("\nTiming summary:\n" + summary));
   }
 
+  private static void exportTrace(
+      BlazeContext context, ImmutableList<TimedEvent> timedEvents, Instant startTime) {
+    File traceFile = TraceExporter.exportTrace("sync", timedEvents, startTime, Instant.now());
+    if (traceFile != null) {
+      context.output(PrintOutput.log("Sync trace written to " + traceFile.getPath()));
+    }
+  }
+
   private static String durationStr(long timeMillis) {
     return timeMillis >= 1000
         ? String.format("%.1fs", timeMillis / 1000d)
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.errorprone.annotations.MustBeClosed;
+import com.google.idea.blaze.base.command.buildresult.OutputArtifact;
+import com.google.idea.blaze.base.command.buildresult.RemoteOutputArtifact;
+import com.google.idea.blaze.base.command.info.BlazeConfigurationHandler;
+import com.google.idea.blaze.base.filecache.ArtifactState;
+import com.google.idea.blaze.base.filecache.ArtifactState.GenericOutputState;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the aspect output bundles written by the aspect's InfoBundler tool, each containing many
+ * ide info files.
+ *
+ * <p>Bundles are indexed, with a digest per entry, so entries which haven't changed since the
+ * previous sync can be skipped without being read.
+ */
+final class AspectOutputBundle {
+
+  /** Identifies (and versions) the bundle format. Must match InfoBundler. */
+  private static final int MAGIC = 0x494a4201;
+
+  private AspectOutputBundle() {}
+
+  /**
+   * Reads the entries of the given bundle. Entry contents are only loaded if {@code loadContents}
+   * accepts the entry's state; the remaining entries can be diffed, but not read.
+   *
+   * <p>Entries are keyed as the same build would key the ide info file if it were output
+   * individually, so a file keeps its key when it moves in or out of a bundle between syncs.
+   */
+  static ImmutableList<Entry> read(
+      OutputArtifact bundle,
+      File executionRoot,
+      long syncStartTimeMillis,
+      Predicate<ArtifactState> loadContents)
+      throws IOException {
+    try (DataInputStream in = new DataInputStream(bundle.getInputStream())) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Unrecognized aspect output bundle format: " + bundle.getKey());
+      }
+      int count = in.readInt();
+      String[] paths = new String[count];
+      long[] digests = new long[count];
+      int[] lengths = new int[count];
+      for (int i = 0; i < count; i++) {
+        paths[i] = in.readUTF();
+        digests[i] = in.readLong();
+        lengths[i] = in.readInt();
+      }
+      ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+      for (int i = 0; i < count; i++) {
+        String key = getEntryKey(bundle, executionRoot, paths[i]);
+        Entry entry =
+            new Entry(paths[i], key, digests[i], lengths[i], syncStartTimeMillis, null);
+        if (loadContents.test(entry.toArtifactState())) {
+          byte[] contents = new byte[lengths[i]];
+          in.readFully(contents);
+          entry = new Entry(paths[i], key, digests[i], lengths[i], syncStartTimeMillis, contents);
+        } else {
+          ByteStreams.skipFully(in, lengths[i]);
+        }
+        entries.add(entry);
+      }
+      return entries.build();
+    }
+  }
+
+  /** Returns the key of an individually output file with the given exec-root relative path. */
+  private static String getEntryKey(OutputArtifact bundle, File executionRoot, String path) {
+    if (bundle instanceof RemoteOutputArtifact) {
+      // remote outputs are keyed by their blaze-out relative path
+      return path.substring(path.indexOf('/') + 1);
+    }
+    return new File(executionRoot, path).getPath();
+  }
+
+  /** A single ide info file within a bundle. */
+  static final class Entry implements OutputArtifact {
+    /** The exec-root relative path of the original ide info file. */
+    private final String path;
+
+    /** The key the ide info file would have if it were output individually. */
+    private final String key;
+
+    private final long digest;
+    private final int length;
+    private final long syncStartTimeMillis;
+    @Nullable private final byte[] contents;
+
+    private Entry(
+        String path,
+        String key,
+        long digest,
+        int length,
+        long syncStartTimeMillis,
+        @Nullable byte[] contents) {
+      this.path = path;
+      this.key = key;
+      this.digest = digest;
+      this.length = length;
+      this.syncStartTimeMillis = syncStartTimeMillis;
+      this.contents = contents;
+    }
+
+    /** Whether this entry's contents were loaded, i.e. whether it can be read. */
+    boolean hasContents() {
+      return contents != null;
+    }
+
+    @Override
+    public long getLength() {
+      return length;
+    }
+
+    @Override
+    public String getBlazeConfigurationMnemonic(BlazeConfigurationHandler handler) {
+      // strip the leading 'blaze-out' path component
+      return BlazeConfigurationHandler.getConfigurationMnemonic(
+          path.substring(path.indexOf('/') + 1));
+    }
+
+    @Override
+    @MustBeClosed
+    public BufferedInputStream getInputStream() throws IOException {
+      if (contents == null) {
+        throw new IOException("Contents of bundled aspect output weren't loaded: " + path);
+      }
+      return new BufferedInputStream(new ByteArrayInputStream(contents));
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public ArtifactState toArtifactState() {
+      return new GenericOutputState(key, Long.toHexString(digest), syncStartTimeMillis);
+    }
+
+    @Override
+    public String toString() {
+      return path;
+    }
+  }
+}
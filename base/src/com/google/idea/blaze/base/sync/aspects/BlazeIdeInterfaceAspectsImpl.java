@@ -17,6 +17,7 @@ package com.google.idea.blaze.base.sync.aspects;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
@@ -31,6 +32,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
 import com.google.idea.blaze.base.async.FutureUtil;
+import com.google.idea.blaze.base.async.FutureUtil.FutureResult;
 import com.google.idea.blaze.base.async.executor.BlazeExecutor;
 import com.google.idea.blaze.base.async.process.ExternalTask;
 import com.google.idea.blaze.base.async.process.LineProcessingOutputStream;
@@ -95,6 +97,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -157,12 +160,38 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
             .filter(f -> ideInfoPredicate.test(f.getKey()))
             .distinct()
             .collect(toImmutableList());
+    ImmutableList<OutputArtifact> bundles =
+        buildResult.perOutputGroupArtifacts.entries().stream()
+            .filter(e -> e.getKey().startsWith(OutputGroup.INFO.prefix))
+            .map(Map.Entry::getValue)
+            .filter(f -> AspectStrategy.ASPECT_OUTPUT_BUNDLE_PREDICATE.test(f.getKey()))
+            .distinct()
+            .collect(toImmutableList());
 
     TargetMap oldTargetMap = oldProjectData != null ? oldProjectData.getTargetMap() : null;
     BlazeIdeInterfaceState prevState =
         oldProjectData != null
             ? oldProjectData.getSyncState().get(BlazeIdeInterfaceState.class)
             : null;
+    if (!bundles.isEmpty()) {
+      List<ImmutableList<AspectOutputBundle.Entry>> bundleEntries =
+          readAspectOutputBundles(
+              context,
+              bundles,
+              projectState.getBlazeInfo().getExecutionRoot(),
+              files,
+              prevState);
+      if (bundleEntries == null) {
+        return oldTargetMap;
+      }
+      int individualFiles = files.size();
+      files = mergeBundledFiles(files, bundleEntries);
+      context.output(
+          PrintOutput.log(
+              String.format(
+                  "Read %d aspect output bundles, containing %d files",
+                  bundles.size(), files.size() - individualFiles)));
+    }
     ArtifactsDiff diff;
     try {
       diff =
@@ -253,6 +282,71 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
     return targetMapReference.get();
   }
 
+  /**
+   * Reads the ide info files out of the given aspect output bundles, loading the contents of only
+   * those which are new or have changed since the previous sync, and which weren't also output
+   * individually. Files appearing in more than one bundle are only read once.
+   *
+   * <p>Returns null if the bundles couldn't be read.
+   */
+  @Nullable
+  private static List<ImmutableList<AspectOutputBundle.Entry>> readAspectOutputBundles(
+      BlazeContext context,
+      List<OutputArtifact> bundles,
+      File executionRoot,
+      Collection<OutputArtifact> individualFiles,
+      @Nullable BlazeIdeInterfaceState prevState) {
+    ImmutableMap<String, ArtifactState> oldState =
+        prevState != null ? prevState.ideInfoFileState : ImmutableMap.of();
+    long syncStartTimeMillis = System.currentTimeMillis();
+    Set<String> loaded = Sets.newConcurrentHashSet();
+    // individually output files are read directly, rather than from a bundle
+    individualFiles.forEach(f -> loaded.add(f.getKey()));
+    Predicate<ArtifactState> loadContents =
+        state -> {
+          ArtifactState old = oldState.get(state.getKey());
+          return (old == null || old.isMoreRecent(state)) && loaded.add(state.getKey());
+        };
+    List<ListenableFuture<ImmutableList<AspectOutputBundle.Entry>>> futures = new ArrayList<>();
+    for (OutputArtifact bundle : bundles) {
+      futures.add(
+          FetchExecutor.EXECUTOR.submit(
+              () ->
+                  AspectOutputBundle.read(
+                      bundle, executionRoot, syncStartTimeMillis, loadContents)));
+    }
+    FutureResult<List<ImmutableList<AspectOutputBundle.Entry>>> result =
+        FutureUtil.waitForFuture(context, Futures.allAsList(futures))
+            .timed("ReadAspectOutputBundles", EventType.Prefetching)
+            .withProgressMessage("Reading IDE info bundles...")
+            .onError("Failed to read aspect output bundles")
+            .run();
+    return result.success() ? result.result() : null;
+  }
+
+  /**
+   * Combines the individually output ide info files with those read from bundles, keeping a single
+   * artifact per file key. A file can appear in several bundles, and also be output individually;
+   * the individual output is preferred, then the bundled copy whose contents were loaded.
+   */
+  @VisibleForTesting
+  static ImmutableList<OutputArtifact> mergeBundledFiles(
+      Collection<OutputArtifact> individualFiles,
+      List<? extends List<AspectOutputBundle.Entry>> bundleEntries) {
+    Map<String, OutputArtifact> files = new LinkedHashMap<>();
+    individualFiles.forEach(f -> files.put(f.getKey(), f));
+    for (List<AspectOutputBundle.Entry> entries : bundleEntries) {
+      for (AspectOutputBundle.Entry entry : entries) {
+        OutputArtifact existing = files.putIfAbsent(entry.getKey(), entry);
+        if (existing instanceof AspectOutputBundle.Entry
+            && !((AspectOutputBundle.Entry) existing).hasContents()) {
+          files.put(entry.getKey(), entry);
+        }
+      }
+    }
+    return ImmutableList.copyOf(files.values());
+  }
+
   private static BlazeBuildOutputs runBlazeBuild(
       Project project,
       BlazeContext context,
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects.strategy;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.protobuf.repackaged.ByteString;
+import com.google.protobuf.repackaged.Descriptors.Descriptor;
+import com.google.protobuf.repackaged.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.repackaged.Descriptors.FieldDescriptor;
+import com.google.protobuf.repackaged.Message;
+import java.io.IOException;
+import java.io.Reader;
+import javax.annotation.Nullable;
+
+/**
+ * Parses the JSON-encoded aspect output (written via starlark's struct.to_json) into a proto
+ * builder.
+ *
+ * <p>Fields are matched by their proto field names, as for the text format. Unknown fields and
+ * nulls are skipped, enums are accepted by either number or name, and map fields can be given
+ * either as a JSON object or as a list of key/value entries.
+ */
+final class AspectJsonFormat {
+
+  private AspectJsonFormat() {}
+
+  /** Merges the JSON object read from {@code reader} into {@code builder}. */
+  static void merge(Reader reader, Message.Builder builder) throws IOException {
+    JsonReader json = new JsonReader(reader);
+    mergeObject(json, builder);
+  }
+
+  private static void mergeObject(JsonReader json, Message.Builder builder) throws IOException {
+    Descriptor descriptor = builder.getDescriptorForType();
+    json.beginObject();
+    while (json.hasNext()) {
+      FieldDescriptor field = descriptor.findFieldByName(json.nextName());
+      if (field == null || json.peek() == JsonToken.NULL) {
+        json.skipValue();
+        continue;
+      }
+      if (field.isMapField() && json.peek() == JsonToken.BEGIN_OBJECT) {
+        mergeMapObject(json, builder, field);
+      } else if (field.isRepeated()) {
+        json.beginArray();
+        while (json.hasNext()) {
+          if (json.peek() == JsonToken.NULL) {
+            json.skipValue();
+            continue;
+          }
+          Object value = readValue(json, builder, field);
+          if (value != null) {
+            builder.addRepeatedField(field, value);
+          }
+        }
+        json.endArray();
+      } else {
+        Object value = readValue(json, builder, field);
+        if (value != null) {
+          builder.setField(field, value);
+        }
+      }
+    }
+    json.endObject();
+  }
+
+  /** Reads a map field encoded as a JSON object, e.g. {"key": "value"}. */
+  private static void mergeMapObject(
+      JsonReader json, Message.Builder builder, FieldDescriptor field) throws IOException {
+    Descriptor entryType = field.getMessageType();
+    FieldDescriptor keyField = entryType.findFieldByName("key");
+    FieldDescriptor valueField = entryType.findFieldByName("value");
+    json.beginObject();
+    while (json.hasNext()) {
+      Message.Builder entry = builder.newBuilderForField(field);
+      entry.setField(keyField, json.nextName());
+      if (json.peek() == JsonToken.NULL) {
+        json.skipValue();
+        continue;
+      }
+      Object value = readValue(json, entry, valueField);
+      if (value != null) {
+        entry.setField(valueField, value);
+        builder.addRepeatedField(field, entry.build());
+      }
+    }
+    json.endObject();
+  }
+
+  /** Returns the value of a single (non-repeated) element, or null if it should be ignored. */
+  @Nullable
+  private static Object readValue(JsonReader json, Message.Builder builder, FieldDescriptor field)
+      throws IOException {
+    switch (field.getJavaType()) {
+      case MESSAGE:
+        Message.Builder child = builder.newBuilderForField(field);
+        mergeObject(json, child);
+        return child.build();
+      case ENUM:
+        EnumValueDescriptor value =
+            json.peek() == JsonToken.NUMBER
+                ? field.getEnumType().findValueByNumber(json.nextInt())
+                : field.getEnumType().findValueByName(json.nextString());
+        // unrecognized enum values are ignored, as they are for unknown fields
+        return value;
+      case BOOLEAN:
+        return json.nextBoolean();
+      case INT:
+        return json.nextInt();
+      case LONG:
+        return json.nextLong();
+      case FLOAT:
+        return (float) json.nextDouble();
+      case DOUBLE:
+        return json.nextDouble();
+      case STRING:
+        return json.nextString();
+      case BYTE_STRING:
+        return ByteString.copyFromUtf8(json.nextString());
+    }
+    json.skipValue();
+    return null;
+  }
+}
@@ -18,6 +18,7 @@ package com.google.idea.blaze.base.sync.aspects.strategy;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
@@ -28,9 +29,11 @@ import com.google.idea.blaze.base.settings.BuildSystem;
 import com.google.idea.blaze.base.util.BuildSystemExtensionPoint;
 import com.google.protobuf.repackaged.TextFormat;
 import com.intellij.openapi.extensions.ExtensionPointName;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -46,6 +49,12 @@ public abstract class AspectStrategy implements BuildSystemExtensionPoint {
   public static final Predicate<String> ASPECT_OUTPUT_FILE_PREDICATE =
       str -> str.endsWith(".intellij-info.txt");
 
+  /** Matches bundles of aspect output files, see {@code build_ide_info_bundles} in the aspect. */
+  public static final Predicate<String> ASPECT_OUTPUT_BUNDLE_PREDICATE =
+      str -> str.endsWith(".intellij-info-bundle");
+
+  private static final int MAX_LEADING_WHITESPACE = 64;
+
   /** A Blaze output group created by the aspect. */
   public enum OutputGroup {
     INFO("intellij-info-"),
@@ -112,13 +121,48 @@ public abstract class AspectStrategy implements BuildSystemExtensionPoint {
     return ImmutableList.copyOf(outputGroups);
   }
 
+  /**
+   * Parses an aspect output file. Both the text proto format and the more compact JSON format are
+   * supported, so files written by older aspects remain readable.
+   */
   public final IntellijIdeInfo.TargetIdeInfo readAspectFile(OutputArtifact file)
       throws IOException {
     try (InputStream inputStream = file.getInputStream()) {
-      IntellijIdeInfo.TargetIdeInfo.Builder builder = IntellijIdeInfo.TargetIdeInfo.newBuilder();
+      return parseAspectOutput(inputStream);
+    }
+  }
+
+  @VisibleForTesting
+  static IntellijIdeInfo.TargetIdeInfo parseAspectOutput(InputStream inputStream)
+      throws IOException {
+    BufferedInputStream in =
+        inputStream instanceof BufferedInputStream
+            ? (BufferedInputStream) inputStream
+            : new BufferedInputStream(inputStream);
+    IntellijIdeInfo.TargetIdeInfo.Builder builder = IntellijIdeInfo.TargetIdeInfo.newBuilder();
+    Reader reader = new InputStreamReader(in, UTF_8);
+    if (isJson(in)) {
+      AspectJsonFormat.merge(reader, builder);
+    } else {
       TextFormat.Parser parser = TextFormat.Parser.newBuilder().setAllowUnknownFields(true).build();
-      parser.merge(new InputStreamReader(inputStream, UTF_8), builder);
-      return builder.build();
+      parser.merge(reader, builder);
+    }
+    return builder.build();
+  }
+
+  /** Peeks at the first non-whitespace character: a JSON object starts with '{'. */
+  private static boolean isJson(BufferedInputStream in) throws IOException {
+    in.mark(MAX_LEADING_WHITESPACE);
+    try {
+      for (int i = 0; i < MAX_LEADING_WHITESPACE; i++) {
+        int c = in.read();
+        if (c == -1 || !Character.isWhitespace(c)) {
+          return c == '{';
+        }
+      }
+      return false;
+    } finally {
+      in.reset();
     }
   }
 }
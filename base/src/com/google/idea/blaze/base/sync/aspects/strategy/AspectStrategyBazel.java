@@ -18,6 +18,7 @@ package com.google.idea.blaze.base.sync.aspects.strategy;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.idea.blaze.base.settings.BuildSystem;
+import com.google.idea.common.experiments.BoolExperiment;
 import com.intellij.ide.plugins.IdeaPluginDescriptor;
 import com.intellij.ide.plugins.PluginManager;
 import java.io.File;
@@ -25,6 +26,18 @@ import java.util.List;
 
 class AspectStrategyBazel extends AspectStrategy {
 
+  /** Whether the aspect should write its per-target output in the more compact JSON format. */
+  private static final BoolExperiment useJsonAspectOutput =
+      new BoolExperiment("blaze.sync.aspect.json.output", false);
+
+  /**
+   * Whether the aspect should return a single bundle of the transitive ide info files per output
+   * group, rather than the individual files. Other outputs in the ide info output groups (e.g. java
+   * package manifests) aren't reported in this mode, so it's only suitable for local outputs.
+   */
+  private static final BoolExperiment bundleAspectOutput =
+      new BoolExperiment("blaze.sync.aspect.bundle.output", false);
+
   private AspectStrategyBazel() {}
 
   @Override
@@ -34,8 +47,13 @@ class AspectStrategyBazel extends AspectStrategy {
 
   @Override
   protected List<String> getAspectFlags() {
+    String aspect =
+        "intellij_info"
+            + (useJsonAspectOutput.getValue() ? "_json" : "")
+            + (bundleAspectOutput.getValue() ? "_bundle" : "")
+            + "_aspect";
     return ImmutableList.of(
-        "--aspects=@intellij_aspect//:intellij_info_bundled.bzl%intellij_info_aspect",
+        "--aspects=@intellij_aspect//:intellij_info_bundled.bzl%" + aspect,
         getAspectRepositoryOverrideFlag());
   }
 
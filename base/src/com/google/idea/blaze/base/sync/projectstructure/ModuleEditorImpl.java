@@ -54,6 +54,9 @@ public class ModuleEditorImpl implements BlazeSyncPlugin.ModuleEditor {
   private final ModifiableModuleModel moduleModel;
   private final File imlDirectory;
   @VisibleForTesting public Map<String, ModifiableRootModel> modules = Maps.newHashMap();
+  /** Modules kept from the previous sync without modification. */
+  @VisibleForTesting public Map<String, Module> retainedModules = Maps.newHashMap();
+  private final List<Runnable> afterCommitCallbacks = Lists.newArrayList();
 
   public ModuleEditorImpl(Project project, BlazeImportSettings importSettings) {
     this.project = project;
@@ -97,6 +100,16 @@ public class ModuleEditorImpl implements BlazeSyncPlugin.ModuleEditor {
     return modules.get(module.getName());
   }
 
+  @Override
+  public void retainModule(Module module) {
+    retainedModules.put(module.getName(), module);
+  }
+
+  @Override
+  public void runAfterCommit(Runnable callback) {
+    afterCommitCallbacks.add(callback);
+  }
+
   @Override
   @Nullable
   public Module findModule(String moduleName) {
@@ -106,7 +119,8 @@ public class ModuleEditorImpl implements BlazeSyncPlugin.ModuleEditor {
   public void commitWithGc(BlazeContext context) {
     List<Module> orphanModules = Lists.newArrayList();
     for (Module module : ModuleManager.getInstance(project).getModules()) {
-      if (!modules.containsKey(module.getName())) {
+      if (!modules.containsKey(module.getName())
+          && !retainedModules.containsKey(module.getName())) {
         orphanModules.add(module);
       }
     }
@@ -123,9 +137,14 @@ public class ModuleEditorImpl implements BlazeSyncPlugin.ModuleEditor {
       }
     }
 
-    context.output(PrintOutput.log(String.format("Workspace has %s modules", modules.size())));
+    context.output(
+        PrintOutput.log(
+            String.format(
+                "Workspace has %s modules (%s unchanged)",
+                modules.size() + retainedModules.size(), retainedModules.size())));
 
     commit();
+    afterCommitCallbacks.forEach(Runnable::run);
   }
 
   @Override
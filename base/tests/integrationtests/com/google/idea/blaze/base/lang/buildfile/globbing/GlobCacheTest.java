@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.globbing;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.lang.buildfile.BuildFileIntegrationTestCase;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link GlobCache}. */
+@RunWith(JUnit4.class)
+public class GlobCacheTest extends BuildFileIntegrationTestCase {
+
+  @Test
+  public void testRepeatedGlobIsCached() {
+    VirtualFile packageDir = createPackage("java/com/google");
+    workspace.createFile(new WorkspacePath("java/com/google/Foo.java"));
+
+    List<VirtualFile> first = glob(packageDir, "**/*.java");
+    assertThat(first).hasSize(1);
+    assertThat(glob(packageDir, "**/*.java")).isSameAs(first);
+  }
+
+  @Test
+  public void testSubpackagesNotTraversed() {
+    VirtualFile packageDir = createPackage("java/com/google");
+    VirtualFile foo = workspace.createFile(new WorkspacePath("java/com/google/Foo.java"));
+    VirtualFile bar = workspace.createFile(new WorkspacePath("java/com/google/bar/Bar.java"));
+    createPackage("java/com/google/other");
+    workspace.createFile(new WorkspacePath("java/com/google/other/Other.java"));
+
+    assertThat(glob(packageDir, "**/*.java")).containsExactly(foo, bar).inOrder();
+  }
+
+  @Test
+  public void testFileCreatedInPackageInvalidatesCache() {
+    VirtualFile packageDir = createPackage("java/com/google");
+    VirtualFile foo = workspace.createFile(new WorkspacePath("java/com/google/Foo.java"));
+    assertThat(glob(packageDir, "**/*.java")).containsExactly(foo);
+
+    VirtualFile bar = workspace.createFile(new WorkspacePath("java/com/google/bar/Bar.java"));
+    assertThat(glob(packageDir, "**/*.java")).containsExactly(foo, bar).inOrder();
+  }
+
+  @Test
+  public void testFileDeletedInPackageInvalidatesCache() throws IOException {
+    VirtualFile packageDir = createPackage("java/com/google");
+    VirtualFile foo = workspace.createFile(new WorkspacePath("java/com/google/Foo.java"));
+    VirtualFile bar = workspace.createFile(new WorkspacePath("java/com/google/Bar.java"));
+    assertThat(glob(packageDir, "*.java")).containsExactly(bar, foo).inOrder();
+
+    WriteAction.run(() -> bar.delete(this));
+    assertThat(glob(packageDir, "*.java")).containsExactly(foo);
+  }
+
+  @Test
+  public void testChangesInOtherPackagesDoNotInvalidateCache() {
+    VirtualFile packageDir = createPackage("java/com/google");
+    workspace.createFile(new WorkspacePath("java/com/google/Foo.java"));
+    createPackage("java/com/google/other");
+    List<VirtualFile> first = glob(packageDir, "**/*.java");
+
+    workspace.createFile(new WorkspacePath("java/com/google/other/Other.java"));
+    workspace.createFile(new WorkspacePath("javatests/com/google/FooTest.java"));
+    assertThat(glob(packageDir, "**/*.java")).isSameAs(first);
+  }
+
+  @Test
+  public void testBuildFileCreatedInSubdirectoryInvalidatesEnclosingPackage() {
+    VirtualFile packageDir = createPackage("java/com/google");
+    VirtualFile foo = workspace.createFile(new WorkspacePath("java/com/google/Foo.java"));
+    VirtualFile bar = workspace.createFile(new WorkspacePath("java/com/google/bar/Bar.java"));
+    assertThat(glob(packageDir, "**/*.java")).containsExactly(foo, bar).inOrder();
+
+    createPackage("java/com/google/bar");
+    assertThat(glob(packageDir, "**/*.java")).containsExactly(foo);
+  }
+
+  @Test
+  public void testBuildFileDeletedInSubpackageInvalidatesEnclosingPackage() throws IOException {
+    VirtualFile packageDir = createPackage("java/com/google");
+    VirtualFile foo = workspace.createFile(new WorkspacePath("java/com/google/Foo.java"));
+    VirtualFile subpackage = createPackage("java/com/google/bar");
+    VirtualFile bar = workspace.createFile(new WorkspacePath("java/com/google/bar/Bar.java"));
+    assertThat(glob(packageDir, "**/*.java")).containsExactly(foo);
+
+    VirtualFile buildFile = subpackage.findChild("BUILD");
+    WriteAction.run(() -> buildFile.delete(this));
+    assertThat(glob(packageDir, "**/*.java")).containsExactly(foo, bar).inOrder();
+  }
+
+  @Test
+  public void testGlobOutsideWorkspaceIsNotCached() {
+    VirtualFile packageDir = fileSystem.createDirectory("external/repo/pkg");
+    fileSystem.createFile("external/repo/pkg/BUILD");
+    VirtualFile foo = fileSystem.createFile("external/repo/pkg/Foo.java");
+    assertThat(glob(packageDir, "*.java")).containsExactly(foo);
+
+    VirtualFile bar = fileSystem.createFile("external/repo/pkg/Bar.java");
+    assertThat(glob(packageDir, "*.java")).containsExactly(bar, foo).inOrder();
+  }
+
+  private VirtualFile createPackage(String path) {
+    return createBuildFile(new WorkspacePath(path + "/BUILD")).getVirtualFile().getParent();
+  }
+
+  private List<VirtualFile> glob(VirtualFile packageDir, String include) {
+    return GlobCache.getInstance(getProject())
+        .glob(packageDir, ImmutableList.of(include), ImmutableList.of(), true);
+  }
+}
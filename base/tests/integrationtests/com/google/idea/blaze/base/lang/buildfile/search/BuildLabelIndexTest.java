@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.idea.blaze.base.lang.buildfile.BuildFileIntegrationTestCase;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BuildLabelIndex}. */
+@RunWith(JUnit4.class)
+public class BuildLabelIndexTest extends BuildFileIntegrationTestCase {
+
+  @Test
+  public void testNormalize() {
+    assertThat(BuildLabelIndex.normalize("//java/com/google:lib"))
+        .isEqualTo("//java/com/google:lib");
+    assertThat(BuildLabelIndex.normalize("@//java/com/google:lib"))
+        .isEqualTo("//java/com/google:lib");
+    assertThat(BuildLabelIndex.normalize("//java/com/google"))
+        .isEqualTo("//java/com/google:google");
+    assertThat(BuildLabelIndex.normalize("@repo//foo")).isEqualTo("@repo//foo:foo");
+    assertThat(BuildLabelIndex.normalize("@repo")).isEqualTo("@repo//:repo");
+    assertThat(BuildLabelIndex.normalize(":lib")).isEqualTo(":lib");
+    assertThat(BuildLabelIndex.normalize("lib")).isEqualTo(":lib");
+    assertThat(BuildLabelIndex.normalize("//")).isNull();
+    assertThat(BuildLabelIndex.normalize("")).isNull();
+  }
+
+  @Test
+  public void testAllSpellingsShareKey() {
+    VirtualFile file =
+        workspace.createFile(
+            new WorkspacePath("java/com/google/BUILD"),
+            "java_library(",
+            "    name = 'google',",
+            "    deps = ['//java/com/google', '//java/com/google:google', ':google'],",
+            ")");
+
+    List<List<Integer>> absolute =
+        FileBasedIndex.getInstance()
+            .getValues(
+                BuildLabelIndex.NAME,
+                "//java/com/google:google",
+                GlobalSearchScope.fileScope(getProject(), file));
+    assertThat(absolute).hasSize(1);
+    assertThat(absolute.get(0)).hasSize(2);
+
+    List<List<Integer>> local =
+        FileBasedIndex.getInstance()
+            .getValues(
+                BuildLabelIndex.NAME, ":google", GlobalSearchScope.fileScope(getProject(), file));
+    assertThat(local).hasSize(1);
+    // the 'name' value is indexed too, it's up to callers to confirm references
+    assertThat(local.get(0)).hasSize(2);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.stubs;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.Iterables;
+import com.google.idea.blaze.base.lang.buildfile.BuildFileIntegrationTestCase;
+import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
+import com.google.idea.blaze.base.lang.buildfile.psi.FuncallExpression;
+import com.google.idea.blaze.base.lang.buildfile.psi.FunctionStatement;
+import com.google.idea.blaze.base.lang.buildfile.psi.LoadedSymbol;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.intellij.psi.search.GlobalSearchScope;
+import java.util.Collection;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the BUILD file stub tree and stub indices. */
+@RunWith(JUnit4.class)
+public class BuildFileStubIndexTest extends BuildFileIntegrationTestCase {
+
+  @Test
+  public void testTopLevelRulesAreIndexed() {
+    BuildFile buildFile =
+        createBuildFile(
+            new WorkspacePath("java/com/google/BUILD"),
+            "java_library(name = 'lib', srcs = ['Lib.java'])");
+    createBuildFile(
+        new WorkspacePath("java/com/google/build_defs.bzl"),
+        "def macro():",
+        "    native.java_library(name = 'nested')");
+
+    Collection<FuncallExpression> rules =
+        BuildRuleNameIndex.find(getProject(), "lib", GlobalSearchScope.allScope(getProject()));
+    assertThat(rules).hasSize(1);
+    FuncallExpression rule = Iterables.getOnlyElement(rules);
+    assertThat(rule.getContainingFile()).isEqualTo(buildFile);
+    assertThat(rule.getFunctionName()).isEqualTo("java_library");
+    assertThat(rule.isTopLevel()).isTrue();
+
+    assertThat(
+            BuildRuleNameIndex.find(
+                getProject(), "nested", GlobalSearchScope.allScope(getProject())))
+        .isEmpty();
+  }
+
+  @Test
+  public void testFunctionDeclarationsAreIndexed() {
+    BuildFile extFile =
+        createBuildFile(
+            new WorkspacePath("java/com/google/build_defs.bzl"),
+            "def function(name, deps):",
+            "    pass");
+
+    Collection<FunctionStatement> functions =
+        BuildFunctionNameIndex.find(
+            getProject(), "function", GlobalSearchScope.allScope(getProject()));
+    assertThat(functions).containsExactly(extFile.findDeclaredFunction("function"));
+  }
+
+  @Test
+  public void testLoadedSymbolsIndexedByImportedName() {
+    createBuildFile(
+        new WorkspacePath("java/com/google/build_defs.bzl"),
+        "def function(name, deps):",
+        "    pass",
+        "def other_function(name):",
+        "    pass");
+    createBuildFile(
+        new WorkspacePath("java/com/google/BUILD"),
+        "load(':build_defs.bzl', 'function', alias = 'other_function')");
+
+    GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+    assertThat(BuildLoadedSymbolIndex.find(getProject(), "function", scope)).hasSize(1);
+    Collection<LoadedSymbol> aliased =
+        BuildLoadedSymbolIndex.find(getProject(), "other_function", scope);
+    assertThat(aliased).hasSize(1);
+    assertThat(Iterables.getOnlyElement(aliased).getSymbolString()).isEqualTo("alias");
+    assertThat(BuildLoadedSymbolIndex.find(getProject(), "alias", scope)).isEmpty();
+  }
+
+  @Test
+  public void testFindLoadedFunction() {
+    BuildFile extFile =
+        createBuildFile(
+            new WorkspacePath("java/com/google/build_defs.bzl"),
+            "def function(name, deps):",
+            "    pass");
+    BuildFile buildFile =
+        createBuildFile(
+            new WorkspacePath("java/com/google/BUILD"),
+            "load(':build_defs.bzl', 'function')",
+            "function(name = 'foo')");
+
+    assertThat(buildFile.getLoadStatements()).hasLength(1);
+    assertThat(buildFile.getLoadStatements()[0].getImportedPath()).isEqualTo(":build_defs.bzl");
+    assertThat(buildFile.findLoadedFunction("function"))
+        .isEqualTo(extFile.findDeclaredFunction("function"));
+    assertThat(buildFile.findRule("foo")).isNotNull();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.async.process;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Strings;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link LineProcessingOutputStream}. */
+@RunWith(JUnit4.class)
+public class LineProcessingOutputStreamTest {
+
+  private final List<String> lines = new ArrayList<>();
+  private final LineProcessingOutputStream stream =
+      LineProcessingOutputStream.of(
+          line -> {
+            lines.add(line);
+            return true;
+          });
+
+  @Test
+  public void testLineBreaks() throws IOException {
+    write("one\ntwo\r\nthree\rfour\n\nincomplete");
+    assertThat(lines).containsExactly("one", "two", "three", "four", "").inOrder();
+  }
+
+  @Test
+  public void testLinesSplitAcrossWrites() throws IOException {
+    write("partial ");
+    write("line");
+    assertThat(lines).isEmpty();
+    write(" complete\nnext");
+    write("\n");
+    assertThat(lines).containsExactly("partial line complete", "next").inOrder();
+  }
+
+  @Test
+  public void testCarriageReturnLineFeedSplitAcrossWrites() throws IOException {
+    write("first\r");
+    write("\nsecond\r");
+    write("third\n");
+    assertThat(lines).containsExactly("first", "second", "third").inOrder();
+  }
+
+  @Test
+  public void testMultiByteCharactersSplitAcrossWrites() throws IOException {
+    byte[] bytes = "caf\u00e9 \u4e16\u754c \ud83d\ude00\n".getBytes(UTF_8);
+    for (byte b : bytes) {
+      stream.write(b);
+    }
+    assertThat(lines).containsExactly("caf\u00e9 \u4e16\u754c \ud83d\ude00");
+  }
+
+  @Test
+  public void testLongLines() throws IOException {
+    String longLine = Strings.repeat("0123456789", 10000);
+    for (int i = 0; i < longLine.length(); i += 100) {
+      write(longLine.substring(i, i + 100));
+    }
+    write("\nshort\n" + longLine + "\n");
+    assertThat(lines).containsExactly(longLine, "short", longLine).inOrder();
+  }
+
+  @Test
+  public void testProcessingStopsWhenProcessorReturnsFalse() throws IOException {
+    List<String> secondProcessorLines = new ArrayList<>();
+    LineProcessingOutputStream stream =
+        LineProcessingOutputStream.of(
+            line -> !line.startsWith("stop"),
+            line -> {
+              secondProcessorLines.add(line);
+              return true;
+            });
+    stream.write("go\nstop\ngo again\n".getBytes(UTF_8));
+    assertThat(secondProcessorLines).containsExactly("go", "go again").inOrder();
+  }
+
+  @Test
+  public void testNoOutputAfterClose() throws IOException {
+    write("before\n");
+    stream.close();
+    write("after\n");
+    assertThat(lines).containsExactly("before");
+  }
+
+  private void write(String text) throws IOException {
+    stream.write(text.getBytes(UTF_8));
+  }
+}
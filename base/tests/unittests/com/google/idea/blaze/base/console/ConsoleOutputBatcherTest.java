@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.console;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import com.google.common.base.Strings;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.intellij.execution.filters.Filter;
+import com.intellij.execution.filters.HyperlinkInfo;
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+/** Unit tests for {@link ConsoleOutputBatcher}. */
+@RunWith(JUnit4.class)
+public class ConsoleOutputBatcherTest extends BlazeTestCase {
+
+  private final ConsoleView consoleView = mock(ConsoleView.class);
+  private final List<String> filteredLines = new ArrayList<>();
+  private final PrecomputedFilter filter =
+      new PrecomputedFilter(
+          (line, entireLength) -> {
+            filteredLines.add(line);
+            if (!line.startsWith("ERROR")) {
+              return null;
+            }
+            int offset = entireLength - line.length();
+            return new Filter.Result(offset, offset + "ERROR".length(), null);
+          });
+  // flushes are triggered manually
+  private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+  private final ConsoleOutputBatcher batcher =
+      new ConsoleOutputBatcher(consoleView, filter, scheduler);
+
+  @Test
+  public void testOutputIsBatched() {
+    batcher.print("a", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.print("b\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.print("c\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.flush();
+
+    verify(consoleView).print("ab\nc\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    verifyNoMoreInteractions(consoleView);
+  }
+
+  @Test
+  public void testOutputOrderIsPreserved() {
+    HyperlinkInfo link = project -> {};
+    batcher.print("out\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.print("err\n", ConsoleViewContentType.ERROR_OUTPUT);
+    batcher.printHyperlink("link", link);
+    batcher.print("\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.flush();
+
+    InOrder inOrder = inOrder(consoleView);
+    inOrder.verify(consoleView).print("out\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    inOrder.verify(consoleView).print("err\n", ConsoleViewContentType.ERROR_OUTPUT);
+    inOrder.verify(consoleView).printHyperlink("link", link);
+    inOrder.verify(consoleView).print("\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    verifyNoMoreInteractions(consoleView);
+  }
+
+  @Test
+  public void testOnlyTailOfLargeBatchIsPrinted() throws IOException {
+    String line = Strings.repeat("x", 99) + "\n";
+    int lineCount = 2 * ConsoleOutputBatcher.MAX_BATCH_CHARS / line.length();
+    batcher.print("ERROR: first line\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    for (int i = 0; i < lineCount; i++) {
+      batcher.print(line, ConsoleViewContentType.NORMAL_OUTPUT);
+    }
+    batcher.flush();
+
+    ArgumentCaptor<String> omitted = ArgumentCaptor.forClass(String.class);
+    verify(consoleView).print(omitted.capture(), eq(ConsoleViewContentType.SYSTEM_OUTPUT));
+    ArgumentCaptor<String> printed = ArgumentCaptor.forClass(String.class);
+    verify(consoleView).print(printed.capture(), eq(ConsoleViewContentType.NORMAL_OUTPUT));
+
+    int printedLines = printed.getValue().length() / line.length();
+    assertThat(printed.getValue()).isEqualTo(Strings.repeat(line, printedLines));
+    assertThat(printed.getValue().length()).isAtMost(ConsoleOutputBatcher.MAX_BATCH_CHARS);
+    int omittedLines = lineCount + 1 - printedLines;
+    assertThat(omitted.getValue())
+        .isEqualTo(String.format(ConsoleOutputBatcher.OMITTED_LINES_MESSAGE, omittedLines));
+    // omitted lines are still filtered, and in the full log
+    assertThat(filteredLines).hasSize(lineCount + 1);
+    assertThat(filteredLines.get(0)).isEqualTo("ERROR: first line\n");
+    File fullLog = batcher.getFullLog();
+    assertThat(fullLog).isNotNull();
+    assertThat(new String(Files.readAllBytes(fullLog.toPath()), UTF_8))
+        .isEqualTo("ERROR: first line\n" + Strings.repeat(line, lineCount));
+  }
+
+  @Test
+  public void testFilterResultsArePrecomputed() {
+    batcher.print("ERROR: something", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.flush();
+    assertThat(filteredLines).isEmpty();
+
+    batcher.print(" failed\nfine\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.flush();
+    assertThat(filteredLines).containsExactly("ERROR: something failed\n", "fine\n").inOrder();
+
+    Filter.Result result = filter.applyFilter("ERROR: something failed\n", 124);
+    assertThat(result).isNotNull();
+    assertThat(result.getResultItems()).hasSize(1);
+    assertThat(result.getResultItems().get(0).getHighlightStartOffset()).isEqualTo(100);
+    assertThat(result.getResultItems().get(0).getHighlightEndOffset()).isEqualTo(105);
+    assertThat(filter.applyFilter("fine\n", 129)).isNull();
+    // the filter itself wasn't run again
+    assertThat(filteredLines).hasSize(2);
+
+    // lines which weren't precomputed are filtered on demand
+    assertThat(filter.applyFilter("ERROR: unexpected\n", 18)).isNotNull();
+    assertThat(filteredLines).hasSize(3);
+  }
+
+  @Test
+  public void testSkippedResultsAreKept() {
+    batcher.print("ERROR: skipped\nshown\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.flush();
+    assertThat(filteredLines).hasSize(2);
+
+    // the console skips the first line, then asks for it later
+    assertThat(filter.applyFilter("shown\n", 6)).isNull();
+    assertThat(filter.applyFilter("ERROR: skipped\n", 15)).isNotNull();
+    assertThat(filteredLines).hasSize(2);
+
+    // each result is only used once, after that the line is filtered on demand
+    assertThat(filter.applyFilter("ERROR: skipped\n", 15)).isNotNull();
+    assertThat(filteredLines).hasSize(3);
+  }
+
+  @Test
+  public void testDisposeDeletesFullLog() {
+    batcher.print("output\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    File fullLog = batcher.getFullLog();
+    assertThat(fullLog).isNotNull();
+    assertThat(fullLog.exists()).isTrue();
+
+    batcher.dispose();
+    assertThat(fullLog.exists()).isFalse();
+    batcher.print("more output\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    assertThat(batcher.getFullLog()).isNull();
+  }
+
+  @Test
+  public void testDisposeCancelsScheduledFlush() {
+    ScheduledFuture<?> scheduledFlush = mock(ScheduledFuture.class);
+    doReturn(scheduledFlush)
+        .when(scheduler)
+        .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    batcher.print("output\n", ConsoleViewContentType.NORMAL_OUTPUT);
+
+    batcher.dispose();
+    verify(scheduledFlush).cancel(false);
+    batcher.flush();
+    verifyNoMoreInteractions(consoleView);
+  }
+
+  @Test
+  public void testClearDiscardsPendingOutput() {
+    batcher.print("stale output\n", ConsoleViewContentType.NORMAL_OUTPUT);
+    batcher.clear();
+    batcher.flush();
+
+    verify(consoleView).clear();
+    verify(consoleView, never()).print(anyString(), eq(ConsoleViewContentType.NORMAL_OUTPUT));
+    assertThat(batcher.getFullLog()).isNull();
+    assertThat(filteredLines).isEmpty();
+  }
+}
@@ -15,12 +15,14 @@
  */
 package com.google.idea.blaze.base.issueparser;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
 import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.issueparser.BlazeIssueParser.ParseResult;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.MockBlazeProjectDataBuilder;
 import com.google.idea.blaze.base.model.MockBlazeProjectDataManager;
@@ -40,6 +42,8 @@ import com.google.idea.common.experiments.ExperimentService;
 import com.google.idea.common.experiments.MockExperimentService;
 import com.intellij.openapi.util.TextRange;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -451,6 +455,63 @@ public class BlazeIssueParserTest extends BlazeTestCase {
     assertThat(issue).isNull();
   }
 
+  @Test
+  public void testParserSkippedWhenPrefilterRejectsLine() {
+    List<String> parsedLines = new ArrayList<>();
+    BlazeIssueParser.Parser parser =
+        new BlazeIssueParser.Parser() {
+          @Override
+          public ParseResult parse(String currentLine, List<String> previousLines) {
+            parsedLines.add(currentLine);
+            return ParseResult.NO_RESULT;
+          }
+
+          @Override
+          public boolean mightMatch(String line) {
+            return line.startsWith("TEST");
+          }
+        };
+    BlazeIssueParser blazeIssueParser = new BlazeIssueParser(ImmutableList.of(parser));
+    blazeIssueParser.parseIssue("INFO: Analyzed 12 targets");
+    blazeIssueParser.parseIssue("TEST line");
+    assertThat(parsedLines).containsExactly("TEST line");
+  }
+
+  @Test
+  public void testPrefiltersDontChangeParsedIssues() {
+    ImmutableList<String> lines =
+        ImmutableList.of(
+            "INFO: Analyzed 12 targets (0 packages loaded, 0 targets configured).",
+            "java/com/google/Foo.java:12: error: cannot find symbol",
+            "java/com/google/Foo.java:12:7: warning: [deprecation] foo() has been deprecated",
+            "ERROR: /home/plumpy/whatever/BUILD:2:1: no such package",
+            "ERROR: /home/plumpy/whatever/defs.bzl:2:1: name 'x' is not defined",
+            "ERROR: /home/plumpy/whatever:char offsets 1222--1229: name 'x' is not defined",
+            "ERROR: invalid target format '//a/...:b': invalid package name",
+            "ERROR: no such target '//package/path:hello4': target 'hello4' not declared in"
+                + " package 'package/path' defined by /path/to/BUILD",
+            "ERROR: //foo/bar:unit_tests: Exit 1.",
+            "ERROR: something unexpected happened");
+    BlazeIssueParser prefiltered = new BlazeIssueParser(parsers);
+    BlazeIssueParser unfiltered =
+        new BlazeIssueParser(
+            parsers.stream()
+                .map(parser -> (BlazeIssueParser.Parser) parser::parse)
+                .collect(toImmutableList()));
+    for (String line : lines) {
+      IssueOutput expected = unfiltered.parseIssue(line);
+      IssueOutput actual = prefiltered.parseIssue(line);
+      if (expected == null) {
+        assertThat(actual).isNull();
+      } else {
+        assertThat(actual).isNotNull();
+        assertThat(actual.getMessage()).isEqualTo(expected.getMessage());
+        assertThat(actual.getFile()).isEqualTo(expected.getFile());
+        assertThat(actual.getLine()).isEqualTo(expected.getLine());
+      }
+    }
+  }
+
   /** Simple Parser for testing */
   private static class TestParser extends BlazeIssueParser.SingleLineParser {
 
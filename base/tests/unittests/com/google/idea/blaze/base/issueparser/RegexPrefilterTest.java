@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.issueparser;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.function.Predicate;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RegexPrefilter}. */
+@RunWith(JUnit4.class)
+public class RegexPrefilterTest {
+
+  @Test
+  public void testAnchoredRegexRequiresPrefix() {
+    Predicate<String> prefilter = RegexPrefilter.forRegex("^ERROR: (.*)$");
+    assertThat(prefilter.test("ERROR: something failed")).isTrue();
+    assertThat(prefilter.test("INFO: ERROR: something failed")).isFalse();
+  }
+
+  @Test
+  public void testUnanchoredRegexRequiresLiteral() {
+    Predicate<String> prefilter = RegexPrefilter.forRegex("no targets found beneath '(.*?)'");
+    assertThat(prefilter.test("ERROR: no targets found beneath 'foo/bar'")).isTrue();
+    assertThat(prefilter.test("INFO: Found 12 targets...")).isFalse();
+  }
+
+  @Test
+  public void testQuantifiedCharacterIsExcluded() {
+    Predicate<String> prefilter = RegexPrefilter.forRegex("errors? found");
+    assertThat(prefilter.test("error found")).isTrue();
+    assertThat(prefilter.test("errors found")).isTrue();
+  }
+
+  @Test
+  public void testAlternationInsideGroupKeepsPrefix() {
+    Predicate<String> prefilter = RegexPrefilter.forRegex("^ERROR: (?:(a)|(b))$");
+    assertThat(prefilter.test("ERROR: b")).isTrue();
+    assertThat(prefilter.test("WARNING: b")).isFalse();
+  }
+
+  @Test
+  public void testNonTrivialRegexesAcceptEverything() {
+    assertThat(RegexPrefilter.forRegex("abc|xyz").test("xyz")).isTrue();
+    assertThat(RegexPrefilter.forRegex("\\Qa.b\\E").test("a.b")).isTrue();
+    assertThat(RegexPrefilter.forRegex("^([^:]*):([0-9]+)").test("anything")).isTrue();
+    assertThat(RegexPrefilter.forRegex("(?i)error").test("ERROR")).isTrue();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.globbing;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.lang.buildfile.validation.GlobPatternValidator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link GlobMatcher}. */
+@RunWith(JUnit4.class)
+public class GlobMatcherTest {
+
+  @Test
+  public void testSingleSegmentWildcards() {
+    GlobMatcher matcher = compile(ImmutableList.of("*.java", "Foo*", "B?r*z.txt"));
+    assertThat(matcher.matches("Test.java")).isTrue();
+    assertThat(matcher.matches("FooBar")).isTrue();
+    assertThat(matcher.matches("Bar_baz.txt")).isTrue();
+    assertThat(matcher.matches("Baaz.txt")).isFalse();
+    assertThat(matcher.matches("Test.javax")).isFalse();
+  }
+
+  @Test
+  public void testWildcardsDoNotCrossDirectories() {
+    GlobMatcher matcher = compile(ImmutableList.of("*.java", "src/*"));
+    assertThat(matcher.matches("sub/Test.java")).isFalse();
+    assertThat(matcher.matches("src/Test.java")).isTrue();
+    assertThat(matcher.matches("src/sub/Test.java")).isFalse();
+  }
+
+  @Test
+  public void testRecursiveWildcard() {
+    GlobMatcher matcher = compile(ImmutableList.of("java/**/*.java", "res/**"));
+    assertThat(matcher.matches("java/Test.java")).isTrue();
+    assertThat(matcher.matches("java/a/b/c/Test.java")).isTrue();
+    assertThat(matcher.matches("javatests/Test.java")).isFalse();
+    assertThat(matcher.matches("res")).isTrue();
+    assertThat(matcher.matches("res/values/strings.xml")).isTrue();
+  }
+
+  @Test
+  public void testHiddenFilesMustBeMatchedExplicitly() {
+    GlobMatcher matcher = compile(ImmutableList.of("*.txt", ".*.txt"));
+    assertThat(matcher.matches(".hidden.txt")).isTrue();
+    assertThat(compile(ImmutableList.of("*.txt")).matches(".hidden.txt")).isFalse();
+  }
+
+  @Test
+  public void testExcludes() {
+    GlobMatcher matcher =
+        GlobMatcher.compile(
+            ImmutableList.of("**/*.java"), ImmutableList.of("**/*Test.java", "gen/Foo.java"));
+    assertThat(matcher.matches("Foo.java")).isTrue();
+    assertThat(matcher.matches("sub/FooTest.java")).isFalse();
+    assertThat(matcher.matches("gen/Foo.java")).isFalse();
+    assertThat(matcher.matches("gen/Bar.java")).isTrue();
+  }
+
+  @Test
+  public void testMatchesDirectlyOnlyConsidersLiteralIncludes() {
+    GlobMatcher matcher =
+        GlobMatcher.compile(
+            ImmutableList.of("Foo.java", "sub/Bar.java", "*.java"),
+            ImmutableList.of("sub/Bar.java"));
+    assertThat(matcher.matchesDirectly("Foo.java")).isTrue();
+    assertThat(matcher.matchesDirectly("Baz.java")).isFalse();
+    assertThat(matcher.matchesDirectly("sub/Bar.java")).isFalse();
+    assertThat(matcher.matches("Baz.java")).isTrue();
+  }
+
+  @Test
+  public void testPathologicalPatternDoesNotBacktrack() {
+    GlobMatcher matcher = compile(ImmutableList.of("*a*a*a*a*a*a*a*a*a*a*b"));
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      name.append('a');
+    }
+    assertThat(matcher.matches(name.toString())).isFalse();
+    assertThat(matcher.matches(name.append('b').toString())).isTrue();
+  }
+
+  @Test
+  public void testInvalidPatternRejected() {
+    try {
+      compile(ImmutableList.of("foo**"));
+      fail("Expected invalid pattern to be rejected");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testValidatorReportsCompilationErrors() {
+    assertThat(GlobPatternValidator.validate("src/**/*.java")).isNull();
+    assertThat(GlobPatternValidator.validate("foo**"))
+        .isEqualTo("Invalid glob pattern: recursive wildcard must be its own segment");
+    assertThat(GlobPatternValidator.validate("/abs/*.java"))
+        .isEqualTo("Invalid glob pattern: pattern cannot be absolute");
+    assertThat(GlobPatternValidator.validate("a/../b"))
+        .isEqualTo("Invalid glob pattern: segment '..' not permitted");
+    assertThat(GlobPatternValidator.validate("a//b"))
+        .isEqualTo("Invalid glob pattern: empty segment not permitted");
+    assertThat(GlobPatternValidator.validate("{a,b}"))
+        .isEqualTo("Invalid glob pattern: illegal character '{'");
+  }
+
+  private static GlobMatcher compile(ImmutableList<String> includes) {
+    return GlobMatcher.compile(includes, ImmutableList.of());
+  }
+}
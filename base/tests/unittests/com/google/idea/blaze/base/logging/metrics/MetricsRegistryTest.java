@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Counter;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Gauge;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Histogram;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.MetricValue;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link MetricsRegistry}. */
+@RunWith(JUnit4.class)
+public class MetricsRegistryTest {
+
+  @After
+  public void tearDown() {
+    MetricsRegistry.clear();
+  }
+
+  @Test
+  public void testMetricsWithSameNameAreShared() {
+    Counter counter = MetricsRegistry.counter("test.counter");
+    counter.increment();
+    MetricsRegistry.counter("test.counter").add(2);
+    assertThat(counter.get()).isEqualTo(3);
+
+    Gauge gauge = MetricsRegistry.gauge("test.gauge");
+    gauge.increment();
+    gauge.increment();
+    MetricsRegistry.gauge("test.gauge").decrement();
+    assertThat(gauge.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testNameRegisteredWithDifferentTypeThrows() {
+    MetricsRegistry.counter("test.metric");
+    try {
+      MetricsRegistry.histogram("test.metric");
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageThat().contains("counter");
+    }
+  }
+
+  @Test
+  public void testHistogramPercentilesAreUpperBounds() {
+    Histogram histogram = MetricsRegistry.histogram("test.histogram");
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    assertThat(histogram.getCount()).isEqualTo(100);
+    assertThat(histogram.getMean()).isWithin(0.001).of(50.5);
+    assertThat(histogram.getMax()).isEqualTo(100);
+    // 50 falls in the [32, 64) bucket
+    assertThat(histogram.getPercentile(50)).isEqualTo(63);
+    // the highest bucket is capped by the max value
+    assertThat(histogram.getPercentile(99)).isEqualTo(100);
+  }
+
+  @Test
+  public void testEmptyHistogram() {
+    Histogram histogram = MetricsRegistry.histogram("test.histogram");
+    assertThat(histogram.getCount()).isEqualTo(0);
+    assertThat(histogram.getPercentile(50)).isEqualTo(0);
+    assertThat(histogram.getMean()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void testHistogramZeroAndNegativeValues() {
+    Histogram histogram = MetricsRegistry.histogram("test.histogram");
+    histogram.record(0);
+    histogram.record(-5);
+    assertThat(histogram.getCount()).isEqualTo(2);
+    assertThat(histogram.getPercentile(100)).isEqualTo(0);
+  }
+
+  @Test
+  public void testSnapshotSortedByNameWithComputedGauges() {
+    AtomicLong size = new AtomicLong(5);
+    MetricsRegistry.registerGauge("b.size", size::get);
+    MetricsRegistry.counter("a.count").add(1234);
+
+    size.set(7);
+    List<MetricValue> snapshot = MetricsRegistry.snapshot();
+
+    assertThat(snapshot).hasSize(2);
+    assertThat(snapshot.get(0).name).isEqualTo("a.count");
+    assertThat(snapshot.get(0).type).isEqualTo("counter");
+    assertThat(snapshot.get(0).value).isEqualTo("1,234");
+    assertThat(snapshot.get(1).name).isEqualTo("b.size");
+    assertThat(snapshot.get(1).type).isEqualTo("gauge");
+    assertThat(snapshot.get(1).value).isEqualTo("7");
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.trace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Gauge;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Histogram;
+import com.google.idea.blaze.base.logging.trace.ExecutorTaskTracer.TaskSpan;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ExecutorTaskTracer}. */
+@RunWith(JUnit4.class)
+public class ExecutorTaskTracerTest {
+
+  private final ListeningExecutorService executor =
+      MoreExecutors.listeningDecorator(
+          ExecutorTaskTracer.wrap("TestExecutor", Executors.newSingleThreadExecutor()));
+
+  @After
+  public void tearDown() {
+    ExecutorTaskTracer.setEnabled(false);
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testTasksNotRecordedWhenDisabled() throws Exception {
+    ExecutorTaskTracer.setEnabled(false);
+    Instant start = Instant.now();
+    executor.submit(() -> {}).get();
+    awaitTasks();
+
+    assertThat(ExecutorTaskTracer.getSpans(start, Instant.now().plusSeconds(1))).isEmpty();
+  }
+
+  @Test
+  public void testSubmittedTasksRecordedWhenEnabled() throws Exception {
+    ExecutorTaskTracer.setEnabled(true);
+    Instant start = Instant.now();
+    String threadName = executor.submit(() -> Thread.currentThread().getName()).get();
+    executor.submit(() -> {}).get();
+    awaitTasks();
+
+    List<TaskSpan> spans = ExecutorTaskTracer.getSpans(start, Instant.now().plusSeconds(1));
+    assertThat(spans).hasSize(2);
+    assertThat(spans.get(0).executorName).isEqualTo("TestExecutor");
+    assertThat(spans.get(0).threadName).isEqualTo(threadName);
+    assertThat(spans.get(0).startTime).isAtLeast(spans.get(0).queuedTime);
+  }
+
+  @Test
+  public void testSpansOutsideTimeWindowExcluded() throws Exception {
+    ExecutorTaskTracer.setEnabled(true);
+    executor.submit(() -> {}).get();
+    awaitTasks();
+    Instant later = Instant.now().plusSeconds(10);
+
+    assertThat(ExecutorTaskTracer.getSpans(later, later.plusSeconds(1))).isEmpty();
+  }
+
+  @Test
+  public void testExecutorMetricsUpdated() throws Exception {
+    Histogram runTime = MetricsRegistry.histogram("TestExecutor.run_time_ms");
+    long previousCount = runTime.getCount();
+    executor.submit(() -> {}).get();
+    executor.submit(() -> {}).get();
+    awaitTasks();
+
+    assertThat(runTime.getCount()).isEqualTo(previousCount + 2);
+    assertThat(MetricsRegistry.gauge("TestExecutor.queued_tasks").get()).isEqualTo(0);
+    assertThat(MetricsRegistry.gauge("TestExecutor.active_tasks").get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTasksDiscardedOnShutdownLeaveQueue() throws Exception {
+    Gauge queuedTasks = MetricsRegistry.gauge("TestExecutor.queued_tasks");
+    long previousQueued = queuedTasks.get();
+    CountDownLatch taskStarted = new CountDownLatch(1);
+    CountDownLatch releaseTask = new CountDownLatch(1);
+    executor.execute(
+        () -> {
+          taskStarted.countDown();
+          Uninterruptibles.awaitUninterruptibly(releaseTask);
+        });
+    executor.execute(() -> {});
+    executor.execute(() -> {});
+    assertThat(taskStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(queuedTasks.get()).isEqualTo(previousQueued + 2);
+
+    assertThat(executor.shutdownNow()).hasSize(2);
+    releaseTask.countDown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(queuedTasks.get()).isEqualTo(previousQueued);
+  }
+
+  /** Spans and metrics are recorded after a task's future completes, so wait for the executor. */
+  private void awaitTasks() throws InterruptedException {
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.logging.trace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.idea.blaze.base.logging.trace.ExecutorTaskTracer.TaskSpan;
+import com.google.idea.blaze.base.scope.scopes.TimingScope.EventType;
+import com.google.idea.blaze.base.scope.scopes.TimingScopeListener.TimedEvent;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link TraceEventWriter}. */
+@RunWith(JUnit4.class)
+public class TraceEventWriterTest {
+
+  private static final Instant ORIGIN = Instant.ofEpochSecond(1_000_000);
+
+  @Test
+  public void testTimedEventsWrittenAsCompleteEvents() throws IOException {
+    JsonObject trace =
+        write(
+            new TraceEventWriter(ORIGIN)
+                .addTimedEvents(
+                    ImmutableList.of(
+                        timedEvent("Sync", EventType.Other, 0, 5000, 1, "main"),
+                        timedEvent("BlazeBuild", EventType.BlazeInvocation, 10, 3000, 1, "main"))));
+
+    List<JsonObject> events = completeEvents(trace);
+    assertThat(events).hasSize(2);
+    JsonObject build = events.get(1);
+    assertThat(build.get("name").getAsString()).isEqualTo("BlazeBuild");
+    assertThat(build.get("cat").getAsString()).isEqualTo("BlazeInvocation");
+    assertThat(build.get("ts").getAsLong()).isEqualTo(10_000);
+    assertThat(build.get("dur").getAsLong()).isEqualTo(3_000_000);
+    assertThat(build.get("tid").getAsLong()).isEqualTo(1);
+  }
+
+  @Test
+  public void testParentsPrecedeChildrenWithSameStartTime() throws IOException {
+    JsonObject trace =
+        write(
+            new TraceEventWriter(ORIGIN)
+                .addTimedEvents(
+                    ImmutableList.of(
+                        timedEvent("Child", EventType.Other, 0, 10, 1, "main"),
+                        timedEvent("Parent", EventType.Other, 0, 20, 1, "main"))));
+
+    List<JsonObject> events = completeEvents(trace);
+    assertThat(events.get(0).get("name").getAsString()).isEqualTo("Parent");
+    assertThat(events.get(1).get("name").getAsString()).isEqualTo("Child");
+  }
+
+  @Test
+  public void testTaskSpansIncludeQueueTime() throws IOException {
+    TaskSpan span =
+        new TaskSpan(
+            "FetchExecutor",
+            ORIGIN.plusMillis(5),
+            ORIGIN.plusMillis(7),
+            Duration.ofMillis(3),
+            42,
+            "pooled thread");
+    JsonObject trace = write(new TraceEventWriter(ORIGIN).addTaskSpans(ImmutableList.of(span)));
+
+    JsonObject event = completeEvents(trace).get(0);
+    assertThat(event.get("name").getAsString()).isEqualTo("FetchExecutor");
+    assertThat(event.get("ts").getAsLong()).isEqualTo(7_000);
+    assertThat(event.get("dur").getAsLong()).isEqualTo(3_000);
+    assertThat(event.get("tid").getAsLong()).isEqualTo(42);
+    assertThat(event.getAsJsonObject("args").get("queued_us").getAsLong()).isEqualTo(2_000);
+  }
+
+  @Test
+  public void testThreadNamesWrittenAsMetadata() throws IOException {
+    JsonObject trace =
+        write(
+            new TraceEventWriter(ORIGIN)
+                .addTimedEvents(
+                    ImmutableList.of(
+                        timedEvent("A", EventType.Other, 0, 10, 1, "main"),
+                        timedEvent("B", EventType.Other, 0, 10, 2, "worker"))));
+
+    List<String> threadNames = new ArrayList<>();
+    for (JsonElement element : trace.getAsJsonArray("traceEvents")) {
+      JsonObject event = element.getAsJsonObject();
+      if (event.get("ph").getAsString().equals("M")
+          && event.get("name").getAsString().equals("thread_name")) {
+        threadNames.add(event.getAsJsonObject("args").get("name").getAsString());
+      }
+    }
+    assertThat(threadNames).containsExactly("main", "worker");
+  }
+
+  private static TimedEvent timedEvent(
+      String name,
+      EventType type,
+      long startMillis,
+      long durationMillis,
+      long threadId,
+      String threadName) {
+    return new TimedEvent(
+        name,
+        type,
+        ORIGIN.plusMillis(startMillis),
+        Duration.ofMillis(durationMillis),
+        /* isLeafEvent= */ true,
+        threadId,
+        threadName);
+  }
+
+  private static JsonObject write(TraceEventWriter writer) throws IOException {
+    StringWriter output = new StringWriter();
+    writer.write("test", output);
+    return new JsonParser().parse(output.toString()).getAsJsonObject();
+  }
+
+  private static List<JsonObject> completeEvents(JsonObject trace) {
+    JsonArray traceEvents = trace.getAsJsonArray("traceEvents");
+    List<JsonObject> events = new ArrayList<>();
+    for (JsonElement element : traceEvents) {
+      if (element.getAsJsonObject().get("ph").getAsString().equals("X")) {
+        events.add(element.getAsJsonObject());
+      }
+    }
+    return events;
+  }
+}
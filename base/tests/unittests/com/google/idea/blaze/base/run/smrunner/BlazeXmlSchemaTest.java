@@ -26,6 +26,11 @@ import com.google.idea.blaze.base.run.smrunner.BlazeXmlSchema.TestSuite;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -157,6 +162,83 @@ public class BlazeXmlSchemaTest {
         .containsExactly("testCase1", "testCase2", "testCase3", "testCase4");
   }
 
+  @Test
+  public void testMergeNestedSuitesByName() {
+    TestSuite shard1 =
+        parseXml(
+            "<testsuites>",
+            "  <testsuite name='outer' tests='1'>",
+            "    <testsuite name='inner' tests='1'>",
+            "      <testcase name='testCase1'/>",
+            "    </testsuite>",
+            "  </testsuite>",
+            "  <testsuite name='other' tests='1'>",
+            "    <testcase name='testCase2'/>",
+            "  </testsuite>",
+            "</testsuites>");
+    TestSuite shard2 =
+        parseXml(
+            "<testsuites>",
+            "  <testsuite name='outer' tests='2'>",
+            "    <testsuite name='inner' tests='1'>",
+            "      <testcase name='testCase3'/>",
+            "    </testsuite>",
+            "    <testsuite name='inner2' tests='1'>",
+            "      <testcase name='testCase4'/>",
+            "    </testsuite>",
+            "  </testsuite>",
+            "</testsuites>");
+
+    TestSuite merged = BlazeXmlSchema.mergeSuites(ImmutableList.of(shard1, shard2));
+
+    // the unnamed <testsuites> wrappers are merged too
+    TestSuite root = Iterables.getOnlyElement(merged.testSuites);
+    assertThat(suiteNames(root)).containsExactly("outer", "other").inOrder();
+    TestSuite outer = root.testSuites.get(0);
+    assertThat(outer.tests).isEqualTo(3);
+    assertThat(suiteNames(outer)).containsExactly("inner", "inner2").inOrder();
+    assertThat(caseNames(outer.testSuites.get(0))).containsExactly("testCase1", "testCase3");
+    assertThat(caseNames(outer.testSuites.get(1))).containsExactly("testCase4");
+    assertThat(caseNames(root.testSuites.get(1))).containsExactly("testCase2");
+  }
+
+  @Test
+  public void testParseAndMergeShardsInParallel() throws Exception {
+    int shardCount = 32;
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<TestSuite>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < shardCount; i++) {
+        String testCase = "testCase" + i;
+        futures.add(
+            executor.submit(
+                () ->
+                    parseXml(
+                        "<testsuites>",
+                        "  <testsuite name='com.google.ShardedTest' tests='1' time='1'>",
+                        "    <testcase name='" + testCase + "' status='run'/>",
+                        "  </testsuite>",
+                        "</testsuites>")));
+      }
+      List<TestSuite> shards = new ArrayList<>();
+      for (Future<TestSuite> future : futures) {
+        shards.add(future.get());
+      }
+
+      TestSuite merged = BlazeXmlSchema.mergeSuites(shards);
+
+      TestSuite suite =
+          Iterables.getOnlyElement(Iterables.getOnlyElement(merged.testSuites).testSuites);
+      assertThat(suite.name).isEqualTo("com.google.ShardedTest");
+      assertThat(suite.tests).isEqualTo(shardCount);
+      assertThat(suite.time).isEqualTo((double) shardCount);
+      assertThat(caseNames(suite)).hasSize(shardCount);
+      assertThat(caseNames(suite)).containsNoDuplicates();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void testErrorWithoutErrorContent() {
     TestSuite parsed =
@@ -174,6 +256,14 @@ public class BlazeXmlSchemaTest {
     assertThat(BlazeXmlSchema.getErrorContent(testCase.errors.get(0))).isNull();
   }
 
+  private static List<String> suiteNames(TestSuite suite) {
+    return suite.testSuites.stream().map(child -> child.name).collect(Collectors.toList());
+  }
+
+  private static List<String> caseNames(TestSuite suite) {
+    return suite.testCases.stream().map(testCase -> testCase.name).collect(Collectors.toList());
+  }
+
   private static TestSuite parseXml(String... lines) {
     InputStream stream =
         new ByteArrayInputStream(Joiner.on('\n').join(lines).getBytes(StandardCharsets.UTF_8));
@@ -31,6 +31,7 @@ import com.google.idea.blaze.base.model.primitives.Kind;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.google.idea.blaze.base.model.primitives.RuleType;
 import com.google.idea.blaze.base.run.SourceToTargetFinder;
+import com.google.idea.blaze.base.run.TestTargetHeuristic;
 import com.google.idea.blaze.base.sync.SyncCache;
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
 import com.google.idea.common.experiments.ExperimentService;
@@ -259,6 +260,80 @@ public class TestMapTest extends BlazeTestCase {
         .containsExactly(Label.create("//test:test"));
   }
 
+  @Test
+  public void testCandidateTestTargetsAreBounded() throws Exception {
+    TargetMapBuilder builder =
+        TargetMapBuilder.builder()
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setBuildFile(sourceRoot("test/BUILD"))
+                    .setLabel("//test:lib")
+                    .setKind("sh_library")
+                    .addSource(sourceRoot("test/Test.java")))
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setBuildFile(sourceRoot("test/BUILD"))
+                    .setLabel("//test:lib2")
+                    .setKind("sh_library")
+                    .addDependency("//test:lib"));
+    for (int i = 0; i < TestTargetHeuristic.MAX_CANDIDATE_TARGETS; i++) {
+      builder.addTarget(
+          TargetIdeInfo.builder()
+              .setBuildFile(sourceRoot("test/BUILD"))
+              .setLabel("//test:test" + i)
+              .setKind("sh_test")
+              .addDependency("//test:lib2"));
+    }
+    builder.addTarget(
+        TargetIdeInfo.builder()
+            .setBuildFile(sourceRoot("test/BUILD"))
+            .setLabel("//test:closest_test")
+            .setKind("sh_test")
+            .addDependency("//test:lib"));
+    mockBlazeProjectDataManager.targetMap = builder.build();
+
+    Collection<TargetInfo> targets =
+        SourceToTargetFinder.findTestTargetInfoFuture(
+                project, new File("/test/Test.java"), TestTargetHeuristic.MAX_CANDIDATE_TARGETS)
+            .get();
+
+    assertThat(targets).hasSize(TestTargetHeuristic.MAX_CANDIDATE_TARGETS);
+    assertThat(targets.iterator().next().label).isEqualTo(Label.create("//test:closest_test"));
+
+    // other queries for test targets aren't bounded
+    assertThat(
+            SourceToTargetFinder.findTargetsForSourceFile(
+                project, new File("/test/Test.java"), Optional.of(RuleType.TEST)))
+        .hasSize(TestTargetHeuristic.MAX_CANDIDATE_TARGETS + 1);
+  }
+
+  @Test
+  public void testResultsCachedUntilNextSync() throws Exception {
+    mockBlazeProjectDataManager.targetMap =
+        TargetMapBuilder.builder()
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setBuildFile(sourceRoot("test/BUILD"))
+                    .setLabel("//test:test")
+                    .setKind("sh_test")
+                    .addSource(sourceRoot("test/Test.java")))
+            .build();
+
+    Collection<TargetInfo> targets =
+        SourceToTargetFinder.findTargetsForSourceFile(
+            project, new File("/test/Test.java"), Optional.of(RuleType.TEST));
+    assertThat(
+            SourceToTargetFinder.findTargetsForSourceFile(
+                project, new File("/test/Test.java"), Optional.of(RuleType.TEST)))
+        .isSameAs(targets);
+
+    SyncCache.getInstance(project).clear();
+    assertThat(
+            SourceToTargetFinder.findTargetsForSourceFile(
+                project, new File("/test/Test.java"), Optional.of(RuleType.TEST)))
+        .isNotSameAs(targets);
+  }
+
   private ArtifactLocation sourceRoot(String relativePath) {
     return ArtifactLocation.builder().setRelativePath(relativePath).setIsSource(true).build();
   }
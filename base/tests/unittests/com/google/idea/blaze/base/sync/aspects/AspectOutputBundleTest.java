@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.idea.blaze.base.command.buildresult.LocalFileOutputArtifact;
+import com.google.idea.blaze.base.filecache.ArtifactState;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AspectOutputBundle}. */
+@RunWith(JUnit4.class)
+public class AspectOutputBundleTest {
+
+  private static final String FOO = "bazel-out/k8-fastbuild/bin/foo/foo.intellij-info.txt";
+  private static final String BAR = "bazel-out/k8-opt/bin/bar/bar.intellij-info.txt";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testOnlyRequestedContentsAreLoaded() throws IOException {
+    File bundle = writeBundle(ImmutableList.of(FOO, BAR), ImmutableList.of("foo info", "bar"));
+
+    ImmutableList<AspectOutputBundle.Entry> entries =
+        AspectOutputBundle.read(
+            new LocalFileOutputArtifact(bundle),
+            folder.getRoot(),
+            1L,
+            state -> state.getKey().equals(new File(folder.getRoot(), BAR).getPath()));
+
+    assertThat(entries).hasSize(2);
+    AspectOutputBundle.Entry foo = entries.get(0);
+    AspectOutputBundle.Entry bar = entries.get(1);
+    assertThat(foo.hasContents()).isFalse();
+    assertThat(foo.getLength()).isEqualTo("foo info".length());
+    assertThat(bar.toString()).isEqualTo(BAR);
+    try (InputStream in = bar.getInputStream()) {
+      assertThat(new String(ByteStreams.toByteArray(in), UTF_8)).isEqualTo("bar");
+    }
+  }
+
+  @Test
+  public void testEntryKeyedLikeIndividualOutput() throws IOException {
+    File bundle = writeBundle(ImmutableList.of(FOO), ImmutableList.of("foo info"));
+    File individualFile = new File(folder.getRoot(), FOO);
+
+    AspectOutputBundle.Entry entry = readSingleEntry(bundle, 1L);
+
+    assertThat(entry.getKey()).isEqualTo(new LocalFileOutputArtifact(individualFile).getKey());
+    assertThat(entry.toArtifactState().getKey()).isEqualTo(entry.getKey());
+  }
+
+  @Test
+  public void testEntryStateChangesWithDigest() throws IOException {
+    File first = writeBundle(ImmutableList.of(FOO), ImmutableList.of("foo info"));
+    ArtifactState oldState = readSingleEntry(first, 1L).toArtifactState();
+    ArtifactState unchanged = readSingleEntry(first, 2L).toArtifactState();
+
+    File second = writeBundle(ImmutableList.of(FOO), ImmutableList.of("new foo info"));
+    ArtifactState changed = readSingleEntry(second, 2L).toArtifactState();
+
+    assertThat(unchanged.getKey()).isEqualTo(oldState.getKey());
+    assertThat(oldState.isMoreRecent(unchanged)).isFalse();
+    assertThat(oldState.isMoreRecent(changed)).isTrue();
+  }
+
+  @Test
+  public void testConfigurationMnemonic() throws IOException {
+    File bundle = writeBundle(ImmutableList.of(BAR), ImmutableList.of("bar"));
+    assertThat(readSingleEntry(bundle, 1L).getBlazeConfigurationMnemonic(null))
+        .isEqualTo("k8-opt");
+  }
+
+  private AspectOutputBundle.Entry readSingleEntry(File bundle, long syncStartTimeMillis)
+      throws IOException {
+    return AspectOutputBundle.read(
+            new LocalFileOutputArtifact(bundle),
+            folder.getRoot(),
+            syncStartTimeMillis,
+            state -> false)
+        .get(0);
+  }
+
+  private File writeBundle(ImmutableList<String> paths, ImmutableList<String> contents)
+      throws IOException {
+    return writeBundle(folder.newFile(), paths, contents);
+  }
+
+  /** Writes a bundle in the format produced by the aspect's InfoBundler tool. */
+  static File writeBundle(File bundle, ImmutableList<String> paths, ImmutableList<String> contents)
+      throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(bundle))) {
+      out.writeInt(0x494a4201);
+      out.writeInt(paths.size());
+      for (int i = 0; i < paths.size(); i++) {
+        out.writeUTF(paths.get(i));
+        out.writeLong(contents.get(i).hashCode());
+        out.writeInt(contents.get(i).getBytes(UTF_8).length);
+      }
+      for (String content : contents) {
+        out.write(content.getBytes(UTF_8));
+      }
+    }
+    return bundle;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.command.buildresult.LocalFileOutputArtifact;
+import com.google.idea.blaze.base.command.buildresult.OutputArtifact;
+import com.google.idea.blaze.base.filecache.ArtifactState;
+import com.google.idea.blaze.base.filecache.ArtifactsDiff;
+import com.google.idea.blaze.base.io.FileOperationProvider;
+import java.io.File;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for the sync state of ide info files moving in and out of aspect output bundles, in {@link
+ * BlazeIdeInterfaceAspectsImpl}.
+ */
+@RunWith(JUnit4.class)
+public class BlazeIdeInterfaceAspectsImplTest extends BlazeTestCase {
+
+  private static final String FOO = "bazel-out/k8-fastbuild/bin/foo/foo.intellij-info.txt";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    applicationServices.register(FileOperationProvider.class, new FileOperationProvider());
+  }
+
+  @Test
+  public void testFileMovingIntoBundleIsUpdatedNotRemoved() throws Exception {
+    OutputArtifact individualFile = writeIndividualFile();
+    ArtifactsDiff first = diff(null, ImmutableList.of(individualFile), ImmutableList.of());
+    ArtifactsDiff second = diff(first.getNewState(), ImmutableList.of(), readBundle(2L));
+
+    assertThat(second.getRemovedOutputs()).isEmpty();
+    assertThat(second.getNewState().keySet()).containsExactly(individualFile.getKey());
+    assertThat(second.getUpdatedOutputs()).hasSize(1);
+    assertThat(second.getUpdatedOutputs().get(0).getKey()).isEqualTo(individualFile.getKey());
+  }
+
+  @Test
+  public void testFileMovingOutOfBundleIsUpdatedNotRemoved() throws Exception {
+    OutputArtifact individualFile = writeIndividualFile();
+    ArtifactsDiff first = diff(null, ImmutableList.of(), readBundle(1L));
+    ArtifactsDiff second =
+        diff(first.getNewState(), ImmutableList.of(individualFile), ImmutableList.of());
+
+    assertThat(second.getRemovedOutputs()).isEmpty();
+    assertThat(second.getNewState().keySet()).containsExactly(individualFile.getKey());
+    assertThat(second.getUpdatedOutputs()).containsExactly(individualFile);
+  }
+
+  @Test
+  public void testFileOutputBothBundledAndIndividuallyIsKeptOnce() throws Exception {
+    OutputArtifact individualFile = writeIndividualFile();
+    ArtifactsDiff first = diff(null, ImmutableList.of(individualFile), readBundle(1L));
+    assertThat(first.getUpdatedOutputs()).containsExactly(individualFile);
+
+    // the file is then only output in a bundle, so must keep its state rather than be removed
+    ArtifactsDiff second = diff(first.getNewState(), ImmutableList.of(), readBundle(2L));
+    assertThat(second.getRemovedOutputs()).isEmpty();
+    assertThat(second.getNewState().keySet()).containsExactly(individualFile.getKey());
+  }
+
+  private File getExecutionRoot() {
+    return new File(folder.getRoot(), "execroot");
+  }
+
+  /** Writes the ide info file, as output individually by the build. */
+  private OutputArtifact writeIndividualFile() throws Exception {
+    File file = new File(getExecutionRoot(), FOO);
+    Files.createParentDirs(file);
+    Files.asCharSink(file, UTF_8).write("foo info");
+    return new LocalFileOutputArtifact(file);
+  }
+
+  private ImmutableList<AspectOutputBundle.Entry> readBundle(long syncStartTimeMillis)
+      throws Exception {
+    File bundle =
+        AspectOutputBundleTest.writeBundle(
+            folder.newFile(), ImmutableList.of(FOO), ImmutableList.of("foo info"));
+    return AspectOutputBundle.read(
+        new LocalFileOutputArtifact(bundle),
+        getExecutionRoot(),
+        syncStartTimeMillis,
+        state -> true);
+  }
+
+  /** Diffs the ide info files output by a sync against the previous sync's state. */
+  private static ArtifactsDiff diff(
+      @Nullable ImmutableMap<String, ArtifactState> oldState,
+      List<OutputArtifact> individualFiles,
+      List<AspectOutputBundle.Entry> bundleEntries)
+      throws Exception {
+    return ArtifactsDiff.diffArtifacts(
+        oldState,
+        BlazeIdeInterfaceAspectsImpl.mergeBundledFiles(
+            individualFiles, ImmutableList.of(bundleEntries)));
+  }
+}
@@ -16,9 +16,12 @@
 package com.google.idea.blaze.base.sync.aspects.strategy;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
 import com.google.idea.blaze.base.BlazeTestCase;
 import com.google.idea.blaze.base.command.BlazeCommand;
 import com.google.idea.blaze.base.command.BlazeCommandName;
@@ -27,6 +30,8 @@ import com.google.idea.blaze.base.settings.BuildSystem;
 import com.google.idea.blaze.base.sync.aspects.strategy.AspectStrategy.OutputGroup;
 import com.google.idea.common.experiments.ExperimentService;
 import com.google.idea.common.experiments.MockExperimentService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -123,6 +128,74 @@ public class AspectStrategyTest extends BlazeTestCase {
             "intellij-compile-dart");
   }
 
+  @Test
+  public void testReadsTextFormatAspectOutput() throws IOException {
+    IntellijIdeInfo.TargetIdeInfo info =
+        parse(
+            "key {",
+            "  label: \"//foo:bar\"",
+            "}",
+            "kind_string: \"android_library\"",
+            "deps {",
+            "  target {",
+            "    label: \"//foo:dep\"",
+            "  }",
+            "  dependency_type: 1",
+            "}",
+            "android_ide_info {",
+            "  manifest_values {",
+            "    key: \"minSdkVersion\"",
+            "    value: \"21\"",
+            "  }",
+            "}",
+            "unknown_field: 1");
+    assertThat(info).isEqualTo(expectedTargetInfo());
+  }
+
+  @Test
+  public void testReadsJsonAspectOutput() throws IOException {
+    IntellijIdeInfo.TargetIdeInfo info =
+        parse(
+            " {\"key\":{\"label\":\"//foo:bar\"},",
+            "\"kind_string\":\"android_library\",",
+            "\"deps\":[{\"target\":{\"label\":\"//foo:dep\"},\"dependency_type\":1}],",
+            "\"android_ide_info\":{\"manifest_values\":",
+            "[{\"key\":\"minSdkVersion\",\"value\":\"21\"}]},",
+            "\"unknown_field\":{\"nested\":[1,2]},",
+            "\"tags\":null}");
+    assertThat(info).isEqualTo(expectedTargetInfo());
+  }
+
+  @Test
+  public void testJsonEnumsAndMapsAcceptAlternateEncodings() throws IOException {
+    IntellijIdeInfo.TargetIdeInfo info =
+        parse(
+            "{\"key\":{\"label\":\"//foo:bar\"},",
+            "\"kind_string\":\"android_library\",",
+            "\"deps\":[{\"target\":{\"label\":\"//foo:dep\"},",
+            "\"dependency_type\":\"RUNTIME\"}],",
+            "\"android_ide_info\":{\"manifest_values\":{\"minSdkVersion\":\"21\"}}}");
+    assertThat(info).isEqualTo(expectedTargetInfo());
+  }
+
+  private static IntellijIdeInfo.TargetIdeInfo parse(String... lines) throws IOException {
+    byte[] bytes = Joiner.on('\n').join(lines).getBytes(UTF_8);
+    return AspectStrategy.parseAspectOutput(new ByteArrayInputStream(bytes));
+  }
+
+  private static IntellijIdeInfo.TargetIdeInfo expectedTargetInfo() {
+    return IntellijIdeInfo.TargetIdeInfo.newBuilder()
+        .setKey(IntellijIdeInfo.TargetKey.newBuilder().setLabel("//foo:bar"))
+        .setKindString("android_library")
+        .addDeps(
+            IntellijIdeInfo.Dependency.newBuilder()
+                .setTarget(IntellijIdeInfo.TargetKey.newBuilder().setLabel("//foo:dep"))
+                .setDependencyType(IntellijIdeInfo.Dependency.DependencyType.RUNTIME))
+        .setAndroidIdeInfo(
+            IntellijIdeInfo.AndroidIdeInfo.newBuilder().putManifestValues("minSdkVersion", "21"))
+        .build();
+  }
+
   private static BlazeCommand.Builder emptyBuilder() {
     return BlazeCommand.builder("/usr/bin/blaze", BlazeCommandName.BUILD);
   }
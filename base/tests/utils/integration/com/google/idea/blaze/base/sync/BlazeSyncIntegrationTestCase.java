@@ -21,6 +21,7 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -139,6 +140,12 @@ public abstract class BlazeSyncIntegrationTestCase extends BlazeIntegrationTestC
     return ImmutableList.copyOf(entries);
   }
 
+  /** The modules retained unchanged from the previous sync. Only supported for light tests. */
+  protected ImmutableSet<String> getRetainedModuleNames() {
+    assertThat(moduleMocker).isNotNull();
+    return moduleMocker.getRetainedModuleNames();
+  }
+
   /** Search the workspace module's {@link ContentEntry}s for one with the given file. */
   @Nullable
   protected ContentEntry findContentEntry(VirtualFile root) {
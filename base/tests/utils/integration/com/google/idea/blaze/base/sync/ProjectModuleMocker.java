@@ -16,6 +16,7 @@
 package com.google.idea.blaze.base.sync;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.idea.blaze.base.settings.BlazeImportSettings;
 import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
@@ -39,6 +40,7 @@ import javax.annotation.Nullable;
 class ProjectModuleMocker implements Disposable {
 
   private Map<String, ModifiableRootModel> modules = Maps.newHashMap();
+  private Map<String, Module> retainedModules = Maps.newHashMap();
   private ImmutableList<ContentEntry> workspaceContentEntries = ImmutableList.of();
 
   ProjectModuleMocker(Project project, Disposable parentDisposable) {
@@ -54,10 +56,17 @@ class ProjectModuleMocker implements Disposable {
     return workspaceContentEntries;
   }
 
+  /** The modules retained unchanged from the previous sync */
+  ImmutableSet<String> getRetainedModuleNames() {
+    return ImmutableSet.copyOf(retainedModules.keySet());
+  }
+
   /** The modules created during sync */
   private Module getModuleCreatedDuringSync(String module) {
     ModifiableRootModel modifiableRootModel = modules.get(module);
-    return modifiableRootModel != null ? modifiableRootModel.getModule() : null;
+    return modifiableRootModel != null
+        ? modifiableRootModel.getModule()
+        : retainedModules.get(module);
   }
 
   @Override
@@ -85,6 +94,13 @@ class ProjectModuleMocker implements Disposable {
       super(project, importSettings);
     }
 
+    // modules are never committed, so look up the ones created during the previous sync instead
+    @Nullable
+    @Override
+    public Module findModule(String moduleName) {
+      return getModuleCreatedDuringSync(moduleName);
+    }
+
     @Override
     public void commit() {
       // don't commit module changes,
@@ -96,6 +112,7 @@ class ProjectModuleMocker implements Disposable {
         }
       }
       ProjectModuleMocker.this.modules = modules;
+      ProjectModuleMocker.this.retainedModules = retainedModules;
     }
   }
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.command.buildresult;
+
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEvent;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId.ConfigurationId;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId.NamedSetOfFilesId;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId.TargetCompletedId;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.Configuration;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.NamedSetOfFiles;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.OutputGroup;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.TargetComplete;
+import com.google.devtools.intellij.aspect.Common;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.idea.blaze.benchmarks.SyntheticProject;
+import com.google.idea.blaze.benchmarks.SyntheticProjectBenchmark;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures parsing the build event protocol output of a sync build, and resolving its output
+ * groups.
+ *
+ * <p>Each target contributes one named set of files per output group, nesting the sets of its
+ * dependencies, as blaze reports the transitive aspect outputs.
+ */
+public class ParsedBepOutputBenchmark extends SyntheticProjectBenchmark {
+
+  private static final String CONFIGURATION_ID = "k8-fastbuild-id";
+  private static final String EXECUTION_ROOT = "/execroot/workspace";
+  private static final String INFO_OUTPUT_GROUP = "intellij-info-java";
+  private static final String RESOLVE_OUTPUT_GROUP = "intellij-resolve-java";
+
+  private byte[] buildEvents;
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    registerExtensionPoint(OutputArtifactParser.EP_NAME, OutputArtifactParser.class)
+        .registerExtension(new OutputArtifactParser.LocalFileParser());
+  }
+
+  @Override
+  protected void prepare() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BuildEvent.newBuilder()
+        .setId(
+            BuildEventId.newBuilder()
+                .setConfiguration(ConfigurationId.newBuilder().setId(CONFIGURATION_ID)))
+        .setConfiguration(Configuration.newBuilder().setMnemonic("k8-fastbuild"))
+        .build()
+        .writeDelimitedTo(out);
+    Map<String, Integer> targetIndices = new HashMap<>();
+    List<IntellijIdeInfo.TargetIdeInfo> targets = syntheticProject.getTargetProtos();
+    for (int i = 0; i < targets.size(); i++) {
+      IntellijIdeInfo.TargetIdeInfo target = targets.get(i);
+      String label = target.getKey().getLabel();
+      targetIndices.put(label, i);
+
+      NamedSetOfFiles.Builder infoFiles = NamedSetOfFiles.newBuilder();
+      NamedSetOfFiles.Builder resolveFiles = NamedSetOfFiles.newBuilder();
+      String packagePath = label.substring(2, label.indexOf(':'));
+      String name = label.substring(label.indexOf(':') + 1);
+      infoFiles.addFiles(outputFile(packagePath + "/" + name + "-12345.java-manifest"));
+      infoFiles.addFiles(outputFile(packagePath + "/" + name + "-12345.intellij-info.txt"));
+      for (IntellijIdeInfo.LibraryArtifact jar : target.getJavaIdeInfo().getJarsList()) {
+        resolveFiles.addFiles(outputFile(jar.getJar()));
+        resolveFiles.addFiles(outputFile(jar.getInterfaceJar()));
+        for (Common.ArtifactLocation sourceJar : jar.getSourceJarsList()) {
+          resolveFiles.addFiles(outputFile(sourceJar));
+        }
+      }
+      for (IntellijIdeInfo.Dependency dep : target.getDepsList()) {
+        int depIndex = targetIndices.get(dep.getTarget().getLabel());
+        infoFiles.addFileSets(fileSetId(INFO_OUTPUT_GROUP, depIndex));
+        resolveFiles.addFileSets(fileSetId(RESOLVE_OUTPUT_GROUP, depIndex));
+      }
+      writeFileSet(out, fileSetId(INFO_OUTPUT_GROUP, i), infoFiles);
+      writeFileSet(out, fileSetId(RESOLVE_OUTPUT_GROUP, i), resolveFiles);
+
+      BuildEvent.newBuilder()
+          .setId(
+              BuildEventId.newBuilder()
+                  .setTargetCompleted(
+                      TargetCompletedId.newBuilder()
+                          .setLabel(label)
+                          .setConfiguration(ConfigurationId.newBuilder().setId(CONFIGURATION_ID))))
+          .setCompleted(
+              TargetComplete.newBuilder()
+                  .addOutputGroup(
+                      OutputGroup.newBuilder()
+                          .setName(INFO_OUTPUT_GROUP)
+                          .addFileSets(fileSetId(INFO_OUTPUT_GROUP, i)))
+                  .addOutputGroup(
+                      OutputGroup.newBuilder()
+                          .setName(RESOLVE_OUTPUT_GROUP)
+                          .addFileSets(fileSetId(RESOLVE_OUTPUT_GROUP, i))))
+          .build()
+          .writeDelimitedTo(out);
+    }
+    buildEvents = out.toByteArray();
+  }
+
+  @Benchmark
+  public Object parseBepArtifacts() throws IOException {
+    // ParsedBepOutput isn't visible to the generated benchmark code
+    return ParsedBepOutput.parseBepArtifacts(new ByteArrayInputStream(buildEvents));
+  }
+
+  @Benchmark
+  public int getPerOutputGroupArtifacts() throws IOException {
+    return ParsedBepOutput.parseBepArtifacts(new ByteArrayInputStream(buildEvents))
+        .getPerOutputGroupArtifacts(path -> true)
+        .size();
+  }
+
+  private static void writeFileSet(
+      ByteArrayOutputStream out, NamedSetOfFilesId id, NamedSetOfFiles.Builder files)
+      throws IOException {
+    BuildEvent.newBuilder()
+        .setId(BuildEventId.newBuilder().setNamedSet(id))
+        .setNamedSetOfFiles(files)
+        .build()
+        .writeDelimitedTo(out);
+  }
+
+  private static NamedSetOfFilesId fileSetId(String outputGroup, int targetIndex) {
+    return NamedSetOfFilesId.newBuilder().setId(outputGroup + "-" + targetIndex).build();
+  }
+
+  private static BuildEventStreamProtos.File outputFile(Common.ArtifactLocation artifact) {
+    return outputFile(artifact.getRelativePath());
+  }
+
+  private static BuildEventStreamProtos.File outputFile(String relativePath) {
+    File file = new File(EXECUTION_ROOT, SyntheticProject.OUTPUT_ROOT + "/" + relativePath);
+    return BuildEventStreamProtos.File.newBuilder().setUri(file.toURI().toString()).build();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.ideinfo;
+
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.idea.blaze.benchmarks.SyntheticProjectBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/** Measures conversion of a whole project's targets between aspect protos and model objects. */
+public class TargetIdeInfoBenchmark extends SyntheticProjectBenchmark {
+
+  private TargetMap targetMap;
+
+  @Override
+  protected void prepare() {
+    targetMap = syntheticProject.buildTargetMap();
+  }
+
+  @Benchmark
+  public int fromProto() {
+    int converted = 0;
+    for (IntellijIdeInfo.TargetIdeInfo proto : syntheticProject.getTargetProtos()) {
+      if (TargetIdeInfo.fromProto(proto) != null) {
+        converted++;
+      }
+    }
+    return converted;
+  }
+
+  @Benchmark
+  public int toProto() {
+    int deps = 0;
+    for (TargetIdeInfo target : targetMap.targets()) {
+      deps += target.toProto().getDepsCount();
+    }
+    return deps;
+  }
+}
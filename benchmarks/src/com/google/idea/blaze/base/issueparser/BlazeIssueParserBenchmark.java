@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.issueparser;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.projectview.ProjectViewSet;
+import com.google.idea.blaze.base.run.filter.FileResolver;
+import com.google.idea.blaze.base.scope.output.IssueOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BlazeIssueParser} throughput over a build log, with and without line
+ * prefiltering.
+ *
+ * <p>By default a synthetic build log is used. To use recorded build logs instead, pass e.g. {@code
+ * -p buildLogs=/tmp/build1.log,/tmp/build2.log}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlazeIssueParserBenchmark extends BlazeTestCase {
+
+  @Param({"true", "false"})
+  public boolean prefilter;
+
+  @Param({"200000"})
+  public int syntheticLines;
+
+  /** Comma-separated paths of recorded build logs. If empty, a synthetic log is generated. */
+  @Param({""})
+  public String buildLogs;
+
+  private List<String> lines;
+  private ImmutableList<BlazeIssueParser.Parser> parsers;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws IOException {
+    setup();
+    lines = new ArrayList<>();
+    for (String path : buildLogs.split(",")) {
+      if (!path.isEmpty()) {
+        lines.addAll(Files.readAllLines(Paths.get(path), UTF_8));
+      }
+    }
+    if (lines.isEmpty()) {
+      lines = syntheticBuildLog(syntheticLines);
+    }
+    parsers = parsers();
+    if (!prefilter) {
+      parsers =
+          parsers.stream()
+              .map(parser -> (BlazeIssueParser.Parser) parser::parse)
+              .collect(toImmutableList());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    tearDown();
+  }
+
+  @Benchmark
+  public int parseIssues() {
+    BlazeIssueParser issueParser = new BlazeIssueParser(parsers);
+    int issues = 0;
+    for (String line : lines) {
+      IssueOutput issue = issueParser.parseIssue(line);
+      if (issue != null) {
+        issues++;
+      }
+    }
+    return issues;
+  }
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    // no resolvers: only the parsing itself is measured
+    registerExtensionPoint(FileResolver.EP_NAME, FileResolver.class);
+  }
+
+  /** The default sync parsers, minus any provided by other plugins. */
+  private ImmutableList<BlazeIssueParser.Parser> parsers() {
+    ProjectViewSet projectViewSet = ProjectViewSet.builder().build();
+    return ImmutableList.of(
+        new BlazeIssueParser.CompileParser(project),
+        new BlazeIssueParser.TracebackParser(),
+        new BlazeIssueParser.BuildParser(),
+        new BlazeIssueParser.SkylarkErrorParser(),
+        new BlazeIssueParser.LinelessBuildParser(),
+        new BlazeIssueParser.ProjectViewLabelParser(projectViewSet),
+        new BlazeIssueParser.InvalidTargetProjectViewPackageParser(
+            projectViewSet, "no such package '(.*)': BUILD file not found on package path"),
+        new BlazeIssueParser.InvalidTargetProjectViewPackageParser(
+            projectViewSet, "no targets found beneath '(.*?)'"),
+        new BlazeIssueParser.InvalidTargetProjectViewPackageParser(
+            projectViewSet, "ERROR: invalid target format '(.*?)'"),
+        new BlazeIssueParser.InvalidTargetProjectViewPackageParser(
+            projectViewSet, "ERROR: Skipping '(.*?)'"),
+        new BlazeIssueParser.FileNotFoundBuildParser(new WorkspaceRoot(new File("/workspace"))),
+        BlazeIssueParser.GenericErrorParser.INSTANCE);
+  }
+
+  /** Mostly progress messages, with the occasional warning and error. */
+  private static List<String> syntheticBuildLog(int lineCount) {
+    Random random = new Random(0);
+    List<String> lines = new ArrayList<>(lineCount);
+    for (int i = 0; i < lineCount; i++) {
+      String path = String.format("java/com/google/pkg%d/Class%d.java", i % 97, i % 13);
+      int kind = random.nextInt(100);
+      if (kind < 60) {
+        lines.add(
+            String.format(
+                "[%,d / %,d] Compiling %s; %ds linux-sandbox", i, lineCount, path, i % 30));
+      } else if (kind < 80) {
+        lines.add(String.format("INFO: From Building %s (%d source files):", path, i % 50));
+      } else if (kind < 95) {
+        lines.add(String.format("%s:%d: warning: [deprecation] foo() is deprecated", path, i));
+      } else if (kind < 98) {
+        lines.add(String.format("%s:%d:%d: error: cannot find symbol", path, i, i % 80));
+      } else {
+        lines.add(
+            String.format("ERROR: /workspace/pkg%d/BUILD:%d:1: C++ compilation failed", i, i));
+      }
+    }
+    return lines;
+  }
+}
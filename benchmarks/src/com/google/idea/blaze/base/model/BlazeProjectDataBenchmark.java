@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.model;
+
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.settings.BuildSystem;
+import com.google.idea.blaze.benchmarks.SyntheticProjectBenchmark;
+import java.io.File;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Measures writing and reading the serialized project data, as done after every sync. */
+public class BlazeProjectDataBenchmark extends SyntheticProjectBenchmark {
+
+  private BlazeProjectData projectData;
+  private File savedFile;
+  private File loadedFile;
+
+  @Override
+  @SuppressWarnings("unchecked") // SyncData.Extractor is generic
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    registerExtensionPoint(
+        SyncData.Extractor.EP_NAME,
+        (Class<SyncData.Extractor<?>>) (Class<?>) SyncData.Extractor.class);
+  }
+
+  @Override
+  protected void prepare() throws IOException {
+    projectData =
+        MockBlazeProjectDataBuilder.builder(new WorkspaceRoot(new File("/workspace")))
+            .setTargetMap(syntheticProject.buildTargetMap())
+            .build();
+    savedFile = File.createTempFile("saved", ".blazeproject");
+    loadedFile = File.createTempFile("loaded", ".blazeproject");
+    projectData.saveToDisk(loadedFile);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFiles() {
+    savedFile.delete();
+    loadedFile.delete();
+  }
+
+  @Benchmark
+  public long saveToDisk() throws IOException {
+    projectData.saveToDisk(savedFile);
+    return savedFile.length();
+  }
+
+  @Benchmark
+  public BlazeProjectData loadFromDisk() throws IOException {
+    return BlazeProjectData.loadFromDisk(BuildSystem.Bazel, loadedFile);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects.strategy;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.gson.stream.JsonWriter;
+import com.google.idea.blaze.benchmarks.SyntheticProjectBenchmark;
+import com.google.protobuf.repackaged.ByteString;
+import com.google.protobuf.repackaged.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.repackaged.Descriptors.FieldDescriptor;
+import com.google.protobuf.repackaged.Message;
+import com.google.protobuf.repackaged.TextFormat;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Measures parsing of the per-target aspect output files (intellij-info.txt) for a whole project,
+ * in both the text proto and JSON encodings.
+ *
+ * <p>Files are held in memory and passed straight to {@link AspectStrategy#parseAspectOutput}, the
+ * parsing half of {@link AspectStrategy#readAspectFile}, so file system access isn't measured.
+ */
+public class AspectOutputBenchmark extends SyntheticProjectBenchmark {
+
+  /** The encoding of the aspect output. */
+  public enum Format {
+    TEXT,
+    JSON,
+  }
+
+  @Param({"TEXT", "JSON"})
+  public Format format;
+
+  private ImmutableList<byte[]> aspectFiles;
+
+  @Override
+  protected void prepare() throws IOException {
+    ImmutableList.Builder<byte[]> files = ImmutableList.builder();
+    for (IntellijIdeInfo.TargetIdeInfo target : syntheticProject.getTargetProtos()) {
+      String contents = format == Format.TEXT ? TextFormat.printToString(target) : toJson(target);
+      files.add(contents.getBytes(UTF_8));
+    }
+    aspectFiles = files.build();
+  }
+
+  @Benchmark
+  public int parseAspectOutput() throws IOException {
+    int deps = 0;
+    for (byte[] file : aspectFiles) {
+      deps += AspectStrategy.parseAspectOutput(new ByteArrayInputStream(file)).getDepsCount();
+    }
+    return deps;
+  }
+
+  /** Encodes the message as the aspect's struct.to_json would. */
+  private static String toJson(Message message) throws IOException {
+    StringWriter writer = new StringWriter();
+    try (JsonWriter json = new JsonWriter(writer)) {
+      writeObject(json, message);
+    }
+    return writer.toString();
+  }
+
+  private static void writeObject(JsonWriter json, Message message) throws IOException {
+    json.beginObject();
+    for (Map.Entry<FieldDescriptor, Object> entry : message.getAllFields().entrySet()) {
+      FieldDescriptor field = entry.getKey();
+      json.name(field.getName());
+      if (field.isRepeated()) {
+        json.beginArray();
+        for (Object value : (List<?>) entry.getValue()) {
+          writeValue(json, field, value);
+        }
+        json.endArray();
+      } else {
+        writeValue(json, field, entry.getValue());
+      }
+    }
+    json.endObject();
+  }
+
+  private static void writeValue(JsonWriter json, FieldDescriptor field, Object value)
+      throws IOException {
+    switch (field.getJavaType()) {
+      case MESSAGE:
+        writeObject(json, (Message) value);
+        return;
+      case ENUM:
+        json.value(((EnumValueDescriptor) value).getName());
+        return;
+      case BOOLEAN:
+        json.value((Boolean) value);
+        return;
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        json.value((Number) value);
+        return;
+      case BYTE_STRING:
+        json.value(((ByteString) value).toStringUtf8());
+        return;
+      case STRING:
+        json.value((String) value);
+        return;
+    }
+    throw new IllegalArgumentException("Unhandled field type: " + field.getJavaType());
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.targetmaps;
+
+import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.model.MockBlazeProjectDataBuilder;
+import com.google.idea.blaze.benchmarks.SyntheticProjectBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/** Measures building the reverse dependency map for a whole project. */
+public class ReverseDependencyMapBenchmark extends SyntheticProjectBenchmark {
+
+  private BlazeProjectData projectData;
+
+  @Override
+  protected void prepare() {
+    projectData =
+        MockBlazeProjectDataBuilder.builder()
+            .setTargetMap(syntheticProject.buildTargetMap())
+            .build();
+  }
+
+  @Benchmark
+  public int createRdepsMap() {
+    return ReverseDependencyMap.createRdepsMap(project, projectData).size();
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.devtools.intellij.aspect.Common;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A generated monorepo: a graph of java targets spread over a package hierarchy, in the form the
+ * aspect reports them.
+ *
+ * <p>Targets live in packages of {@link #TARGETS_PER_PACKAGE}, grouped into top-level directories
+ * of {@link #PACKAGES_PER_DIRECTORY} packages each. The last target in each package is a java_test,
+ * the rest are java_libraries. Dependencies always point to earlier targets, so the graph is a DAG.
+ *
+ * <p>Generation is deterministic for a given configuration, so results are comparable between
+ * runs.
+ */
+public final class SyntheticProject {
+
+  /** How dependencies are distributed through the target graph. */
+  public enum Shape {
+    /** Dependencies are chosen uniformly from all earlier targets: a shallow, wide graph. */
+    WIDE,
+    /** Each target depends on the targets immediately before it: long dependency chains. */
+    DEEP,
+    /**
+     * Most dependencies stay within the target's top-level directory, with occasional edges to
+     * other directories.
+     */
+    CLUSTERED,
+  }
+
+  public static final int TARGETS_PER_PACKAGE = 4;
+  public static final int PACKAGES_PER_DIRECTORY = 25;
+
+  /** The root of the generated source tree, relative to the workspace root. */
+  public static final String SOURCE_ROOT = "java";
+  /** The execution root relative path of the generated outputs. */
+  public static final String OUTPUT_ROOT = "bazel-out/k8-fastbuild/bin";
+
+  private static final String ROOT_PACKAGE = "com/example";
+  private static final int CROSS_DIRECTORY_PERCENT = 10;
+
+  private final ImmutableList<IntellijIdeInfo.TargetIdeInfo> targets;
+  private final ImmutableMap<String, String> javaPackages;
+  private final ImmutableList<WorkspacePath> directories;
+
+  private SyntheticProject(
+      ImmutableList<IntellijIdeInfo.TargetIdeInfo> targets,
+      ImmutableMap<String, String> javaPackages,
+      ImmutableList<WorkspacePath> directories) {
+    this.targets = targets;
+    this.javaPackages = javaPackages;
+    this.directories = directories;
+  }
+
+  /** The targets, in generation order (dependencies before their dependents). */
+  public ImmutableList<IntellijIdeInfo.TargetIdeInfo> getTargetProtos() {
+    return targets;
+  }
+
+  /**
+   * Converts the generated targets to a {@link TargetMap}. Requires the java rule kinds to be
+   * registered.
+   */
+  public TargetMap buildTargetMap() {
+    ImmutableMap.Builder<TargetKey, TargetIdeInfo> map = ImmutableMap.builder();
+    for (IntellijIdeInfo.TargetIdeInfo proto : targets) {
+      TargetIdeInfo target = TargetIdeInfo.fromProto(proto);
+      if (target == null) {
+        throw new IllegalStateException("Unknown kind: " + proto.getKindString());
+      }
+      map.put(target.getKey(), target);
+    }
+    return new TargetMap(map.build());
+  }
+
+  /** Workspace relative paths of all generated java sources, mapped to their java package. */
+  public ImmutableMap<String, String> getJavaPackages() {
+    return javaPackages;
+  }
+
+  /** The top-level directories of the generated source tree, one per project view directory. */
+  public ImmutableList<WorkspacePath> getDirectories() {
+    return directories;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Builder for {@link SyntheticProject}. */
+  public static final class Builder {
+    private int targetCount = 1000;
+    private Shape shape = Shape.WIDE;
+    private int depsPerTarget = 10;
+    private int sourcesPerTarget = 5;
+    private long seed = 0;
+
+    private Builder() {}
+
+    public Builder setTargetCount(int targetCount) {
+      this.targetCount = targetCount;
+      return this;
+    }
+
+    public Builder setShape(Shape shape) {
+      this.shape = shape;
+      return this;
+    }
+
+    public Builder setDepsPerTarget(int depsPerTarget) {
+      this.depsPerTarget = depsPerTarget;
+      return this;
+    }
+
+    public Builder setSourcesPerTarget(int sourcesPerTarget) {
+      this.sourcesPerTarget = sourcesPerTarget;
+      return this;
+    }
+
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    public SyntheticProject build() {
+      Random random = new Random(seed);
+      List<String> labels = new ArrayList<>(targetCount);
+      ImmutableList.Builder<IntellijIdeInfo.TargetIdeInfo> targets = ImmutableList.builder();
+      ImmutableMap.Builder<String, String> javaPackages = ImmutableMap.builder();
+      for (int i = 0; i < targetCount; i++) {
+        int packageIndex = i / TARGETS_PER_PACKAGE;
+        int directoryIndex = packageIndex / PACKAGES_PER_DIRECTORY;
+        String packagePath =
+            String.format(
+                "%s/%s/dir%d/pkg%d", SOURCE_ROOT, ROOT_PACKAGE, directoryIndex, packageIndex);
+        boolean isTest = i % TARGETS_PER_PACKAGE == TARGETS_PER_PACKAGE - 1;
+        String name = isTest ? "tests" : "lib" + (i % TARGETS_PER_PACKAGE);
+        String label = "//" + packagePath + ":" + name;
+        labels.add(label);
+
+        IntellijIdeInfo.JavaIdeInfo.Builder javaInfo = IntellijIdeInfo.JavaIdeInfo.newBuilder();
+        String javaPackage = packagePath.substring(SOURCE_ROOT.length() + 1).replace('/', '.');
+        for (int j = 0; j < sourcesPerTarget; j++) {
+          String source = String.format("%s/%s%dSource%d.java", packagePath, name, i, j);
+          javaInfo.addSources(sourceArtifact(source));
+          javaPackages.put(source, javaPackage);
+        }
+        String outputPrefix = packagePath + "/lib" + name;
+        javaInfo.addJars(
+            IntellijIdeInfo.LibraryArtifact.newBuilder()
+                .setJar(outputArtifact(outputPrefix + ".jar"))
+                .setInterfaceJar(outputArtifact(outputPrefix + "-hjar.jar"))
+                .addSourceJars(outputArtifact(outputPrefix + "-src.jar")));
+        javaInfo.setJdeps(outputArtifact(outputPrefix + ".jdeps"));
+
+        IntellijIdeInfo.TargetIdeInfo.Builder target =
+            IntellijIdeInfo.TargetIdeInfo.newBuilder()
+                .setKindString(isTest ? "java_test" : "java_library")
+                .setKey(IntellijIdeInfo.TargetKey.newBuilder().setLabel(label))
+                .setBuildFileArtifactLocation(sourceArtifact(packagePath + "/BUILD"))
+                .setJavaIdeInfo(javaInfo);
+        int directoryStart = directoryIndex * PACKAGES_PER_DIRECTORY * TARGETS_PER_PACKAGE;
+        for (int dep : chooseDependencies(random, i, directoryStart)) {
+          target.addDeps(
+              IntellijIdeInfo.Dependency.newBuilder()
+                  .setTarget(IntellijIdeInfo.TargetKey.newBuilder().setLabel(labels.get(dep))));
+        }
+        targets.add(target.build());
+      }
+      int directoryCount =
+          (targetCount + PACKAGES_PER_DIRECTORY * TARGETS_PER_PACKAGE - 1)
+              / (PACKAGES_PER_DIRECTORY * TARGETS_PER_PACKAGE);
+      ImmutableList.Builder<WorkspacePath> directories = ImmutableList.builder();
+      for (int i = 0; i < directoryCount; i++) {
+        directories.add(new WorkspacePath(SOURCE_ROOT + "/" + ROOT_PACKAGE + "/dir" + i));
+      }
+      return new SyntheticProject(targets.build(), javaPackages.build(), directories.build());
+    }
+
+    /** Returns the indices of the (earlier) targets the given target depends on. */
+    private Set<Integer> chooseDependencies(Random random, int target, int directoryStart) {
+      Set<Integer> deps = new LinkedHashSet<>();
+      for (int i = 0; i < depsPerTarget && i < target; i++) {
+        switch (shape) {
+          case WIDE:
+            deps.add(random.nextInt(target));
+            break;
+          case DEEP:
+            deps.add(target - 1 - i);
+            break;
+          case CLUSTERED:
+            boolean crossDirectory =
+                directoryStart == target || random.nextInt(100) < CROSS_DIRECTORY_PERCENT;
+            deps.add(
+                crossDirectory
+                    ? random.nextInt(target)
+                    : directoryStart + random.nextInt(target - directoryStart));
+            break;
+        }
+      }
+      return deps;
+    }
+
+    private static Common.ArtifactLocation sourceArtifact(String relativePath) {
+      return Common.ArtifactLocation.newBuilder()
+          .setRelativePath(relativePath)
+          .setIsSource(true)
+          .build();
+    }
+
+    private static Common.ArtifactLocation outputArtifact(String relativePath) {
+      return Common.ArtifactLocation.newBuilder()
+          .setRelativePath(relativePath)
+          .setRootExecutionPathFragment(OUTPUT_ROOT)
+          .build();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.benchmarks;
+
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
+import com.google.idea.blaze.base.model.primitives.Kind;
+import com.google.idea.blaze.java.JavaBlazeRules;
+import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base class for benchmarks run against a {@link SyntheticProject}, with a mock application and
+ * project set up as for unit tests.
+ *
+ * <p>The size and shape of the generated project are JMH parameters, and can be overridden from
+ * the command line, e.g. {@code -p targets=50000 -p shape=DEEP}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class SyntheticProjectBenchmark extends BlazeTestCase {
+
+  @Param({"1000", "10000"})
+  public int targets;
+
+  @Param({"WIDE", "DEEP", "CLUSTERED"})
+  public SyntheticProject.Shape shape;
+
+  @Param({"10"})
+  public int depsPerTarget;
+
+  @Param({"5"})
+  public int sourcesPerTarget;
+
+  protected SyntheticProject syntheticProject;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws Exception {
+    setup();
+    syntheticProject =
+        SyntheticProject.builder()
+            .setTargetCount(targets)
+            .setShape(shape)
+            .setDepsPerTarget(depsPerTarget)
+            .setSourcesPerTarget(sourcesPerTarget)
+            .build();
+    prepare();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    tearDown();
+  }
+
+  /** Prepares the benchmark inputs, once services are registered and the project generated. */
+  protected abstract void prepare() throws Exception;
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    ExtensionPointImpl<Kind.Provider> kindProvider =
+        registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class);
+    kindProvider.registerExtension(new GenericBlazeRules());
+    kindProvider.registerExtension(new JavaBlazeRules());
+    applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.java.sync.source;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.devtools.intellij.aspect.Common;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
+import com.google.idea.blaze.base.async.executor.MockBlazeExecutor;
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.io.FileOperationProvider;
+import com.google.idea.blaze.base.io.InputStreamProvider;
+import com.google.idea.blaze.base.io.MockInputStreamProvider;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.prefetch.MockPrefetchService;
+import com.google.idea.blaze.base.prefetch.PrefetchService;
+import com.google.idea.blaze.base.projectview.section.sections.DirectoryEntry;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.settings.BuildSystem;
+import com.google.idea.blaze.base.sync.projectview.ImportRoots;
+import com.google.idea.blaze.base.sync.workspace.ArtifactLocationDecoder;
+import com.google.idea.blaze.base.sync.workspace.MockArtifactLocationDecoder;
+import com.google.idea.blaze.benchmarks.SyntheticProjectBenchmark;
+import com.google.idea.blaze.java.sync.model.BlazeContentEntry;
+import com.google.idea.common.experiments.ExperimentService;
+import com.google.idea.common.experiments.MockExperimentService;
+import java.io.File;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures calculating the content entries and source directories of a project, with package
+ * prefixes read from the java sources themselves (no package manifests).
+ */
+public class SourceDirectoryCalculatorBenchmark extends SyntheticProjectBenchmark {
+
+  private static final File WORKSPACE = new File("/workspace");
+
+  private final WorkspaceRoot workspaceRoot = new WorkspaceRoot(WORKSPACE);
+  private final ArtifactLocationDecoder decoder =
+      new MockArtifactLocationDecoder() {
+        @Override
+        public File decode(ArtifactLocation artifactLocation) {
+          return new File(WORKSPACE, artifactLocation.getRelativePath());
+        }
+      };
+
+  private MockInputStreamProvider inputStreamProvider;
+  private ImportRoots importRoots;
+  private ImmutableList<SourceArtifact> sources;
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    inputStreamProvider = new MockInputStreamProvider();
+    applicationServices.register(InputStreamProvider.class, inputStreamProvider);
+    applicationServices.register(JavaSourcePackageReader.class, new JavaSourcePackageReader());
+    applicationServices.register(PackageManifestReader.class, new PackageManifestReader());
+    applicationServices.register(FileOperationProvider.class, new FileOperationProvider());
+    applicationServices.register(BlazeExecutor.class, new MockBlazeExecutor());
+    applicationServices.register(ExperimentService.class, new MockExperimentService());
+    applicationServices.register(PrefetchService.class, new MockPrefetchService());
+    registerExtensionPoint(JavaLikeLanguage.EP_NAME, JavaLikeLanguage.class)
+        .registerExtension(new JavaLikeLanguage.Java());
+  }
+
+  @Override
+  protected void prepare() {
+    for (Map.Entry<String, String> source : syntheticProject.getJavaPackages().entrySet()) {
+      File file = new File(WORKSPACE, source.getKey());
+      String className = file.getName().substring(0, file.getName().length() - ".java".length());
+      inputStreamProvider.addFile(
+          file.getPath(),
+          String.format("package %s;\n\npublic class %s {}\n", source.getValue(), className));
+    }
+    ImportRoots.Builder roots = ImportRoots.builder(workspaceRoot, BuildSystem.Bazel);
+    for (WorkspacePath directory : syntheticProject.getDirectories()) {
+      roots.add(DirectoryEntry.include(directory));
+    }
+    importRoots = roots.build();
+
+    ImmutableList.Builder<SourceArtifact> sources = ImmutableList.builder();
+    for (IntellijIdeInfo.TargetIdeInfo target : syntheticProject.getTargetProtos()) {
+      TargetKey key = TargetKey.fromProto(target.getKey());
+      for (Common.ArtifactLocation source : target.getJavaIdeInfo().getSourcesList()) {
+        sources.add(new SourceArtifact(key, ArtifactLocation.fromProto(source)));
+      }
+    }
+    this.sources = sources.build();
+  }
+
+  @Benchmark
+  public ImmutableList<BlazeContentEntry> calculateContentEntries() {
+    BlazeContext context = new BlazeContext();
+    try {
+      return new SourceDirectoryCalculator()
+          .calculateContentEntries(
+              project,
+              context,
+              workspaceRoot,
+              decoder,
+              importRoots,
+              sources,
+              ImmutableMap.of());
+    } finally {
+      context.endScope();
+    }
+  }
+}
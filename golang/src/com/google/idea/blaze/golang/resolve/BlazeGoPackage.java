@@ -27,23 +27,17 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.idea.blaze.base.command.buildresult.OutputArtifactResolver;
 import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
-import com.google.idea.blaze.base.ideinfo.GoIdeInfo;
 import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
-import com.google.idea.blaze.base.ideinfo.TargetKey;
-import com.google.idea.blaze.base.ideinfo.TargetMap;
 import com.google.idea.blaze.base.io.VfsUtils;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
 import com.google.idea.blaze.base.lang.buildfile.psi.FuncallExpression;
 import com.google.idea.blaze.base.lang.buildfile.references.BuildReferenceManager;
 import com.google.idea.blaze.base.model.BlazeProjectData;
-import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
 import com.google.idea.blaze.base.model.primitives.Label;
-import com.google.idea.blaze.base.model.primitives.LanguageClass;
-import com.google.idea.blaze.base.model.primitives.RuleType;
 import com.google.idea.blaze.base.sync.SyncCache;
 import com.google.idea.blaze.base.sync.workspace.WorkspaceHelper;
-import com.google.idea.blaze.base.targetmaps.ReverseDependencyMap;
 import com.google.idea.blaze.golang.GoBlazeRules.RuleTypes;
+import com.google.idea.blaze.golang.resolve.GoImportPathIndex.GoTarget;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicatorProvider;
@@ -90,37 +84,26 @@ public class BlazeGoPackage extends GoPackage {
 
   public static BlazeGoPackage create(
       Project project, BlazeProjectData projectData, String importPath, TargetIdeInfo target) {
-    return create(
+    GoTarget goTarget =
+        GoImportPathIndex.fromProjectData(project, projectData).getTarget(target.getKey());
+    if (goTarget == null) {
+      return new BlazeGoPackage(
+          project,
+          getPackageName(null, importPath),
+          importPath,
+          target.getKey().getLabel(),
+          ImmutableSet.of(),
+          VirtualFile.EMPTY_ARRAY);
+    }
+    Collection<File> files =
+        getTargetToFileMap(project, projectData).get(target.getKey().getLabel());
+    return new BlazeGoPackage(
         project,
+        getPackageName(goTarget, importPath),
         importPath,
-        replaceProtoLibrary(project, projectData, target.getKey()).getLabel(),
-        getTargetToFileMap(project, projectData).get(target.getKey().getLabel()));
-  }
-
-  static BlazeGoPackage create(
-      Project project, String importPath, Label label, Collection<File> files) {
-    return new BlazeGoPackage(
-        project, getPackageName(project, files, importPath), importPath, label, files);
-  }
-
-  /**
-   * The import path for proto_library doesn't match the target name, we need to replace the
-   * proto_library with the corresponding go_proto_library for them to match.
-   */
-  private static TargetKey replaceProtoLibrary(
-      Project project, BlazeProjectData projectData, TargetKey targetKey) {
-    TargetMap targetMap = projectData.getTargetMap();
-    TargetIdeInfo target = targetMap.get(targetKey);
-    if (target == null || target.getKind() != GenericBlazeRules.RuleTypes.PROTO_LIBRARY.getKind()) {
-      return targetKey;
-    }
-    return ReverseDependencyMap.get(project).get(targetKey).stream()
-        .map(targetMap::get)
-        .filter(Objects::nonNull)
-        .filter(t -> t.getKind() == RuleTypes.GO_PROTO_LIBRARY.getKind())
-        .map(TargetIdeInfo::getKey)
-        .findFirst()
-        .orElse(targetKey);
+        goTarget.label,
+        files,
+        getDirectories(project, projectData, goTarget, files));
   }
 
   static ImmutableMultimap<Label, File> getTargetToFileMap(
@@ -135,73 +118,45 @@ public class BlazeGoPackage extends GoPackage {
     return map;
   }
 
+  /**
+   * Resolves the sources of each go target in the {@link GoImportPathIndex}. This only decodes
+   * artifact locations, it doesn't touch the VFS.
+   */
   public static ImmutableMultimap<Label, File> getUncachedTargetToFileMap(
       Project project, BlazeProjectData projectData) {
-    ImmutableMultimap<Label, GoIdeInfo> libraryToTestMap = buildLibraryToTestMap(projectData);
     ImmutableMultimap.Builder<Label, File> builder = ImmutableMultimap.builder();
-    for (TargetIdeInfo target : projectData.getTargetMap().targets()) {
-      if (target.getGoIdeInfo() == null) {
-        continue;
-      }
-      builder.putAll(
-          target.getKey().getLabel(),
-          getSourceFiles(target, project, projectData, libraryToTestMap));
+    for (GoTarget target : GoImportPathIndex.fromProjectData(project, projectData).getTargets()) {
+      builder.putAll(target.targetKey.getLabel(), getSourceFiles(target, project, projectData));
     }
     return builder.build();
   }
 
   private static ImmutableSet<File> getSourceFiles(
-      TargetIdeInfo target,
-      Project project,
-      BlazeProjectData projectData,
-      ImmutableMultimap<Label, GoIdeInfo> libraryToTestMap) {
-    if (target.getKind() == RuleTypes.GO_WRAP_CC.getKind()) {
-      return getWrapCcGoFiles(project, projectData, target);
+      GoTarget target, Project project, BlazeProjectData projectData) {
+    if (target.sources.isEmpty()) {
+      TargetIdeInfo targetIdeInfo = projectData.getTargetMap().get(target.targetKey);
+      if (targetIdeInfo != null && targetIdeInfo.getKind() == RuleTypes.GO_WRAP_CC.getKind()) {
+        return getLegacyWrapCcGoFiles(projectData, targetIdeInfo);
+      }
     }
-    return Stream.concat(
-            Stream.of(target.getGoIdeInfo()),
-            libraryToTestMap.get(target.getKey().getLabel()).stream())
-        .map(GoIdeInfo::getSources)
-        .flatMap(Collection::stream)
+    return target.sources.stream()
         .map(a -> resolveArtifact(project, projectData, a))
         .filter(Objects::nonNull)
         .collect(toImmutableSet());
   }
 
-  private static ImmutableMultimap<Label, GoIdeInfo> buildLibraryToTestMap(
-      BlazeProjectData projectData) {
-    TargetMap targetMap = projectData.getTargetMap();
-    ImmutableMultimap.Builder<Label, GoIdeInfo> builder = ImmutableMultimap.builder();
-    for (TargetIdeInfo target : targetMap.targets()) {
-      if (target.getKind().getLanguageClass() != LanguageClass.GO
-          || target.getKind().getRuleType() != RuleType.TEST
-          || target.getGoIdeInfo() == null
-          || target.getGoIdeInfo().getLibraryLabels().isEmpty()) {
-        continue;
-      }
-      for (Label label : target.getGoIdeInfo().getLibraryLabels()) {
-        builder.put(label, target.getGoIdeInfo());
-      }
-    }
-    return builder.build();
-  }
-
   @Nullable
   private static File resolveArtifact(
       Project project, BlazeProjectData data, ArtifactLocation artifact) {
     return OutputArtifactResolver.resolve(project, data.getArtifactLocationDecoder(), artifact);
   }
 
-  private static ImmutableSet<File> getWrapCcGoFiles(
-      Project project, BlazeProjectData projectData, TargetIdeInfo target) {
-    if (!target.getGoIdeInfo().getSources().isEmpty()) {
-      return target.getGoIdeInfo().getSources().stream()
-          .map(a -> resolveArtifact(project, projectData, a))
-          .filter(Objects::nonNull)
-          .collect(toImmutableSet());
-    }
-    // older versions of blaze don't expose the .go genfile
-    // in that case, look directly in blaze-out
+  /**
+   * Older versions of blaze don't expose the .go genfile of go_wrap_cc targets. In that case, look
+   * directly in blaze-out.
+   */
+  private static ImmutableSet<File> getLegacyWrapCcGoFiles(
+      BlazeProjectData projectData, TargetIdeInfo target) {
     String blazePackage = target.getKey().getLabel().blazePackage().relativePath();
     File directory = new File(projectData.getBlazeInfo().getGenfilesDirectory(), blazePackage);
     String filename = blazePackage + '/' + target.getKey().getLabel().targetName() + ".go";
@@ -211,15 +166,23 @@ public class BlazeGoPackage extends GoPackage {
   }
 
   private BlazeGoPackage(
-      Project project, String packageName, String importPath, Label label, Collection<File> files) {
-    super(project, packageName, getDirectories(files));
+      Project project,
+      String packageName,
+      String importPath,
+      Label label,
+      Collection<File> files,
+      VirtualFile[] directories) {
+    super(project, packageName, directories);
     this.importPath = importPath;
     this.label = label;
     this.files = files;
   }
 
   /**
-   * Package name is determined by package declaration in the source files (must all be the same).
+   * Package name is determined by package declaration in the source files (must all be the same),
+   * which is read during sync and stored in the {@link GoImportPathIndex}. If none of the sources
+   * could be read then (e.g., generated sources which hadn't been built yet), falls back to the
+   * last component of the import path.
    *
    * <ul>
    *   <li>for {@link RuleTypes#GO_BINARY}, it will always be {@code main}.
@@ -232,23 +195,25 @@ public class BlazeGoPackage extends GoPackage {
    *       option, or automatically generated from the target name.
    * </ul>
    */
-  private static String getPackageName(Project project, Collection<File> files, String importPath) {
-    PsiManager psiManager = PsiManager.getInstance(project);
-    return files.stream()
-        .map(VfsUtils::resolveVirtualFile)
-        .filter(Objects::nonNull)
-        .map(psiManager::findFile)
-        .filter(GoFile.class::isInstance)
-        .map(GoFile.class::cast)
-        .map(GoFile::getCanonicalPackageName) // strips _test suffix from test packages
-        .filter(Objects::nonNull)
-        .findFirst() // short circuit
-        .orElseGet(() -> importPath.substring(importPath.lastIndexOf('/') + 1));
+  private static String getPackageName(@Nullable GoTarget goTarget, String importPath) {
+    if (goTarget != null && goTarget.packageName != null) {
+      return goTarget.packageName;
+    }
+    return importPath.substring(importPath.lastIndexOf('/') + 1);
   }
 
-  private static VirtualFile[] getDirectories(Collection<File> files) {
-    return files.stream()
-        .map(File::getParentFile)
+  /**
+   * Resolves the source directories listed in the {@link GoImportPathIndex}. {@link GoPackage}
+   * needs them as {@link VirtualFile}s, so this is a single VFS lookup per directory.
+   */
+  private static VirtualFile[] getDirectories(
+      Project project, BlazeProjectData projectData, GoTarget goTarget, Collection<File> files) {
+    Stream<File> directories =
+        goTarget.directories.isEmpty()
+            // legacy go_wrap_cc targets have no sources listed
+            ? files.stream().map(File::getParentFile)
+            : goTarget.directories.stream().map(d -> resolveArtifact(project, projectData, d));
+    return directories
         .filter(Objects::nonNull)
         .distinct()
         .map(VfsUtils::resolveVirtualFile)
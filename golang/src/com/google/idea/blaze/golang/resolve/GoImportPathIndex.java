@@ -0,0 +1,478 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.golang.resolve;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.devtools.intellij.model.ProjectData;
+import com.google.idea.blaze.base.command.buildresult.OutputArtifactResolver;
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
+import com.google.idea.blaze.base.ideinfo.Dependency;
+import com.google.idea.blaze.base.ideinfo.GoIdeInfo;
+import com.google.idea.blaze.base.ideinfo.ProtoWrapper;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.model.SyncData;
+import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.base.model.primitives.LanguageClass;
+import com.google.idea.blaze.base.model.primitives.RuleType;
+import com.google.idea.blaze.base.sync.SyncCache;
+import com.google.idea.blaze.golang.GoBlazeRules.RuleTypes;
+import com.intellij.openapi.project.Project;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * An index from go import paths to the targets, sources, directories and package names providing
+ * them, built during sync and persisted with the project data.
+ *
+ * <p>Each sync walks the merged target map, but targets whose import path and sources are
+ * unchanged reuse their previous entry, so only new or changed targets have their package name
+ * read from disk. Sources are persisted once, and referenced by index from every target using
+ * them.
+ */
+public final class GoImportPathIndex implements SyncData<ProjectData.GoImportPathIndex> {
+
+  /** The go sources of a single target. */
+  static final class GoTarget {
+    final TargetKey targetKey;
+    /** The label to navigate to. A proto_library is replaced by its go_proto_library. */
+    final Label label;
+    /** The import path of the target, or of the library under test for go_test targets. */
+    @Nullable final String importPath;
+    /** The target's sources, including those of any go_test targets testing it. */
+    final ImmutableList<ArtifactLocation> sources;
+    /**
+     * The package name declared by the target's sources, with any _test suffix removed, or null if
+     * none of them could be read during sync.
+     */
+    @Nullable final String packageName;
+    /** The distinct directories containing the sources. Derived, so not persisted. */
+    final ImmutableList<ArtifactLocation> directories;
+
+    GoTarget(
+        TargetKey targetKey,
+        Label label,
+        @Nullable String importPath,
+        ImmutableList<ArtifactLocation> sources,
+        @Nullable String packageName) {
+      this.targetKey = targetKey;
+      this.label = label;
+      this.importPath = importPath;
+      this.sources = sources;
+      this.packageName = packageName;
+      this.directories =
+          sources.stream()
+              .map(GoImportPathIndex::parentDirectory)
+              .filter(Objects::nonNull)
+              .distinct()
+              .collect(toImmutableList());
+    }
+
+    static GoTarget fromProto(
+        ProjectData.GoImportPathIndex.GoTarget proto, List<ArtifactLocation> allSources) {
+      return new GoTarget(
+          TargetKey.fromProto(proto.getTargetKey()),
+          Label.fromProto(proto.getLabel()),
+          Strings.emptyToNull(proto.getImportPath()),
+          proto.getSourceIndicesList().stream().map(allSources::get).collect(toImmutableList()),
+          Strings.emptyToNull(proto.getPackageName()));
+    }
+
+    ProjectData.GoImportPathIndex.GoTarget toProto(ToIntFunction<ArtifactLocation> sourceIndex) {
+      ProjectData.GoImportPathIndex.GoTarget.Builder builder =
+          ProjectData.GoImportPathIndex.GoTarget.newBuilder()
+              .setTargetKey(targetKey.toProto())
+              .setLabel(label.toProto())
+              .setImportPath(Strings.nullToEmpty(importPath))
+              .setPackageName(Strings.nullToEmpty(packageName));
+      sources.forEach(source -> builder.addSourceIndices(sourceIndex.applyAsInt(source)));
+      return builder.build();
+    }
+
+    /**
+     * Whether this entry can be reused for a target with the given properties. Entries without a
+     * package name are never reused, as their sources may have been built since.
+     */
+    private boolean matches(
+        Label label, @Nullable String importPath, List<ArtifactLocation> sources) {
+      return packageName != null
+          && this.label.equals(label)
+          && Objects.equals(this.importPath, importPath)
+          && this.sources.equals(sources);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GoTarget)) {
+        return false;
+      }
+      GoTarget other = (GoTarget) o;
+      return targetKey.equals(other.targetKey)
+          && label.equals(other.label)
+          && Objects.equals(importPath, other.importPath)
+          && sources.equals(other.sources)
+          && Objects.equals(packageName, other.packageName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(targetKey, label, importPath, sources, packageName);
+    }
+  }
+
+  private static final GoImportPathIndex EMPTY =
+      new GoImportPathIndex(ImmutableMap.of(), ImmutableMap.of());
+
+  /** Only the start of each file is searched for the package clause. */
+  private static final int MAX_PACKAGE_CLAUSE_OFFSET = 64 * 1024;
+
+  private final ImmutableMap<TargetKey, GoTarget> targets;
+  private final ImmutableMap<String, TargetKey> importPathToTarget;
+
+  private GoImportPathIndex(
+      ImmutableMap<TargetKey, GoTarget> targets,
+      ImmutableMap<String, TargetKey> importPathToTarget) {
+    this.targets = targets;
+    this.importPathToTarget = importPathToTarget;
+  }
+
+  /**
+   * Returns the index built during the last sync. If the project data predates it, an index is
+   * built once and cached until the next sync.
+   */
+  static GoImportPathIndex fromProjectData(Project project, BlazeProjectData projectData) {
+    GoImportPathIndex index = projectData.getSyncState().get(GoImportPathIndex.class);
+    if (index != null) {
+      return index;
+    }
+    index =
+        SyncCache.getInstance(project)
+            .get(
+                GoImportPathIndex.class,
+                (p, data) -> build(data.getTargetMap(), sourceFileResolver(p, data), null));
+    // null only if there's no project data any more
+    return index != null ? index : EMPTY;
+  }
+
+  /** Resolves artifacts to local files, for reading their package clauses. */
+  public static Function<ArtifactLocation, File> sourceFileResolver(
+      Project project, BlazeProjectData projectData) {
+    return artifact ->
+        OutputArtifactResolver.resolve(
+            project, projectData.getArtifactLocationDecoder(), artifact);
+  }
+
+  ImmutableCollection<GoTarget> getTargets() {
+    return targets.values();
+  }
+
+  @Nullable
+  GoTarget getTarget(TargetKey key) {
+    return targets.get(key);
+  }
+
+  /** Returns the target providing the go package with the given import path. */
+  @Nullable
+  GoTarget getTargetForImportPath(String importPath) {
+    TargetKey key = importPathToTarget.get(importPath);
+    return key != null ? targets.get(key) : null;
+  }
+
+  /**
+   * Builds the index for the given target map, reusing the entries of the previous index for any
+   * targets whose import path and sources haven't changed.
+   *
+   * @param fileResolver resolves sources to local files (or null), to read their package names
+   */
+  public static GoImportPathIndex build(
+      TargetMap targetMap,
+      Function<ArtifactLocation, File> fileResolver,
+      @Nullable GoImportPathIndex previous) {
+    ImmutableMultimap<Label, GoIdeInfo> libraryToTestMap = buildLibraryToTestMap(targetMap);
+    Map<TargetKey, TargetKey> protoToGoProto = buildProtoToGoProtoMap(targetMap);
+    ImmutableMap.Builder<TargetKey, GoTarget> targets = ImmutableMap.builder();
+    Map<String, TargetKey> importPathToTarget = new HashMap<>();
+    for (TargetIdeInfo target : targetMap.targets()) {
+      GoIdeInfo goIdeInfo = target.getGoIdeInfo();
+      if (goIdeInfo == null) {
+        continue;
+      }
+      TargetKey key = target.getKey();
+      ImmutableList<ArtifactLocation> sources =
+          Stream.concat(Stream.of(goIdeInfo), libraryToTestMap.get(key.getLabel()).stream())
+              .flatMap(info -> info.getSources().stream())
+              .distinct()
+              .collect(toImmutableList());
+      Label label = protoToGoProto.getOrDefault(key, key).getLabel();
+      String fileImportPath = getFileImportPath(targetMap, target);
+      GoTarget previousTarget = previous != null ? previous.targets.get(key) : null;
+      targets.put(
+          key,
+          previousTarget != null && previousTarget.matches(label, fileImportPath, sources)
+              ? previousTarget
+              : new GoTarget(
+                  key, label, fileImportPath, sources, readPackageName(sources, fileResolver)));
+
+      String importPath = goIdeInfo.getImportPath();
+      if (importPath != null) {
+        // duplicates are possible (e.g., same target with different aspects)
+        // choose the one with the most sources (though they're probably the same)
+        importPathToTarget.merge(
+            importPath,
+            key,
+            (first, second) ->
+                targetMap.get(first).getGoIdeInfo().getSources().size()
+                        >= targetMap.get(second).getGoIdeInfo().getSources().size()
+                    ? first
+                    : second);
+      }
+    }
+    return new GoImportPathIndex(targets.build(), ImmutableMap.copyOf(importPathToTarget));
+  }
+
+  /**
+   * Reads the package name from the package clause of the first readable source, preferring
+   * non-test sources.
+   */
+  @Nullable
+  private static String readPackageName(
+      List<ArtifactLocation> sources, Function<ArtifactLocation, File> fileResolver) {
+    Comparator<ArtifactLocation> testSourcesLast =
+        Comparator.comparing(source -> source.getRelativePath().endsWith("_test.go"));
+    return sources.stream()
+        .filter(source -> source.getRelativePath().endsWith(".go"))
+        .sorted(testSourcesLast)
+        .map(fileResolver)
+        .filter(Objects::nonNull)
+        .map(GoImportPathIndex::readPackageName)
+        .filter(Objects::nonNull)
+        .findFirst()
+        .orElse(null);
+  }
+
+  /**
+   * Returns the package name declared by the given go file, with any _test suffix removed, or null
+   * if the file can't be read or has no package clause near the start.
+   */
+  @Nullable
+  private static String readPackageName(File file) {
+    char[] buffer = new char[MAX_PACKAGE_CLAUSE_OFFSET];
+    int length = 0;
+    try (Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8)) {
+      int read;
+      while (length < buffer.length
+          && (read = reader.read(buffer, length, buffer.length - length)) != -1) {
+        length += read;
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    String name = parsePackageClause(new String(buffer, 0, length));
+    if (name != null && name.endsWith("_test")) {
+      name = name.substring(0, name.length() - "_test".length());
+    }
+    return Strings.emptyToNull(name);
+  }
+
+  /** Skips any leading comments and whitespace, and parses 'package name'. */
+  @Nullable
+  private static String parsePackageClause(String text) {
+    int i = 0;
+    while (i < text.length()) {
+      char c = text.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (text.startsWith("//", i)) {
+        while (i < text.length() && text.charAt(i) != '\n') {
+          i++;
+        }
+      } else if (text.startsWith("/*", i)) {
+        int end = text.indexOf("*/", i + 2);
+        if (end < 0) {
+          return null;
+        }
+        i = end + 2;
+      } else {
+        break;
+      }
+    }
+    if (!text.startsWith("package", i)) {
+      return null;
+    }
+    i += "package".length();
+    int start = i;
+    while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+      i++;
+    }
+    if (i == start) {
+      return null;
+    }
+    start = i;
+    while (i < text.length() && Character.isJavaIdentifierPart(text.charAt(i))) {
+      i++;
+    }
+    return text.substring(start, i);
+  }
+
+  @Nullable
+  private static ArtifactLocation parentDirectory(ArtifactLocation source) {
+    String relativePath = source.getRelativePath();
+    int lastSlash = relativePath.lastIndexOf('/');
+    if (lastSlash < 0) {
+      return null;
+    }
+    return ArtifactLocation.Builder.copy(source)
+        .setRelativePath(relativePath.substring(0, lastSlash))
+        .build();
+  }
+
+  @Nullable
+  private static String getFileImportPath(TargetMap targetMap, TargetIdeInfo target) {
+    return target.getGoIdeInfo().getLibraryLabels().stream()
+        .map(TargetKey::forPlainTarget)
+        .map(targetMap::get)
+        .filter(Objects::nonNull)
+        .map(TargetIdeInfo::getGoIdeInfo)
+        .filter(Objects::nonNull)
+        .map(GoIdeInfo::getImportPath)
+        .filter(Objects::nonNull)
+        .findFirst()
+        .orElse(target.getGoIdeInfo().getImportPath());
+  }
+
+  private static ImmutableMultimap<Label, GoIdeInfo> buildLibraryToTestMap(TargetMap targetMap) {
+    ImmutableMultimap.Builder<Label, GoIdeInfo> builder = ImmutableMultimap.builder();
+    for (TargetIdeInfo target : targetMap.targets()) {
+      if (target.getKind().getLanguageClass() != LanguageClass.GO
+          || target.getKind().getRuleType() != RuleType.TEST
+          || target.getGoIdeInfo() == null
+          || target.getGoIdeInfo().getLibraryLabels().isEmpty()) {
+        continue;
+      }
+      for (Label label : target.getGoIdeInfo().getLibraryLabels()) {
+        builder.put(label, target.getGoIdeInfo());
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * The import path for proto_library doesn't match the target name, we need to replace the
+   * proto_library with the corresponding go_proto_library for them to match.
+   */
+  private static Map<TargetKey, TargetKey> buildProtoToGoProtoMap(TargetMap targetMap) {
+    Map<TargetKey, TargetKey> map = new HashMap<>();
+    for (TargetIdeInfo target : targetMap.targets()) {
+      if (target.getKind() != RuleTypes.GO_PROTO_LIBRARY.getKind()) {
+        continue;
+      }
+      for (Dependency dep : target.getDependencies()) {
+        TargetIdeInfo depTarget = targetMap.get(dep.getTargetKey());
+        if (depTarget != null
+            && depTarget.getKind() == GenericBlazeRules.RuleTypes.PROTO_LIBRARY.getKind()) {
+          map.putIfAbsent(dep.getTargetKey(), target.getKey());
+        }
+      }
+    }
+    return map;
+  }
+
+  private static GoImportPathIndex fromProto(ProjectData.GoImportPathIndex proto) {
+    // sources are stored once, and shared between all targets referencing them
+    ImmutableList<ArtifactLocation> sources =
+        ProtoWrapper.map(proto.getSourcesList(), ArtifactLocation::fromProto);
+    return new GoImportPathIndex(
+        proto.getTargetsList().stream()
+            .map(target -> GoTarget.fromProto(target, sources))
+            .collect(ImmutableMap.toImmutableMap(t -> t.targetKey, t -> t, (a, b) -> a)),
+        ProtoWrapper.map(proto.getImportPathToTargetMap(), s -> s, TargetKey::fromProto));
+  }
+
+  @Override
+  public ProjectData.GoImportPathIndex toProto() {
+    ProjectData.GoImportPathIndex.Builder builder = ProjectData.GoImportPathIndex.newBuilder();
+    Map<ArtifactLocation, Integer> sourceIndices = new HashMap<>();
+    ToIntFunction<ArtifactLocation> sourceIndex =
+        source ->
+            sourceIndices.computeIfAbsent(
+                source,
+                s -> {
+                  builder.addSources(s.toProto());
+                  return builder.getSourcesCount() - 1;
+                });
+    targets.values().forEach(target -> builder.addTargets(target.toProto(sourceIndex)));
+    return builder
+        .putAllImportPathToTarget(ProtoWrapper.map(importPathToTarget, s -> s, TargetKey::toProto))
+        .build();
+  }
+
+  @Override
+  public void insert(ProjectData.SyncState.Builder builder) {
+    builder.setGoImportPathIndex(toProto());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof GoImportPathIndex)) {
+      return false;
+    }
+    GoImportPathIndex other = (GoImportPathIndex) o;
+    return targets.equals(other.targets) && importPathToTarget.equals(other.importPathToTarget);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(targets, importPathToTarget);
+  }
+
+  static class Extractor implements SyncData.Extractor<GoImportPathIndex> {
+    @Nullable
+    @Override
+    public GoImportPathIndex extract(ProjectData.SyncState syncState) {
+      return syncState.hasGoImportPathIndex()
+          ? GoImportPathIndex.fromProto(syncState.getGoImportPathIndex())
+          : null;
+    }
+  }
+}
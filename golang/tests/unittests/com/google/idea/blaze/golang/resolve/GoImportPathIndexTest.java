@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.golang.resolve;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.devtools.intellij.model.ProjectData;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
+import com.google.idea.blaze.base.ideinfo.GoIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.ideinfo.TargetMapBuilder;
+import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
+import com.google.idea.blaze.base.model.primitives.Kind;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.golang.GoBlazeRules;
+import com.google.idea.blaze.golang.resolve.GoImportPathIndex.GoTarget;
+import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link GoImportPathIndex}. */
+@RunWith(JUnit4.class)
+public class GoImportPathIndexTest extends BlazeTestCase {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Override
+  protected void initTest(
+      @NotNull Container applicationServices, @NotNull Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    ExtensionPointImpl<Kind.Provider> kindProvider =
+        registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class);
+    kindProvider.registerExtension(new GenericBlazeRules());
+    kindProvider.registerExtension(new GoBlazeRules());
+    applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+  }
+
+  @Test
+  public void testTestSourcesAreIncludedInLibrary() {
+    TargetMap targetMap =
+        TargetMapBuilder.builder()
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setBuildFile(sourceRoot("foo/BUILD"))
+                    .setLabel("//foo:lib")
+                    .setKind("go_library")
+                    .setGoInfo(
+                        GoIdeInfo.builder()
+                            .addSource(sourceRoot("foo/lib.go"))
+                            .setImportPath("example.com/foo")))
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setBuildFile(sourceRoot("foo/BUILD"))
+                    .setLabel("//foo:lib_test")
+                    .setKind("go_test")
+                    .setGoInfo(
+                        GoIdeInfo.builder()
+                            .addSource(sourceRoot("foo/lib_test.go"))
+                            .addLibraryLabel("//foo:lib")))
+            .build();
+
+    GoImportPathIndex index = build(targetMap);
+
+    GoTarget library = index.getTargetForImportPath("example.com/foo");
+    assertThat(library).isNotNull();
+    assertThat(library.label).isEqualTo(Label.create("//foo:lib"));
+    assertThat(library.sources)
+        .containsExactly(sourceRoot("foo/lib.go"), sourceRoot("foo/lib_test.go"));
+
+    GoTarget test = index.getTarget(TargetKey.forPlainTarget(Label.create("//foo:lib_test")));
+    assertThat(test).isNotNull();
+    assertThat(test.importPath).isEqualTo("example.com/foo");
+  }
+
+  @Test
+  public void testProtoLibraryNavigatesToGoProtoLibrary() {
+    TargetMap targetMap =
+        TargetMapBuilder.builder()
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setBuildFile(sourceRoot("foo/BUILD"))
+                    .setLabel("//foo:proto")
+                    .setKind("proto_library")
+                    .setGoInfo(GoIdeInfo.builder().setImportPath("example.com/foo/proto")))
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setBuildFile(sourceRoot("foo/BUILD"))
+                    .setLabel("//foo:go_proto")
+                    .setKind("go_proto_library")
+                    .addDependency("//foo:proto")
+                    .setGoInfo(GoIdeInfo.builder()))
+            .build();
+
+    GoTarget target =
+        build(targetMap).getTargetForImportPath("example.com/foo/proto");
+    assertThat(target).isNotNull();
+    assertThat(target.label).isEqualTo(Label.create("//foo:go_proto"));
+  }
+
+  @Test
+  public void testUnknownImportPath() {
+    GoImportPathIndex index = build(TargetMapBuilder.builder().build());
+    assertThat(index.getTargetForImportPath("example.com/missing")).isNull();
+  }
+
+  @Test
+  public void testPackageNameIsReadFromSources() throws IOException {
+    writeSource("foo/lib.go", "// Copyright\n/* a\n * b */\npackage foo_impl // comment\n");
+    writeSource("foo/lib_test.go", "package foo_impl_test\n");
+    writeSource("foo/testdata/helper_test.go", "package foo_impl_test\n");
+
+    GoTarget library = build(libraryWithTest()).getTargetForImportPath("example.com/foo");
+    assertThat(library).isNotNull();
+    assertThat(library.packageName).isEqualTo("foo_impl");
+    assertThat(library.directories)
+        .containsExactly(sourceRoot("foo"), sourceRoot("foo/testdata"))
+        .inOrder();
+  }
+
+  @Test
+  public void testUnreadableSourcesHaveNoPackageName() {
+    GoTarget library = build(libraryWithTest()).getTargetForImportPath("example.com/foo");
+    assertThat(library).isNotNull();
+    assertThat(library.packageName).isNull();
+  }
+
+  @Test
+  public void testUnchangedTargetsAreReused() throws IOException {
+    writeSource("foo/lib.go", "package foo\n");
+    writeSource("foo/lib_test.go", "package foo_test\n");
+    GoImportPathIndex previous = build(libraryWithTest());
+
+    List<ArtifactLocation> resolved = new ArrayList<>();
+    GoImportPathIndex index =
+        GoImportPathIndex.build(
+            libraryWithTest(),
+            artifact -> {
+              resolved.add(artifact);
+              return resolve(artifact);
+            },
+            previous);
+
+    TargetKey test = TargetKey.forPlainTarget(Label.create("//foo:lib_test"));
+    assertThat(index.getTargetForImportPath("example.com/foo"))
+        .isSameAs(previous.getTargetForImportPath("example.com/foo"));
+    assertThat(index.getTarget(test)).isSameAs(previous.getTarget(test));
+    assertThat(resolved).isEmpty();
+  }
+
+  @Test
+  public void testSourcesArePersistedOnce() throws IOException {
+    writeSource("foo/lib.go", "package foo\n");
+    GoImportPathIndex index = build(libraryWithTest());
+
+    ProjectData.GoImportPathIndex proto = index.toProto();
+    assertThat(proto.getSourcesCount()).isEqualTo(3);
+    ProjectData.SyncState.Builder syncState = ProjectData.SyncState.newBuilder();
+    index.insert(syncState);
+    assertThat(new GoImportPathIndex.Extractor().extract(syncState.build())).isEqualTo(index);
+  }
+
+  private TargetMap libraryWithTest() {
+    return TargetMapBuilder.builder()
+        .addTarget(
+            TargetIdeInfo.builder()
+                .setBuildFile(sourceRoot("foo/BUILD"))
+                .setLabel("//foo:lib")
+                .setKind("go_library")
+                .setGoInfo(
+                    GoIdeInfo.builder()
+                        .addSource(sourceRoot("foo/lib.go"))
+                        .setImportPath("example.com/foo")))
+        .addTarget(
+            TargetIdeInfo.builder()
+                .setBuildFile(sourceRoot("foo/BUILD"))
+                .setLabel("//foo:lib_test")
+                .setKind("go_test")
+                .setGoInfo(
+                    GoIdeInfo.builder()
+                        .addSource(sourceRoot("foo/lib_test.go"))
+                        .addSource(sourceRoot("foo/testdata/helper_test.go"))
+                        .addLibraryLabel("//foo:lib")))
+        .build();
+  }
+
+  private GoImportPathIndex build(TargetMap targetMap) {
+    return GoImportPathIndex.build(targetMap, this::resolve, null);
+  }
+
+  private File resolve(ArtifactLocation artifact) {
+    return new File(folder.getRoot(), artifact.getRelativePath());
+  }
+
+  private void writeSource(String relativePath, String contents) throws IOException {
+    File file = resolve(sourceRoot(relativePath));
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), contents.getBytes(UTF_8));
+  }
+
+  private static ArtifactLocation sourceRoot(String relativePath) {
+    return ArtifactLocation.builder().setRelativePath(relativePath).setIsSource(true).build();
+  }
+}
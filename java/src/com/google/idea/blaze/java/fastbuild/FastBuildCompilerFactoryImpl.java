@@ -21,6 +21,9 @@ import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
 import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.Reflection;
 import com.google.idea.blaze.base.logging.EventLoggingService;
@@ -39,14 +42,15 @@ import com.google.idea.blaze.java.fastbuild.FastBuildCompiler.CompileInstruction
 import com.google.idea.blaze.java.fastbuild.FastBuildLogDataScope.FastBuildLogOutput;
 import com.intellij.ide.plugins.IdeaPluginDescriptor;
 import com.intellij.ide.plugins.PluginManager;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.LowMemoryWatcher;
 import com.intellij.openapi.util.text.StringUtil;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
@@ -62,7 +66,7 @@ import javax.tools.Diagnostic.Kind;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaFileObject;
 
-final class FastBuildCompilerFactoryImpl implements FastBuildCompilerFactory {
+final class FastBuildCompilerFactoryImpl implements FastBuildCompilerFactory, Disposable {
 
   private static final Logger logger = Logger.getInstance(FastBuildCompilerFactoryImpl.class);
 
@@ -70,10 +74,29 @@ final class FastBuildCompilerFactoryImpl implements FastBuildCompilerFactory {
       "com.google.idea.blaze.java.fastbuild.FastBuildJavacImpl";
   private static final Path FAST_BUILD_JAVAC_JAR = Paths.get("lib", "libfast_build_javac.jar");
 
+  /**
+   * The number of toolchains to keep warm compilers for. Most projects only use a single one, but
+   * it's cheap to keep the previous toolchain around while switching branches.
+   */
+  private static final int MAX_LOADED_COMPILERS = 2;
+
   private final BlazeProjectDataManager projectDataManager;
   private final Supplier<EventLoggingService> eventLoggerSupplier;
   private final Supplier<File> fastBuildJavacJarSupplier;
 
+  /**
+   * Warm compilers, keyed by the jars they're loaded from. Held strongly, so every evicted compiler
+   * reaches the removal listener and has its classloader closed; they're dropped under memory
+   * pressure by a {@link LowMemoryWatcher} instead.
+   */
+  private final Cache<ImmutableList<File>, LoadedJavac> compilers =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_LOADED_COMPILERS)
+          .removalListener(
+              (RemovalListener<ImmutableList<File>, LoadedJavac>)
+                  notification -> notification.getValue().close())
+          .build();
+
   private FastBuildCompilerFactoryImpl(
       BlazeProjectDataManager projectDataManager,
       Supplier<EventLoggingService> eventLoggerSupplier,
@@ -88,6 +111,7 @@ final class FastBuildCompilerFactoryImpl implements FastBuildCompilerFactory {
         projectDataManager,
         EventLoggingService::getInstance,
         FastBuildCompilerFactoryImpl::findFastBuildJavacJar);
+    LowMemoryWatcher.register(compilers::invalidateAll, this);
   }
 
   static FastBuildCompilerFactoryImpl createForTest(
@@ -142,40 +166,60 @@ final class FastBuildCompilerFactoryImpl implements FastBuildCompilerFactory {
   }
 
   private Javac createCompiler(List<File> javacJars) throws FastBuildException {
-    try {
-
-      Class<?> javacClass =
-          loadJavacClass(
-              FAST_BUILD_JAVAC_CLASS,
-              ImmutableList.<File>builder()
-                  .addAll(javacJars)
-                  .add(fastBuildJavacJarSupplier.get())
-                  .build());
-
-      Constructor<?> createMethod = javacClass.getConstructor();
-      Object javacInstance = createMethod.newInstance();
+    LoadedJavac loadedJavac =
+        getLoadedJavac(
+            ImmutableList.<File>builder()
+                .addAll(javacJars)
+                .add(fastBuildJavacJarSupplier.get())
+                .build());
+    return (context, javacArgs, files, writer) -> {
+      Stopwatch timer = Stopwatch.createStarted();
+      boolean result =
+          loadedJavac.compile(javacArgs, files, new ProblemsViewDiagnosticListener(context));
+      Command command =
+          Command.builder()
+              .setExecutable(javacJars.get(0).getPath())
+              .setArguments(javacArgs)
+              .setExitCode(result ? 0 : 1)
+              .setSubcommandName("javac")
+              .setDuration(timer.elapsed())
+              .build();
+      eventLoggerSupplier.get().logCommand(getClass(), command);
+      return result;
+    };
+  }
 
-      FastBuildJavac javaCompiler =
-          Reflection.newProxy(
-              FastBuildJavac.class, new MatchingMethodInvocationHandler(javacClass, javacInstance));
-      return (context, javacArgs, files, writer) -> {
-        Stopwatch timer = Stopwatch.createStarted();
-        boolean result =
-            javaCompiler.compile(javacArgs, files, new ProblemsViewDiagnosticListener(context));
-        Command command =
-            Command.builder()
-                .setExecutable(javacJars.get(0).getPath())
-                .setArguments(javacArgs)
-                .setExitCode(result ? 0 : 1)
-                .setSubcommandName("javac")
-                .setDuration(timer.elapsed())
-                .build();
-        eventLoggerSupplier.get().logCommand(getClass(), command);
-        return result;
-      };
-    } catch (MalformedURLException | ReflectiveOperationException e) {
+  /**
+   * Returns a warm compiler loaded from the given jars, reusing the previous one unless any of the
+   * jars have changed since it was loaded.
+   */
+  private synchronized LoadedJavac getLoadedJavac(ImmutableList<File> jars)
+      throws FastBuildException {
+    ImmutableList<String> jarStamps = getJarStamps(jars);
+    LoadedJavac loadedJavac = compilers.getIfPresent(jars);
+    if (loadedJavac != null && loadedJavac.jarStamps.equals(jarStamps)) {
+      return loadedJavac;
+    }
+    // the toolchain has been rebuilt, or this is the first compile with it
+    compilers.invalidate(jars);
+    try {
+      loadedJavac = loadJavac(jars, jarStamps);
+    } catch (IOException | ReflectiveOperationException e) {
       throw new FastBuildIncrementalCompileException(e);
     }
+    compilers.put(jars, loadedJavac);
+    return loadedJavac;
+  }
+
+  private static ImmutableList<String> getJarStamps(List<File> jars) {
+    return jars.stream()
+        .map(jar -> jar.getPath() + ":" + jar.length() + ":" + jar.lastModified())
+        .collect(toImmutableList());
+  }
+
+  @Override
+  public void dispose() {
+    compilers.invalidateAll();
   }
 
   private static File findFastBuildJavacJar() {
@@ -187,14 +231,67 @@ final class FastBuildCompilerFactoryImpl implements FastBuildCompilerFactory {
         .toFile();
   }
 
-  private Class<?> loadJavacClass(String javaCompilerClass, List<File> jars)
-      throws MalformedURLException, ClassNotFoundException {
+  private static LoadedJavac loadJavac(List<File> jars, ImmutableList<String> jarStamps)
+      throws IOException, ReflectiveOperationException {
     URL[] urls = new URL[jars.size()];
     for (int i = 0; i < jars.size(); ++i) {
       urls[i] = jars.get(i).toURI().toURL();
     }
     URLClassLoader urlClassLoader = new URLClassLoader(urls, /* parent= */ null);
-    return urlClassLoader.loadClass(javaCompilerClass);
+    try {
+      Class<?> javacClass = urlClassLoader.loadClass(FAST_BUILD_JAVAC_CLASS);
+      Object javacInstance = javacClass.getConstructor().newInstance();
+      FastBuildJavac javac =
+          Reflection.newProxy(
+              FastBuildJavac.class, new MatchingMethodInvocationHandler(javacClass, javacInstance));
+      return new LoadedJavac(urlClassLoader, javac, jarStamps);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      urlClassLoader.close();
+      throw e;
+    }
+  }
+
+  /**
+   * A compiler and the classloader it was loaded with. Kept warm between compiles, and closed once
+   * evicted from the cache.
+   */
+  private static class LoadedJavac {
+    private final URLClassLoader classLoader;
+    private final FastBuildJavac javac;
+    private final ImmutableList<String> jarStamps;
+    private boolean closed = false;
+
+    private LoadedJavac(
+        URLClassLoader classLoader, FastBuildJavac javac, ImmutableList<String> jarStamps) {
+      this.classLoader = classLoader;
+      this.javac = javac;
+      this.jarStamps = jarStamps;
+    }
+
+    synchronized boolean compile(
+        List<String> args,
+        Collection<File> sources,
+        DiagnosticListener<? super JavaFileObject> listener)
+        throws FastBuildException {
+      if (closed) {
+        // evicted while this build was starting up; rare enough to just fall back to a full build
+        throw new FastBuildIncrementalCompileException();
+      }
+      return javac.compile(args, sources, listener);
+    }
+
+    synchronized void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        javac.close();
+        classLoader.close();
+      } catch (IOException | RuntimeException e) {
+        logger.warn("Failed to unload fast build javac", e);
+      }
+    }
   }
 
   private static class JavacRunner implements FastBuildCompiler {
@@ -31,8 +31,15 @@ import javax.tools.JavaFileObject;
 // need for this class. It's a lot more complicated to do that, however.
 interface FastBuildJavac {
 
+  /**
+   * Compiles the given sources. Instances are reused for multiple compiles, so may cache state
+   * between them.
+   */
   boolean compile(
       List<String> args,
       Collection<File> sources,
       DiagnosticListener<? super JavaFileObject> listener);
+
+  /** Releases any state cached between compiles. The compiler won't be used again. */
+  void close();
 }
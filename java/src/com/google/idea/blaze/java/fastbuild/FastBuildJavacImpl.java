@@ -15,6 +15,7 @@
  */
 package com.google.idea.blaze.java.fastbuild;
 
+import com.google.idea.blaze.java.fastbuild.IndexedClasspathFileManager.JarIndex;
 import com.sun.source.util.JavacTask;
 import com.sun.tools.javac.api.ClientCodeWrapper.Trusted;
 import com.sun.tools.javac.api.DiagnosticFormatter;
@@ -25,13 +26,25 @@ import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.JavacMessages;
 import com.sun.tools.javac.util.Log;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 /**
  * An implementation of {@link FastBuildJavac} that uses the OpenJDK compiler.
@@ -44,35 +57,219 @@ import javax.tools.JavaFileObject;
  * <p>So this class creates a compiler and captures the {@code Diagnostic} objects, attaching the
  * formatted message from the compiler before sending them on. This is the same approach that Blaze
  * uses in BlazeJavacMain.
+ *
+ * <p>Instances are kept warm between compiles. The file manager is reused, so jars on the classpath
+ * are only opened and indexed once, rather than on every compile. It's recreated whenever any jar
+ * it may have cached changes.
+ *
+ * <p>When the class path consists solely of jars (normally just the target's deploy jar), it's
+ * served from indexes of those jars via {@link IndexedClasspathFileManager}, rather than by the
+ * file manager itself. The indexes are also kept between compiles, and are rebuilt whenever their
+ * jar changes.
  */
 public final class FastBuildJavacImpl implements FastBuildJavac {
 
+  /** Options whose value is a list of paths which the file manager opens and caches. */
+  private static final Set<String> PATH_OPTIONS =
+      new HashSet<>(Arrays.asList("-cp", "-classpath", "-processorpath", "-bootclasspath"));
+
+  private static final Set<String> CLASSPATH_OPTIONS =
+      new HashSet<>(Arrays.asList("-cp", "-classpath"));
+
+  private final JavacTool javacTool = JavacTool.create();
+
+  private JavacFileManager fileManager;
+  /** The size and modification time of each path the file manager has seen, keyed by path. */
+  private final Map<String, String> pathStamps = new HashMap<>();
+  /** Indexes of the class path jars of the last compile, keyed by path. */
+  private final Map<String, JarIndex> jarIndexes = new HashMap<>();
+
   @Override
-  public boolean compile(
+  public synchronized boolean compile(
       List<String> args,
       Collection<File> sources,
       DiagnosticListener<? super JavaFileObject> listener) {
 
     Context context = new Context();
     FormattingListener formattingListener = new FormattingListener(context, listener);
-    JavacTool javacTool = JavacTool.create();
-    JavacFileManager fileManager =
-        javacTool.getStandardFileManager(
-            formattingListener, Locale.ENGLISH, StandardCharsets.UTF_8);
+    List<File> classpathJars = getClasspathJars(args);
+    List<JarIndex> indexes = classpathJars != null ? getJarIndexes(classpathJars) : null;
+    List<String> javacArgs = indexes != null ? removeClasspath(args) : args;
+    JavacFileManager javacFileManager = getFileManager(javacArgs);
+    JavaFileManager fileManager = javacFileManager;
+    try {
+      // the file manager is reused, so reset anything a previous compile may have set
+      javacFileManager.setLocation(
+          StandardLocation.CLASS_PATH, indexes != null ? Collections.emptyList() : null);
+      // without an explicit processor path, javac searches the class path for processors
+      javacFileManager.setLocation(
+          StandardLocation.ANNOTATION_PROCESSOR_PATH, indexes != null ? classpathJars : null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (indexes != null) {
+      fileManager = new IndexedClasspathFileManager(javacFileManager, indexes);
+    }
     Iterable<? extends JavaFileObject> filesToCompile =
-        fileManager.getJavaFileObjects(sources.toArray(new File[] {}));
+        javacFileManager.getJavaFileObjects(sources.toArray(new File[] {}));
     JavacTask task =
         javacTool.getTask(
             /* writer (ignored if a diagnosticListener is set) */ null,
             fileManager,
             formattingListener,
-            args,
+            javacArgs,
             /* classes= */ null,
             filesToCompile,
             context);
     return task.call();
   }
 
+  @Override
+  public synchronized void close() {
+    closeFileManager();
+    closeJarIndexes(Collections.emptySet());
+  }
+
+  /**
+   * Returns the class path jars, or null if there's no class path option or any class path entry
+   * isn't an existing jar.
+   */
+  private static List<File> getClasspathJars(List<String> args) {
+    String classpath = null;
+    for (int i = 0; i < args.size() - 1; i++) {
+      if (CLASSPATH_OPTIONS.contains(args.get(i))) {
+        classpath = args.get(i + 1);
+      }
+    }
+    if (classpath == null) {
+      return null;
+    }
+    List<File> jars = new ArrayList<>();
+    for (String path : classpath.split(File.pathSeparator)) {
+      if (path.isEmpty()) {
+        continue;
+      }
+      File jar = new File(path);
+      if (!path.endsWith(".jar") || !jar.isFile()) {
+        return null;
+      }
+      jars.add(jar);
+    }
+    return jars;
+  }
+
+  private static List<String> removeClasspath(List<String> args) {
+    List<String> result = new ArrayList<>(args.size());
+    for (int i = 0; i < args.size(); i++) {
+      if (CLASSPATH_OPTIONS.contains(args.get(i)) && i < args.size() - 1) {
+        i++;
+      } else {
+        result.add(args.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns indexes of the given jars, reusing those of previous compiles unless the jar has
+   * changed. Returns null if any of the jars can't be read, leaving javac to report the error.
+   */
+  private List<JarIndex> getJarIndexes(List<File> jars) {
+    List<JarIndex> indexes = new ArrayList<>();
+    Set<String> paths = new HashSet<>();
+    for (File jar : jars) {
+      String path = jar.getPath();
+      String stamp = jar.length() + ":" + jar.lastModified();
+      paths.add(path);
+      JarIndex index = jarIndexes.get(path);
+      if (index == null || !index.getStamp().equals(stamp)) {
+        closeJarIndex(jarIndexes.remove(path));
+        try {
+          index = JarIndex.create(jar, stamp);
+        } catch (IOException e) {
+          return null;
+        }
+        jarIndexes.put(path, index);
+      }
+      indexes.add(index);
+    }
+    closeJarIndexes(paths);
+    return indexes;
+  }
+
+  /** Closes and drops the indexes of all jars not in the given set of paths. */
+  private void closeJarIndexes(Set<String> pathsToKeep) {
+    Iterator<Map.Entry<String, JarIndex>> iterator = jarIndexes.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, JarIndex> entry = iterator.next();
+      if (!pathsToKeep.contains(entry.getKey())) {
+        closeJarIndex(entry.getValue());
+        iterator.remove();
+      }
+    }
+  }
+
+  private static void closeJarIndex(JarIndex index) {
+    if (index == null) {
+      return;
+    }
+    try {
+      index.close();
+    } catch (IOException e) {
+      // nothing more we can do; it's no longer used either way
+    }
+  }
+
+  /**
+   * Returns the cached file manager, unless any path it may have cached has since changed, in
+   * which case a new one is created.
+   */
+  private JavacFileManager getFileManager(List<String> args) {
+    Map<String, String> currentStamps = getPathStamps(args);
+    for (Map.Entry<String, String> entry : currentStamps.entrySet()) {
+      String previous = pathStamps.get(entry.getKey());
+      if (previous != null && !previous.equals(entry.getValue())) {
+        closeFileManager();
+        break;
+      }
+    }
+    if (fileManager == null) {
+      fileManager =
+          javacTool.getStandardFileManager(
+              /* diagnosticListener= */ null, Locale.ENGLISH, StandardCharsets.UTF_8);
+    }
+    pathStamps.putAll(currentStamps);
+    return fileManager;
+  }
+
+  private void closeFileManager() {
+    pathStamps.clear();
+    if (fileManager == null) {
+      return;
+    }
+    try {
+      fileManager.close();
+    } catch (IOException e) {
+      // nothing more we can do; it's no longer used either way
+    }
+    fileManager = null;
+  }
+
+  /** Returns the size and modification time of every entry of every path-valued option. */
+  private static Map<String, String> getPathStamps(List<String> args) {
+    Map<String, String> stamps = new HashMap<>();
+    for (int i = 0; i < args.size() - 1; i++) {
+      if (!PATH_OPTIONS.contains(args.get(i))) {
+        continue;
+      }
+      for (String path : args.get(i + 1).split(File.pathSeparator)) {
+        File file = new File(path);
+        stamps.put(path, file.length() + ":" + file.lastModified());
+      }
+    }
+    return stamps;
+  }
+
   @Trusted
   private static final class FormattingListener
       implements javax.tools.DiagnosticListener<JavaFileObject> {
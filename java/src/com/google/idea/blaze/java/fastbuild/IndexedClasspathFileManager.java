@@ -0,0 +1,332 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.java.fastbuild;
+
+import com.sun.tools.javac.api.ClientCodeWrapper.Trusted;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * A file manager which serves class path lookups from precomputed indexes of the class path jars,
+ * rather than having javac open and scan the jars itself.
+ *
+ * <p>Fast build compiles against the target's deploy jar, which contains every class the target
+ * depends on. javac lists each package it resolves a name in; with an index from package to
+ * entries, each lookup only touches the entries of that package. The indexes are kept open between
+ * compiles (see {@link JarIndex}), so a deploy jar is only indexed once per build.
+ *
+ * <p>The class path must consist solely of jars; the delegate's own class path is expected to be
+ * empty.
+ */
+@Trusted
+final class IndexedClasspathFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+  private final List<JarIndex> jars;
+
+  IndexedClasspathFileManager(StandardJavaFileManager delegate, List<JarIndex> jars) {
+    super(delegate);
+    this.jars = jars;
+  }
+
+  @Override
+  public boolean hasLocation(Location location) {
+    return location == StandardLocation.CLASS_PATH || super.hasLocation(location);
+  }
+
+  @Override
+  public Iterable<JavaFileObject> list(
+      Location location, String packageName, Set<Kind> kinds, boolean recurse) throws IOException {
+    if (location != StandardLocation.CLASS_PATH) {
+      return super.list(location, packageName, kinds, recurse);
+    }
+    List<JavaFileObject> files = new ArrayList<>();
+    for (JarIndex jar : jars) {
+      jar.list(packageName, kinds, recurse, files);
+    }
+    return files;
+  }
+
+  @Override
+  public String inferBinaryName(Location location, JavaFileObject file) {
+    if (file instanceof IndexedFileObject) {
+      return ((IndexedFileObject) file).binaryName;
+    }
+    return super.inferBinaryName(location, file);
+  }
+
+  @Override
+  public boolean isSameFile(FileObject a, FileObject b) {
+    if (a instanceof IndexedFileObject || b instanceof IndexedFileObject) {
+      return a.equals(b);
+    }
+    return super.isSameFile(a, b);
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForInput(Location location, String className, Kind kind)
+      throws IOException {
+    if (location != StandardLocation.CLASS_PATH) {
+      return super.getJavaFileForInput(location, className, kind);
+    }
+    return findFile(className.replace('.', '/') + kind.extension);
+  }
+
+  @Override
+  public FileObject getFileForInput(Location location, String packageName, String relativeName)
+      throws IOException {
+    if (location != StandardLocation.CLASS_PATH) {
+      return super.getFileForInput(location, packageName, relativeName);
+    }
+    return findFile(
+        packageName.isEmpty() ? relativeName : packageName.replace('.', '/') + '/' + relativeName);
+  }
+
+  /** Returns the first entry with the given name, in class path order, or null if there's none. */
+  private IndexedFileObject findFile(String entryName) {
+    for (JarIndex jar : jars) {
+      IndexedFileObject file = jar.getFile(entryName);
+      if (file != null) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * An index from package to the source and class entries in a jar, built from the jar's central
+   * directory. The jar is held open, so entries can be read without re-opening it.
+   */
+  static final class JarIndex implements Closeable {
+    private final File jar;
+    private final String stamp;
+    private final ZipFile zipFile;
+    /** package name -> names of the source and class entries directly in that package */
+    private final Map<String, List<String>> packages;
+
+    private JarIndex(File jar, String stamp, ZipFile zipFile, Map<String, List<String>> packages) {
+      this.jar = jar;
+      this.stamp = stamp;
+      this.zipFile = zipFile;
+      this.packages = packages;
+    }
+
+    /** Indexes the given jar. The stamp identifies the state of the jar it was read from. */
+    static JarIndex create(File jar, String stamp) throws IOException {
+      ZipFile zipFile = new ZipFile(jar);
+      Map<String, List<String>> packages = new HashMap<>();
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (getKind(name) == Kind.OTHER) {
+          continue;
+        }
+        int lastSlash = name.lastIndexOf('/');
+        String packageName = lastSlash < 0 ? "" : name.substring(0, lastSlash).replace('/', '.');
+        packages.computeIfAbsent(packageName, p -> new ArrayList<>()).add(name);
+      }
+      return new JarIndex(jar, stamp, zipFile, packages);
+    }
+
+    String getStamp() {
+      return stamp;
+    }
+
+    private void list(
+        String packageName, Set<Kind> kinds, boolean recurse, List<JavaFileObject> files) {
+      if (!recurse) {
+        addFiles(packages.getOrDefault(packageName, Collections.emptyList()), kinds, files);
+        return;
+      }
+      String prefix = packageName + '.';
+      for (Map.Entry<String, List<String>> entry : packages.entrySet()) {
+        String name = entry.getKey();
+        if (packageName.isEmpty() || name.equals(packageName) || name.startsWith(prefix)) {
+          addFiles(entry.getValue(), kinds, files);
+        }
+      }
+    }
+
+    private void addFiles(List<String> entryNames, Set<Kind> kinds, List<JavaFileObject> files) {
+      for (String entryName : entryNames) {
+        Kind kind = getKind(entryName);
+        if (kinds.contains(kind)) {
+          files.add(new IndexedFileObject(this, entryName, kind));
+        }
+      }
+    }
+
+    private IndexedFileObject getFile(String entryName) {
+      return zipFile.getEntry(entryName) != null
+          ? new IndexedFileObject(this, entryName, getKind(entryName))
+          : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      zipFile.close();
+    }
+  }
+
+  private static Kind getKind(String entryName) {
+    for (Kind kind : new Kind[] {Kind.CLASS, Kind.SOURCE}) {
+      if (entryName.endsWith(kind.extension)) {
+        return kind;
+      }
+    }
+    return Kind.OTHER;
+  }
+
+  /** An entry in an indexed jar. */
+  @Trusted
+  private static final class IndexedFileObject implements JavaFileObject {
+    private final JarIndex jar;
+    private final String entryName;
+    private final Kind kind;
+    private final String binaryName;
+
+    private IndexedFileObject(JarIndex jar, String entryName, Kind kind) {
+      this.jar = jar;
+      this.entryName = entryName;
+      this.kind = kind;
+      this.binaryName =
+          entryName.substring(0, entryName.length() - kind.extension.length()).replace('/', '.');
+    }
+
+    @Override
+    public Kind getKind() {
+      return kind;
+    }
+
+    @Override
+    public boolean isNameCompatible(String simpleName, Kind kind) {
+      String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+      return this.kind == kind && fileName.equals(simpleName + kind.extension);
+    }
+
+    @Override
+    public NestingKind getNestingKind() {
+      return null;
+    }
+
+    @Override
+    public Modifier getAccessLevel() {
+      return null;
+    }
+
+    @Override
+    public URI toUri() {
+      return URI.create("jar:" + jar.jar.toURI() + "!/" + entryName);
+    }
+
+    @Override
+    public String getName() {
+      return jar.jar.getPath() + "(" + entryName + ")";
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+      ZipEntry entry = jar.zipFile.getEntry(entryName);
+      if (entry == null) {
+        throw new IOException("Missing entry " + getName());
+      }
+      return jar.zipFile.getInputStream(entry);
+    }
+
+    @Override
+    public Reader openReader(boolean ignoreEncodingErrors) throws IOException {
+      return new StringReader(getCharContent(ignoreEncodingErrors).toString());
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (InputStream in = openInputStream()) {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Writer openWriter() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getLastModified() {
+      ZipEntry entry = jar.zipFile.getEntry(entryName);
+      return entry != null ? entry.getTime() : 0L;
+    }
+
+    @Override
+    public boolean delete() {
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return getName();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof IndexedFileObject)) {
+        return false;
+      }
+      IndexedFileObject other = (IndexedFileObject) obj;
+      return jar == other.jar && entryName.equals(other.entryName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(jar) + entryName.hashCode();
+    }
+  }
+}
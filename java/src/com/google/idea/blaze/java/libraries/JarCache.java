@@ -31,6 +31,9 @@ import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
 import com.google.idea.blaze.base.ideinfo.LibraryArtifact;
 import com.google.idea.blaze.base.io.FileOperationProvider;
 import com.google.idea.blaze.base.io.FileSizeScanner;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Counter;
+import com.google.idea.blaze.base.logging.metrics.MetricsRegistry.Histogram;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.RemoteOutputArtifacts;
 import com.google.idea.blaze.base.prefetch.FetchExecutor;
@@ -53,6 +56,7 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.util.PathUtil;
 import java.io.File;
@@ -68,6 +72,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
@@ -86,12 +92,35 @@ public class JarCache {
 
   private static final Logger logger = Logger.getInstance(JarCache.class);
 
+  private static final Counter lookupHits = MetricsRegistry.counter("JarCache.lookup_hits");
+  private static final Counter lookupMisses = MetricsRegistry.counter("JarCache.lookup_misses");
+  private static final Counter copiedFiles = MetricsRegistry.counter("JarCache.copied_files");
+  private static final Counter copiedBytes = MetricsRegistry.counter("JarCache.copied_bytes");
+  private static final Histogram copyTimeMillis =
+      MetricsRegistry.histogram("JarCache.copy_time_ms");
+  private static final Counter removedFiles = MetricsRegistry.counter("JarCache.removed_files");
+
+  /** The caches of all open projects. The size gauges sum across them. */
+  private static final Set<JarCache> openCaches = ConcurrentHashMap.newKeySet();
+
+  static {
+    MetricsRegistry.registerGauge(
+        "JarCache.cached_files",
+        () -> openCaches.stream().mapToLong(cache -> cache.cacheState.size()).sum());
+    MetricsRegistry.registerGauge(
+        "JarCache.size_bytes",
+        () -> openCaches.stream().mapToLong(cache -> cache.cacheSizeBytes).sum());
+  }
+
   private final Project project;
   private final File cacheDir;
 
   /** The state of the cache as of the last call to {@link #readFileState}. */
   private volatile ImmutableMap<String, File> cacheState = ImmutableMap.of();
 
+  /** The total size of the cached files, as of the last refresh. */
+  private volatile long cacheSizeBytes;
+
   private boolean enabled;
 
   public JarCache(Project project) {
@@ -99,6 +128,8 @@ public class JarCache {
         BlazeImportSettingsManager.getInstance(project).getImportSettings();
     this.project = project;
     this.cacheDir = getCacheDir(importSettings);
+    openCaches.add(this);
+    Disposer.register(project, () -> openCaches.remove(this));
   }
 
   public boolean isEnabled() {
@@ -198,9 +229,11 @@ public class JarCache {
       }
       if (!removed.isEmpty()) {
         context.output(PrintOutput.log(String.format("Removed %d jars", removed.size())));
+        removedFiles.add(removed.size());
       }
       ImmutableMap<File, Long> cacheFileSizes = FileSizeScanner.readFilesizes(cachedFiles.values());
       long total = cacheFileSizes.values().stream().mapToLong(x -> x).sum();
+      cacheSizeBytes = total;
       String msg =
           String.format("Total Jar Cache size: %d kB (%d files)", total / 1024, cachedFiles.size());
       context.output(PrintOutput.log(msg));
@@ -249,8 +282,11 @@ public class JarCache {
             futures.add(
                 FetchExecutor.EXECUTOR.submit(
                     () -> {
+                      long startTime = System.currentTimeMillis();
                       try {
-                        copyLocally(artifact, cacheFileForKey(key));
+                        copiedBytes.add(copyLocally(artifact, cacheFileForKey(key)));
+                        copiedFiles.increment();
+                        copyTimeMillis.record(System.currentTimeMillis() - startTime);
                       } catch (IOException e) {
                         logger.warn(e);
                       }
@@ -258,7 +294,8 @@ public class JarCache {
     return futures;
   }
 
-  private static void copyLocally(OutputArtifact output, File destination) throws IOException {
+  /** Copies the output to the given destination, returning the number of bytes copied. */
+  private static long copyLocally(OutputArtifact output, File destination) throws IOException {
     if (output instanceof LocalFileOutputArtifact) {
       File source = ((LocalFileOutputArtifact) output).getFile();
       Files.copy(
@@ -266,10 +303,11 @@ public class JarCache {
           Paths.get(destination.getPath()),
           StandardCopyOption.REPLACE_EXISTING,
           StandardCopyOption.COPY_ATTRIBUTES);
-      return;
+      return source.length();
     }
     try (InputStream stream = output.getInputStream()) {
-      Files.copy(stream, Paths.get(destination.getPath()), StandardCopyOption.REPLACE_EXISTING);
+      return Files.copy(
+          stream, Paths.get(destination.getPath()), StandardCopyOption.REPLACE_EXISTING);
     }
   }
 
@@ -301,6 +339,7 @@ public class JarCache {
       }
     }
     cacheState = ImmutableMap.of();
+    cacheSizeBytes = 0;
   }
 
   /**
@@ -335,7 +374,13 @@ public class JarCache {
   }
 
   private Optional<File> getCacheFile(String cacheKey) {
-    return Optional.ofNullable(cacheState.get(cacheKey));
+    File file = cacheState.get(cacheKey);
+    if (file != null) {
+      lookupHits.increment();
+    } else {
+      lookupMisses.increment();
+    }
+    return Optional.ofNullable(file);
   }
 
   /** The file to return if there's no locally cached version. */
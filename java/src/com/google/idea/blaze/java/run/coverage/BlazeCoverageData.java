@@ -17,32 +17,50 @@ package com.google.idea.blaze.java.run.coverage;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.intellij.openapi.diagnostic.Logger;
-import gnu.trove.TIntIntHashMap;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
-/** Blaze coverage data class. Parsed from LCOV-formatted blaze output. */
+/**
+ * Blaze coverage data class. Parsed from LCOV-formatted blaze output.
+ *
+ * <p>Coverage files for large test suites can be hundreds of MB, so the input is read in chunks,
+ * split at record boundaries, and the chunks are parsed in parallel.
+ */
 class BlazeCoverageData {
 
   private static final Logger logger = Logger.getInstance(BlazeCoverageData.class);
 
-  static BlazeCoverageData parse(InputStream inputStream) throws IOException {
-    return LcovParser.parse(inputStream);
+  static BlazeCoverageData parse(InputStream inputStream, Executor executor) throws IOException {
+    return new LcovParser(executor).parse(inputStream);
   }
 
+  /** The line hits for a single source file. */
   static class FileData {
     final String source;
-    final TIntIntHashMap lineHits;
+    /** Line numbers with coverage data, in ascending order. */
+    final int[] lines;
+    /** The hit count for each line, parallel to {@link #lines}. */
+    final int[] hits;
 
-    private FileData(String source, TIntIntHashMap lineHits) {
+    private FileData(String source, int[] lines, int[] hits) {
       this.source = source;
-      this.lineHits = lineHits;
+      this.lines = lines;
+      this.hits = hits;
+    }
+
+    int maxLineNumber() {
+      return lines[lines.length - 1];
     }
   }
 
@@ -54,46 +72,230 @@ class BlazeCoverageData {
 
   private static class LcovParser {
     // there are other valid lcov tracefile prefixes, but they're all ignored here
-    static final String SF = "SF:";
-    static final String DA = "DA:";
-    static final String END_OF_RECORD = "end_of_record";
-
-    private static BlazeCoverageData parse(InputStream inputStream) throws IOException {
-      Map<String, FileData> map = new HashMap<>();
-      BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        if (line.startsWith(SF)) {
-          String source = line.substring(SF.length());
-          TIntIntHashMap hits = parseHits(reader);
-          if (!hits.isEmpty()) {
-            map.put(source, new FileData(source, hits));
-          }
+    static final byte[] SF = "SF:".getBytes(UTF_8);
+    static final byte[] DA = "DA:".getBytes(UTF_8);
+    static final byte[] END_OF_RECORD = "end_of_record".getBytes(UTF_8);
+    /** A chunk is handed off for parsing once it's at least this size. */
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    /** The maximum number of chunks read ahead of those already parsed. */
+    static final int MAX_PENDING_CHUNKS = Runtime.getRuntime().availableProcessors() + 1;
+
+    private final Executor executor;
+    private final Map<String, FileData> map = new HashMap<>();
+    private final ArrayDeque<ListenableFuture<ImmutableList<FileData>>> pending =
+        new ArrayDeque<>();
+
+    LcovParser(Executor executor) {
+      this.executor = executor;
+    }
+
+    private BlazeCoverageData parse(InputStream inputStream) throws IOException {
+      byte[] buffer = new byte[CHUNK_SIZE];
+      int length = 0;
+      int read;
+      while ((read = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+        length += read;
+        if (length < buffer.length) {
+          continue;
         }
+        // hand off all complete records, keeping the last (possibly partial) one
+        int lastRecord = lastRecordStart(buffer, length);
+        if (lastRecord == 0) {
+          // a single record larger than the buffer
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          continue;
+        }
+        int split = lastRecord > 0 ? lastRecord : length;
+        submit(Arrays.copyOf(buffer, split));
+        System.arraycopy(buffer, split, buffer, 0, length - split);
+        length -= split;
+      }
+      if (length > 0) {
+        submit(Arrays.copyOf(buffer, length));
+      }
+      while (!pending.isEmpty()) {
+        collectOldest();
       }
       return new BlazeCoverageData(ImmutableMap.copyOf(map));
     }
 
-    private static TIntIntHashMap parseHits(BufferedReader reader) throws IOException {
-      TIntIntHashMap hits = new TIntIntHashMap();
-      String line;
-      while ((line = reader.readLine()) != null) {
-        if (line.startsWith(END_OF_RECORD)) {
-          return hits;
+    /** Returns the offset of the last line starting with 'SF:', or -1 if there's none. */
+    private static int lastRecordStart(byte[] bytes, int length) {
+      for (int i = length - 1; i >= 0; i--) {
+        if ((i == 0 || bytes[i - 1] == '\n') && startsWith(bytes, i, length, SF)) {
+          return i;
         }
-        if (line.startsWith(DA)) {
-          // DA:line,hits
-          int comma = line.indexOf(',');
-          try {
-            hits.put(
-                Integer.parseInt(line.substring(DA.length(), comma)),
-                Integer.parseInt(line.substring(comma + 1)));
-          } catch (NumberFormatException e) {
-            logger.warn("Cannot parse LCOV line: " + line, e);
+      }
+      return -1;
+    }
+
+    private void submit(byte[] chunk) throws IOException {
+      if (pending.size() >= MAX_PENDING_CHUNKS) {
+        collectOldest();
+      }
+      ListenableFutureTask<ImmutableList<FileData>> task =
+          ListenableFutureTask.create(() -> parseChunk(chunk));
+      executor.execute(task);
+      pending.add(task);
+    }
+
+    /** Waits for the oldest pending chunk, merging its results in file order. */
+    private void collectOldest() throws IOException {
+      ImmutableList<FileData> files;
+      try {
+        files = pending.remove().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+      for (FileData file : files) {
+        map.put(file.source, file);
+      }
+    }
+
+    /** Parses a chunk consisting of whole records. */
+    private static ImmutableList<FileData> parseChunk(byte[] bytes) {
+      ImmutableList.Builder<FileData> files = ImmutableList.builder();
+      String source = null;
+      HitsBuilder hits = new HitsBuilder();
+      int pos = 0;
+      while (pos < bytes.length) {
+        int lineEnd = indexOf(bytes, '\n', pos);
+        int end = lineEnd > pos && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+        if (startsWith(bytes, pos, end, SF)) {
+          source = new String(bytes, pos + SF.length, end - pos - SF.length, UTF_8);
+          hits.clear();
+        } else if (source != null && startsWith(bytes, pos, end, DA)) {
+          // DA:line,hits[,checksum]
+          if (!hits.parseAndAdd(bytes, pos + DA.length, end)) {
+            logger.warn("Cannot parse LCOV line: " + new String(bytes, pos, end - pos, UTF_8));
           }
+        } else if (source != null && startsWith(bytes, pos, end, END_OF_RECORD)) {
+          if (!hits.isEmpty()) {
+            files.add(hits.build(source));
+          }
+          source = null;
+        }
+        pos = lineEnd + 1;
+      }
+      if (source != null && !hits.isEmpty()) {
+        files.add(hits.build(source));
+      }
+      return files.build();
+    }
+
+    private static int indexOf(byte[] bytes, char c, int from) {
+      for (int i = from; i < bytes.length; i++) {
+        if (bytes[i] == c) {
+          return i;
+        }
+      }
+      return bytes.length;
+    }
+
+    private static boolean startsWith(byte[] bytes, int start, int end, byte[] prefix) {
+      if (end - start < prefix.length) {
+        return false;
+      }
+      for (int i = 0; i < prefix.length; i++) {
+        if (bytes[start + i] != prefix[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Accumulates the line hits of a single record. */
+  private static class HitsBuilder {
+    private int[] lines = new int[64];
+    private int[] hits = new int[64];
+    private int size = 0;
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    void clear() {
+      size = 0;
+    }
+
+    /** Parses 'line,hits', ignoring anything after a second comma. */
+    boolean parseAndAdd(byte[] bytes, int start, int end) {
+      int comma = start;
+      while (comma < end && bytes[comma] != ',') {
+        comma++;
+      }
+      int hitsEnd = comma + 1;
+      while (hitsEnd < end && bytes[hitsEnd] != ',') {
+        hitsEnd++;
+      }
+      long line = parseInt(bytes, start, comma);
+      long count = parseInt(bytes, comma + 1, hitsEnd);
+      if (comma == end || line < 0 || count < 0) {
+        return false;
+      }
+      if (size == lines.length) {
+        lines = Arrays.copyOf(lines, size * 2);
+        hits = Arrays.copyOf(hits, size * 2);
+      }
+      lines[size] = (int) line;
+      hits[size] = (int) count;
+      size++;
+      return true;
+    }
+
+    /** Parses a non-negative int, returning -1 if it's malformed or out of range. */
+    private static long parseInt(byte[] bytes, int start, int end) {
+      if (start >= end) {
+        return -1;
+      }
+      long value = 0;
+      for (int i = start; i < end; i++) {
+        int digit = bytes[i] - '0';
+        if (digit < 0 || digit > 9) {
+          return -1;
+        }
+        value = value * 10 + digit;
+        if (value > Integer.MAX_VALUE) {
+          return -1;
+        }
+      }
+      return value;
+    }
+
+    /** Returns the accumulated hits, sorted by line. Later entries for a line take precedence. */
+    FileData build(String source) {
+      boolean sorted = true;
+      for (int i = 1; i < size && sorted; i++) {
+        sorted = lines[i - 1] < lines[i];
+      }
+      if (sorted) {
+        return new FileData(source, Arrays.copyOf(lines, size), Arrays.copyOf(hits, size));
+      }
+      // sort by line, then by position, so the last entry for each line is last in its run
+      long[] keys = new long[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = ((long) lines[i] << 32) | i;
+      }
+      Arrays.sort(keys);
+      int[] sortedLines = new int[size];
+      int[] sortedHits = new int[size];
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        int line = (int) (keys[i] >>> 32);
+        int index = (int) keys[i];
+        if (count > 0 && sortedLines[count - 1] == line) {
+          count--;
         }
+        sortedLines[count] = line;
+        sortedHits[count] = hits[index];
+        count++;
       }
-      return hits;
+      return new FileData(
+          source, Arrays.copyOf(sortedLines, count), Arrays.copyOf(sortedHits, count));
     }
   }
 }
@@ -16,7 +16,7 @@
 package com.google.idea.blaze.java.run.coverage;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.primitives.Ints;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.settings.Blaze;
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
@@ -33,6 +33,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
 
 /** Loads coverage data when blaze invocation is complete. */
@@ -52,7 +53,10 @@ public class BlazeCoverageRunner extends CoverageRunner {
       return null;
     }
     try (FileInputStream stream = new FileInputStream(sessionDataFile)) {
-      return parseCoverage(blazeProjectData.getWorkspacePathResolver(), stream);
+      return parseCoverage(
+          blazeProjectData.getWorkspacePathResolver(),
+          BlazeExecutor.getInstance().getExecutor(),
+          stream);
     } catch (IOException e) {
       logger.warn(e);
     }
@@ -60,10 +64,11 @@ public class BlazeCoverageRunner extends CoverageRunner {
   }
 
   @VisibleForTesting
-  static ProjectData parseCoverage(WorkspacePathResolver pathResolver, InputStream stream)
+  static ProjectData parseCoverage(
+      WorkspacePathResolver pathResolver, Executor executor, InputStream stream)
       throws IOException {
     ProjectData data = new ProjectData();
-    BlazeCoverageData blazeData = BlazeCoverageData.parse(stream);
+    BlazeCoverageData blazeData = BlazeCoverageData.parse(stream, executor);
     for (String filePath : blazeData.perFileData.keySet()) {
       File file = pathResolver.resolveToFile(filePath);
       ClassData classData = data.getOrCreateClassData(file.getPath());
@@ -73,21 +78,16 @@ public class BlazeCoverageRunner extends CoverageRunner {
   }
 
   private static LineData[] fromFileData(FileData fileData) {
-    LineData[] lines = new LineData[maxLineNumber(fileData) + 1];
-    fileData.lineHits.forEachEntry(
-        (line, hits) -> {
-          LineData newLine = new LineData(line, null);
-          newLine.setHits(hits);
-          lines[line] = newLine;
-          return true;
-        });
+    LineData[] lines = new LineData[fileData.maxLineNumber() + 1];
+    for (int i = 0; i < fileData.lines.length; i++) {
+      int line = fileData.lines[i];
+      LineData newLine = new LineData(line, null);
+      newLine.setHits(fileData.hits[i]);
+      lines[line] = newLine;
+    }
     return lines;
   }
 
-  private static int maxLineNumber(FileData fileData) {
-    return Ints.max(fileData.lineHits.keys());
-  }
-
   @Override
   public String getPresentableName() {
     return Blaze.defaultBuildSystemName();
@@ -15,9 +15,8 @@
  */
 package com.google.idea.blaze.java.run.hotswap;
 
-import static com.google.common.collect.ImmutableList.toImmutableList;
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
-
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
@@ -29,22 +28,38 @@ import com.intellij.execution.RunCanceledByUserException;
 import com.intellij.openapi.diagnostic.Logger;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import javax.annotation.Nullable;
 
-/** A manifest of .class file hashes for jars needed at runtime. Used for HotSwapping. */
+/**
+ * A manifest of .class file hashes for jars needed at runtime. Used for HotSwapping.
+ *
+ * <p>Hashes are taken from the CRC-32 and size recorded in each jar's central directory, so entries
+ * are never inflated. Per-jar manifests are shared between debug sessions, so only jars which have
+ * changed since they were last read need to be read again.
+ */
 public class ClassFileManifest {
 
   private static final Logger logger = Logger.getInstance(ClassFileManifest.class);
 
+  /**
+   * Recently read jar manifests, keyed by jar. Held softly, as large runtime classpaths can have
+   * hundreds of thousands of entries.
+   */
+  private static final Cache<File, JarManifest> jarManifestCache =
+      CacheBuilder.newBuilder().softValues().build();
+
   /** A per-jar map of .class files changed between manifests */
   public static class Diff {
     public final ImmutableMultimap<File, String> perJarModifiedClasses;
@@ -71,7 +86,8 @@ public class ClassFileManifest {
     for (Map.Entry<File, JarManifest> entry : newManifest.jarManifests.entrySet()) {
       // quick test for object equality -- jars are often not rebuilt
       JarManifest old = oldManifest.jarManifests.get(entry.getKey());
-      if (old == entry.getValue()) {
+      if (old == entry.getValue() || old == null) {
+        // classes in jars new to the runtime classpath can't be reloaded anyway
         continue;
       }
       ImmutableList<String> changedClasses = JarManifest.diff(old, entry.getValue());
@@ -90,18 +106,29 @@ public class ClassFileManifest {
       FilesDiff<File, File> diff =
           FilesDiff.diffFileTimestamps(
               previousManifest != null ? previousManifest.jarFileState : null, jars);
+      ImmutableMap<File, Long> fileState = diff.getNewFileState();
+      Set<File> updatedFiles = new HashSet<>(diff.getUpdatedFiles());
 
       ImmutableMap.Builder<File, JarManifest> jarManifests = ImmutableMap.builder();
-      jars.forEach(
-          f -> {
-            if (!diff.getUpdatedFiles().contains(f) && previousManifest != null) {
-              jarManifests.put(f, previousManifest.jarManifests.get(f));
-            }
-          });
-      buildJarManifests(diff.getUpdatedFiles()).stream()
-          .filter(Objects::nonNull)
-          .forEach(m -> jarManifests.put(m.jar, m));
-      return new ClassFileManifest(diff.getNewFileState(), jarManifests.build());
+      List<File> jarsToRead = new ArrayList<>();
+      for (File jar : jars) {
+        JarManifest manifest =
+            !updatedFiles.contains(jar) && previousManifest != null
+                ? previousManifest.jarManifests.get(jar)
+                : getCachedManifest(jar, fileState.get(jar));
+        if (manifest != null) {
+          jarManifests.put(jar, manifest);
+        } else {
+          jarsToRead.add(jar);
+        }
+      }
+      for (JarManifest manifest : buildJarManifests(jarsToRead, fileState)) {
+        if (manifest != null) {
+          jarManifests.put(manifest.jar, manifest);
+          jarManifestCache.put(manifest.jar, manifest);
+        }
+      }
+      return new ClassFileManifest(fileState, jarManifests.build());
     } catch (InterruptedException e) {
       throw new RunCanceledByUserException();
     } catch (java.util.concurrent.ExecutionException e) {
@@ -109,51 +136,100 @@ public class ClassFileManifest {
     }
   }
 
-  private static List<JarManifest> buildJarManifests(Collection<File> jars)
+  /** Returns the manifest read by any debug session, if the jar hasn't changed since. */
+  @Nullable
+  private static JarManifest getCachedManifest(File jar, @Nullable Long timestamp) {
+    JarManifest manifest = jarManifestCache.getIfPresent(jar);
+    return manifest != null && timestamp != null && manifest.timestamp == timestamp
+        ? manifest
+        : null;
+  }
+
+  private static List<JarManifest> buildJarManifests(
+      Collection<File> jars, ImmutableMap<File, Long> fileState)
       throws java.util.concurrent.ExecutionException, InterruptedException {
     BlazeExecutor executor = BlazeExecutor.getInstance();
     return Futures.allAsList(
             jars.stream()
-                .map(f -> executor.submit(() -> JarManifest.build(f)))
+                .map(
+                    f ->
+                        executor.submit(
+                            () -> JarManifest.build(f, fileState.getOrDefault(f, 0L))))
                 .collect(Collectors.toList()))
         .get();
   }
 
-  /** .class file manifest for a single jar. */
+  /** .class file manifest for a single jar, sorted by entry name. */
   private static class JarManifest {
     private final File jar;
-    private final ImmutableMap<String, Long> nameToHash;
+    private final long timestamp;
+    private final String[] names;
+    private final long[] hashes;
 
     @Nullable
-    static JarManifest build(File file) {
-      try {
-        JarFile jar = new JarFile(file);
-        return new JarManifest(
-            file,
-            jar.stream()
-                .filter(e -> e.getName().endsWith(".class"))
-                .collect(
-                    toImmutableMap(JarEntry::getName, ZipEntry::getCrc, (first, second) -> first)));
+    static JarManifest build(File file, long timestamp) {
+      List<ZipEntry> entries = new ArrayList<>();
+      // only reads the zip central directory, not the entries themselves
+      try (ZipFile zipFile = new ZipFile(file)) {
+        Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+        while (enumeration.hasMoreElements()) {
+          ZipEntry entry = enumeration.nextElement();
+          if (entry.getName().endsWith(".class")) {
+            entries.add(entry);
+          }
+        }
       } catch (IOException e) {
         logger.warn("Error reading jar file: " + file, e);
         return null;
       }
+      // stable, so the first of any duplicate entries is kept
+      entries.sort(Comparator.comparing(ZipEntry::getName));
+      String[] names = new String[entries.size()];
+      long[] hashes = new long[entries.size()];
+      int count = 0;
+      for (ZipEntry entry : entries) {
+        if (count > 0 && names[count - 1].equals(entry.getName())) {
+          continue;
+        }
+        names[count] = entry.getName();
+        hashes[count] = hash(entry);
+        count++;
+      }
+      return new JarManifest(
+          file, timestamp, Arrays.copyOf(names, count), Arrays.copyOf(hashes, count));
     }
 
-    private JarManifest(File jar, ImmutableMap<String, Long> nameToHash) {
+    /** Combines the entry's CRC-32 (the low 32 bits) with its uncompressed size. */
+    private static long hash(ZipEntry entry) {
+      return (entry.getSize() << 32) | entry.getCrc();
+    }
+
+    private JarManifest(File jar, long timestamp, String[] names, long[] hashes) {
       this.jar = jar;
-      this.nameToHash = nameToHash;
+      this.timestamp = timestamp;
+      this.names = names;
+      this.hashes = hashes;
     }
 
     /** Returns the list of classes changed in the new manifest. */
     static ImmutableList<String> diff(JarManifest oldManifest, JarManifest newManifest) {
-      return newManifest
-          .nameToHash
-          .entrySet()
-          .stream()
-          .filter(e -> !Objects.equals(e.getValue(), oldManifest.nameToHash.get(e.getKey())))
-          .map(Entry::getKey)
-          .collect(toImmutableList());
+      ImmutableList.Builder<String> changed = ImmutableList.builder();
+      int oldIndex = 0;
+      for (int i = 0; i < newManifest.names.length; i++) {
+        String name = newManifest.names[i];
+        while (oldIndex < oldManifest.names.length
+            && oldManifest.names[oldIndex].compareTo(name) < 0) {
+          oldIndex++;
+        }
+        boolean unchanged =
+            oldIndex < oldManifest.names.length
+                && oldManifest.names[oldIndex].equals(name)
+                && oldManifest.hashes[oldIndex] == newManifest.hashes[i];
+        if (!unchanged) {
+          changed.add(name);
+        }
+      }
+      return changed.build();
     }
   }
 }
@@ -41,6 +41,7 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.Before;
@@ -267,6 +268,66 @@ public final class FastBuildCompilerFactoryImplTest {
     }
   }
 
+  @Test
+  public void reusedCompilerUsesCurrentClasspath() throws IOException, FastBuildException {
+    String java =
+        ""
+            + "package com.google.idea.blaze.java.fastbuild;\n"
+            + "\n"
+            + "import com.google.common.collect.ImmutableSet;\n"
+            + "\n"
+            + "final class Main {\n"
+            + "  private static final ImmutableSet<String> STRINGS = ImmutableSet.of();\n"
+            + "}\n";
+    StringWriter javacOutput = new StringWriter();
+    try {
+      compile(java, javacOutput, GUAVA_JAR);
+    } catch (FastBuildIncrementalCompileException e) {
+      throw new AssertionError("Compilation failed:\n" + javacOutput, e);
+    }
+    try {
+      compile(java, javacOutput);
+      fail("Should have thrown FastBuildIncrementalCompileException");
+    } catch (FastBuildIncrementalCompileException e) {
+      assertThat(javacOutput.toString()).contains("ImmutableSet");
+    }
+  }
+
+  @Test
+  public void reindexesChangedClasspathJars() throws IOException, FastBuildException {
+    String java =
+        ""
+            + "package com.google.idea.blaze.java.fastbuild;\n"
+            + "\n"
+            + "import com.google.common.truth.Truth;\n"
+            + "\n"
+            + "final class Main {\n"
+            + "  private static void main(String[] args) {\n"
+            + "    Truth.assertThat(args).isEmpty();\n"
+            + "  }\n"
+            + "}\n";
+    File deployJar = Files.createTempFile("deploy", ".jar").toFile();
+    deployJar.deleteOnExit();
+    Files.copy(GUAVA_JAR.toPath(), deployJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    StringWriter javacOutput = new StringWriter();
+    try {
+      compile(java, javacOutput, deployJar);
+      fail("Should have thrown FastBuildIncrementalCompileException");
+    } catch (FastBuildIncrementalCompileException e) {
+      assertThat(javacOutput.toString()).contains("Truth");
+    }
+
+    // rebuild the deploy jar in place
+    Files.copy(TRUTH_JAR.toPath(), deployJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    checkState(deployJar.setLastModified(deployJar.lastModified() + 10_000));
+    javacOutput = new StringWriter();
+    try {
+      compile(java, javacOutput, deployJar);
+    } catch (FastBuildIncrementalCompileException e) {
+      throw new AssertionError("Compilation failed:\n" + javacOutput, e);
+    }
+  }
+
   @Test
   public void errorOnTooNewSource() throws IOException, FastBuildException {
     String java =
@@ -19,14 +19,14 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.idea.blaze.java.run.coverage.BlazeCoverageData.FileData;
-import gnu.trove.TIntIntHashMap;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.function.Function;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -38,7 +38,7 @@ public class BlazeCoverageDataTest {
   @Test
   public void testParseSingleFile() throws IOException {
     BlazeCoverageData data =
-        BlazeCoverageData.parse(
+        parse(
             inputStream(
                 "SF:path/to/file.txt",
                 "DA:4,0",
@@ -56,17 +56,17 @@ public class BlazeCoverageDataTest {
 
     FileData fileData = data.perFileData.get("path/to/file.txt");
     assertThat(fileData.source).isEqualTo("path/to/file.txt");
-    assertThat(toMap(fileData.lineHits)).containsExactly(4, 0, 8, 0, 9, 1, 23, 3);
+    assertThat(toMap(fileData)).containsExactly(4, 0, 8, 0, 9, 1, 23, 3);
 
     fileData = data.perFileData.get("path/to/another/file.txt");
     assertThat(fileData.source).isEqualTo("path/to/another/file.txt");
-    assertThat(toMap(fileData.lineHits)).containsExactly(1, 1, 2, 2, 5, 0, 123, 1);
+    assertThat(toMap(fileData)).containsExactly(1, 1, 2, 2, 5, 0, 123, 1);
   }
 
   @Test
   public void testEmptyFilesIgnored() throws IOException {
     BlazeCoverageData data =
-        BlazeCoverageData.parse(
+        parse(
             inputStream(
                 "SF:path/to/file.txt",
                 "FS:0",
@@ -81,10 +81,63 @@ public class BlazeCoverageDataTest {
     assertThat(data.perFileData.keySet()).containsExactly("path/to/another/file.txt");
   }
 
-  private static ImmutableMap<Integer, Integer> toMap(TIntIntHashMap troveMap) {
-    return Arrays.stream(troveMap.keys())
-        .boxed()
-        .collect(ImmutableMap.toImmutableMap(Function.identity(), troveMap::get));
+  @Test
+  public void testUnsortedAndDuplicateLines() throws IOException {
+    BlazeCoverageData data =
+        parse(
+            inputStream(
+                "SF:path/to/file.txt\r",
+                "DA:9,1\r",
+                "DA:4,0,checksum\r",
+                "DA:9,2\r",
+                "DA:x,1\r",
+                "end_of_record\r"));
+    FileData fileData = data.perFileData.get("path/to/file.txt");
+    assertThat(fileData.lines).asList().containsExactly(4, 9).inOrder();
+    assertThat(toMap(fileData)).containsExactly(4, 0, 9, 2);
+  }
+
+  @Test
+  public void testParseInParallelChunks() throws Exception {
+    StringBuilder lcov = new StringBuilder();
+    int fileCount = 2000;
+    int lineCount = 500;
+    for (int file = 0; file < fileCount; file++) {
+      lcov.append("SF:path/to/file").append(file).append(".txt\n");
+      for (int line = 1; line <= lineCount; line++) {
+        lcov.append("DA:").append(line).append(',').append(file).append('\n');
+      }
+      lcov.append("end_of_record\n");
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    BlazeCoverageData data;
+    try {
+      data =
+          BlazeCoverageData.parse(
+              new ByteArrayInputStream(lcov.toString().getBytes(StandardCharsets.UTF_8)),
+              executor);
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(data.perFileData).hasSize(fileCount);
+    for (int file = 0; file < fileCount; file++) {
+      FileData fileData = data.perFileData.get("path/to/file" + file + ".txt");
+      assertThat(fileData.lines).hasLength(lineCount);
+      assertThat(fileData.maxLineNumber()).isEqualTo(lineCount);
+      assertThat(fileData.hits[lineCount - 1]).isEqualTo(file);
+    }
+  }
+
+  private static BlazeCoverageData parse(InputStream inputStream) throws IOException {
+    return BlazeCoverageData.parse(inputStream, MoreExecutors.directExecutor());
+  }
+
+  private static ImmutableMap<Integer, Integer> toMap(FileData fileData) {
+    ImmutableMap.Builder<Integer, Integer> map = ImmutableMap.builder();
+    for (int i = 0; i < fileData.lines.length; i++) {
+      map.put(fileData.lines[i], fileData.hits[i]);
+    }
+    return map.build();
   }
 
   private static InputStream inputStream(String... lines) {
@@ -18,6 +18,7 @@ package com.google.idea.blaze.java.run.coverage;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
 import com.google.idea.blaze.base.sync.workspace.WorkspacePathResolver;
 import com.google.idea.blaze.base.sync.workspace.WorkspacePathResolverImpl;
@@ -45,6 +46,7 @@ public class BlazeCoverageRunnerTest {
     ProjectData data =
         BlazeCoverageRunner.parseCoverage(
             mockResolver,
+            MoreExecutors.directExecutor(),
             inputStream(
                 "SF:path/to/file.txt", "DA:4,0", "DA:8,0", "DA:9,1", "DA:23,3", "end_of_record"));
     assertThat(data.getClasses()).hasSize(1);
@@ -61,6 +63,7 @@ public class BlazeCoverageRunnerTest {
     ProjectData data =
         BlazeCoverageRunner.parseCoverage(
             mockResolver,
+            MoreExecutors.directExecutor(),
             inputStream(
                 "SF:path/to/file.txt",
                 "DA:4,0",
@@ -84,6 +87,7 @@ public class BlazeCoverageRunnerTest {
     ProjectData data =
         BlazeCoverageRunner.parseCoverage(
             mockResolver,
+            MoreExecutors.directExecutor(),
             inputStream(
                 "SF:path/to/file.txt",
                 "DA:4,0",
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.java.run.hotswap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
+import com.google.idea.blaze.base.async.executor.MockBlazeExecutor;
+import com.google.idea.blaze.base.io.FileOperationProvider;
+import com.google.idea.common.experiments.ExperimentService;
+import com.google.idea.common.experiments.MockExperimentService;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ClassFileManifest}. */
+@RunWith(JUnit4.class)
+public class ClassFileManifestTest extends BlazeTestCase {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Override
+  protected void initTest(
+      @NotNull Container applicationServices, @NotNull Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    applicationServices.register(ExperimentService.class, new MockExperimentService());
+    applicationServices.register(BlazeExecutor.class, new MockBlazeExecutor());
+    applicationServices.register(FileOperationProvider.class, new FileOperationProvider());
+  }
+
+  @Test
+  public void testOnlyChangedClassesAreReported() throws Exception {
+    File jar = folder.newFile("deploy.jar");
+    writeJar(
+        jar,
+        ImmutableMap.of(
+            "com/foo/A.class", "a",
+            "com/foo/B.class", "b",
+            "com/foo/resource.txt", "text"));
+    ClassFileManifest first = ClassFileManifest.build(ImmutableList.of(jar), null);
+
+    writeJar(
+        jar,
+        ImmutableMap.of(
+            "com/foo/A.class", "a",
+            "com/foo/B.class", "b2",
+            "com/foo/C.class", "c",
+            "com/foo/resource.txt", "changed"));
+    assertThat(jar.setLastModified(jar.lastModified() + 10_000)).isTrue();
+    ClassFileManifest second = ClassFileManifest.build(ImmutableList.of(jar), first);
+
+    assertThat(ClassFileManifest.modifiedClasses(first, second).perJarModifiedClasses.get(jar))
+        .containsExactly("com/foo/B.class", "com/foo/C.class");
+  }
+
+  @Test
+  public void testJarsAddedToClasspathAreSkipped() throws Exception {
+    File jar = folder.newFile("deploy.jar");
+    writeJar(jar, ImmutableMap.of("com/foo/A.class", "a"));
+    ClassFileManifest firstSession = ClassFileManifest.build(ImmutableList.of(jar), null);
+
+    File otherJar = folder.newFile("other.jar");
+    writeJar(otherJar, ImmutableMap.of("com/foo/Other.class", "other"));
+    ClassFileManifest secondSession =
+        ClassFileManifest.build(ImmutableList.of(jar, otherJar), null);
+
+    assertThat(ClassFileManifest.modifiedClasses(firstSession, secondSession).perJarModifiedClasses)
+        .isEmpty();
+  }
+
+  private static void writeJar(File jar, Map<String, String> entries) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (Map.Entry<String, String> entry : entries.entrySet()) {
+        out.putNextEntry(new ZipEntry(entry.getKey()));
+        out.write(entry.getValue().getBytes(UTF_8));
+        out.closeEntry();
+      }
+    }
+  }
+}
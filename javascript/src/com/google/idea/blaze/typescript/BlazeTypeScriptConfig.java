@@ -15,16 +15,10 @@
  */
 package com.google.idea.blaze.typescript;
 
-import com.google.common.base.Ascii;
-import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.google.idea.blaze.base.command.info.BlazeInfo;
 import com.google.idea.blaze.base.io.FileOperationProvider;
-import com.google.idea.blaze.base.io.InputStreamProvider;
 import com.google.idea.blaze.base.io.VfsUtils;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.Label;
@@ -54,7 +48,6 @@ import com.intellij.psi.PsiFileSystemItem;
 import com.intellij.psi.PsiManager;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -72,6 +65,9 @@ import javax.annotation.Nullable;
  *
  * <p>Resolves all the symlinks under tsconfig.runfiles, and adds all of their roots to the paths
  * substitutions.
+ *
+ * <p>The tsconfig_editor.json itself is parsed once into a {@link ParsedTsConfig}, and shared via
+ * the {@link TsConfigCache} until its contents change.
  */
 class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
   private static final Logger logger = Logger.getInstance(BlazeTypeScriptConfig.class);
@@ -79,8 +75,6 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
   private final Project project;
   private final Label label;
   private final VirtualFile configFile;
-  private final String workspaceRelativePathPrefix;
-  private final String workspaceRelativePathReplacement;
 
   private final NotNullLazyValue<ImmutableList<VirtualFile>> dependencies;
   private final NotNullLazyValue<TypeScriptConfigIncludeBase> includeChecker;
@@ -88,34 +82,23 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
   private final NotNullLazyValue<TypeScriptFileImportsResolver> importResolver;
   private final NotNullLazyValue<TypeScriptFileImports> importStructure;
 
-  // tsconfig.json default values
-  private boolean compileOnSave = false;
-  private JsonObject compilerOptions;
-  // begin compilerOptions
-  private String baseUrl = ".";
+  private final ParsedTsConfig config;
   private final NullableLazyValue<VirtualFile> baseUrlFile;
-  private boolean inlineSourceMap = true;
-  private String jsxFactory = "React.createElement";
-  private ModuleTarget module = ModuleTarget.COMMON_JS;
-  private ModuleResolution moduleResolution = ModuleResolution.NODE;
-  private boolean noImplicitAny = true;
-  private boolean noImplicitThis = true;
-  private boolean noLib = true;
-  private final List<JSModulePathSubstitution> paths = new ArrayList<>();
-  private final List<String> plugins = new ArrayList<>();
-  private final List<String> rootDirs = new ArrayList<>();
+  private final NotNullLazyValue<ImmutableList<JSModulePathSubstitution>> paths;
   private final NotNullLazyValue<ImmutableList<VirtualFile>> rootDirsFiles;
   private final NotNullLazyValue<List<PsiFileSystemItem>> rootDirsPsiElements;
-  private boolean sourceMap = false;
-  private boolean strictNullChecks = true;
-  private LanguageTarget target = LanguageTarget.ES5;
-  private final List<String> types = new ArrayList<>();
-  // end compilerOptions
-  private final List<String> filesStrings = new ArrayList<>();
-  private final NotNullLazyValue<List<VirtualFile>> files;
-
+  private final NotNullLazyValue<ImmutableList<VirtualFile>> files;
+  /** The 'files' list as a set, for the accept / isFromFileList checks. */
+  private final NotNullLazyValue<ImmutableSet<VirtualFile>> fileSet;
+
+  /**
+   * Returns the config for the given ts_config rule, or null if it hasn't been built.
+   *
+   * @throws IOException if its tsconfig_editor.json can't be read or parsed
+   */
   @Nullable
-  static TypeScriptConfig getInstance(Project project, Label label) {
+  static TypeScriptConfig getInstance(Project project, TsConfigCache cache, Label label)
+      throws IOException {
     WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProject(project);
 
     // as seen by the project
@@ -137,6 +120,9 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
     File tsconfigDirectory = new File(blazeBin, label.blazePackage().relativePath());
     // contains the actual content of the tsconfig
     File tsconfigEditor = new File(tsconfigDirectory, "tsconfig_editor.json");
+    if (!FileOperationProvider.getInstance().exists(tsconfigEditor)) {
+      return null;
+    }
 
     // need these two to replace workspace relative paths from the blaze-bin symlink in the
     // workspace root with workspace relative paths from the actual blaze-bin.
@@ -145,10 +131,8 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
     String workspaceRelativePath =
         tsconfigDirectory.toPath().relativize(workspaceRoot.directory().toPath()).toString();
 
-    return FileOperationProvider.getInstance().exists(tsconfigEditor)
-        ? new BlazeTypeScriptConfig(
-            project, label, configFile, tsconfigEditor, workspacePrefix, workspaceRelativePath)
-        : null;
+    ParsedTsConfig config = cache.get(tsconfigEditor, workspacePrefix, workspaceRelativePath);
+    return new BlazeTypeScriptConfig(project, label, configFile, tsconfigEditor, config);
   }
 
   private BlazeTypeScriptConfig(
@@ -156,22 +140,23 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
       Label label,
       VirtualFile configFile,
       File tsconfigEditor,
-      String workspaceRelativePathPrefix,
-      String workspaceRelativePathReplacement) {
+      ParsedTsConfig config) {
     this.project = project;
     this.label = label;
     this.configFile = configFile;
-    this.workspaceRelativePathPrefix = workspaceRelativePathPrefix;
-    this.workspaceRelativePathReplacement = workspaceRelativePathReplacement;
+    this.config = config;
 
     this.baseUrlFile =
         NullableLazyValue.createValue(
-            () -> VfsUtils.resolveVirtualFile(new File(tsconfigEditor.getParentFile(), baseUrl)));
+            () ->
+                VfsUtils.resolveVirtualFile(
+                    new File(tsconfigEditor.getParentFile(), config.baseUrl)));
+    this.paths = NotNullLazyValue.createValue(this::createPathSubstitutions);
     this.rootDirsFiles =
         NotNullLazyValue.createValue(
             () ->
                 baseUrlFile.getValue() != null
-                    ? rootDirs.stream()
+                    ? config.rootDirs.stream()
                         .map(baseUrlFile.getValue()::findFileByRelativePath)
                         .filter(Objects::nonNull)
                         .collect(ImmutableList.toImmutableList())
@@ -185,7 +170,14 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
                   .filter(Objects::nonNull)
                   .collect(ImmutableList.toImmutableList());
             });
-    this.files = NotNullLazyValue.createValue(this::resolveFilesList);
+    this.files =
+        NotNullLazyValue.createValue(
+            () ->
+                config.resolveFiles(tsconfigEditor.getParentFile()).stream()
+                    .map(f -> VfsUtils.resolveVirtualFile(new File(f)))
+                    .filter(Objects::nonNull)
+                    .collect(ImmutableList.toImmutableList()));
+    this.fileSet = NotNullLazyValue.createValue(() -> ImmutableSet.copyOf(files.getValue()));
     this.dependencies =
         NotNullLazyValue.createValue(
             () -> {
@@ -201,155 +193,9 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
             () -> TypeScriptImportsResolverProvider.getResolver(project, this));
     this.importStructure =
         NotNullLazyValue.createValue(() -> new TypeScriptFileImportsImpl(project, this));
-
-    try {
-      parseJson(
-          new JsonParser()
-              .parse(
-                  new InputStreamReader(
-                      InputStreamProvider.getInstance().forFile(tsconfigEditor), Charsets.UTF_8))
-              .getAsJsonObject());
-    } catch (IOException e) {
-      logger.warn(e);
-    }
-  }
-
-  private void parseJson(JsonObject json) {
-    for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-      String name = entry.getKey();
-      JsonElement value = entry.getValue();
-      switch (name) {
-        case "compileOnSave":
-          this.compileOnSave = value.getAsBoolean();
-          break;
-        case "compilerOptions":
-          parseCompilerOptions(value.getAsJsonObject());
-          break;
-        case "files":
-          for (JsonElement path : value.getAsJsonArray()) {
-            String pathString = path.getAsString();
-            {
-              if (pathString.startsWith(workspaceRelativePathPrefix)) {
-                pathString =
-                    workspaceRelativePathReplacement
-                        + pathString.substring(workspaceRelativePathPrefix.length());
-              }
-            }
-            this.filesStrings.add(pathString);
-          }
-          break;
-        default:
-          // ignored
-      }
-    }
   }
 
-  private void parseCompilerOptions(JsonObject json) {
-    this.compilerOptions = json;
-    for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-      String name = entry.getKey();
-      JsonElement value = entry.getValue();
-      switch (name) {
-        case "baseUrl":
-          this.baseUrl = value.getAsString();
-          break;
-        case "inlineSourceMap":
-          this.inlineSourceMap = value.getAsBoolean();
-          break;
-        case "jsxFactory":
-          this.jsxFactory = value.getAsString();
-          break;
-        case "module":
-          switch (Ascii.toLowerCase(value.getAsString())) {
-            case "commonjs":
-              this.module = ModuleTarget.COMMON_JS;
-              break;
-            case "other":
-              this.module = ModuleTarget.OTHER;
-              break;
-            default:
-              this.module = ModuleTarget.UNKNOWN;
-              break;
-          }
-          break;
-        case "moduleResolution":
-          switch (Ascii.toLowerCase(value.getAsString())) {
-            case "node":
-              this.moduleResolution = ModuleResolution.NODE;
-              break;
-            case "classic":
-              this.moduleResolution = ModuleResolution.CLASSIC;
-              break;
-            default:
-              this.moduleResolution = ModuleResolution.UNKNOWN;
-              break;
-          }
-          break;
-        case "noImplicitAny":
-          this.noImplicitAny = value.getAsBoolean();
-          break;
-        case "noImplicitThis":
-          this.noImplicitThis = value.getAsBoolean();
-          break;
-        case "noLib":
-          this.noLib = value.getAsBoolean();
-          break;
-        case "paths":
-          parsePaths(value.getAsJsonObject());
-          break;
-        case "plugins":
-          for (JsonElement plugin : value.getAsJsonArray()) {
-            plugins.add(plugin.getAsJsonObject().get("name").getAsString());
-          }
-          break;
-        case "rootDirs":
-          for (JsonElement rootDir : value.getAsJsonArray()) {
-            String rootDirString = rootDir.getAsString();
-            if (rootDirString.startsWith(workspaceRelativePathPrefix)) {
-              rootDirString =
-                  workspaceRelativePathReplacement
-                      + rootDirString.substring(workspaceRelativePathPrefix.length());
-            }
-            rootDirs.add(rootDirString);
-          }
-          break;
-        case "sourceMap":
-          this.sourceMap = value.getAsBoolean();
-          break;
-        case "strictNullChecks":
-          this.strictNullChecks = value.getAsBoolean();
-          break;
-        case "target":
-          switch (Ascii.toLowerCase(value.getAsString())) {
-            case "esnext":
-              this.target = LanguageTarget.NEXT;
-              break;
-            case "es3":
-              this.target = LanguageTarget.ES3;
-              break;
-            case "es5":
-              this.target = LanguageTarget.ES5;
-              break;
-            case "es6":
-            case "es2015":
-              this.target = LanguageTarget.ES6;
-              break;
-            default:
-              // ignored, assume es5
-          }
-          break;
-        case "types":
-          for (JsonElement type : value.getAsJsonArray()) {
-            types.add(type.getAsString());
-          }
-          break;
-        default:
-          // ignored
-      }
-    }
-  }
-
-  private void parsePaths(JsonObject json) {
+  private ImmutableList<JSModulePathSubstitution> createPathSubstitutions() {
     String runfilesPrefix = null;
     List<String> alternativePrefixes = new ArrayList<>();
     VirtualFile base = baseUrlFile.getValue();
@@ -384,48 +230,20 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
       runfilesPrefix = "./" + label.targetName() + ".runfiles/" + workspaceRoot.getName();
     }
 
-    for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-      String name = entry.getKey();
-      List<String> mappings = new ArrayList<>();
-      for (JsonElement path : entry.getValue().getAsJsonArray()) {
-        String pathString = path.getAsString();
-        if (pathString.startsWith(workspaceRelativePathPrefix)) {
-          pathString =
-              workspaceRelativePathReplacement
-                  + pathString.substring(workspaceRelativePathPrefix.length());
-        }
-        mappings.add(pathString);
-      }
-      paths.add(new PathSubstitution(name, mappings, alternativePrefixes, runfilesPrefix));
-    }
-  }
-
-  private ImmutableList<VirtualFile> resolveFilesList() {
-    VirtualFile base = baseUrlFile.getValue();
-    if (base == null) {
-      return ImmutableList.of();
+    ImmutableList.Builder<JSModulePathSubstitution> paths = ImmutableList.builder();
+    for (Map.Entry<String, ImmutableList<String>> entry : config.paths.entrySet()) {
+      paths.add(
+          new PathSubstitution(
+              entry.getKey(), entry.getValue(), alternativePrefixes, runfilesPrefix));
     }
-    File baseFile = VfsUtil.virtualToIoFile(base);
-    FileOperationProvider fOps = FileOperationProvider.getInstance();
-    return filesStrings.stream()
-        .map(f -> new File(baseFile, f))
-        .map(
-            f -> {
-              try {
-                return fOps.isSymbolicLink(f) ? fOps.readSymbolicLink(f) : f;
-              } catch (IOException e) {
-                logger.warn(e);
-                return f;
-              }
-            })
-        .map(VfsUtils::resolveVirtualFile)
-        .filter(Objects::nonNull)
-        .collect(ImmutableList.toImmutableList());
+    return paths.build();
   }
 
   @Override
   public boolean accept(VirtualFile file) {
-    return getInclude().accept(file);
+    // tsconfig_editor.json only has a 'files' list, so there's no need to go through the include
+    // checker's pattern matching
+    return fileSet.getValue().contains(file);
   }
 
   @Override
@@ -445,7 +263,7 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public Collection<JSModulePathSubstitution> getPaths() {
-    return paths;
+    return paths.getValue();
   }
 
   @Override
@@ -455,7 +273,7 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public LanguageTarget getLanguageTarget() {
-    return target;
+    return config.target;
   }
 
   @Nullable
@@ -477,17 +295,17 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public boolean isCompileOnSave() {
-    return compileOnSave;
+    return config.compileOnSave;
   }
 
   @Override
   public boolean isInlineSourceMap() {
-    return inlineSourceMap;
+    return config.inlineSourceMap;
   }
 
   @Override
   public boolean isSourceMap() {
-    return sourceMap;
+    return config.sourceMap;
   }
 
   @Override
@@ -502,22 +320,22 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public ModuleResolution getResolution() {
-    return moduleResolution;
+    return config.moduleResolution;
   }
 
   @Override
   public ModuleResolution getEffectiveResolution() {
-    return moduleResolution;
+    return config.moduleResolution;
   }
 
   @Override
   public Collection<String> getTypes() {
-    return types;
+    return config.types;
   }
 
   @Override
   public ModuleTarget getModule() {
-    return module;
+    return config.module;
   }
 
   @Override
@@ -532,17 +350,13 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public boolean isFromFileList(VirtualFile file) {
-    return getInclude().isFromFilesList(file);
+    return fileSet.getValue().contains(file);
   }
 
   @Nullable
   @Override
   public String getRawCompilerOption(String name) {
-    if (!compilerOptions.has(name)) {
-      return null;
-    }
-    JsonElement option = compilerOptions.get(name);
-    return option.isJsonPrimitive() ? option.getAsString() : option.toString();
+    return config.rawCompilerOptions.get(name);
   }
 
   @Override
@@ -612,22 +426,22 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public boolean noImplicitAny() {
-    return noImplicitAny;
+    return config.noImplicitAny;
   }
 
   @Override
   public boolean noImplicitThis() {
-    return noImplicitThis;
+    return config.noImplicitThis;
   }
 
   @Override
   public boolean strictNullChecks() {
-    return strictNullChecks;
+    return config.strictNullChecks;
   }
 
   @Override
   public boolean hasCompilerOption(String name) {
-    return compilerOptions.has(name);
+    return config.rawCompilerOptions.containsKey(name);
   }
 
   @Override
@@ -642,7 +456,7 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public boolean noLib() {
-    return noLib;
+    return config.noLib;
   }
 
   @Nullable
@@ -664,7 +478,7 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
   @Nullable
   @Override
   public String jsxFactory() {
-    return jsxFactory;
+    return config.jsxFactory;
   }
 
   @Override
@@ -679,7 +493,7 @@ class BlazeTypeScriptConfig implements TypeScriptConfigCompat {
 
   @Override
   public List<String> getPlugins() {
-    return plugins;
+    return config.plugins;
   }
 
   @Override
@@ -34,26 +34,31 @@ import com.google.idea.sdkcompat.typescript.TypeScriptConfigServiceCompat;
 import com.intellij.lang.typescript.tsconfig.TypeScriptConfig;
 import com.intellij.lang.typescript.tsconfig.TypeScriptConfigService;
 import com.intellij.lang.typescript.tsconfig.TypeScriptConfigsChangedListener;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.vfs.VirtualFile;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 import javax.annotation.Nullable;
 
 class BlazeTypeScriptConfigServiceImpl implements TypeScriptConfigServiceCompat {
+  private static final Logger logger = Logger.getInstance(BlazeTypeScriptConfigServiceImpl.class);
+
   private final Project project;
   private final List<TypeScriptConfigsChangedListener> listeners;
+  private final TsConfigCache cache;
 
   private ImmutableMap<VirtualFile, TypeScriptConfig> configs;
 
   BlazeTypeScriptConfigServiceImpl(Project project) {
     this.project = project;
     this.listeners = new ArrayList<>();
+    this.cache = new TsConfigCache(project);
     update();
   }
 
@@ -66,6 +71,7 @@ class BlazeTypeScriptConfigServiceImpl implements TypeScriptConfigServiceCompat
         parseConfigs(project).stream()
             .collect(
                 ImmutableMap.toImmutableMap(TypeScriptConfig::getConfigFile, Functions.identity()));
+    cache.save();
     for (TypeScriptConfigsChangedListener listener : listeners) {
       TypeScriptConfigServiceCompat.fireListener(listener, configs);
     }
@@ -76,10 +82,18 @@ class BlazeTypeScriptConfigServiceImpl implements TypeScriptConfigServiceCompat
     if (projectViewSet == null) {
       return ImmutableList.of();
     }
-    return getTsConfigTargets(projectViewSet).stream()
-        .map(label -> BlazeTypeScriptConfig.getInstance(project, label))
-        .filter(Objects::nonNull)
-        .collect(ImmutableList.toImmutableList());
+    ImmutableList.Builder<TypeScriptConfig> configs = ImmutableList.builder();
+    for (Label label : getTsConfigTargets(projectViewSet)) {
+      try {
+        TypeScriptConfig config = BlazeTypeScriptConfig.getInstance(project, cache, label);
+        if (config != null) {
+          configs.add(config);
+        }
+      } catch (IOException e) {
+        logger.warn("Failed to read the tsconfig for " + label, e);
+      }
+    }
+    return configs.build();
   }
 
   private static Set<Label> getTsConfigTargets(ProjectViewSet projectViewSet) {
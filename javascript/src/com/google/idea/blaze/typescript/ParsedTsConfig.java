@@ -0,0 +1,315 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.typescript;
+
+import com.google.common.base.Ascii;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.idea.blaze.base.io.FileOperationProvider;
+import com.intellij.lang.typescript.tsconfig.TypeScriptConfig.LanguageTarget;
+import com.intellij.lang.typescript.tsconfig.TypeScriptConfig.ModuleResolution;
+import com.intellij.lang.typescript.tsconfig.TypeScriptConfig.ModuleTarget;
+import com.intellij.openapi.diagnostic.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The subset of a tsconfig_editor.json that {@link BlazeTypeScriptConfig} cares about.
+ *
+ * <p>Parsed with a streaming reader, so the (potentially very large) 'files' list is never held as
+ * a JSON tree. Instances only depend on the file contents, not on the file system, and are
+ * immutable and serializable, so they can be cached across sessions by {@link TsConfigCache}.
+ */
+final class ParsedTsConfig implements Serializable {
+  private static final long serialVersionUID = 2L;
+  private static final Logger logger = Logger.getInstance(ParsedTsConfig.class);
+
+  // tsconfig.json default values
+  final boolean compileOnSave;
+  /** Raw compiler option values, as strings or serialized JSON. */
+  final ImmutableMap<String, String> rawCompilerOptions;
+  // begin compilerOptions
+  final String baseUrl;
+  final boolean inlineSourceMap;
+  final String jsxFactory;
+  final ModuleTarget module;
+  final ModuleResolution moduleResolution;
+  final boolean noImplicitAny;
+  final boolean noImplicitThis;
+  final boolean noLib;
+  /** Path patterns, in declaration order, with workspace relative prefixes already replaced. */
+  final ImmutableMap<String, ImmutableList<String>> paths;
+  final ImmutableList<String> plugins;
+  final ImmutableList<String> rootDirs;
+  final boolean sourceMap;
+  final boolean strictNullChecks;
+  final LanguageTarget target;
+  final ImmutableList<String> types;
+  // end compilerOptions
+  /** The 'files' list, relative to the baseUrl, with workspace relative prefixes replaced. */
+  final ImmutableList<String> files;
+
+  private ParsedTsConfig(Parser parser) {
+    this.compileOnSave = parser.compileOnSave;
+    this.rawCompilerOptions = parser.rawCompilerOptions.build();
+    this.baseUrl = parser.baseUrl;
+    this.inlineSourceMap = parser.inlineSourceMap;
+    this.jsxFactory = parser.jsxFactory;
+    this.module = parser.module;
+    this.moduleResolution = parser.moduleResolution;
+    this.noImplicitAny = parser.noImplicitAny;
+    this.noImplicitThis = parser.noImplicitThis;
+    this.noLib = parser.noLib;
+    this.paths = parser.paths.build();
+    this.plugins = parser.plugins.build();
+    this.rootDirs = parser.rootDirs.build();
+    this.sourceMap = parser.sourceMap;
+    this.strictNullChecks = parser.strictNullChecks;
+    this.target = parser.target;
+    this.types = parser.types.build();
+    this.files = parser.files.build();
+  }
+
+  /**
+   * Parses a tsconfig_editor.json.
+   *
+   * @param workspaceRelativePathPrefix replaced with {@code workspaceRelativePathReplacement} in
+   *     all paths, to map paths from the blaze-bin symlink in the workspace root to the real
+   *     blaze-bin.
+   */
+  static ParsedTsConfig parse(
+      Reader reader, String workspaceRelativePathPrefix, String workspaceRelativePathReplacement)
+      throws IOException {
+    Parser parser = new Parser(workspaceRelativePathPrefix, workspaceRelativePathReplacement);
+    try (JsonReader json = new JsonReader(reader)) {
+      json.setLenient(true);
+      parser.parse(json);
+    }
+    return new ParsedTsConfig(parser);
+  }
+
+  /**
+   * Returns the absolute paths of the 'files' list, with symlinks resolved.
+   *
+   * @param tsconfigDirectory the directory containing the tsconfig_editor.json. The 'files' list is
+   *     resolved relative to its baseUrl.
+   */
+  ImmutableList<String> resolveFiles(File tsconfigDirectory) {
+    File baseDirectory = new File(tsconfigDirectory, baseUrl).toPath().normalize().toFile();
+    FileOperationProvider fOps = FileOperationProvider.getInstance();
+    if (!fOps.isDirectory(baseDirectory)) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<String> resolved = ImmutableList.builder();
+    for (String path : files) {
+      File file = new File(baseDirectory, path);
+      try {
+        if (fOps.isSymbolicLink(file)) {
+          file = fOps.readSymbolicLink(file);
+        }
+      } catch (IOException e) {
+        logger.warn(e);
+      }
+      resolved.add(file.toPath().normalize().toString());
+    }
+    return resolved.build();
+  }
+
+  private static class Parser {
+    private final String workspaceRelativePathPrefix;
+    private final String workspaceRelativePathReplacement;
+
+    private boolean compileOnSave = false;
+    private final ImmutableMap.Builder<String, String> rawCompilerOptions = ImmutableMap.builder();
+    private String baseUrl = ".";
+    private boolean inlineSourceMap = true;
+    private String jsxFactory = "React.createElement";
+    private ModuleTarget module = ModuleTarget.COMMON_JS;
+    private ModuleResolution moduleResolution = ModuleResolution.NODE;
+    private boolean noImplicitAny = true;
+    private boolean noImplicitThis = true;
+    private boolean noLib = true;
+    private final ImmutableMap.Builder<String, ImmutableList<String>> paths =
+        ImmutableMap.builder();
+    private final ImmutableList.Builder<String> plugins = ImmutableList.builder();
+    private final ImmutableList.Builder<String> rootDirs = ImmutableList.builder();
+    private boolean sourceMap = false;
+    private boolean strictNullChecks = true;
+    private LanguageTarget target = LanguageTarget.ES5;
+    private final ImmutableList.Builder<String> types = ImmutableList.builder();
+    private final ImmutableList.Builder<String> files = ImmutableList.builder();
+
+    Parser(String workspaceRelativePathPrefix, String workspaceRelativePathReplacement) {
+      this.workspaceRelativePathPrefix = workspaceRelativePathPrefix;
+      this.workspaceRelativePathReplacement = workspaceRelativePathReplacement;
+    }
+
+    private String replacePrefix(String path) {
+      if (path.startsWith(workspaceRelativePathPrefix)) {
+        return workspaceRelativePathReplacement
+            + path.substring(workspaceRelativePathPrefix.length());
+      }
+      return path;
+    }
+
+    void parse(JsonReader json) throws IOException {
+      json.beginObject();
+      while (json.hasNext()) {
+        switch (json.nextName()) {
+          case "compileOnSave":
+            this.compileOnSave = json.nextBoolean();
+            break;
+          case "compilerOptions":
+            // small enough to be worth keeping as a tree, and needed for raw option lookups
+            parseCompilerOptions(new JsonParser().parse(json).getAsJsonObject());
+            break;
+          case "files":
+            // stream the files list, it can contain tens of thousands of entries
+            json.beginArray();
+            while (json.hasNext()) {
+              files.add(replacePrefix(json.nextString()));
+            }
+            json.endArray();
+            break;
+          default:
+            json.skipValue();
+        }
+      }
+      json.endObject();
+    }
+
+    private void parseCompilerOptions(JsonObject json) {
+      for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+        String name = entry.getKey();
+        JsonElement value = entry.getValue();
+        rawCompilerOptions.put(
+            name, value.isJsonPrimitive() ? value.getAsString() : value.toString());
+        switch (name) {
+          case "baseUrl":
+            this.baseUrl = value.getAsString();
+            break;
+          case "inlineSourceMap":
+            this.inlineSourceMap = value.getAsBoolean();
+            break;
+          case "jsxFactory":
+            this.jsxFactory = value.getAsString();
+            break;
+          case "module":
+            this.module = parseModuleTarget(value.getAsString());
+            break;
+          case "moduleResolution":
+            this.moduleResolution = parseModuleResolution(value.getAsString());
+            break;
+          case "noImplicitAny":
+            this.noImplicitAny = value.getAsBoolean();
+            break;
+          case "noImplicitThis":
+            this.noImplicitThis = value.getAsBoolean();
+            break;
+          case "noLib":
+            this.noLib = value.getAsBoolean();
+            break;
+          case "paths":
+            for (Map.Entry<String, JsonElement> path : value.getAsJsonObject().entrySet()) {
+              ImmutableList.Builder<String> mappings = ImmutableList.builder();
+              for (JsonElement mapping : path.getValue().getAsJsonArray()) {
+                mappings.add(replacePrefix(mapping.getAsString()));
+              }
+              paths.put(path.getKey(), mappings.build());
+            }
+            break;
+          case "plugins":
+            for (JsonElement plugin : value.getAsJsonArray()) {
+              plugins.add(plugin.getAsJsonObject().get("name").getAsString());
+            }
+            break;
+          case "rootDirs":
+            for (JsonElement rootDir : value.getAsJsonArray()) {
+              rootDirs.add(replacePrefix(rootDir.getAsString()));
+            }
+            break;
+          case "sourceMap":
+            this.sourceMap = value.getAsBoolean();
+            break;
+          case "strictNullChecks":
+            this.strictNullChecks = value.getAsBoolean();
+            break;
+          case "target":
+            LanguageTarget languageTarget = parseLanguageTarget(value.getAsString());
+            if (languageTarget != null) {
+              this.target = languageTarget;
+            }
+            break;
+          case "types":
+            for (JsonElement type : value.getAsJsonArray()) {
+              types.add(type.getAsString());
+            }
+            break;
+          default:
+            // ignored
+        }
+      }
+    }
+  }
+
+  private static ModuleTarget parseModuleTarget(String value) {
+    switch (Ascii.toLowerCase(value)) {
+      case "commonjs":
+        return ModuleTarget.COMMON_JS;
+      case "other":
+        return ModuleTarget.OTHER;
+      default:
+        return ModuleTarget.UNKNOWN;
+    }
+  }
+
+  private static ModuleResolution parseModuleResolution(String value) {
+    switch (Ascii.toLowerCase(value)) {
+      case "node":
+        return ModuleResolution.NODE;
+      case "classic":
+        return ModuleResolution.CLASSIC;
+      default:
+        return ModuleResolution.UNKNOWN;
+    }
+  }
+
+  /** Returns null for unrecognized targets, which are ignored (assumed to be es5). */
+  @Nullable
+  private static LanguageTarget parseLanguageTarget(String value) {
+    switch (Ascii.toLowerCase(value)) {
+      case "esnext":
+        return LanguageTarget.NEXT;
+      case "es3":
+        return LanguageTarget.ES3;
+      case "es5":
+        return LanguageTarget.ES5;
+      case "es6":
+      case "es2015":
+        return LanguageTarget.ES6;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.typescript;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.idea.blaze.base.io.InputStreamProvider;
+import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
+import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
+import com.google.idea.blaze.base.util.SerializationUtil;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Caches parsed tsconfig_editor.json files, keyed by a hash of their contents, so that a config is
+ * only re-parsed when it actually changes. Persisted in the project's cache directory, so configs
+ * don't need to be re-parsed on project open either.
+ *
+ * <p>Only the contents are cached. Anything depending on the file system (e.g. the resolved 'files'
+ * list) is recomputed by each {@link BlazeTypeScriptConfig}.
+ */
+final class TsConfigCache {
+  private static final Logger logger = Logger.getInstance(TsConfigCache.class);
+  private static final String CACHE_FILE_NAME = "tsconfig.cache.dat";
+
+  private static class Entry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final String hash;
+    final ParsedTsConfig config;
+
+    Entry(String hash, ParsedTsConfig config) {
+      this.hash = hash;
+      this.config = config;
+    }
+  }
+
+  private final Project project;
+  /** tsconfig_editor.json path -> parsed config */
+  @Nullable private HashMap<String, Entry> entries;
+  /** Configs requested since the last {@link #save}. */
+  private final Set<String> used = new HashSet<>();
+
+  private boolean modified = false;
+
+  TsConfigCache(Project project) {
+    this.project = project;
+  }
+
+  /** Returns the parsed config, re-parsing it only if its contents have changed. */
+  synchronized ParsedTsConfig get(
+      File tsconfigEditor,
+      String workspaceRelativePathPrefix,
+      String workspaceRelativePathReplacement)
+      throws IOException {
+    byte[] contents;
+    try (InputStream in = InputStreamProvider.getInstance().forFile(tsconfigEditor)) {
+      contents = ByteStreams.toByteArray(in);
+    }
+    Hasher hasher = Hashing.md5().newHasher().putBytes(contents);
+    hasher.putString(workspaceRelativePathPrefix, UTF_8).putChar('\0');
+    hasher.putString(workspaceRelativePathReplacement, UTF_8);
+    String hash = hasher.hash().toString();
+
+    Map<String, Entry> entries = getEntries();
+    String key = tsconfigEditor.getPath();
+    used.add(key);
+    Entry entry = entries.get(key);
+    if (entry != null && entry.hash.equals(hash)) {
+      return entry.config;
+    }
+    ParsedTsConfig config =
+        ParsedTsConfig.parse(
+            new InputStreamReader(new ByteArrayInputStream(contents), UTF_8),
+            workspaceRelativePathPrefix,
+            workspaceRelativePathReplacement);
+    entries.put(key, new Entry(hash, config));
+    modified = true;
+    return config;
+  }
+
+  /**
+   * Drops entries for configs which haven't been requested since the last save, and writes any
+   * changes to disk.
+   */
+  synchronized void save() {
+    Map<String, Entry> entries = getEntries();
+    modified |= entries.keySet().retainAll(used);
+    used.clear();
+    if (!modified) {
+      return;
+    }
+    modified = false;
+    File cacheFile = getCacheFile();
+    if (cacheFile == null) {
+      return;
+    }
+    try {
+      SerializationUtil.saveToDisk(cacheFile, new HashMap<>(entries));
+    } catch (IOException e) {
+      logger.warn(e);
+    }
+  }
+
+  private Map<String, Entry> getEntries() {
+    if (entries == null) {
+      entries = loadFromDisk();
+    }
+    return entries;
+  }
+
+  @SuppressWarnings("unchecked")
+  private HashMap<String, Entry> loadFromDisk() {
+    File cacheFile = getCacheFile();
+    if (cacheFile == null || !cacheFile.exists()) {
+      return new HashMap<>();
+    }
+    try {
+      Object loaded =
+          SerializationUtil.loadFromDisk(
+              cacheFile, ImmutableList.of(TsConfigCache.class.getClassLoader()));
+      if (loaded instanceof HashMap) {
+        return (HashMap<String, Entry>) loaded;
+      }
+    } catch (IOException e) {
+      // stale or corrupt cache, we'll just re-parse everything
+      logger.info(e);
+    }
+    return new HashMap<>();
+  }
+
+  @Nullable
+  private File getCacheFile() {
+    BlazeImportSettings importSettings =
+        BlazeImportSettingsManager.getInstance(project).getImportSettings();
+    return importSettings != null
+        ? new File(BlazeDataStorage.getProjectCacheDir(project, importSettings), CACHE_FILE_NAME)
+        : null;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.typescript;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.io.FileOperationProvider;
+import com.intellij.lang.typescript.tsconfig.TypeScriptConfig.LanguageTarget;
+import com.intellij.lang.typescript.tsconfig.TypeScriptConfig.ModuleTarget;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ParsedTsConfig} */
+@RunWith(JUnit4.class)
+public class ParsedTsConfigTest extends BlazeTestCase {
+
+  @Override
+  protected void initTest(
+      @NotNull Container applicationServices, @NotNull Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    applicationServices.register(FileOperationProvider.class, new FileOperationProvider());
+  }
+
+  @Test
+  public void testCompilerOptions() throws IOException {
+    ParsedTsConfig config =
+        parse(
+            "{",
+            "  \"compileOnSave\": true,",
+            "  \"compilerOptions\": {",
+            "    \"module\": \"other\",",
+            "    \"target\": \"es2015\",",
+            "    \"noLib\": false,",
+            "    \"jsx\": \"react\",",
+            "    \"plugins\": [{\"name\": \"@bazel/tsetse\"}, {\"name\": \"ide_performance\"}],",
+            "    \"types\": []",
+            "  }",
+            "}");
+
+    assertThat(config.compileOnSave).isTrue();
+    assertThat(config.module).isEqualTo(ModuleTarget.OTHER);
+    assertThat(config.target).isEqualTo(LanguageTarget.ES6);
+    assertThat(config.noLib).isFalse();
+    assertThat(config.plugins).containsExactly("@bazel/tsetse", "ide_performance").inOrder();
+    assertThat(config.types).isEmpty();
+    assertThat(config.rawCompilerOptions).containsEntry("jsx", "react");
+    assertThat(config.rawCompilerOptions).containsEntry("types", "[]");
+    assertThat(config.rawCompilerOptions).doesNotContainKey("baseUrl");
+  }
+
+  @Test
+  public void testWorkspaceRelativePathsAreReplaced() throws IOException {
+    ParsedTsConfig config =
+        parse(
+            "{",
+            "  \"compilerOptions\": {",
+            "    \"paths\": {",
+            "      \"workspace/*\": [\"../../../*\", \"./tsconfig.runfiles/workspace/*\"]",
+            "    },",
+            "    \"rootDirs\": [\"../../../project/foo\"]",
+            "  },",
+            "  \"unknown\": {\"nested\": [1, 2, 3]}",
+            "}");
+
+    assertThat(config.paths)
+        .containsExactly(
+            "workspace/*",
+            ImmutableList.of("../../../../../workspace/*", "./tsconfig.runfiles/workspace/*"));
+    assertThat(config.rootDirs).containsExactly("../../../../../workspace/project/foo");
+  }
+
+  @Test
+  public void testMissingBaseDirectoryResolvesNoFiles() throws IOException {
+    ParsedTsConfig config = parse("{", "  \"files\": [\"../../../project/foo/included.ts\"]", "}");
+    assertThat(config.files).containsExactly("../../../../../workspace/project/foo/included.ts");
+    assertThat(config.resolveFiles(new File("/nonexistent/blaze-bin/project/foo"))).isEmpty();
+    assertThat(config.paths).isEqualTo(ImmutableMap.of());
+  }
+
+  private static ParsedTsConfig parse(String... lines) throws IOException {
+    return ParsedTsConfig.parse(
+        new StringReader(Joiner.on('\n').join(lines)), "../../..", "../../../../../workspace");
+  }
+}
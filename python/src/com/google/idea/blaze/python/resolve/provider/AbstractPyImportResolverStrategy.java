@@ -16,14 +16,13 @@
 package com.google.idea.blaze.python.resolve.provider;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSetMultimap;
 import com.google.idea.blaze.base.command.buildresult.OutputArtifactResolver;
 import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
 import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.LanguageClass;
 import com.google.idea.blaze.base.sync.SyncCache;
+import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
 import com.google.idea.blaze.base.sync.workspace.ArtifactLocationDecoder;
 import com.google.idea.blaze.python.resolve.BlazePyResolverUtils;
 import com.intellij.openapi.project.Project;
@@ -39,8 +38,6 @@ import com.jetbrains.python.psi.PyUtil;
 import com.jetbrains.python.psi.resolve.PyQualifiedNameResolveContext;
 import java.io.File;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -53,11 +50,13 @@ public abstract class AbstractPyImportResolverStrategy implements PyImportResolv
   @Override
   public final PsiElement resolveFromSyncData(
       QualifiedName name, PyQualifiedNameResolveContext context) {
-    PySourcesIndex index = getSourcesIndex(context.getProject());
+    BlazeProjectData projectData =
+        BlazeProjectDataManager.getInstance(context.getProject()).getBlazeProjectData();
+    PySourcesIndex index = getSourcesIndex(context.getProject(), projectData);
     if (index == null) {
       return null;
     }
-    PsiElementProvider resolver = index.sourceMap.get(name);
+    PsiElementProvider resolver = getResolver(context.getProject(), projectData, index, name);
     return resolver != null ? resolver.get(context.getPsiManager()) : null;
   }
 
@@ -65,13 +64,15 @@ public abstract class AbstractPyImportResolverStrategy implements PyImportResolv
   public final void addImportCandidates(
       PsiReference reference, String name, AutoImportQuickFix quickFix) {
     Project project = reference.getElement().getProject();
-    PySourcesIndex index = getSourcesIndex(project);
+    BlazeProjectData projectData =
+        BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
+    PySourcesIndex index = getSourcesIndex(project, projectData);
     if (index == null) {
       return;
     }
     PsiManager psiManager = PsiManager.getInstance(project);
-    for (QualifiedName candidate : index.shortNames.get(name)) {
-      PsiElementProvider resolver = index.sourceMap.get(candidate);
+    for (QualifiedName candidate : index.getNamesWithShortName(name)) {
+      PsiElementProvider resolver = getResolver(project, projectData, index, candidate);
       if (resolver == null) {
         continue;
       }
@@ -87,30 +88,54 @@ public abstract class AbstractPyImportResolverStrategy implements PyImportResolv
   }
 
   @Nullable
-  private PySourcesIndex getSourcesIndex(Project project) {
+  private static PsiElementProvider getResolver(
+      Project project, BlazeProjectData projectData, PySourcesIndex index, QualifiedName name) {
+    PySourcesIndex.Entry entry = index.get(name);
+    if (entry == null) {
+      return null;
+    }
+    PsiElementProvider psiProvider =
+        psiProviderFromArtifact(project, projectData.getArtifactLocationDecoder(), entry.source);
+    return entry.isParentDirectory ? PsiElementProvider.getParent(psiProvider) : psiProvider;
+  }
+
+  /**
+   * Returns the sources index built during the last sync, falling back to building it on demand if
+   * the project data predates persisted indices.
+   */
+  @Nullable
+  private PySourcesIndex getSourcesIndex(Project project, @Nullable BlazeProjectData projectData) {
+    if (projectData == null) {
+      return null;
+    }
+    BlazePySyncData syncData = projectData.getSyncState().get(BlazePySyncData.class);
+    PySourcesIndex index = syncData != null ? syncData.getIndex(this) : null;
+    if (index != null) {
+      return index;
+    }
     return SyncCache.getInstance(project).get(getClass(), this::buildSourcesIndex);
   }
 
   @SuppressWarnings("unused")
   private PySourcesIndex buildSourcesIndex(Project project, BlazeProjectData projectData) {
-    ImmutableSetMultimap.Builder<String, QualifiedName> shortNames = ImmutableSetMultimap.builder();
-    Map<QualifiedName, PsiElementProvider> map = new HashMap<>();
-    ArtifactLocationDecoder decoder = projectData.getArtifactLocationDecoder();
+    PySourcesIndex.Builder builder = PySourcesIndex.builder();
     for (TargetIdeInfo target : projectData.getTargetMap().targets()) {
       for (ArtifactLocation source : getPySources(target)) {
-        QualifiedName name = toImportString(source);
-        if (name == null || name.getLastComponent() == null) {
-          continue;
-        }
-        shortNames.put(name.getLastComponent(), name);
-        PsiElementProvider psiProvider = psiProviderFromArtifact(project, decoder, source);
-        map.put(name, psiProvider);
-        if (includeParentDirectory(source)) {
-          map.put(name.removeTail(1), PsiElementProvider.getParent(psiProvider));
-        }
+        addToIndex(builder, source, toImportString(source));
       }
     }
-    return new PySourcesIndex(shortNames.build(), ImmutableMap.copyOf(map));
+    return builder.build();
+  }
+
+  static void addToIndex(
+      PySourcesIndex.Builder builder, ArtifactLocation source, @Nullable QualifiedName name) {
+    if (name == null || name.getLastComponent() == null) {
+      return;
+    }
+    builder.add(name, source, /* isParentDirectory= */ false);
+    if (includeParentDirectory(source)) {
+      builder.add(name.removeTail(1), source, /* isParentDirectory= */ true);
+    }
   }
 
   private static PsiElementProvider psiProviderFromArtifact(
@@ -127,7 +152,7 @@ public abstract class AbstractPyImportResolverStrategy implements PyImportResolv
     };
   }
 
-  private static Collection<ArtifactLocation> getPySources(TargetIdeInfo target) {
+  static Collection<ArtifactLocation> getPySources(TargetIdeInfo target) {
     if (target.getPyIdeInfo() != null) {
       return target.getPyIdeInfo().getSources();
     }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.python.resolve.provider;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.devtools.intellij.model.ProjectData;
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
+import com.google.idea.blaze.base.ideinfo.ProtoWrapper;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.model.SyncData;
+import com.google.idea.blaze.base.settings.BuildSystem;
+import com.intellij.psi.util.QualifiedName;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+import javax.annotation.Nullable;
+
+/**
+ * Python import string indices, one per {@link AbstractPyImportResolverStrategy}, built during
+ * sync and persisted with the project data.
+ *
+ * <p>The persisted form is grouped by target, so that a subsequent non-full sync only needs to
+ * recompute import strings for targets whose python sources changed. Each source is stored once,
+ * and referenced by index from every target and strategy using it.
+ */
+public final class BlazePySyncData implements SyncData<ProjectData.BlazePySyncData> {
+
+  /** The python sources of a single target, and their corresponding import strings. */
+  private static final class TargetSources {
+    final ImmutableList<ArtifactLocation> sources;
+    // parallel to 'sources', NO_IMPORT_NAME if the source has no import string
+    final ImmutableList<QualifiedName> importNames;
+
+    TargetSources(ImmutableList<ArtifactLocation> sources, ImmutableList<QualifiedName> names) {
+      this.sources = sources;
+      this.importNames = names;
+    }
+
+    static TargetSources fromProto(
+        ProjectData.PySourcesIndex.TargetSources proto, List<ArtifactLocation> allSources) {
+      ImmutableList<ArtifactLocation> sources =
+          proto.getSourceIndicesList().stream().map(allSources::get).collect(toImmutableList());
+      ImmutableList.Builder<QualifiedName> names = ImmutableList.builder();
+      for (String name : proto.getImportNamesList()) {
+        names.add(name.isEmpty() ? NO_IMPORT_NAME : QualifiedName.fromDottedString(name));
+      }
+      return new TargetSources(sources, names.build());
+    }
+
+    ProjectData.PySourcesIndex.TargetSources toProto(
+        TargetKey key, ToIntFunction<ArtifactLocation> sourceIndex) {
+      ProjectData.PySourcesIndex.TargetSources.Builder builder =
+          ProjectData.PySourcesIndex.TargetSources.newBuilder().setTargetKey(key.toProto());
+      sources.forEach(source -> builder.addSourceIndices(sourceIndex.applyAsInt(source)));
+      importNames.forEach(
+          name -> builder.addImportNames(name == NO_IMPORT_NAME ? "" : name.toString()));
+      return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof TargetSources)) {
+        return false;
+      }
+      TargetSources other = (TargetSources) o;
+      return sources.equals(other.sources) && importNames.equals(other.importNames);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sources, importNames);
+    }
+  }
+
+  /** Placeholder for sources without an import string, since ImmutableList rejects nulls. */
+  private static final QualifiedName NO_IMPORT_NAME = QualifiedName.fromComponents();
+
+  /** strategy class name -> target -> sources */
+  private final ImmutableMap<String, ImmutableMap<TargetKey, TargetSources>> targetSources;
+
+  /** The compact lookup structures, derived from 'targetSources' on construction. */
+  private final ImmutableMap<String, PySourcesIndex> indices;
+
+  private BlazePySyncData(
+      ImmutableMap<String, ImmutableMap<TargetKey, TargetSources>> targetSources) {
+    this.targetSources = targetSources;
+    ImmutableMap.Builder<String, PySourcesIndex> indices = ImmutableMap.builder();
+    targetSources.forEach((strategy, map) -> indices.put(strategy, buildIndex(map)));
+    this.indices = indices.build();
+  }
+
+  /**
+   * Returns the sources index for the given strategy, or null if none was built during the last
+   * sync.
+   */
+  @Nullable
+  PySourcesIndex getIndex(AbstractPyImportResolverStrategy strategy) {
+    return indices.get(strategy.getClass().getName());
+  }
+
+  /**
+   * Builds the sources indices for all applicable {@link AbstractPyImportResolverStrategy}s,
+   * reusing import strings from the previous sync for targets whose sources haven't changed.
+   */
+  public static BlazePySyncData build(
+      BuildSystem buildSystem, TargetMap targetMap, @Nullable BlazePySyncData previous) {
+    ImmutableMap.Builder<String, ImmutableMap<TargetKey, TargetSources>> builder =
+        ImmutableMap.builder();
+    for (PyImportResolverStrategy strategy : PyImportResolverStrategy.EP_NAME.getExtensions()) {
+      if (!(strategy instanceof AbstractPyImportResolverStrategy)
+          || !strategy.appliesToBuildSystem(buildSystem)) {
+        continue;
+      }
+      String key = strategy.getClass().getName();
+      ImmutableMap<TargetKey, TargetSources> previousSources =
+          previous != null ? previous.targetSources.get(key) : null;
+      builder.put(
+          key,
+          buildTargetSources(
+              (AbstractPyImportResolverStrategy) strategy,
+              targetMap,
+              previousSources != null ? previousSources : ImmutableMap.of()));
+    }
+    return new BlazePySyncData(builder.build());
+  }
+
+  private static ImmutableMap<TargetKey, TargetSources> buildTargetSources(
+      AbstractPyImportResolverStrategy strategy,
+      TargetMap targetMap,
+      ImmutableMap<TargetKey, TargetSources> previous) {
+    ImmutableMap.Builder<TargetKey, TargetSources> builder = ImmutableMap.builder();
+    for (TargetIdeInfo target : targetMap.targets()) {
+      ImmutableList<ArtifactLocation> sources =
+          ImmutableList.copyOf(AbstractPyImportResolverStrategy.getPySources(target));
+      if (sources.isEmpty()) {
+        continue;
+      }
+      TargetSources old = previous.get(target.getKey());
+      if (old != null && old.sources.equals(sources)) {
+        builder.put(target.getKey(), old);
+        continue;
+      }
+      ImmutableList.Builder<QualifiedName> names = ImmutableList.builder();
+      for (ArtifactLocation source : sources) {
+        QualifiedName name = strategy.toImportString(source);
+        names.add(name != null ? name : NO_IMPORT_NAME);
+      }
+      builder.put(target.getKey(), new TargetSources(sources, names.build()));
+    }
+    return builder.build();
+  }
+
+  private static PySourcesIndex buildIndex(Map<TargetKey, TargetSources> targetSources) {
+    PySourcesIndex.Builder builder = PySourcesIndex.builder();
+    for (TargetSources target : targetSources.values()) {
+      for (int i = 0; i < target.sources.size(); i++) {
+        AbstractPyImportResolverStrategy.addToIndex(
+            builder, target.sources.get(i), target.importNames.get(i));
+      }
+    }
+    return builder.build();
+  }
+
+  private static BlazePySyncData fromProto(ProjectData.BlazePySyncData proto) {
+    // sources are stored once, and shared between all targets and indices referencing them
+    ImmutableList<ArtifactLocation> sources =
+        ProtoWrapper.map(proto.getSourcesList(), ArtifactLocation::fromProto);
+    ImmutableMap.Builder<String, ImmutableMap<TargetKey, TargetSources>> builder =
+        ImmutableMap.builder();
+    for (ProjectData.PySourcesIndex index : proto.getSourcesIndicesList()) {
+      ImmutableMap.Builder<TargetKey, TargetSources> targets = ImmutableMap.builder();
+      for (ProjectData.PySourcesIndex.TargetSources target : index.getTargetsList()) {
+        targets.put(
+            TargetKey.fromProto(target.getTargetKey()), TargetSources.fromProto(target, sources));
+      }
+      builder.put(index.getStrategy(), targets.build());
+    }
+    return new BlazePySyncData(builder.build());
+  }
+
+  @Override
+  public ProjectData.BlazePySyncData toProto() {
+    ProjectData.BlazePySyncData.Builder builder = ProjectData.BlazePySyncData.newBuilder();
+    Map<ArtifactLocation, Integer> sourceIndices = new HashMap<>();
+    ToIntFunction<ArtifactLocation> sourceIndex =
+        source ->
+            sourceIndices.computeIfAbsent(
+                source,
+                s -> {
+                  builder.addSources(s.toProto());
+                  return builder.getSourcesCount() - 1;
+                });
+    targetSources.forEach(
+        (strategy, targets) -> {
+          ProjectData.PySourcesIndex.Builder index =
+              ProjectData.PySourcesIndex.newBuilder().setStrategy(strategy);
+          targets.forEach((key, sources) -> index.addTargets(sources.toProto(key, sourceIndex)));
+          builder.addSourcesIndices(index);
+        });
+    return builder.build();
+  }
+
+  @Override
+  public void insert(ProjectData.SyncState.Builder builder) {
+    builder.setBlazePySyncData(toProto());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof BlazePySyncData)) {
+      return false;
+    }
+    return targetSources.equals(((BlazePySyncData) o).targetSources);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(targetSources);
+  }
+
+  static class Extractor implements SyncData.Extractor<BlazePySyncData> {
+    @Nullable
+    @Override
+    public BlazePySyncData extract(ProjectData.SyncState syncState) {
+      return syncState.hasBlazePySyncData()
+          ? BlazePySyncData.fromProto(syncState.getBlazePySyncData())
+          : null;
+    }
+  }
+}
@@ -15,19 +15,193 @@
  */
 package com.google.idea.blaze.python.resolve.provider;
 
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
 import com.intellij.psi.util.QualifiedName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
 
-/** An index of python sources and their associated import strings. */
-class PySourcesIndex {
-  final ImmutableSetMultimap<String, QualifiedName> shortNames;
-  final ImmutableMap<QualifiedName, PsiElementProvider> sourceMap;
+/**
+ * A compact, immutable index from python import strings to the blaze artifacts they resolve to.
+ *
+ * <p>Entries are kept in parallel arrays sorted by qualified name hash, so lookups are a binary
+ * search followed by an equality check, rather than a probe into a map of boxed keys.
+ */
+final class PySourcesIndex {
+
+  static final PySourcesIndex EMPTY = builder().build();
+
+  /** The result of an index lookup. */
+  static final class Entry {
+    final ArtifactLocation source;
+    /** If true, the import string refers to the directory containing {@link #source}. */
+    final boolean isParentDirectory;
+
+    private Entry(ArtifactLocation source, boolean isParentDirectory) {
+      this.source = source;
+      this.isParentDirectory = isParentDirectory;
+    }
+  }
+
+  private final int[] nameHashes;
+  private final QualifiedName[] names;
+  private final ArtifactLocation[] sources;
+  private final boolean[] parentDirectories;
+
+  // short name hash -> index into the arrays above, sorted by hash
+  private final int[] shortNameHashes;
+  private final int[] shortNameEntries;
+
+  private PySourcesIndex(
+      int[] nameHashes,
+      QualifiedName[] names,
+      ArtifactLocation[] sources,
+      boolean[] parentDirectories,
+      int[] shortNameHashes,
+      int[] shortNameEntries) {
+    this.nameHashes = nameHashes;
+    this.names = names;
+    this.sources = sources;
+    this.parentDirectories = parentDirectories;
+    this.shortNameHashes = shortNameHashes;
+    this.shortNameEntries = shortNameEntries;
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  @Nullable
+  Entry get(QualifiedName name) {
+    int index = indexOf(name);
+    return index >= 0 ? new Entry(sources[index], parentDirectories[index]) : null;
+  }
+
+  /** Returns all indexed import strings whose last component is the given short name. */
+  ImmutableList<QualifiedName> getNamesWithShortName(String shortName) {
+    int hash = shortName.hashCode();
+    int start = firstIndexOf(shortNameHashes, hash);
+    if (start < 0) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<QualifiedName> result = ImmutableList.builder();
+    for (int i = start; i < shortNameHashes.length && shortNameHashes[i] == hash; i++) {
+      QualifiedName name = names[shortNameEntries[i]];
+      if (shortName.equals(name.getLastComponent())) {
+        result.add(name);
+      }
+    }
+    return result.build();
+  }
+
+  private int indexOf(QualifiedName name) {
+    int hash = name.hashCode();
+    int start = firstIndexOf(nameHashes, hash);
+    if (start < 0) {
+      return -1;
+    }
+    for (int i = start; i < nameHashes.length && nameHashes[i] == hash; i++) {
+      if (name.equals(names[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the lowest index containing the given value, or -1 if it's not present. */
+  private static int firstIndexOf(int[] sortedArray, int value) {
+    int index = Arrays.binarySearch(sortedArray, value);
+    if (index < 0) {
+      return -1;
+    }
+    while (index > 0 && sortedArray[index - 1] == value) {
+      index--;
+    }
+    return index;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Builder for {@link PySourcesIndex}. If an import string is added more than once, the most
+   * recently added source wins.
+   */
+  static final class Builder {
+    private final List<QualifiedName> names = new ArrayList<>();
+    private final List<ArtifactLocation> sources = new ArrayList<>();
+    private final List<Boolean> parentDirectories = new ArrayList<>();
+    // only import strings referring directly to a source are offered as import candidates
+    private final Set<QualifiedName> directNames = new HashSet<>();
+
+    private Builder() {}
+
+    Builder add(QualifiedName name, ArtifactLocation source, boolean isParentDirectory) {
+      names.add(name);
+      sources.add(source);
+      parentDirectories.add(isParentDirectory);
+      if (!isParentDirectory) {
+        directNames.add(name);
+      }
+      return this;
+    }
+
+    PySourcesIndex build() {
+      // stable sort by hash, then drop all but the last added of each name
+      Integer[] order = new Integer[names.size()];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingInt(i -> names.get(i).hashCode()));
+
+      // walk backwards, so the first occurrence seen of each name is the one which wins
+      boolean[] overridden = new boolean[names.size()];
+      Set<QualifiedName> seen = new HashSet<>();
+      for (int i = names.size() - 1; i >= 0; i--) {
+        overridden[i] = !seen.add(names.get(i));
+      }
+
+      int count = 0;
+      int[] kept = new int[order.length];
+      for (int original : order) {
+        if (!overridden[original]) {
+          kept[count++] = original;
+        }
+      }
 
-  PySourcesIndex(
-      ImmutableSetMultimap<String, QualifiedName> shortNames,
-      ImmutableMap<QualifiedName, PsiElementProvider> sourceMap) {
-    this.shortNames = shortNames;
-    this.sourceMap = sourceMap;
+      int[] nameHashes = new int[count];
+      QualifiedName[] nameArray = new QualifiedName[count];
+      ArtifactLocation[] sourceArray = new ArtifactLocation[count];
+      boolean[] parentArray = new boolean[count];
+      List<Integer> withShortNames = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        int original = kept[i];
+        QualifiedName name = names.get(original);
+        nameHashes[i] = name.hashCode();
+        nameArray[i] = name;
+        sourceArray[i] = sources.get(original);
+        parentArray[i] = parentDirectories.get(original);
+        if (directNames.contains(name) && name.getLastComponent() != null) {
+          withShortNames.add(i);
+        }
+      }
+      withShortNames.sort(
+          Comparator.comparingInt(i -> nameArray[i].getLastComponent().hashCode()));
+      int[] shortNameHashes = new int[withShortNames.size()];
+      int[] shortNameEntries = new int[withShortNames.size()];
+      for (int i = 0; i < shortNameEntries.length; i++) {
+        int entry = withShortNames.get(i);
+        shortNameHashes[i] = nameArray[entry].getLastComponent().hashCode();
+        shortNameEntries[i] = entry;
+      }
+      return new PySourcesIndex(
+          nameHashes, nameArray, sourceArray, parentArray, shortNameHashes, shortNameEntries);
+    }
   }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.python.resolve.provider;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.devtools.intellij.model.ProjectData;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.ideinfo.TargetMapBuilder;
+import com.google.idea.blaze.base.model.primitives.Kind;
+import com.google.idea.blaze.base.settings.BuildSystem;
+import com.google.idea.blaze.python.PythonBlazeRules;
+import com.intellij.psi.util.QualifiedName;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link BlazePySyncData}. */
+@RunWith(JUnit4.class)
+public class BlazePySyncDataTest extends BlazeTestCase {
+
+  private final CountingImportResolverStrategy strategy = new CountingImportResolverStrategy();
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class)
+        .registerExtension(new PythonBlazeRules());
+    applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+    registerExtensionPoint(PyImportResolverStrategy.EP_NAME, PyImportResolverStrategy.class)
+        .registerExtension(strategy);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    BlazePySyncData syncData = BlazePySyncData.build(BuildSystem.Bazel, targetMap(), null);
+
+    BlazePySyncData deserialized = roundTrip(syncData);
+
+    assertThat(deserialized).isEqualTo(syncData);
+    PySourcesIndex.Entry entry =
+        deserialized.getIndex(strategy).get(QualifiedName.fromDottedString("foo.lib.bar"));
+    assertThat(entry).isNotNull();
+    assertThat(entry.source).isEqualTo(source("foo/lib/bar.py"));
+  }
+
+  @Test
+  public void testDeserializedImportStringsAreReused() {
+    BlazePySyncData previous =
+        roundTrip(BlazePySyncData.build(BuildSystem.Bazel, targetMap(), null));
+    int importStringsComputed = strategy.importStringsComputed;
+
+    BlazePySyncData syncData = BlazePySyncData.build(BuildSystem.Bazel, targetMap(), previous);
+
+    assertThat(syncData).isEqualTo(previous);
+    assertThat(strategy.importStringsComputed).isEqualTo(importStringsComputed);
+  }
+
+  private static BlazePySyncData roundTrip(BlazePySyncData syncData) {
+    ProjectData.SyncState.Builder syncState = ProjectData.SyncState.newBuilder();
+    syncData.insert(syncState);
+    return new BlazePySyncData.Extractor().extract(syncState.build());
+  }
+
+  private static TargetMap targetMap() {
+    return TargetMapBuilder.builder()
+        .addTarget(
+            TargetIdeInfo.builder()
+                .setLabel("//foo:lib")
+                .setBuildFile(source("foo/BUILD"))
+                .setKind("py_library")
+                .addSource(source("foo/lib/bar.py"))
+                .addSource(source("foo/lib/baz.py")))
+        .addTarget(
+            TargetIdeInfo.builder()
+                .setLabel("//foo:bin")
+                .setBuildFile(source("foo/BUILD"))
+                .setKind("py_binary")
+                .addSource(source("foo/lib/bar.py"))
+                .addSource(source("foo/main.py")))
+        .build();
+  }
+
+  private static ArtifactLocation source(String relativePath) {
+    return ArtifactLocation.builder().setRelativePath(relativePath).setIsSource(true).build();
+  }
+
+  /** Counts the number of import strings computed. */
+  private static class CountingImportResolverStrategy extends BazelPyImportResolverStrategy {
+    int importStringsComputed;
+
+    @Nullable
+    @Override
+    protected QualifiedName toImportString(ArtifactLocation source) {
+      importStringsComputed++;
+      return super.toImportString(source);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.python.resolve.provider;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
+import com.intellij.psi.util.QualifiedName;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PySourcesIndex}. */
+@RunWith(JUnit4.class)
+public class PySourcesIndexTest {
+
+  @Test
+  public void testLookupByQualifiedName() {
+    ArtifactLocation source = source("foo/bar/baz.py");
+    PySourcesIndex.Builder builder = PySourcesIndex.builder();
+    AbstractPyImportResolverStrategy.addToIndex(builder, source, name("foo.bar.baz"));
+    PySourcesIndex index = builder.build();
+
+    PySourcesIndex.Entry entry = index.get(name("foo.bar.baz"));
+    assertThat(entry).isNotNull();
+    assertThat(entry.source).isEqualTo(source);
+    assertThat(entry.isParentDirectory).isFalse();
+
+    PySourcesIndex.Entry parent = index.get(name("foo.bar"));
+    assertThat(parent).isNotNull();
+    assertThat(parent.source).isEqualTo(source);
+    assertThat(parent.isParentDirectory).isTrue();
+
+    assertThat(index.get(name("foo.baz"))).isNull();
+  }
+
+  @Test
+  public void testLaterEntriesOverrideEarlierOnes() {
+    ArtifactLocation first = source("first/foo.py");
+    ArtifactLocation second = source("second/foo.py");
+    PySourcesIndex index =
+        PySourcesIndex.builder()
+            .add(name("foo"), first, false)
+            .add(name("foo"), second, false)
+            .build();
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.get(name("foo")).source).isEqualTo(second);
+  }
+
+  @Test
+  public void testShortNameLookupOnlyReturnsDirectEntries() {
+    PySourcesIndex.Builder builder = PySourcesIndex.builder();
+    AbstractPyImportResolverStrategy.addToIndex(builder, source("a/util.py"), name("a.util"));
+    AbstractPyImportResolverStrategy.addToIndex(builder, source("b/util.py"), name("b.util"));
+    AbstractPyImportResolverStrategy.addToIndex(builder, source("util/c.py"), name("util.c"));
+    PySourcesIndex index = builder.build();
+
+    assertThat(index.getNamesWithShortName("util"))
+        .containsExactly(name("a.util"), name("b.util"));
+    assertThat(index.getNamesWithShortName("c")).containsExactly(name("util.c"));
+    assertThat(index.getNamesWithShortName("missing")).isEmpty();
+  }
+
+  @Test
+  public void testSourcesWithoutImportStringAreIgnored() {
+    PySourcesIndex.Builder builder = PySourcesIndex.builder();
+    AbstractPyImportResolverStrategy.addToIndex(builder, source("foo.py"), null);
+    AbstractPyImportResolverStrategy.addToIndex(
+        builder, source("bar.py"), QualifiedName.fromComponents());
+
+    assertThat(builder.build().size()).isEqualTo(0);
+  }
+
+  private static QualifiedName name(String dottedName) {
+    return QualifiedName.fromDottedString(dottedName);
+  }
+
+  private static ArtifactLocation source(String relativePath) {
+    return ArtifactLocation.builder().setRelativePath(relativePath).setIsSource(true).build();
+  }
+}